@@ -0,0 +1,506 @@
+package com.walmartlabs.concord.agent;
+
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.agent.cfg.AdmissionConfiguration;
+import com.walmartlabs.concord.agent.cfg.AgentConfiguration;
+import com.walmartlabs.concord.agent.executors.runner.ProcessPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Decides how many new processes can be started, based on the node's
+ * available memory, CPU usage and free disk space. The number of free
+ * worker slots remains the upper limit.
+ * <p>
+ * The expected memory usage of a process is measured using the RSS of
+ * the agent's child processes, not counting the idle pre-forked instances.
+ * Processes with a larger heap ({@code -Xmx}) reserve the part of the heap
+ * they don't use yet: the reservation minus the process' current RSS, which
+ * is already reflected in the available memory. If the RSS can't be observed,
+ * the expected memory usage is used instead.
+ */
+@Named
+@Singleton
+public class AdmissionController {
+
+    private static final Logger log = LoggerFactory.getLogger(AdmissionController.class);
+
+    private static final Path PROC_DIR = Paths.get("/proc");
+    private static final Path PROC_STAT = PROC_DIR.resolve("stat");
+
+    /**
+     * Clock ticks per second ({@code getconf CLK_TCK}), the same on all common Linux platforms.
+     */
+    private static final long CLOCK_TICKS = 100;
+
+    /**
+     * Weight of the latest measurement in the average memory usage of a process.
+     */
+    private static final double MEMORY_ALPHA = 0.3;
+
+    private static final long MIN_PROCESS_MEMORY = 64L * 1024 * 1024;
+
+    private static final Pattern XMX_PATTERN = Pattern.compile("-Xmx(\\d+)([kKmMgG]?)");
+
+    private final AdmissionConfiguration cfg;
+    private final ProcessPool processPool;
+    private final Path payloadDir;
+    private final String pid;
+
+    private final Map<UUID, Reservation> reservations = new ConcurrentHashMap<>();
+    private final AtomicLong refusedCount = new AtomicLong();
+
+    // guarded by "this"
+    private CpuTicks prevNodeTicks;
+    private long prevProcessTicks = -1;
+    private long prevSampleTime;
+    private long processMemory;
+
+    private volatile Stats stats;
+
+    @Inject
+    public AdmissionController(AdmissionConfiguration cfg, AgentConfiguration agentCfg, ProcessPool processPool) {
+        this.cfg = cfg;
+        this.processPool = processPool;
+        this.payloadDir = agentCfg.getPayloadDir();
+        this.pid = currentPid();
+
+        this.processMemory = cfg.getDefaultProcessMemory();
+        this.prevNodeTicks = readNodeTicks();
+        this.prevSampleTime = System.currentTimeMillis();
+
+        // nothing is measured until the first call of admit()
+        this.stats = new Stats(0, 0, 0, 0, 0, -1, -1, Math.max(processMemory, MIN_PROCESS_MEMORY), 0, -1);
+    }
+
+    /**
+     * Reserves the memory for a starting process.
+     */
+    public void reserve(UUID instanceId, long memory) {
+        if (memory > 0) {
+            reservations.put(instanceId, new Reservation(memory));
+        }
+    }
+
+    /**
+     * Links the reservation with the started process, so the reservation
+     * shrinks as the process' RSS grows.
+     */
+    public void started(UUID instanceId, long pid) {
+        Reservation r = reservations.get(instanceId);
+        if (r != null) {
+            r.pid = pid;
+        }
+    }
+
+    public void release(UUID instanceId) {
+        reservations.remove(instanceId);
+    }
+
+    /**
+     * @param freeSlots        number of free worker slots
+     * @param runningProcesses number of currently running processes
+     * @return number of new processes that can be started, between 0 and {@code freeSlots}
+     */
+    public synchronized int admit(int freeSlots, int runningProcesses) {
+        if (!cfg.isEnabled()) {
+            return freeSlots;
+        }
+
+        long now = System.currentTimeMillis();
+
+        // CPU usage of the whole node since the previous call
+        CpuTicks nodeTicks = readNodeTicks();
+        double cpuLoad = cpuLoad(prevNodeTicks, nodeTicks);
+        prevNodeTicks = nodeTicks;
+
+        // memory and CPU usage of the running processes (the agent's child processes)
+        double processCpu = -1;
+        ChildProcesses children = readChildProcesses();
+        if (children != null) {
+            if (prevProcessTicks >= 0 && now > prevSampleTime) {
+                // the ticks of the finished processes are gone, ignore the negative values
+                long ticks = Math.max(0, children.cpuTicks - prevProcessTicks);
+                processCpu = (double) ticks / CLOCK_TICKS / ((now - prevSampleTime) / 1000.0);
+            }
+            prevProcessTicks = children.cpuTicks;
+
+            if (runningProcesses > 0) {
+                long current = children.rss / runningProcesses;
+                processMemory = (long) (MEMORY_ALPHA * current + (1 - MEMORY_ALPHA) * processMemory);
+            }
+        }
+        prevSampleTime = now;
+
+        long expectedMemory = Math.max(processMemory, MIN_PROCESS_MEMORY);
+        long reservedMemory = reservedMemory(expectedMemory);
+        long availableMemory = Utils.availableMemory();
+        long freeDisk = freeDisk(payloadDir);
+
+        int result;
+        String reason;
+        if (cpuLoad > cfg.getMaxCpuLoad()) {
+            result = 0;
+            reason = String.format("CPU usage %.2f", cpuLoad);
+        } else if (freeDisk < cfg.getMinFreeDisk()) {
+            result = 0;
+            reason = "free disk space " + freeDisk + " byte(s)";
+        } else {
+            long headroom = availableMemory - cfg.getMinFreeMemory() - reservedMemory;
+            result = (int) Math.max(0, Math.min(freeSlots, headroom / expectedMemory));
+            reason = "available memory " + availableMemory + " byte(s), expected per process " + expectedMemory + " byte(s)";
+        }
+
+        if (result < freeSlots) {
+            refusedCount.addAndGet(freeSlots - result);
+            log.info("admit -> {} of {} slot(s) can be used: {}", result, freeSlots, reason);
+        }
+
+        stats = new Stats(freeSlots, result, refusedCount.get(), runningProcesses, cpuLoad, processCpu,
+                availableMemory, expectedMemory, reservedMemory, freeDisk);
+
+        return result;
+    }
+
+    public Stats getStats() {
+        return stats;
+    }
+
+    /**
+     * @return the max heap size from the JVM parameters or -1 if not specified.
+     */
+    public static long maxHeapSize(List<String> jvmParams) {
+        if (jvmParams == null) {
+            return -1;
+        }
+
+        long result = -1;
+        for (String p : jvmParams) {
+            Matcher m = XMX_PATTERN.matcher(p.trim());
+            if (!m.matches()) {
+                continue;
+            }
+
+            long v = Long.parseLong(m.group(1));
+            switch (m.group(2).toLowerCase()) {
+                case "k":
+                    v *= 1024;
+                    break;
+                case "m":
+                    v *= 1024 * 1024;
+                    break;
+                case "g":
+                    v *= 1024 * 1024 * 1024;
+                    break;
+                default:
+                    break;
+            }
+
+            // the last one wins, same as in the JVM
+            result = v;
+        }
+        return result;
+    }
+
+    /**
+     * @return the part of the reservations not yet reflected in the available memory.
+     */
+    private long reservedMemory(long expectedMemory) {
+        boolean canMeasure = Files.isDirectory(PROC_DIR);
+
+        long result = 0;
+        for (Reservation r : reservations.values()) {
+            long pid = r.pid;
+            long used = canMeasure && pid >= 0 ? readRss(PROC_DIR.resolve(String.valueOf(pid))) : expectedMemory;
+            result += Math.max(0, r.memory - used);
+        }
+        return result;
+    }
+
+    private static double cpuLoad(CpuTicks prev, CpuTicks current) {
+        if (prev == null || current == null) {
+            return 0;
+        }
+
+        long total = current.total - prev.total;
+        if (total <= 0) {
+            return 0;
+        }
+
+        long idle = current.idle - prev.idle;
+        return 1.0 - (double) idle / total;
+    }
+
+    private static CpuTicks readNodeTicks() {
+        if (!Files.isReadable(PROC_STAT)) {
+            return null;
+        }
+
+        try {
+            for (String l : Files.readAllLines(PROC_STAT)) {
+                if (!l.startsWith("cpu ")) {
+                    continue;
+                }
+
+                // cpu user nice system idle iowait irq softirq steal ...
+                String[] as = l.trim().split("\\s+");
+                long total = 0;
+                for (int i = 1; i <= 8 && i < as.length; i++) {
+                    total += Long.parseLong(as[i]);
+                }
+                long idle = Long.parseLong(as[4]) + Long.parseLong(as[5]);
+                return new CpuTicks(total, idle);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("readNodeTicks -> can't read {}: {}", PROC_STAT, e.getMessage());
+        }
+
+        return null;
+    }
+
+    private ChildProcesses readChildProcesses() {
+        if (pid == null || !Files.isDirectory(PROC_DIR)) {
+            return null;
+        }
+
+        // the idle pre-forked instances are not running any processes yet
+        Set<String> idle = new HashSet<>();
+        processPool.getIdlePids().forEach(p -> idle.add(String.valueOf(p)));
+
+        Map<String, List<String>> children = new HashMap<>();
+        Map<String, Long> ticks = new HashMap<>();
+
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(PROC_DIR, "[0-9]*")) {
+            for (Path p : ds) {
+                String[] stat = readStat(p);
+                if (stat == null || stat.length < 13) {
+                    continue;
+                }
+
+                // the fields after "pid (comm)": state ppid ... utime(11) stime(12)
+                String id = p.getFileName().toString();
+                children.computeIfAbsent(stat[1], k -> new ArrayList<>()).add(id);
+                ticks.put(id, Long.parseLong(stat[11]) + Long.parseLong(stat[12]));
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("readChildProcesses -> can't read {}: {}", PROC_DIR, e.getMessage());
+            return null;
+        }
+
+        long rss = 0;
+        long cpuTicks = 0;
+
+        Deque<String> queue = new ArrayDeque<>(children.getOrDefault(pid, Collections.emptyList()));
+        while (!queue.isEmpty()) {
+            String id = queue.poll();
+            if (idle.contains(id)) {
+                continue;
+            }
+
+            rss += readRss(PROC_DIR.resolve(id));
+            cpuTicks += ticks.getOrDefault(id, 0L);
+            queue.addAll(children.getOrDefault(id, Collections.emptyList()));
+        }
+
+        return new ChildProcesses(rss, cpuTicks);
+    }
+
+    private static String[] readStat(Path procDir) {
+        try {
+            String s = new String(Files.readAllBytes(procDir.resolve("stat")));
+            // the process name can contain spaces and parentheses
+            int idx = s.lastIndexOf(')');
+            if (idx < 0 || idx + 2 >= s.length()) {
+                return null;
+            }
+            return s.substring(idx + 2).trim().split(" ");
+        } catch (IOException e) {
+            // the process is gone
+            return null;
+        }
+    }
+
+    private static long readRss(Path procDir) {
+        try {
+            for (String l : Files.readAllLines(procDir.resolve("status"))) {
+                if (l.startsWith("VmRSS:")) {
+                    return Long.parseLong(l.replaceAll("[^0-9]", "")) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // the process is gone
+        }
+        return 0;
+    }
+
+    private static long freeDisk(Path dir) {
+        try {
+            return Files.getFileStore(dir).getUsableSpace();
+        } catch (IOException e) {
+            log.warn("freeDisk -> can't check the free space in {}: {}", dir, e.getMessage());
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static String currentPid() {
+        // "pid@hostname"
+        String s = ManagementFactory.getRuntimeMXBean().getName();
+        int idx = s.indexOf('@');
+        return idx > 0 ? s.substring(0, idx) : null;
+    }
+
+    private static final class CpuTicks {
+
+        private final long total;
+        private final long idle;
+
+        private CpuTicks(long total, long idle) {
+            this.total = total;
+            this.idle = idle;
+        }
+    }
+
+    private static final class Reservation {
+
+        private final long memory;
+        private volatile long pid = -1;
+
+        private Reservation(long memory) {
+            this.memory = memory;
+        }
+    }
+
+    private static final class ChildProcesses {
+
+        private final long rss;
+        private final long cpuTicks;
+
+        private ChildProcesses(long rss, long cpuTicks) {
+            this.rss = rss;
+            this.cpuTicks = cpuTicks;
+        }
+    }
+
+    public static final class Stats {
+
+        private final int requestedSlots;
+        private final int admittedSlots;
+        private final long refusedSlots;
+        private final int runningProcesses;
+        private final double cpuLoad;
+        private final double processCpu;
+        private final long availableMemory;
+        private final long processMemory;
+        private final long reservedMemory;
+        private final long freeDisk;
+
+        public Stats(int requestedSlots, int admittedSlots, long refusedSlots, int runningProcesses,
+                     double cpuLoad, double processCpu, long availableMemory, long processMemory,
+                     long reservedMemory, long freeDisk) {
+
+            this.requestedSlots = requestedSlots;
+            this.admittedSlots = admittedSlots;
+            this.refusedSlots = refusedSlots;
+            this.runningProcesses = runningProcesses;
+            this.cpuLoad = cpuLoad;
+            this.processCpu = processCpu;
+            this.availableMemory = availableMemory;
+            this.processMemory = processMemory;
+            this.reservedMemory = reservedMemory;
+            this.freeDisk = freeDisk;
+        }
+
+        /**
+         * Number of free worker slots in the last admission check.
+         */
+        public int getRequestedSlots() {
+            return requestedSlots;
+        }
+
+        /**
+         * Number of slots used in the last admission check.
+         */
+        public int getAdmittedSlots() {
+            return admittedSlots;
+        }
+
+        /**
+         * Total number of refused slots since the start.
+         */
+        public long getRefusedSlots() {
+            return refusedSlots;
+        }
+
+        public int getRunningProcesses() {
+            return runningProcesses;
+        }
+
+        /**
+         * CPU usage of the node, 0.0 - 1.0.
+         */
+        public double getCpuLoad() {
+            return cpuLoad;
+        }
+
+        /**
+         * CPU usage of the agent's child processes, in cores. -1 if unknown.
+         */
+        public double getProcessCpu() {
+            return processCpu;
+        }
+
+        public long getAvailableMemory() {
+            return availableMemory;
+        }
+
+        /**
+         * Expected memory usage of a single process.
+         */
+        public long getProcessMemory() {
+            return processMemory;
+        }
+
+        public long getReservedMemory() {
+            return reservedMemory;
+        }
+
+        public long getFreeDisk() {
+            return freeDisk;
+        }
+    }
+}
@@ -24,13 +24,18 @@ import com.google.inject.Injector;
 import com.walmartlabs.concord.agent.Worker.CompletionCallback;
 import com.walmartlabs.concord.agent.cfg.AgentConfiguration;
 import com.walmartlabs.concord.agent.cfg.DockerConfiguration;
+import com.walmartlabs.concord.agent.cfg.ServerConfiguration;
 import com.walmartlabs.concord.agent.docker.OrphanSweeper;
+import com.walmartlabs.concord.agent.executors.runner.ProcessPool;
 import com.walmartlabs.concord.agent.guice.WorkerModule;
+import com.walmartlabs.concord.agent.logging.FileWatcher;
 import com.walmartlabs.concord.agent.mmode.MaintenanceModeListener;
 import com.walmartlabs.concord.agent.mmode.MaintenanceModeNotifier;
 import com.walmartlabs.concord.client.ProcessEntry.StatusEnum;
 import com.walmartlabs.concord.common.IOUtils;
 import com.walmartlabs.concord.server.queueclient.QueueClient;
+import com.walmartlabs.concord.server.queueclient.message.Message;
+import com.walmartlabs.concord.server.queueclient.message.ProcessBatchResponse;
 import com.walmartlabs.concord.server.queueclient.message.ProcessRequest;
 import com.walmartlabs.concord.server.queueclient.message.ProcessResponse;
 import org.slf4j.Logger;
@@ -42,10 +47,11 @@ import javax.inject.Singleton;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Map;
-import java.util.UUID;
+import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Named
 @Singleton
@@ -56,8 +62,10 @@ public class Agent {
     private final Injector injector;
     private final AgentConfiguration agentCfg;
     private final DockerConfiguration dockerCfg;
+    private final ServerConfiguration serverCfg;
 
     private final QueueClient queueClient;
+    private final AdmissionController admissionController;
     private final ExecutorService executor;
 
     private final Map<UUID, Worker> activeWorkers = new ConcurrentHashMap<>();
@@ -70,13 +78,17 @@ public class Agent {
     public Agent(Injector injector,
                  AgentConfiguration agentCfg,
                  DockerConfiguration dockerCfg,
-                 QueueClient queueClient) {
+                 ServerConfiguration serverCfg,
+                 QueueClient queueClient,
+                 AdmissionController admissionController) {
 
         this.injector = injector;
 
         this.agentCfg = agentCfg;
         this.dockerCfg = dockerCfg;
+        this.serverCfg = serverCfg;
         this.queueClient = queueClient;
+        this.admissionController = admissionController;
 
         this.executor = Executors.newCachedThreadPool();
     }
@@ -110,27 +122,47 @@ public class Agent {
         CommandHandler commandHandler = new CommandHandler(agentCfg.getAgentId(), queueClient, agentCfg.getPollInterval(), this::cancel);
         executor.submit(commandHandler);
 
+        // send heartbeats of all running processes
+        if (serverCfg.isAgentHeartbeat()) {
+            HeartbeatSender heartbeatSender = new HeartbeatSender(queueClient, serverCfg.getHeartbeatInterval(), serverCfg.getMaxNoHeartbeatInterval(), this::getStartedProcesses, this::cancel);
+            executor.submit(heartbeatSender);
+        }
+
         // main loop
         while (!Thread.currentThread().isInterrupted()) {
             // check if the maintenance mode is enabled. If so, hang there indefinitely
             validateMaintenanceMode();
 
-            // TODO parallel acquire?
-            // wait for a free "slot"
+            // wait for a free "slot" and grab all other free slots
             workersAvailable.acquire();
-            log.info("run -> acquired a slot, {}/{} remains", workersAvailable.availablePermits(), workersCount);
+            int slots = 1 + workersAvailable.drainPermits();
+
+            // check the node's resources, only the admitted slots are offered to the server
+            int admitted = admissionController.admit(slots, activeWorkers.size());
+            if (admitted < slots) {
+                workersAvailable.release(slots - admitted);
+            }
+
+            if (admitted == 0) {
+                // the node is under pressure, wait for the running processes to finish or free up resources
+                Utils.sleep(agentCfg.getPollInterval());
+                continue;
+            }
 
-            // fetch the next job
-            JobRequest jobRequest;
+            slots = admitted;
+            log.info("run -> acquired {} slot(s), {}/{} remains", slots, workersAvailable.availablePermits(), workersCount);
+
+            // fetch the next jobs, up to one job per slot
+            List<JobRequest> jobRequests;
             try {
-                jobRequest = take(queueClient);
+                jobRequests = take(queueClient, slots);
             } catch (InterruptedException e) {
                 log.info("run -> interrupted, exiting...");
                 return;
             } catch (Exception e) {
                 log.error("run -> error while fetching a job: {}", e.getMessage(), e);
 
-                workersAvailable.release();
+                workersAvailable.release(slots);
 
                 // wait before retrying
                 // the server is not reachable or unhealthy, no point retrying immediately
@@ -138,29 +170,35 @@ public class Agent {
                 continue;
             }
 
-            if (jobRequest == null) {
-                // can happen on switching to maintenance mode or reconnecting, etc
-                workersAvailable.release();
-                continue;
+            // return the unused slots
+            // jobRequests can be empty on switching to maintenance mode or reconnecting, etc
+            if (jobRequests.size() < slots) {
+                workersAvailable.release(slots - jobRequests.size());
             }
 
-            UUID instanceId = jobRequest.getInstanceId();
-
-            // worker will handle the process' lifecycle
-            try {
-                Worker w = injector.createChildInjector(new WorkerModule(agentCfg.getAgentId(), instanceId, jobRequest.getSessionToken()))
-                        .getInstance(WorkerFactory.class)
-                        .create(jobRequest, createStatusCallback(instanceId, workersAvailable));
+            for (JobRequest jobRequest : jobRequests) {
+                startWorker(jobRequest);
+            }
+        }
+    }
 
-                // register the worker so we can cancel it later
-                activeWorkers.put(instanceId, w);
+    private void startWorker(JobRequest jobRequest) {
+        UUID instanceId = jobRequest.getInstanceId();
 
-                // start a new thread to process the job
-                executor.submit(w);
-            } catch (Exception e) {
-                log.error("run -> error while submitting worker: {}", e.getMessage());
-                workersAvailable.release();
-            }
+        // worker will handle the process' lifecycle
+        try {
+            Worker w = injector.createChildInjector(new WorkerModule(agentCfg.getAgentId(), instanceId, jobRequest.getSessionToken()))
+                    .getInstance(WorkerFactory.class)
+                    .create(jobRequest, createStatusCallback(instanceId, workersAvailable));
+
+            // register the worker so we can cancel it later
+            activeWorkers.put(instanceId, w);
+
+            // start a new thread to process the job
+            executor.submit(w);
+        } catch (Exception e) {
+            log.error("startWorker ['{}'] -> error while submitting worker: {}", instanceId, e.getMessage());
+            workersAvailable.release();
         }
     }
 
@@ -176,19 +214,29 @@ public class Agent {
 
                 @Override
                 public Status getMaintenanceModeStatus() {
-                    long availableWorkers = (workersAvailable != null)
-                            ? workersAvailable.availablePermits()
-                            : 0L;
-                    long cnt = agentCfg.getWorkersCount() - availableWorkers;
+                    // the main loop holds all free slots while waiting for new jobs,
+                    // count the running workers instead of the available slots
+                    long cnt = activeWorkers.size();
                     return new Status(maintenanceMode.get(), cnt);
                 }
-            });
+            }, stats());
             n.start();
         } catch (IOException e) {
             log.warn("start -> can't start the maintenance mode notifier: {}", e.getMessage());
         }
     }
 
+    private Map<String, Supplier<Object>> stats() {
+        ProcessPool processPool = injector.getInstance(ProcessPool.class);
+
+        Map<String, Supplier<Object>> m = new HashMap<>();
+        m.put("/queue-client/latency", queueClient::getLatencyStats);
+        m.put("/process-pool/stats", processPool::getStats);
+        m.put("/logs/lag", FileWatcher::getLagStats);
+        m.put("/admission/stats", admissionController::getStats);
+        return m;
+    }
+
     private void validateMaintenanceMode() throws InterruptedException {
         while (maintenanceMode.get()) {
             log.info("run -> switched to maintenance mode");
@@ -203,6 +251,13 @@ public class Agent {
         return activeWorkers.containsKey(instanceId);
     }
 
+    private Set<UUID> getStartedProcesses() {
+        return activeWorkers.entrySet().stream()
+                .filter(e -> e.getValue().isStarted())
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+    }
+
     private CompletionCallback createStatusCallback(UUID instanceId, Semaphore workersAvailable) {
         return new CompletionCallback() {
 
@@ -218,22 +273,34 @@ public class Agent {
                 called = true;
 
                 activeWorkers.remove(instanceId);
+                admissionController.release(instanceId);
                 workersAvailable.release();
             }
         };
     }
 
-    private JobRequest take(QueueClient queueClient) throws Exception {
-        Future<ProcessResponse> req = queueClient.request(new ProcessRequest(agentCfg.getCapabilities()));
+    private List<JobRequest> take(QueueClient queueClient, int slots) throws Exception {
+        Future<Message> req = queueClient.request(new ProcessRequest(agentCfg.getCapabilities(), slots));
 
-        ProcessResponse resp = req.get();
+        Message resp = req.get();
         if (resp == null) {
-            return null;
+            return Collections.emptyList();
         }
 
-        Path workDir = IOUtils.createTempDir(agentCfg.getPayloadDir(), "workDir");
+        // older servers ignore the number of slots and respond with a single process
+        List<ProcessResponse> processes;
+        if (resp instanceof ProcessBatchResponse) {
+            processes = ((ProcessBatchResponse) resp).getProcesses();
+        } else {
+            processes = Collections.singletonList((ProcessResponse) resp);
+        }
 
-        return JobRequest.from(resp, workDir);
+        List<JobRequest> result = new ArrayList<>(processes.size());
+        for (ProcessResponse p : processes) {
+            Path workDir = IOUtils.createTempDir(agentCfg.getPayloadDir(), "workDir");
+            result.add(JobRequest.from(p, workDir));
+        }
+        return result;
     }
 
     private void cancel(UUID instanceId) {
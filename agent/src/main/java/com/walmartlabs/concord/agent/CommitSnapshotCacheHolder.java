@@ -0,0 +1,53 @@
+package com.walmartlabs.concord.agent;
+
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.agent.cfg.RepositoryCacheConfiguration;
+import com.walmartlabs.concord.repository.CommitSnapshotCache;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.io.IOException;
+
+/**
+ * Keeps the agent-wide {@link CommitSnapshotCache}. {@link RepositoryManager}
+ * instances are created for each job, the snapshots must outlive them.
+ */
+@Named
+@Singleton
+public class CommitSnapshotCacheHolder {
+
+    private final CommitSnapshotCache cache;
+
+    @Inject
+    public CommitSnapshotCacheHolder(RepositoryCacheConfiguration cfg) throws IOException {
+        this.cache = cfg.getSnapshotMaxSize() > 0 ? new CommitSnapshotCache(cfg.getSnapshotDir(), cfg.getSnapshotMaxSize()) : null;
+    }
+
+    /**
+     * @return the cache or {@code null} if the cache is disabled
+     */
+    public CommitSnapshotCache get() {
+        return cache;
+    }
+}
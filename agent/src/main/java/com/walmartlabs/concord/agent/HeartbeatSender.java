@@ -0,0 +1,134 @@
+package com.walmartlabs.concord.agent;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.agent.CommandHandler.CancelHandler;
+import com.walmartlabs.concord.server.queueclient.QueueClient;
+import com.walmartlabs.concord.server.queueclient.message.HeartbeatRequest;
+import com.walmartlabs.concord.server.queueclient.message.HeartbeatResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Sends heartbeats of all processes running on the agent using a single
+ * websocket message per interval.
+ * <p/>
+ * Processes without a successful heartbeat for longer than
+ * {@code maxNoHeartbeatInterval} are cancelled.
+ */
+public class HeartbeatSender implements Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(HeartbeatSender.class);
+
+    private final QueueClient queueClient;
+    private final long interval;
+    private final long maxNoHeartbeatInterval;
+    private final Supplier<Set<UUID>> processes;
+    private final CancelHandler cancelHandler;
+
+    private final Map<UUID, Long> lastSuccess = new HashMap<>();
+
+    private Future<HeartbeatResponse> pending;
+    private Set<UUID> pendingIds;
+    private long pendingTimestamp;
+
+    public HeartbeatSender(QueueClient queueClient,
+                           long interval,
+                           long maxNoHeartbeatInterval,
+                           Supplier<Set<UUID>> processes,
+                           CancelHandler cancelHandler) {
+
+        this.queueClient = queueClient;
+        this.interval = interval;
+        this.maxNoHeartbeatInterval = maxNoHeartbeatInterval;
+        this.processes = processes;
+        this.cancelHandler = cancelHandler;
+    }
+
+    @Override
+    public void run() {
+        log.info("run -> running every {}ms, max interval: {}ms", interval, maxNoHeartbeatInterval);
+
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                tick();
+            } catch (Exception e) {
+                log.error("run -> error while sending a heartbeat: {}", e.getMessage(), e);
+            }
+
+            Utils.sleep(interval);
+        }
+
+        log.info("run -> stopped");
+    }
+
+    void tick() throws Exception {
+        long now = System.currentTimeMillis();
+
+        Set<UUID> ids = processes.get();
+        lastSuccess.keySet().retainAll(ids);
+        ids.forEach(id -> lastSuccess.putIfAbsent(id, now));
+
+        if (pending != null && pending.isDone()) {
+            onResponse(pending.get());
+            pending = null;
+        }
+
+        // send a new heartbeat unless the previous one is still in flight (e.g. the agent is reconnecting)
+        if (pending == null && !ids.isEmpty()) {
+            pendingIds = ids;
+            pendingTimestamp = now;
+            pending = queueClient.request(new HeartbeatRequest(ids));
+        }
+
+        for (UUID id : ids) {
+            long dt = now - lastSuccess.get(id);
+            if (dt > maxNoHeartbeatInterval) {
+                log.error("tick ['{}'] -> no heartbeat for more than {}ms, terminating the process...", id, dt);
+                lastSuccess.remove(id);
+                cancelHandler.cancel(id);
+            }
+        }
+    }
+
+    private void onResponse(HeartbeatResponse response) {
+        if (response == null) {
+            // can happen on reconnecting or switching to maintenance mode
+            log.warn("onResponse -> no response, will retry");
+            return;
+        }
+
+        Collection<UUID> unknown = response.getUnknownInstanceIds() != null ? response.getUnknownInstanceIds() : Collections.emptyList();
+        if (!unknown.isEmpty()) {
+            log.warn("onResponse -> process(es) not found: {}", unknown);
+        }
+
+        for (UUID id : pendingIds) {
+            if (!unknown.contains(id) && lastSuccess.containsKey(id)) {
+                lastSuccess.put(id, pendingTimestamp);
+            }
+        }
+    }
+}
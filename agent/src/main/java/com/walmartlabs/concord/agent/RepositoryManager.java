@@ -39,11 +39,13 @@ public class RepositoryManager {
     private final SecretClient secretClient;
     private final RepositoryProviders providers;
     private final RepositoryCache repositoryCache;
+    private final CommitSnapshotCache snapshotCache;
 
     @Inject
     public RepositoryManager(SecretClient secretClient,
                              GitConfiguration gitCfg,
                              RepositoryCacheConfiguration cacheCfg,
+                             CommitSnapshotCacheHolder snapshotCacheHolder,
                              ObjectMapper objectMapper) throws IOException {
 
         this.secretClient = secretClient;
@@ -68,6 +70,8 @@ public class RepositoryManager {
                 cacheCfg.getMaxAge(),
                 cacheCfg.getLockCount(),
                 objectMapper);
+
+        this.snapshotCache = snapshotCacheHolder.get();
     }
 
     public void export(String repoUrl, String commitId, String repoPath, Path dest, SecretDefinition secretDefinition) throws ExecutionException {
@@ -75,16 +79,46 @@ public class RepositoryManager {
     }
 
     public void export(String repoUrl, String branch, String commitId, String repoPath, Path dest, SecretDefinition secretDefinition, List<String> ignorePatterns) throws ExecutionException {
-        Secret secret = getSecret(secretDefinition);
-
-        Path cacheDir = repositoryCache.getPath(repoUrl);
+        // the same commit was exported before, no need to touch the working copy
+        CommitSnapshotCache.Entry snapshot = snapshotCache != null ? snapshotCache.get(repoUrl, commitId) : null;
+
+        if (snapshot == null) {
+            Secret secret = getSecret(secretDefinition);
+
+            Path cacheDir = repositoryCache.getPath(repoUrl);
+
+            repositoryCache.withLock(repoUrl, () -> {
+                // TODO: checkRemoteCommitId read from configuration
+                Repository repo = providers.fetch(repoUrl, branch, commitId, repoPath, secret, false, cacheDir);
+                repo.export(dest, ignorePatterns);
+                return null;
+            });
+
+            // only specific commits are cached, branches and tags can point to different commits
+            // the snapshot is created in background from the same checkout, unless
+            // the working copy was checked out at a different commit by then
+            if (snapshotCache != null) {
+                snapshotCache.putAsync(repoUrl, commitId, () -> repositoryCache.withLock(repoUrl, () -> {
+                    RepositoryInfo info = providers.getInfo(repoUrl, cacheDir);
+                    if (info == null || !commitId.equals(info.getCommitId())) {
+                        return null;
+                    }
+
+                    return snapshotCache.put(repoUrl, commitId, cacheDir, info);
+                }));
+            }
+
+            return;
+        }
 
-        repositoryCache.withLock(repoUrl, () -> {
-            // TODO: checkRemoteCommitId read from configuration
-            Repository repo = providers.fetch(repoUrl, branch, commitId, repoPath, secret, false, cacheDir);
+        try {
+            Repository repo = providers.fromSnapshot(repoUrl, branch, commitId, repoPath, snapshot);
             repo.export(dest, ignorePatterns);
-            return null;
-        });
+        } catch (IOException e) {
+            throw new ExecutionException("Error while exporting the repository: " + repoUrl + " @ " + commitId, e);
+        } finally {
+            snapshotCache.release(snapshot);
+        }
     }
 
     private Secret getSecret(SecretDefinition secret) throws ExecutionException {
@@ -23,12 +23,21 @@ package com.walmartlabs.concord.agent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 public final class Utils {
 
     private static final Logger log = LoggerFactory.getLogger(Utils.class);
 
+    private static final Path MEMINFO = Paths.get("/proc/meminfo");
+
     public static boolean kill(Process proc) {
         if (!proc.isAlive()) {
             return false;
@@ -60,17 +69,61 @@ public final class Utils {
         }
     }
 
-    private static String toString(Process proc) {
+    /**
+     * @return the amount of memory available for starting new processes, in bytes
+     */
+    public static long availableMemory() {
+        // MemAvailable includes the reclaimable page cache, unlike the "free" memory reported by the JVM
+        if (Files.isReadable(MEMINFO)) {
+            try {
+                for (String l : Files.readAllLines(MEMINFO)) {
+                    if (l.startsWith("MemAvailable:")) {
+                        return Long.parseLong(l.replaceAll("[^0-9]", "")) * 1024;
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                log.warn("availableMemory -> can't read {}: {}", MEMINFO, e.getMessage());
+            }
+        }
+
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getFreePhysicalMemorySize();
+        }
+
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * @return the process' PID or -1 if it can't be determined.
+     */
+    public static long pid(Process proc) {
+        try {
+            // Java 9+
+            Method m = Process.class.getMethod("pid");
+            return ((Number) m.invoke(proc)).longValue();
+        } catch (NoSuchMethodException e) {
+            // Java 8, see below
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return -1;
+        }
+
         try {
             Field f = proc.getClass().getDeclaredField("pid");
             f.setAccessible(true);
 
-            return "pid=" + f.get(proc);
-        } catch (NoSuchFieldException | IllegalAccessException e) {
-            return proc.toString();
+            return ((Number) f.get(proc)).longValue();
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // e.g. InaccessibleObjectException on Java 16+
+            return -1;
         }
     }
 
+    private static String toString(Process proc) {
+        long pid = pid(proc);
+        return pid >= 0 ? "pid=" + pid : proc.toString();
+    }
+
     private Utils() {
     }
 }
@@ -48,7 +48,7 @@ public class Worker implements Runnable {
     private final ProcessLog processLog;
     private final JobRequest jobRequest;
 
-    private JobInstance jobInstance;
+    private volatile JobInstance jobInstance;
 
     @Inject
     public Worker(RepositoryManager repositoryManager,
@@ -110,6 +110,13 @@ public class Worker implements Runnable {
         }
     }
 
+    /**
+     * Returns {@code true} if the process' job was started.
+     */
+    public boolean isStarted() {
+        return jobInstance != null;
+    }
+
     public void cancel() {
         if (jobInstance == null) {
             return;
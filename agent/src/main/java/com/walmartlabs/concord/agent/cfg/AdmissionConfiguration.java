@@ -0,0 +1,68 @@
+package com.walmartlabs.concord.agent.cfg;
+
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.typesafe.config.Config;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+@Named
+@Singleton
+public class AdmissionConfiguration {
+
+    private final boolean enabled;
+    private final long minFreeMemory;
+    private final long defaultProcessMemory;
+    private final double maxCpuLoad;
+    private final long minFreeDisk;
+
+    @Inject
+    public AdmissionConfiguration(Config cfg) {
+        this.enabled = cfg.getBoolean("admission.enabled");
+        this.minFreeMemory = cfg.getBytes("admission.minFreeMemory");
+        this.defaultProcessMemory = cfg.getBytes("admission.defaultProcessMemory");
+        this.maxCpuLoad = cfg.getDouble("admission.maxCpuLoad");
+        this.minFreeDisk = cfg.getBytes("admission.minFreeDisk");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getMinFreeMemory() {
+        return minFreeMemory;
+    }
+
+    public long getDefaultProcessMemory() {
+        return defaultProcessMemory;
+    }
+
+    public double getMaxCpuLoad() {
+        return maxCpuLoad;
+    }
+
+    public long getMinFreeDisk() {
+        return minFreeDisk;
+    }
+}
@@ -46,6 +46,8 @@ public class AgentConfiguration {
 
     private final Path dependencyCacheDir;
     private final Path dependencyListsDir;
+    private final long dependencyResolveCacheTtl;
+    private final int dependencyResolveCacheSize;
     private final Path payloadDir;
 
     private final Path logDir;
@@ -65,6 +67,8 @@ public class AgentConfiguration {
 
         this.dependencyCacheDir = getOrCreatePath(cfg, "dependencyCacheDir");
         this.dependencyListsDir = getOrCreatePath(cfg, "dependencyListsDir");
+        this.dependencyResolveCacheTtl = cfg.getDuration("dependencyResolveCacheTtl", TimeUnit.MILLISECONDS);
+        this.dependencyResolveCacheSize = cfg.getInt("dependencyResolveCacheSize");
         this.payloadDir = getOrCreatePath(cfg, "payloadDir");
 
         this.logDir = getOrCreatePath(cfg, "logDir");
@@ -92,6 +96,14 @@ public class AgentConfiguration {
         return dependencyListsDir;
     }
 
+    public long getDependencyResolveCacheTtl() {
+        return dependencyResolveCacheTtl;
+    }
+
+    public int getDependencyResolveCacheSize() {
+        return dependencyResolveCacheSize;
+    }
+
     public Path getPayloadDir() {
         return payloadDir;
     }
@@ -33,11 +33,17 @@ public class PreForkConfiguration {
 
     private final long maxAge;
     private final int maxCount;
+    private final long warmupWindow;
+    private final long minFreeMemory;
+    private final long maintenancePeriod;
 
     @Inject
     public PreForkConfiguration(Config cfg) {
         this.maxAge = cfg.getDuration("prefork.maxAge", TimeUnit.MILLISECONDS);
         this.maxCount = cfg.getInt("prefork.maxCount");
+        this.warmupWindow = cfg.getDuration("prefork.warmupWindow", TimeUnit.MILLISECONDS);
+        this.minFreeMemory = cfg.getBytes("prefork.minFreeMemory");
+        this.maintenancePeriod = cfg.getDuration("prefork.maintenancePeriod", TimeUnit.MILLISECONDS);
     }
 
     public long getMaxAge() {
@@ -47,4 +53,16 @@ public class PreForkConfiguration {
     public int getMaxCount() {
         return maxCount;
     }
+
+    public long getWarmupWindow() {
+        return warmupWindow;
+    }
+
+    public long getMinFreeMemory() {
+        return minFreeMemory;
+    }
+
+    public long getMaintenancePeriod() {
+        return maintenancePeriod;
+    }
 }
@@ -39,6 +39,8 @@ public class RepositoryCacheConfiguration {
     private final int lockCount;
     private final Duration maxAge;
     private final Path infoDir;
+    private final Path snapshotDir;
+    private final long snapshotMaxSize;
 
     @Inject
     public RepositoryCacheConfiguration(Config cfg) {
@@ -47,6 +49,8 @@ public class RepositoryCacheConfiguration {
         this.lockCount = cfg.getInt("repositoryCache.lockCount");
         this.maxAge = cfg.getDuration("repositoryCache.maxAge");
         this.infoDir = getOrCreatePath(cfg, "repositoryCache.cacheInfoDir");
+        this.snapshotDir = getOrCreatePath(cfg, "repositoryCache.snapshotDir");
+        this.snapshotMaxSize = cfg.getBytes("repositoryCache.snapshotMaxSize");
     }
 
     public Path getCacheDir() {
@@ -68,4 +72,12 @@ public class RepositoryCacheConfiguration {
     public Path getInfoDir() {
         return infoDir;
     }
+
+    public Path getSnapshotDir() {
+        return snapshotDir;
+    }
+
+    public long getSnapshotMaxSize() {
+        return snapshotMaxSize;
+    }
 }
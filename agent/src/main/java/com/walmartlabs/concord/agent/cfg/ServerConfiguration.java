@@ -42,11 +42,15 @@ public class ServerConfiguration {
     private final String apiKey;
     private final long pingInterval;
     private final long maxNoActivityPeriod;
+    private final long reconnectBaseDelay;
+    private final long reconnectMaxDelay;
     private final boolean verifySsl;
     private final long connectTimeout;
     private final long readTimeout;
     private final String userAgent;
     private final long maxNoHeartbeatInterval;
+    private final boolean agentHeartbeat;
+    private final long heartbeatInterval;
 
     @Inject
     public ServerConfiguration(Config cfg, AgentConfiguration agentCfg) {
@@ -60,6 +64,8 @@ public class ServerConfiguration {
 
         this.pingInterval = cfg.getDuration("server.websocketPingInterval", TimeUnit.MILLISECONDS);
         this.maxNoActivityPeriod = cfg.getDuration("server.websocketMaxNoActivityPeriod", TimeUnit.MILLISECONDS);
+        this.reconnectBaseDelay = cfg.getDuration("server.websocketReconnectBaseDelay", TimeUnit.MILLISECONDS);
+        this.reconnectMaxDelay = cfg.getDuration("server.websocketReconnectMaxDelay", TimeUnit.MILLISECONDS);
 
         this.verifySsl = cfg.getBoolean("server.verifySsl");
 
@@ -68,6 +74,8 @@ public class ServerConfiguration {
         this.userAgent = getStringOrDefault(cfg, "server.userAgent", () -> "Concord-Agent: id=" + agentCfg.getAgentId());
 
         this.maxNoHeartbeatInterval = cfg.getDuration("server.maxNoHeartbeatInterval", TimeUnit.MILLISECONDS);
+        this.agentHeartbeat = cfg.getBoolean("server.agentHeartbeat");
+        this.heartbeatInterval = cfg.getDuration("server.heartbeatInterval", TimeUnit.MILLISECONDS);
     }
 
     public String getApiBaseUrl() {
@@ -90,6 +98,14 @@ public class ServerConfiguration {
         return maxNoActivityPeriod;
     }
 
+    public long getReconnectBaseDelay() {
+        return reconnectBaseDelay;
+    }
+
+    public long getReconnectMaxDelay() {
+        return reconnectMaxDelay;
+    }
+
     public boolean isVerifySsl() {
         return verifySsl;
     }
@@ -110,6 +126,14 @@ public class ServerConfiguration {
         return maxNoHeartbeatInterval;
     }
 
+    public boolean isAgentHeartbeat() {
+        return agentHeartbeat;
+    }
+
+    public long getHeartbeatInterval() {
+        return heartbeatInterval;
+    }
+
     private static String[] getWebsocketUrls(Config cfg) {
         // we had a silly typo ("websockeR") in our configs, so for backward compatibility we must check the old variant first
         String oldKey = "server.websockerUrl";
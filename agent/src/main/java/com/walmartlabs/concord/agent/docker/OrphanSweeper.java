@@ -28,19 +28,33 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
+/**
+ * Removes the containers of the processes that are no longer running.
+ * The containers are listed once, after that the list is kept up to date
+ * using the Docker event stream.
+ */
 public class OrphanSweeper implements Runnable {
 
     private static final Logger log = LoggerFactory.getLogger(OrphanSweeper.class);
 
-    private static final String[] PS_CMD = {"docker", "ps", "-a",
+    private static final String[] PS_CMD = {"docker", "ps", "-a", "--no-trunc",
             "--filter", "label=" + DockerProcessBuilder.CONCORD_TX_ID_LABEL,
             "--format", "{{.Label \"" + DockerProcessBuilder.CONCORD_TX_ID_LABEL + "\"}} {{.ID}}"};
 
+    private static final String[] EVENTS_CMD = {"docker", "events",
+            "--filter", "type=container",
+            "--filter", "label=" + DockerProcessBuilder.CONCORD_TX_ID_LABEL,
+            "--filter", "event=start",
+            "--filter", "event=destroy",
+            "--format", "{{.Action}} {{index .Actor.Attributes \"" + DockerProcessBuilder.CONCORD_TX_ID_LABEL + "\"}} {{.Actor.ID}}"};
+
     private static final long RETRY_DELAY = TimeUnit.SECONDS.toMillis(30);
 
     private final StatusChecker statusChecker;
@@ -56,28 +70,56 @@ public class OrphanSweeper implements Runnable {
         log.info("run -> removing orphaned Docker containers...");
 
         while (!Thread.currentThread().isInterrupted()) {
+            Process events = null;
             try {
-                Map<UUID, String> containers = findContainers();
+                // subscribe before listing the containers, so the containers started in between aren't missed
+                events = new ProcessBuilder()
+                        .command(EVENTS_CMD)
+                        .redirectErrorStream(true)
+                        .start();
+
+                Map<String, UUID> containers = new ConcurrentHashMap<>(findContainers());
                 log.debug("run -> found {} container(s)...", containers.size());
 
-                for (Map.Entry<UUID, String> c : containers.entrySet()) {
-                    UUID instanceId = c.getKey();
-                    if (statusChecker.isAlive(instanceId)) {
-                        continue;
-                    }
+                Thread reader = new Thread(new EventReader(events, containers), "orphan-sweeper-events");
+                reader.setDaemon(true);
+                reader.start();
 
-                    String cId = c.getValue();
-                    log.warn("run -> found an orphaned container {} (process {}), attempting to kill...", cId, instanceId);
-                    killContainer(cId);
+                while (reader.isAlive() && !Thread.currentThread().isInterrupted()) {
+                    sweep(containers);
+                    sleep(period);
                 }
 
-                sleep(period);
+                if (!Thread.currentThread().isInterrupted()) {
+                    throw new IOException("the event stream was closed");
+                }
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             } catch (Exception e) {
                 log.warn("run -> error: {}, retrying in {}ms...", e.getMessage(), RETRY_DELAY);
                 sleep(RETRY_DELAY);
+            } finally {
+                if (events != null) {
+                    events.destroy();
+                }
+            }
+        }
+    }
+
+    private void sweep(Map<String, UUID> containers) throws IOException, InterruptedException {
+        Iterator<Map.Entry<String, UUID>> it = containers.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, UUID> c = it.next();
+
+            UUID instanceId = c.getValue();
+            if (statusChecker.isAlive(instanceId)) {
+                continue;
             }
+
+            String cId = c.getKey();
+            log.warn("run -> found an orphaned container {} (process {}), attempting to kill...", cId, instanceId);
+            killContainer(cId);
+            it.remove();
         }
     }
 
@@ -89,8 +131,8 @@ public class OrphanSweeper implements Runnable {
         }
     }
 
-    private static Map<UUID, String> findContainers() throws IOException, InterruptedException {
-        Map<UUID, String> ids = new HashMap<>();
+    private static Map<String, UUID> findContainers() throws IOException, InterruptedException {
+        Map<String, UUID> ids = new HashMap<>();
         exec(PS_CMD, line -> {
             int idx = line.indexOf(" ");
             if (idx < 0 || idx + 1 >= line.length()) {
@@ -98,8 +140,8 @@ public class OrphanSweeper implements Runnable {
                 return null;
             }
 
-            UUID k = UUID.fromString(line.substring(0, idx));
-            String v = line.substring(idx + 1);
+            UUID v = UUID.fromString(line.substring(0, idx));
+            String k = line.substring(idx + 1);
 
             ids.put(k, v);
 
@@ -148,6 +190,50 @@ public class OrphanSweeper implements Runnable {
         }
     }
 
+    static class EventReader implements Runnable {
+
+        private final Process events;
+        private final Map<String, UUID> containers;
+
+        EventReader(Process events, Map<String, UUID> containers) {
+            this.events = events;
+            this.containers = containers;
+        }
+
+        @Override
+        public void run() {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(events.getInputStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    onEvent(line);
+                }
+            } catch (IOException e) {
+                log.warn("run -> error while reading the Docker events: {}", e.getMessage());
+            }
+        }
+
+        void onEvent(String line) {
+            String[] as = line.trim().split(" ");
+            if (as.length != 3) {
+                log.warn("onEvent -> invalid line: {}", line);
+                return;
+            }
+
+            String action = as[0];
+            String cId = as[2];
+
+            if ("start".equals(action)) {
+                try {
+                    containers.put(cId, UUID.fromString(as[1]));
+                } catch (IllegalArgumentException e) {
+                    log.warn("onEvent -> invalid process ID: {}", line);
+                }
+            } else if ("destroy".equals(action)) {
+                containers.remove(cId);
+            }
+        }
+    }
+
     public interface StatusChecker {
 
         boolean isAlive(UUID instanceId);
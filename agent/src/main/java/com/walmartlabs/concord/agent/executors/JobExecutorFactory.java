@@ -20,6 +20,7 @@ package com.walmartlabs.concord.agent.executors;
  * =====
  */
 
+import com.walmartlabs.concord.agent.AdmissionController;
 import com.walmartlabs.concord.agent.ConfiguredJobRequest;
 import com.walmartlabs.concord.agent.JobRequest;
 import com.walmartlabs.concord.agent.cfg.*;
@@ -56,6 +57,7 @@ public class JobExecutorFactory {
     private final ProcessLog processLog;
     private final AttachmentsUploader attachmentsUploader;
     private final ProcessLogFactory processLogFactory;
+    private final AdmissionController admissionController;
 
     private final ExecutorService executor;
 
@@ -70,7 +72,8 @@ public class JobExecutorFactory {
                               ProcessPool processPool,
                               ProcessLog processLog,
                               AttachmentsUploader attachmentsUploader,
-                              ProcessLogFactory processLogFactory) {
+                              ProcessLogFactory processLogFactory,
+                              AdmissionController admissionController) {
 
         this.agentCfg = agentCfg;
         this.serverCfg = serverCfg;
@@ -85,6 +88,7 @@ public class JobExecutorFactory {
         this.processLog = processLog;
         this.attachmentsUploader = attachmentsUploader;
         this.processLogFactory = processLogFactory;
+        this.admissionController = admissionController;
 
         this.executor = Executors.newCachedThreadPool();
     }
@@ -118,12 +122,13 @@ public class JobExecutorFactory {
                     .runnerMainClass(runnerCfg.getMainClass())
                     .extraDockerVolumes(dockerCfg.getExtraVolumes())
                     .maxHeartbeatInterval(serverCfg.getMaxNoHeartbeatInterval())
+                    .processHeartbeatEnabled(!serverCfg.isAgentHeartbeat())
                     .segmentedLogs(segmentedLogs)
                     .logDir(agentCfg.getLogDir())
                     .persistentWorkDir(runnerCfg.getPersistentWorkDir())
                     .build();
 
-            JobExecutor delegate = new RunnerJobExecutor(runnerExecutorCfg, dependencyManager, defaultDependencies, attachmentsUploader, processPool, processLogFactory, executor);
+            JobExecutor delegate = new RunnerJobExecutor(runnerExecutorCfg, dependencyManager, defaultDependencies, attachmentsUploader, processPool, processLogFactory, admissionController, executor);
             return delegate.exec(jobRequest);
         };
     }
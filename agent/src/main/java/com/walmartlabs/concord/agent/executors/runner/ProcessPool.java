@@ -33,35 +33,69 @@ import javax.inject.Singleton;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of "pre-forked" runner JVMs, grouped by their command line hash.
+ * <p>
+ * The pool tracks how often each command is requested and keeps enough
+ * pre-forked instances to cover the processes expected to arrive within
+ * the warm-up window. Less active commands are evicted first when the pool
+ * is full or when the host is low on memory.
+ */
 @Named
 @Singleton
 public class ProcessPool {
 
     private static final Logger log = LoggerFactory.getLogger(ProcessPool.class);
 
-    private static final long CLEANUP_PERIOD = 30000;
+    /**
+     * Weight of the latest inter-arrival interval in the moving average.
+     */
+    private static final double ARRIVAL_INTERVAL_WEIGHT = 0.2;
 
     private final long maxEntryAge;
     private final int maxEntryCount;
-    private final Map<HashCode, Queue<ProcessEntry>> pool = new HashMap<>();
+    private final long warmupWindow;
+    private final long minFreeMemory;
+    private final long maintenancePeriod;
+
+    private final ConcurrentMap<HashCode, Slot> pool = new ConcurrentHashMap<>();
     private final ExecutorService executor = Executors.newCachedThreadPool();
 
+    /**
+     * Number of idle and starting entries in all slots.
+     */
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong warmups = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong coldStartTime = new AtomicLong();
+    private final AtomicLong warmStartTime = new AtomicLong();
+
     @Inject
     public ProcessPool(PreForkConfiguration cfg) {
         this.maxEntryAge = cfg.getMaxAge();
         this.maxEntryCount = cfg.getMaxCount();
+        this.warmupWindow = cfg.getWarmupWindow();
+        this.minFreeMemory = cfg.getMinFreeMemory();
+        this.maintenancePeriod = cfg.getMaintenancePeriod();
         init();
     }
 
     public void init() {
         Thread t = new Thread(() -> {
-            log.info("run -> starting cleanup thread, max entry age {}ms, max entry count {}", maxEntryAge, maxEntryCount);
+            log.info("run -> starting cleanup thread, max entry age {}ms, max entry count {}, warm-up window {}ms",
+                    maxEntryAge, maxEntryCount, warmupWindow);
 
             while (!Thread.currentThread().isInterrupted()) {
-                Utils.sleep(CLEANUP_PERIOD);
+                Utils.sleep(maintenancePeriod);
 
                 try {
                     maintenance();
@@ -75,95 +109,235 @@ public class ProcessPool {
     }
 
     public ProcessEntry take(HashCode hc, ProcessLauncher launcher) throws ExecutionException {
-        synchronized (pool) {
-            Queue<ProcessEntry> q = pool.computeIfAbsent(hc, k -> new LinkedList<>());
+        long t1 = System.currentTimeMillis();
+
+        // record the arrival atomically with the slot's creation, so the slot can't be removed in between
+        Slot slot = pool.compute(hc, (k, v) -> {
+            Slot s = v != null ? v : new Slot();
+            s.onArrival(launcher, t1);
+            return s;
+        });
+
+        ProcessEntry entry = poll(slot);
+        if (entry != null) {
+            hits.incrementAndGet();
+            warmStartTime.addAndGet(System.currentTimeMillis() - t1);
+            log.info("take -> using a pre-forked instance: {}", entry.procDir);
+        } else {
+            misses.incrementAndGet();
+            try {
+                entry = launcher.start();
+            } catch (IOException e) {
+                throw new ExecutionException("Error while starting a new process", e);
+            }
+            coldStartTime.addAndGet(System.currentTimeMillis() - t1);
+            log.info("take -> started a new process: {}", entry.procDir);
+        }
 
-            ProcessEntry entry = q.poll();
-            if (entry == null) {
-                try {
-                    entry = launcher.start();
-                } catch (IOException e) {
-                    throw new ExecutionException("Error while starting a new process", e);
-                }
+        executor.submit(() -> warmup(slot));
 
-                log.info("take -> started a new process: {}", entry.procDir);
-            } else {
-                log.info("take -> using a pre-forked instance: {}", entry.procDir);
-            }
+        return entry;
+    }
 
-            executor.submit(() -> populate(hc, launcher));
+    public Stats getStats() {
+        int idle = 0;
+        int starting = 0;
+        for (Slot s : pool.values()) {
+            idle += s.idle.size();
+            starting += s.starting.get();
+        }
+
+        return new Stats(pool.size(), idle, starting, hits.get(), misses.get(), warmups.get(), expired.get(),
+                evicted.get(), failures.get(), avg(coldStartTime.get(), misses.get()), avg(warmStartTime.get(), hits.get()));
+    }
+
+    /**
+     * @return the PIDs of the idle pre-forked instances.
+     */
+    public Set<Long> getIdlePids() {
+        Set<Long> result = new HashSet<>();
+        for (Slot s : pool.values()) {
+            for (ProcessEntry e : s.idle) {
+                long pid = Utils.pid(e.process);
+                if (pid >= 0) {
+                    result.add(pid);
+                }
+            }
+        }
+        return result;
+    }
 
-            return entry;
+    /**
+     * Returns the most recently started live instance, if any.
+     */
+    private ProcessEntry poll(Slot slot) {
+        ProcessEntry e;
+        while ((e = slot.idle.pollLast()) != null) {
+            size.decrementAndGet();
+            if (e.process.isAlive()) {
+                return e;
+            }
+            expired.incrementAndGet();
         }
+        return null;
     }
 
-    private void populate(HashCode hc, ProcessLauncher launcher) {
-        synchronized (pool) {
-            // calculate the total number of processes in the pool
-            int total = 0;
-            for (Map.Entry<HashCode, Queue<ProcessEntry>> e : pool.entrySet()) {
-                total += e.getValue().size();
+    /**
+     * Starts new instances until the slot has enough of them for the expected arrivals.
+     */
+    private void warmup(Slot slot) {
+        long now = System.currentTimeMillis();
+        int target = slot.target(now, warmupWindow, maxEntryAge, maxEntryCount);
+
+        // each iteration claims a "starting" place first, so concurrent warm-ups don't overshoot the target
+        while (slot.starting.incrementAndGet() + slot.idle.size() <= target) {
+            try {
+                if (isLowOnMemory()) {
+                    log.info("warmup -> not enough free memory, skipping");
+                    return;
+                }
+
+                if (!reserve(slot, now)) {
+                    return;
+                }
+
+                try {
+                    slot.idle.addLast(slot.launcher.start());
+                    warmups.incrementAndGet();
+                } catch (IOException e) {
+                    size.decrementAndGet();
+                    failures.incrementAndGet();
+                    log.error("warmup -> error while starting a new process", e);
+                    return;
+                }
+            } finally {
+                slot.starting.decrementAndGet();
             }
+        }
+
+        slot.starting.decrementAndGet();
+    }
 
-            if (total >= maxEntryCount) {
-                // mark the oldest entry for removal
-                ProcessEntry oldest = null;
-                for (Map.Entry<HashCode, Queue<ProcessEntry>> q : pool.entrySet()) {
-                    for (ProcessEntry e : q.getValue()) {
-                        if (oldest == null || oldest.timestamp > e.timestamp) {
-                            oldest = e;
-                        }
-                    }
+    /**
+     * Reserves a place in the pool. If the pool is full, tries to make room
+     * by evicting an instance of a less active command.
+     */
+    private boolean reserve(Slot requester, long now) {
+        while (true) {
+            int n = size.get();
+            if (n < maxEntryCount) {
+                if (size.compareAndSet(n, n + 1)) {
+                    return true;
                 }
+                continue;
+            }
 
-                // it's never null
-                assert oldest != null;
+            if (!evictOne(requester.interval(now), now)) {
+                return false;
+            }
+        }
+    }
 
-                oldest.remove = true;
+    /**
+     * Evicts the oldest instance of the least active command,
+     * if that command is less active than the specified arrival interval.
+     */
+    private boolean evictOne(double interval, long now) {
+        Slot victim = null;
+        double victimInterval = interval;
+        for (Slot s : pool.values()) {
+            if (s.idle.isEmpty()) {
+                continue;
             }
 
-            // add a new pool entry
-            Queue<ProcessEntry> q = pool.computeIfAbsent(hc, k -> new LinkedList<>());
-            try {
-                q.add(launcher.start());
-            } catch (IOException e) {
-                log.error("populate -> error while starting a new process", e);
+            double i = s.interval(now);
+            if (i > victimInterval) {
+                victim = s;
+                victimInterval = i;
             }
         }
+
+        if (victim == null) {
+            return false;
+        }
+
+        ProcessEntry e = victim.idle.pollFirst();
+        if (e == null) {
+            // taken in the meantime, try again
+            return true;
+        }
+
+        size.decrementAndGet();
+        evicted.incrementAndGet();
+        kill(Collections.singletonList(e.process));
+        return true;
     }
 
     private void maintenance() {
-        List<HashCode> queuesToRemove = new ArrayList<>();
         List<Process> processesToKill = new ArrayList<>();
 
         long t = System.currentTimeMillis();
 
-        synchronized (pool) {
-            pool.forEach((hc, q) -> {
-                q.removeIf(e -> {
-                    if (e.remove || t - e.timestamp >= maxEntryAge) {
-                        processesToKill.add(e.process);
-                        return true;
-                    }
-                    return false;
-                });
-
-                if (q.isEmpty()) {
-                    queuesToRemove.add(hc);
+        for (Map.Entry<HashCode, Slot> e : pool.entrySet()) {
+            Slot slot = e.getValue();
+            for (ProcessEntry pe : slot.idle) {
+                if (t - pe.timestamp < maxEntryAge && pe.process.isAlive()) {
+                    continue;
                 }
-            });
 
-            for (HashCode hc : queuesToRemove) {
-                pool.remove(hc);
+                // the entry can be taken concurrently
+                if (slot.idle.removeFirstOccurrence(pe)) {
+                    processesToKill.add(pe.process);
+                    size.decrementAndGet();
+                    expired.incrementAndGet();
+                }
+            }
+
+            // remove the inactive commands, take() re-creates the slot atomically if needed
+            pool.computeIfPresent(e.getKey(), (k, v) -> v.isInactive(t, maxEntryAge) && v.isEmpty() ? null : v);
+        }
+
+        kill(processesToKill);
+
+        // the killed processes free their memory asynchronously,
+        // evict up to a half of the idle instances per run
+        int evictedCount = 0;
+        int maxEvictions = Math.max(1, getStats().getIdle() / 2);
+        while (evictedCount < maxEvictions && isLowOnMemory() && evictOne(Double.NEGATIVE_INFINITY, t)) {
+            evictedCount++;
+        }
+
+        if (evictedCount > 0) {
+            log.info("maintenance -> not enough free memory, evicted {} process(es)", evictedCount);
+        }
+
+        // top up the pool using the current arrival rates
+        for (Slot slot : pool.values()) {
+            if (slot.target(t, warmupWindow, maxEntryAge, maxEntryCount) > slot.idle.size()) {
+                executor.submit(() -> warmup(slot));
             }
         }
 
-        log.info("maintenance -> removed {} queues", queuesToRemove.size());
+        if (!processesToKill.isEmpty()) {
+            log.info("maintenance -> killed {} processes", processesToKill.size());
+        }
+        log.debug("maintenance -> {}", getStats());
+    }
 
-        for (Process p : processesToKill) {
-            Utils.kill(p);
+    private void kill(List<Process> processes) {
+        if (processes.isEmpty()) {
+            return;
         }
-        log.info("maintenance -> killed {} processes", processesToKill.size());
+
+        executor.submit(() -> processes.forEach(Utils::kill));
+    }
+
+    private boolean isLowOnMemory() {
+        return minFreeMemory > 0 && Utils.availableMemory() < minFreeMemory;
+    }
+
+    private static long avg(long total, long count) {
+        return count > 0 ? total / count : 0;
     }
 
     public interface ProcessLauncher {
@@ -177,8 +351,6 @@ public class ProcessPool {
         private final Process process;
         private final Path procDir;
 
-        private boolean remove = false;
-
         public ProcessEntry(Process process, Path procDir) {
             this.timestamp = System.currentTimeMillis();
             this.process = process;
@@ -193,4 +365,170 @@ public class ProcessPool {
             return procDir;
         }
     }
+
+    public static final class Stats {
+
+        private final int commands;
+        private final int idle;
+        private final int starting;
+        private final long hits;
+        private final long misses;
+        private final long warmups;
+        private final long expired;
+        private final long evicted;
+        private final long failures;
+        private final long avgColdStartTime;
+        private final long avgWarmStartTime;
+
+        public Stats(int commands, int idle, int starting, long hits, long misses, long warmups, long expired,
+                     long evicted, long failures, long avgColdStartTime, long avgWarmStartTime) {
+
+            this.commands = commands;
+            this.idle = idle;
+            this.starting = starting;
+            this.hits = hits;
+            this.misses = misses;
+            this.warmups = warmups;
+            this.expired = expired;
+            this.evicted = evicted;
+            this.failures = failures;
+            this.avgColdStartTime = avgColdStartTime;
+            this.avgWarmStartTime = avgWarmStartTime;
+        }
+
+        /**
+         * Number of distinct commands (command line hashes) tracked by the pool.
+         */
+        public int getCommands() {
+            return commands;
+        }
+
+        public int getIdle() {
+            return idle;
+        }
+
+        public int getStarting() {
+            return starting;
+        }
+
+        /**
+         * Number of processes started using a pre-forked instance.
+         */
+        public long getHits() {
+            return hits;
+        }
+
+        /**
+         * Number of processes started without a pre-forked instance.
+         */
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getWarmups() {
+            return warmups;
+        }
+
+        public long getExpired() {
+            return expired;
+        }
+
+        public long getEvicted() {
+            return evicted;
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        /**
+         * Average time (ms) to start a new process on a miss.
+         */
+        public long getAvgColdStartTime() {
+            return avgColdStartTime;
+        }
+
+        /**
+         * Average time (ms) to take a pre-forked instance on a hit.
+         */
+        public long getAvgWarmStartTime() {
+            return avgWarmStartTime;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{" +
+                    "commands=" + commands +
+                    ", idle=" + idle +
+                    ", starting=" + starting +
+                    ", hits=" + hits +
+                    ", misses=" + misses +
+                    ", warmups=" + warmups +
+                    ", expired=" + expired +
+                    ", evicted=" + evicted +
+                    ", failures=" + failures +
+                    ", avgColdStartTime=" + avgColdStartTime +
+                    ", avgWarmStartTime=" + avgWarmStartTime +
+                    '}';
+        }
+    }
+
+    /**
+     * Pre-forked instances and the arrival statistics of a single command.
+     */
+    private static final class Slot {
+
+        private final Deque<ProcessEntry> idle = new ConcurrentLinkedDeque<>();
+        private final AtomicInteger starting = new AtomicInteger();
+
+        private volatile ProcessLauncher launcher;
+
+        private long arrivals;
+        private long lastArrival;
+        private double avgInterval = Double.MAX_VALUE;
+
+        synchronized void onArrival(ProcessLauncher launcher, long now) {
+            this.launcher = launcher;
+
+            if (arrivals > 0) {
+                long interval = Math.max(1, now - lastArrival);
+                if (arrivals == 1) {
+                    avgInterval = interval;
+                } else {
+                    avgInterval = ARRIVAL_INTERVAL_WEIGHT * interval + (1 - ARRIVAL_INTERVAL_WEIGHT) * avgInterval;
+                }
+            }
+
+            arrivals++;
+            lastArrival = now;
+        }
+
+        /**
+         * Average interval between arrivals, stretched if there were no arrivals for a while.
+         */
+        synchronized double interval(long now) {
+            return Math.max(avgInterval, now - lastArrival);
+        }
+
+        synchronized boolean isInactive(long now, long maxAge) {
+            return now - lastArrival >= maxAge;
+        }
+
+        /**
+         * The number of instances to keep for the expected arrivals within the warm-up window.
+         * Active commands get at least one instance, inactive ones get none.
+         */
+        int target(long now, long window, long maxAge, int maxCount) {
+            if (isInactive(now, maxAge)) {
+                return 0;
+            }
+
+            double expected = window / interval(now);
+            return (int) Math.min(maxCount, Math.max(1, Math.ceil(expected)));
+        }
+
+        boolean isEmpty() {
+            return idle.isEmpty() && starting.get() == 0;
+        }
+    }
 }
@@ -27,6 +27,7 @@ import com.google.common.hash.HashCode;
 import com.google.common.hash.HashFunction;
 import com.google.common.hash.Hasher;
 import com.google.common.hash.Hashing;
+import com.walmartlabs.concord.agent.AdmissionController;
 import com.walmartlabs.concord.agent.ConfiguredJobRequest;
 import com.walmartlabs.concord.agent.ExecutionException;
 import com.walmartlabs.concord.agent.JobInstance;
@@ -54,7 +55,9 @@ import javax.annotation.Nullable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
@@ -81,6 +84,7 @@ public class RunnerJobExecutor implements JobExecutor {
     private final AttachmentsUploader attachmentsUploader;
     private final ProcessPool processPool;
     private final ProcessLogFactory logFactory;
+    private final AdmissionController admissionController;
     private final ExecutorService executor;
 
     private final ObjectMapper objectMapper;
@@ -91,6 +95,7 @@ public class RunnerJobExecutor implements JobExecutor {
                              AttachmentsUploader attachmentsUploader,
                              ProcessPool processPool,
                              ProcessLogFactory processLogFactory,
+                             AdmissionController admissionController,
                              ExecutorService executor) {
 
         this.cfg = cfg;
@@ -99,6 +104,7 @@ public class RunnerJobExecutor implements JobExecutor {
         this.attachmentsUploader = attachmentsUploader;
         this.processPool = processPool;
         this.logFactory = processLogFactory;
+        this.admissionController = admissionController;
         this.executor = executor;
 
         // sort JSON keys for consistency
@@ -177,7 +183,8 @@ public class RunnerJobExecutor implements JobExecutor {
             }
 
             log.info("exec ['{}'] -> persisting the payload directory into {}...", instanceId, dst);
-            IOUtils.copy(src, dst);
+            // the working directory is removed right after, so its content can be moved instead of copied
+            moveContents(src, dst);
 
             // persistentWorkDir is mostly useful when the Agent is running in a container
             // typically it is running as PID 456 - all files created by the process
@@ -226,16 +233,22 @@ public class RunnerJobExecutor implements JobExecutor {
 
     protected ProcessEntry buildProcessEntry(RunnerJob job) throws Exception {
         List<String> jvmParams = getJvmParams(job.getPayloadDir(), job.getProcessCfg());
+        admissionController.reserve(job.getInstanceId(), AdmissionController.maxHeapSize(jvmParams));
+
         String[] cmd = createCmd(job, jvmParams);
 
+        ProcessEntry pe;
         boolean prefork = canUsePrefork(job);
         if (prefork) {
-            return fork(job, cmd);
+            pe = fork(job, cmd);
         } else {
             log.info("start ['{}'] -> can't use pre-forked instances", job.getInstanceId());
             Path procDir = IOUtils.createTempDir("onetime");
-            return startOneTime(job, cmd, procDir);
+            pe = startOneTime(job, cmd, procDir);
         }
+
+        admissionController.started(job.getInstanceId(), Utils.pid(pe.getProcess()));
+        return pe;
     }
 
     private void exec(RunnerJob job, ProcessEntry pe) throws Exception {
@@ -391,9 +404,9 @@ public class RunnerJobExecutor implements JobExecutor {
         // the job's payload directory containing all files from the process' state snapshot and/or the repository's data
         Path src = job.getPayloadDir();
         // the VM's payload directory
+        // the pre-forked JVM is already running in it, so the directory itself can't be replaced
         Path dst = entry.getProcDir().resolve(Constants.Files.PAYLOAD_DIR_NAME);
-        // TODO use move
-        IOUtils.copy(src, dst);
+        moveContents(src, dst);
 
         writeInstanceId(job.getInstanceId(), dst);
 
@@ -418,6 +431,51 @@ public class RunnerJobExecutor implements JobExecutor {
         return start(procDir, cmd);
     }
 
+    /**
+     * Moves the content of {@code src} into an existing directory {@code dst}.
+     * The existing directories are merged, the existing files are replaced.
+     * Falls back to copying for the entries that can't be renamed, e.g. when
+     * the directories are on different file systems. Symlinks are copied as links.
+     */
+    static void moveContents(Path src, Path dst) throws IOException {
+        List<Path> entries;
+        try (Stream<Path> s = Files.list(src)) {
+            entries = s.collect(Collectors.toList());
+        }
+
+        for (Path e : entries) {
+            Path target = dst.resolve(e.getFileName().toString());
+
+            boolean isDirectory = Files.isDirectory(e, LinkOption.NOFOLLOW_LINKS);
+            if (Files.exists(target, LinkOption.NOFOLLOW_LINKS) && isDirectory != Files.isDirectory(target, LinkOption.NOFOLLOW_LINKS)) {
+                // a file can't be merged with a directory
+                if (Files.isDirectory(target, LinkOption.NOFOLLOW_LINKS)) {
+                    IOUtils.deleteRecursively(target);
+                } else {
+                    Files.delete(target);
+                }
+            }
+
+            if (!Files.exists(target, LinkOption.NOFOLLOW_LINKS)) {
+                try {
+                    Files.move(e, target, StandardCopyOption.ATOMIC_MOVE);
+                    continue;
+                } catch (AtomicMoveNotSupportedException ex) {
+                    log.debug("moveContents ['{}'] -> can't move, copying instead: {}", e, ex.getMessage());
+                }
+            }
+
+            if (isDirectory) {
+                if (!Files.exists(target, LinkOption.NOFOLLOW_LINKS)) {
+                    Files.createDirectory(target);
+                }
+                moveContents(e, target);
+            } else {
+                Files.copy(e, target, LinkOption.NOFOLLOW_LINKS, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
     private ProcessEntry start(Path procDir, String[] cmd) throws IOException {
         Path payloadDir = procDir.resolve(Constants.Files.PAYLOAD_DIR_NAME);
         if (!Files.exists(payloadDir)) {
@@ -661,6 +719,14 @@ public class RunnerJobExecutor implements JobExecutor {
 
         long maxHeartbeatInterval();
 
+        /**
+         * If {@code false}, the agent sends heartbeats on behalf of the process.
+         */
+        @Value.Default
+        default boolean processHeartbeatEnabled() {
+            return true;
+        }
+
         @Nullable
         Path persistentWorkDir();
 
@@ -20,18 +20,138 @@ package com.walmartlabs.concord.agent.guice;
  * =====
  */
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.walmartlabs.concord.dependencymanager.DependencyEntity;
 import com.walmartlabs.concord.dependencymanager.DependencyManager;
+import com.walmartlabs.concord.dependencymanager.ProgressListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.*;
 
 /**
  * A wrapper type to avoid clashes with the Server's instance of a {@link DependencyManager}.
+ * Keeps the recently resolved lists of dependencies in memory, so the same
+ * list (e.g. the default dependencies plus a common set of plugins) is resolved
+ * only once.
  * TODO replace with a common Guice module
  */
 public class AgentDependencyManager extends DependencyManager {
 
-    public AgentDependencyManager(Path cacheDir) throws IOException {
+    private static final Logger log = LoggerFactory.getLogger(AgentDependencyManager.class);
+
+    private final Cache<List<URI>, CacheEntry> cache;
+    private final long volatileEntryTtl;
+
+    public AgentDependencyManager(Path cacheDir, int cacheSize, long volatileEntryTtl) throws IOException {
         super(cacheDir);
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(cacheSize)
+                .build();
+        this.volatileEntryTtl = volatileEntryTtl;
+    }
+
+    @Override
+    public Collection<DependencyEntity> resolve(Collection<URI> items, ProgressListener listener) throws IOException {
+        if (items == null || items.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        List<URI> key = normalize(items);
+
+        CacheEntry e = cache.getIfPresent(key);
+        if (e != null && e.isValid(volatileEntryTtl)) {
+            log.info("resolve -> using a cached list of {} dependencies", e.dependencies.size());
+            return e.dependencies;
+        }
+
+        Collection<DependencyEntity> result = super.resolve(items, listener);
+        cache.put(key, CacheEntry.create(result, isVolatile(key)));
+        return result;
+    }
+
+    private static List<URI> normalize(Collection<URI> items) {
+        List<URI> result = new ArrayList<>(new HashSet<>(items));
+        Collections.sort(result);
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * @return {@code true} if the resolved files can change without changes
+     * in the dependency URIs: SNAPSHOT versions, version ranges and local files.
+     */
+    private static boolean isVolatile(List<URI> items) {
+        for (URI u : items) {
+            if ("file".equalsIgnoreCase(u.getScheme())) {
+                return true;
+            }
+
+            String s = u.toString();
+            if (s.contains("SNAPSHOT") || s.contains("LATEST") || s.contains("RELEASE")
+                    || s.contains("[") || s.contains("(") || s.contains("%5B") || s.contains("%28")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class CacheEntry {
+
+        private static CacheEntry create(Collection<DependencyEntity> dependencies, boolean isVolatile) {
+            Map<Path, Long> sizes = new HashMap<>();
+            for (DependencyEntity d : dependencies) {
+                Long size = size(d.getPath());
+                if (size == null) {
+                    // shouldn't happen, but the entry will be invalidated on the next use anyway
+                    continue;
+                }
+                sizes.put(d.getPath(), size);
+            }
+
+            return new CacheEntry(Collections.unmodifiableCollection(new ArrayList<>(dependencies)), sizes, isVolatile, System.currentTimeMillis());
+        }
+
+        private final Collection<DependencyEntity> dependencies;
+        private final Map<Path, Long> sizes;
+        private final boolean isVolatile;
+        private final long createdAt;
+
+        private CacheEntry(Collection<DependencyEntity> dependencies, Map<Path, Long> sizes, boolean isVolatile, long createdAt) {
+            this.dependencies = dependencies;
+            this.sizes = sizes;
+            this.isVolatile = isVolatile;
+            this.createdAt = createdAt;
+        }
+
+        /**
+         * Checks that the entry is not expired and all files are still in place.
+         */
+        private boolean isValid(long volatileEntryTtl) {
+            if (isVolatile && System.currentTimeMillis() - createdAt >= volatileEntryTtl) {
+                return false;
+            }
+
+            for (DependencyEntity d : dependencies) {
+                Long expected = sizes.get(d.getPath());
+                if (expected == null || !expected.equals(size(d.getPath()))) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        private static Long size(Path p) {
+            try {
+                return Files.size(p);
+            } catch (IOException e) {
+                return null;
+            }
+        }
     }
 }
@@ -23,10 +23,16 @@ package com.walmartlabs.concord.agent.guice;
 import com.walmartlabs.concord.agent.cfg.AgentConfiguration;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.inject.Provider;
 import javax.inject.Singleton;
 import java.io.IOException;
 
+/**
+ * Bound in the agent's root injector, so the cache of resolved dependencies
+ * is shared by all jobs.
+ */
+@Named
 @Singleton
 public class AgentDependencyManagerProvider implements Provider<AgentDependencyManager> {
 
@@ -40,7 +46,7 @@ public class AgentDependencyManagerProvider implements Provider<AgentDependencyM
     @Override
     public AgentDependencyManager get() {
         try {
-            return new AgentDependencyManager(cfg.getDependencyCacheDir());
+            return new AgentDependencyManager(cfg.getDependencyCacheDir(), cfg.getDependencyResolveCacheSize(), cfg.getDependencyResolveCacheTtl());
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
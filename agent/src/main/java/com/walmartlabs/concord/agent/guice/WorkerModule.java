@@ -87,6 +87,5 @@ public class WorkerModule extends AbstractModule {
         bind(LogAppender.class).to(RemoteLogAppender.class);
 
         bind(AgentImportManager.class).toProvider(AgentImportManagerProvider.class);
-        bind(AgentDependencyManager.class).toProvider(AgentDependencyManagerProvider.class);
     }
 }
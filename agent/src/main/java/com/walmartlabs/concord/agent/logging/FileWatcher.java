@@ -24,6 +24,8 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.cache.RemovalListener;
+import com.sun.management.UnixOperatingSystemMXBean;
+import com.walmartlabs.concord.server.queueclient.LatencyStats;
 import org.immutables.value.Value;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,17 +33,20 @@ import org.slf4j.LoggerFactory;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.RandomAccessFile;
-import java.nio.file.FileVisitResult;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 
+/**
+ * Tails the files in a directory. Changes are detected using a {@link WatchService}
+ * (inotify on Linux), with a fallback to periodic directory scans where
+ * a native watch service is not available.
+ */
 public final class FileWatcher<T> implements Closeable {
 
     public static <T> void watch(Path path, Supplier<Boolean> stopCondition, long maxDelay, FileNameParser<T> fileNameParser, FileListener<T> listener) throws IOException {
@@ -50,94 +55,189 @@ public final class FileWatcher<T> implements Closeable {
         }
     }
 
+    /**
+     * Returns the time (in ms) between the last modification of a file and
+     * the moment the new data was handed over to the listener, for all watchers.
+     */
+    public static LatencyStats.Snapshot getLagStats() {
+        return lagStats.snapshot();
+    }
+
     private static final Logger log = LoggerFactory.getLogger(FileWatcher.class);
 
-    private static final int MAX_OPEN_FILES = 10;
+    private static final int DEFAULT_OPEN_FILES = 10;
+    private static final int MIN_OPEN_FILES = 4;
+    private static final int MAX_OPEN_FILES = 256;
+
+    /**
+     * Files without changes are closed after this period.
+     */
+    private static final long MAX_IDLE_FILE_AGE = 30000;
+
+    private static final AtomicInteger activeWatchers = new AtomicInteger();
+    private static final LatencyStats lagStats = new LatencyStats(1024);
 
     private final Path watchDir;
     private final long maxDelay;
     private final FileListener<T> listener;
     private final FileNameParser<T> fileNameParser;
 
-    private final FileCache fileCache = new FileCache();
+    private final FileCache fileCache;
     private final Map<Path, FileEntry<T>> filePointers = new HashMap<>();
     private final Set<Path> ignoreFiles = new HashSet<>();
 
+    /**
+     * Files with unprocessed changes, e.g. when the listener didn't consume all data.
+     */
+    private final Set<Path> pendingFiles = new HashSet<>();
+
+    private final WatchService watchService;
+
     private FileWatcher(Path watchDir, long maxDelay, FileNameParser<T> fileNameParser, FileListener<T> listener) {
         this.watchDir = watchDir;
         this.maxDelay = maxDelay;
         this.listener = listener;
         this.fileNameParser = fileNameParser;
+
+        activeWatchers.incrementAndGet();
+        this.fileCache = new FileCache(openFilesBudget());
+        this.watchService = createWatchService(watchDir);
     }
 
     @Override
     public void close() {
         fileCache.close();
+
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.warn("close ['{}'] -> error while closing the watch service: {}", watchDir, e.getMessage());
+            }
+        }
+
+        activeWatchers.decrementAndGet();
     }
 
     private void run(Supplier<Boolean> stopCondition) throws IOException {
-        while (!Thread.currentThread().isInterrupted()) {
-            processFiles();
+        // pick up the files created before the watcher was registered
+        processFiles();
 
+        while (!Thread.currentThread().isInterrupted()) {
             if (stopCondition.get()) {
                 processFiles();
                 break;
             }
 
             try {
-                Thread.sleep(maxDelay);
+                if (watchService != null) {
+                    processEvents();
+                } else {
+                    Thread.sleep(maxDelay);
+                    processFiles();
+                }
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 break;
             }
+
+            fileCache.cleanUp();
         }
     }
 
-    private void processFiles() throws IOException {
-        Files.walkFileTree(watchDir, new SimpleFileVisitor<Path>() {
-            @Override
-            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
-                if (watchDir.equals(dir)) {
-                    return FileVisitResult.CONTINUE;
+    /**
+     * Waits up to {@code maxDelay} for changes and processes the changed files.
+     */
+    private void processEvents() throws InterruptedException, IOException {
+        Set<Path> changed = new HashSet<>(pendingFiles);
+
+        WatchKey key = watchService.poll(maxDelay, TimeUnit.MILLISECONDS);
+        while (key != null) {
+            for (WatchEvent<?> e : key.pollEvents()) {
+                if (e.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    // some events were lost, rescan the whole directory
+                    key.reset();
+                    processFiles();
+                    return;
                 }
-                return FileVisitResult.SKIP_SUBTREE;
+
+                changed.add(watchDir.resolve((Path) e.context()));
             }
 
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
-                if (ignoreFiles.contains(file)) {
-                    return FileVisitResult.CONTINUE;
-                }
+            key.reset();
 
-                FileEntry<T> filePointer = filePointers.get(file);
-                if (filePointer == null) {
-                    T fileName = fileNameParser.parse(file);
-                    if (fileName == null) {
-                        ignoreFiles.add(file);
-                        return FileVisitResult.CONTINUE;
-                    }
+            // collect the rest of the events without waiting
+            key = watchService.poll();
+        }
 
-                    boolean success = listener.onNewFile(fileName);
-                    if (!success) {
-                        return FileVisitResult.CONTINUE;
-                    }
-                    filePointer = FileEntry.of(fileName, 0L);
-                    filePointers.put(file, filePointer);
-                }
+        for (Path p : changed) {
+            if (Files.isRegularFile(p)) {
+                processFile(p);
+            } else {
+                pendingFiles.remove(p);
+            }
+        }
+    }
 
-                if (isChanged(file, filePointer.pointer())) {
-                    long newPos = notifyChanged(file, filePointer);
-                    if (newPos == -1) {
-                        deleteFile(file);
-                        filePointers.remove(file);
-                        return FileVisitResult.CONTINUE;
-                    } else if (newPos > 0) {
-                        filePointers.put(file, FileEntry.of(filePointer.name(), newPos));
-                    }
+    private void processFiles() throws IOException {
+        try (Stream<Path> files = Files.list(watchDir)) {
+            Iterator<Path> it = files.iterator();
+            while (it.hasNext()) {
+                Path p = it.next();
+                if (Files.isRegularFile(p)) {
+                    processFile(p);
                 }
+            }
+        }
+    }
+
+    private void processFile(Path file) {
+        if (ignoreFiles.contains(file)) {
+            return;
+        }
 
-                return FileVisitResult.CONTINUE;
+        FileEntry<T> filePointer = filePointers.get(file);
+        if (filePointer == null) {
+            T fileName = fileNameParser.parse(file);
+            if (fileName == null) {
+                ignoreFiles.add(file);
+                return;
             }
-        });
+
+            boolean success = listener.onNewFile(fileName);
+            if (!success) {
+                // try again later
+                pendingFiles.add(file);
+                return;
+            }
+            filePointer = FileEntry.of(fileName, 0L);
+            filePointers.put(file, filePointer);
+        }
+
+        pendingFiles.remove(file);
+
+        if (!isChanged(file, filePointer.pointer())) {
+            return;
+        }
+
+        long lastModified = lastModified(file);
+
+        long newPos = notifyChanged(file, filePointer);
+        if (newPos == -1) {
+            deleteFile(file);
+            filePointers.remove(file);
+            return;
+        } else if (newPos > 0) {
+            filePointers.put(file, FileEntry.of(filePointer.name(), newPos));
+        }
+
+        if (newPos > filePointer.pointer() && lastModified > 0) {
+            lagStats.record(Math.max(0, System.currentTimeMillis() - lastModified));
+        }
+
+        if (isChanged(file, Math.max(newPos, filePointer.pointer()))) {
+            pendingFiles.add(file);
+        }
     }
 
     public boolean isChanged(Path path, long totalRead) {
@@ -164,6 +264,59 @@ public final class FileWatcher<T> implements Closeable {
         return 0L;
     }
 
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static WatchService createWatchService(Path dir) {
+        WatchService ws = null;
+        try {
+            ws = dir.getFileSystem().newWatchService();
+
+            // the JDK's generic implementation is a polling one with a fixed (and longer) interval
+            if (ws.getClass().getSimpleName().startsWith("Polling")) {
+                log.debug("createWatchService ['{}'] -> no native watch service, using polling", dir);
+                ws.close();
+                return null;
+            }
+
+            dir.register(ws, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            return ws;
+        } catch (IOException | UnsupportedOperationException e) {
+            log.warn("createWatchService ['{}'] -> can't watch the directory, using polling: {}", dir, e.getMessage());
+            if (ws != null) {
+                try {
+                    ws.close();
+                } catch (IOException ee) {
+                    // ignore
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Calculates the max number of open files using the number of available
+     * file descriptors, shared between all active watchers.
+     */
+    private static int openFilesBudget() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (!(os instanceof UnixOperatingSystemMXBean)) {
+            return DEFAULT_OPEN_FILES;
+        }
+
+        UnixOperatingSystemMXBean unix = (UnixOperatingSystemMXBean) os;
+        long available = unix.getMaxFileDescriptorCount() - unix.getOpenFileDescriptorCount();
+
+        // leave most of the descriptors to the rest of the agent
+        long budget = available / 4 / Math.max(1, activeWatchers.get());
+        return (int) Math.max(MIN_OPEN_FILES, Math.min(MAX_OPEN_FILES, budget));
+    }
+
     private static void deleteFile(Path path) {
         try {
             Files.delete(path);
@@ -232,9 +385,10 @@ public final class FileWatcher<T> implements Closeable {
 
         private final LoadingCache<Path, RandomAccessFile> cache;
 
-        public FileCache() {
+        public FileCache(int maxOpenFiles) {
             this.cache = CacheBuilder.newBuilder()
-                    .maximumSize(MAX_OPEN_FILES)
+                    .maximumSize(maxOpenFiles)
+                    .expireAfterAccess(MAX_IDLE_FILE_AGE, TimeUnit.MILLISECONDS)
                     .removalListener((RemovalListener<Path, RandomAccessFile>) notification -> {
                         try {
                             notification.getValue().close();
@@ -260,6 +414,10 @@ public final class FileWatcher<T> implements Closeable {
             cache.invalidate(path);
         }
 
+        public void cleanUp() {
+            cache.cleanUp();
+        }
+
         @Override
         public void close() {
             cache.invalidateAll();
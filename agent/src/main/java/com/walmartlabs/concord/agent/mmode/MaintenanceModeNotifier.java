@@ -30,16 +30,24 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.function.Supplier;
 
 public class MaintenanceModeNotifier {
 
     private static final Logger log = LoggerFactory.getLogger(MaintenanceModeNotifier.class);
 
+    private static final String NOT_FOUND_RESPONSE = "404 (Not Found)\n";
+
     private final HttpServer server;
 
-    public MaintenanceModeNotifier(Integer port, MaintenanceModeListener listener) throws IOException {
+    /**
+     * @param stats additional read-only JSON endpoints, e.g. the agent's internal statistics
+     */
+    public MaintenanceModeNotifier(Integer port, MaintenanceModeListener listener, Map<String, Supplier<Object>> stats) throws IOException {
         this.server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
         this.server.createContext("/maintenance-mode", new MaintenanceModeHandler(listener));
+        stats.forEach((path, supplier) -> this.server.createContext(path, new StatsHandler(supplier)));
     }
 
     public void start() {
@@ -52,9 +60,35 @@ public class MaintenanceModeNotifier {
         log.info("stop -> done");
     }
 
-    private static class MaintenanceModeHandler implements HttpHandler {
+    private static void response(HttpExchange httpExchange, int code, byte[] response) throws IOException {
+        httpExchange.sendResponseHeaders(code, response.length);
+        try (OutputStream os = httpExchange.getResponseBody()) {
+            os.write(response);
+        }
+    }
 
-        private static final String NOT_FOUND_RESPONSE = "404 (Not Found)\n";
+    private static class StatsHandler implements HttpHandler {
+
+        private final ObjectMapper objectMapper = new ObjectMapper();
+        private final Supplier<Object> stats;
+
+        private StatsHandler(Supplier<Object> stats) {
+            this.stats = stats;
+        }
+
+        @Override
+        public void handle(HttpExchange httpExchange) throws IOException {
+            if (!"GET".equals(httpExchange.getRequestMethod())) {
+                response(httpExchange, 404, NOT_FOUND_RESPONSE.getBytes());
+                return;
+            }
+
+            httpExchange.getResponseHeaders().set("Content-Type", "application/json");
+            response(httpExchange, 200, objectMapper.writeValueAsBytes(stats.get()));
+        }
+    }
+
+    private static class MaintenanceModeHandler implements HttpHandler {
 
         private final ObjectMapper objectMapper = new ObjectMapper();
         private final MaintenanceModeListener listener;
@@ -81,13 +115,6 @@ public class MaintenanceModeNotifier {
             response(httpExchange, 404, NOT_FOUND_RESPONSE.getBytes());
         }
 
-        private void response(HttpExchange httpExchange, int code, byte[] response) throws IOException {
-            httpExchange.sendResponseHeaders(code, response.length);
-            try (OutputStream os = httpExchange.getResponseBody()) {
-                os.write(response);
-            }
-        }
-
         private MaintenanceModeListener.Status onMaintenanceMode() {
             MaintenanceModeListener.Status status = listener.onMaintenanceMode();
 
@@ -20,21 +20,38 @@ package com.walmartlabs.concord.agent.remote;
  * =====
  */
 
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.squareup.okhttp.Call;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.RequestBody;
 import com.walmartlabs.concord.ApiClient;
+import com.walmartlabs.concord.ApiException;
+import com.walmartlabs.concord.Pair;
 import com.walmartlabs.concord.agent.AgentConstants;
 import com.walmartlabs.concord.client.ClientUtils;
 import com.walmartlabs.concord.common.IOUtils;
-import com.walmartlabs.concord.common.TemporaryPath;
 import com.walmartlabs.concord.sdk.Constants;
 import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.UUID;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Uploads the process attachments. The archive is streamed directly into
+ * the request's body, the files that are already on the server are skipped.
+ */
 public class AttachmentsUploader {
 
+    private static final Logger log = LoggerFactory.getLogger(AttachmentsUploader.class);
+
     private final ApiClient apiClient;
 
     @Inject
@@ -48,17 +65,74 @@ public class AttachmentsUploader {
             return;
         }
 
-        try (TemporaryPath tmp = IOUtils.tempFile("attachments", ".zip")) {
-            try (ZipArchiveOutputStream zip = new ZipArchiveOutputStream(Files.newOutputStream(tmp.path()))) {
-                IOUtils.zip(zip, attachmentsDir);
+        List<Path> files = changedFiles(attachmentsDir, getChecksums(instanceId));
+
+        String path = "/api/v1/process/" + instanceId + "/attachment";
+
+        ClientUtils.withRetry(AgentConstants.API_CALL_MAX_RETRIES, AgentConstants.API_CALL_RETRY_DELAY, () -> {
+            // the archive is created while the request is being sent, without a temporary file
+            post(path, new ClientUtils.OutputStreamRequestBody(out -> {
+                ZipArchiveOutputStream zip = new ZipArchiveOutputStream(out);
+                for (Path f : files) {
+                    IOUtils.zipFile(zip, f, attachmentsDir.relativize(f).toString());
+                }
+                zip.finish();
+                zip.flush();
+            }));
+            return null;
+        });
+    }
+
+    /**
+     * Returns the files that are not on the server yet. The server replaces
+     * the {@code _state} directory on each upload, so its files are always included.
+     */
+    private static List<Path> changedFiles(Path attachmentsDir, Map<String, String> checksums) throws IOException {
+        Path stateDir = attachmentsDir.resolve(Constants.Files.JOB_STATE_DIR_NAME);
+
+        List<Path> result = new ArrayList<>();
+        try (Stream<Path> s = Files.walk(attachmentsDir)) {
+            for (Path p : s.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                String checksum = checksums.get(attachmentsDir.relativize(p).toString());
+                if (checksum == null || p.startsWith(stateDir) || !checksum.equals(md5(p))) {
+                    result.add(p);
+                }
             }
+        }
+        return result;
+    }
 
-            String path = "/api/v1/process/" + instanceId + "/attachment";
+    @SuppressWarnings("unchecked")
+    private Map<String, String> getChecksums(UUID instanceId) {
+        String path = "/api/v1/process/" + instanceId + "/attachment-checksums";
+        String[] authNames = apiClient.getAuthentications().keySet().toArray(new String[0]);
 
-            ClientUtils.withRetry(AgentConstants.API_CALL_MAX_RETRIES, AgentConstants.API_CALL_RETRY_DELAY, () -> {
-                ClientUtils.postData(apiClient, path, tmp.path().toFile());
-                return null;
-            });
+        try {
+            Call call = apiClient.buildCall(path, "GET", new ArrayList<>(), new ArrayList<>(), null, new HashMap<>(), new HashMap<>(), authNames, null);
+            Map<String, String> result = apiClient.<Map<String, String>>execute(call, Map.class).getData();
+            return result != null ? result : Collections.emptyMap();
+        } catch (ApiException e) {
+            // older servers don't have the endpoint, upload everything
+            log.warn("getChecksums ['{}'] -> error: {}", instanceId, e.getMessage());
+            return Collections.emptyMap();
         }
     }
+
+    private void post(String path, RequestBody body) throws ApiException {
+        List<Pair> queryParams = new ArrayList<>();
+        Map<String, String> headerParams = new HashMap<>();
+        apiClient.getAuthentications().values().forEach(a -> a.applyToParams(queryParams, headerParams));
+
+        Request.Builder b = new Request.Builder().url(apiClient.buildUrl(path, queryParams, null));
+        apiClient.processHeaderParams(headerParams, b);
+
+        Call call = apiClient.getHttpClient().newCall(b.post(body).build());
+        apiClient.execute(call);
+    }
+
+    @SuppressWarnings("deprecation")
+    private static String md5(Path p) throws IOException {
+        HashCode hc = com.google.common.io.Files.asByteSource(p.toFile()).hash(Hashing.md5());
+        return hc.toString();
+    }
 }
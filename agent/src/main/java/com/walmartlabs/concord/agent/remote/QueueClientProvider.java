@@ -54,6 +54,8 @@ public class QueueClientProvider implements Provider<QueueClient> {
                     .connectTimeout(serverCfg.getConnectTimeout())
                     .pingInterval(serverCfg.getPingInterval())
                     .maxNoActivityPeriod(serverCfg.getMaxNoActivityPeriod())
+                    .reconnectBaseDelay(serverCfg.getReconnectBaseDelay())
+                    .reconnectMaxDelay(serverCfg.getReconnectMaxDelay())
                     .build());
 
             queueClient.start();
@@ -0,0 +1,179 @@
+package com.walmartlabs.concord.agent;
+
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.typesafe.config.ConfigFactory;
+import com.walmartlabs.concord.agent.cfg.AdmissionConfiguration;
+import com.walmartlabs.concord.agent.cfg.AgentConfiguration;
+import com.walmartlabs.concord.agent.executors.runner.ProcessPool;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AdmissionControllerTest {
+
+    @Test
+    public void testMaxHeapSize() {
+        assertEquals(-1, AdmissionController.maxHeapSize(Collections.singletonList("-XX:+HeapDumpOnOutOfMemoryError")));
+        assertEquals(128L * 1024 * 1024, AdmissionController.maxHeapSize(Arrays.asList("-Xmx128m", "-Xms64m")));
+        assertEquals(2L * 1024 * 1024 * 1024, AdmissionController.maxHeapSize(Arrays.asList("-Xmx128m", "-Xmx2G")));
+        assertEquals(1024, AdmissionController.maxHeapSize(Collections.singletonList("-Xmx1024")));
+    }
+
+    @Test
+    public void testAdmit() throws Exception {
+        // no limits
+        AdmissionController c = new AdmissionController(cfg(true, "0", "1.1", "0"), agentCfg(), processPool());
+        assertEquals(3, c.admit(3, 0));
+
+        // not enough memory
+        c = new AdmissionController(cfg(true, "1 PiB", "1.1", "0"), agentCfg(), processPool());
+        assertEquals(0, c.admit(3, 0));
+        assertEquals(3, c.getStats().getRefusedSlots());
+
+        // not enough disk space
+        c = new AdmissionController(cfg(true, "0", "1.1", "1 PiB"), agentCfg(), processPool());
+        assertEquals(0, c.admit(3, 0));
+
+        // disabled
+        c = new AdmissionController(cfg(false, "1 PiB", "1.1", "1 PiB"), agentCfg(), processPool());
+        assertEquals(3, c.admit(3, 0));
+    }
+
+    @Test
+    public void testReservations() throws Exception {
+        AdmissionController c = new AdmissionController(cfg(true, "0", "1.1", "0"), agentCfg(), processPool());
+        assertEquals(3, c.admit(3, 0));
+
+        // a process that can use all memory
+        UUID instanceId = UUID.randomUUID();
+        c.reserve(instanceId, Long.MAX_VALUE / 2);
+        assertEquals(0, c.admit(3, 0));
+
+        c.release(instanceId);
+        assertEquals(3, c.admit(3, 0));
+    }
+
+    @Test(timeout = 30000)
+    public void testReservationsShrinkWithRss() throws Exception {
+        assumeTrue(Files.isDirectory(Paths.get("/proc")));
+
+        Process child = new ProcessBuilder("sleep", "60").start();
+        try {
+            long pid = Utils.pid(child);
+            assumeTrue(pid >= 0);
+
+            AdmissionController c = new AdmissionController(cfg(true, "0", "1.1", "0"), agentCfg(), processPool());
+
+            long reserved = 1024L * 1024 * 1024;
+            long expectedMemory = 64L * 1024 * 1024;
+
+            UUID instanceId = UUID.randomUUID();
+            c.reserve(instanceId, reserved);
+
+            // not started yet, the process is expected to use the average amount of memory
+            c.admit(1, 0);
+            assertEquals(reserved - expectedMemory, c.getStats().getReservedMemory());
+
+            // the process' RSS is already reflected in the available memory
+            c.started(instanceId, pid);
+            c.admit(1, 1);
+            long reservedMemory = c.getStats().getReservedMemory();
+            assertTrue(reservedMemory < reserved);
+            assertTrue(reservedMemory > reserved - expectedMemory);
+        } finally {
+            child.destroy();
+        }
+    }
+
+    @Test
+    public void testStatsBeforeAdmit() throws Exception {
+        AdmissionController c = new AdmissionController(cfg(false, "0", "1.1", "0"), agentCfg(), processPool());
+
+        AdmissionController.Stats stats = c.getStats();
+        assertNotNull(stats);
+        assertEquals(0, stats.getRequestedSlots());
+        assertEquals(-1, stats.getProcessCpu(), 0);
+        assertEquals(64L * 1024 * 1024, stats.getProcessMemory());
+    }
+
+    @Test(timeout = 30000)
+    public void testIdlePreForkedProcessesAreNotMeasured() throws Exception {
+        assumeTrue(Files.isDirectory(Paths.get("/proc")));
+
+        Process child = new ProcessBuilder("sleep", "60").start();
+        try {
+            long pid = Utils.pid(child);
+            assumeTrue(pid >= 0);
+
+            // the same child process, once as a running process and once as an idle pre-forked instance
+            AdmissionController running = new AdmissionController(cfg(true, "0", "1.1", "0", "1 GiB"), agentCfg(), processPool());
+            AdmissionController idle = new AdmissionController(cfg(true, "0", "1.1", "0", "1 GiB"), agentCfg(), processPool(pid));
+
+            running.admit(1, 1);
+            idle.admit(1, 1);
+
+            long defaultMemory = 1024L * 1024 * 1024;
+            assertTrue(running.getStats().getProcessMemory() > idle.getStats().getProcessMemory());
+            assertTrue(idle.getStats().getProcessMemory() < defaultMemory);
+        } finally {
+            child.destroy();
+        }
+    }
+
+    private static AdmissionConfiguration cfg(boolean enabled, String minFreeMemory, String maxCpuLoad, String minFreeDisk) {
+        return cfg(enabled, minFreeMemory, maxCpuLoad, minFreeDisk, "1 KiB");
+    }
+
+    private static AdmissionConfiguration cfg(boolean enabled, String minFreeMemory, String maxCpuLoad, String minFreeDisk,
+                                              String defaultProcessMemory) {
+        return new AdmissionConfiguration(ConfigFactory.parseString("admission {\n" +
+                "enabled = " + enabled + "\n" +
+                "minFreeMemory = \"" + minFreeMemory + "\"\n" +
+                "defaultProcessMemory = \"" + defaultProcessMemory + "\"\n" +
+                "maxCpuLoad = " + maxCpuLoad + "\n" +
+                "minFreeDisk = \"" + minFreeDisk + "\"\n" +
+                "}"));
+    }
+
+    private static AgentConfiguration agentCfg() throws Exception {
+        AgentConfiguration cfg = mock(AgentConfiguration.class);
+        when(cfg.getPayloadDir()).thenReturn(Files.createTempDirectory("payload"));
+        return cfg;
+    }
+
+    private static ProcessPool processPool(Long... idlePids) {
+        ProcessPool pool = mock(ProcessPool.class);
+        when(pool.getIdlePids()).thenReturn(new HashSet<>(Arrays.asList(idlePids)));
+        return pool;
+    }
+}
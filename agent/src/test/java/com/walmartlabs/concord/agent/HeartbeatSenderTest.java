@@ -0,0 +1,108 @@
+package com.walmartlabs.concord.agent;
+
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.queueclient.QueueClient;
+import com.walmartlabs.concord.server.queueclient.message.HeartbeatRequest;
+import com.walmartlabs.concord.server.queueclient.message.HeartbeatResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class HeartbeatSenderTest {
+
+    private static final long MAX_NO_HEARTBEAT_INTERVAL = 200;
+
+    private QueueClient queueClient;
+    private Set<UUID> processes;
+    private List<UUID> cancelled;
+    private HeartbeatSender sender;
+
+    @Before
+    public void setUp() {
+        queueClient = mock(QueueClient.class);
+        processes = new HashSet<>();
+        cancelled = new ArrayList<>();
+        sender = new HeartbeatSender(queueClient, 10, MAX_NO_HEARTBEAT_INTERVAL, () -> new HashSet<>(processes), cancelled::add);
+    }
+
+    @Test
+    public void testSingleRequestForAllProcesses() throws Exception {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        processes.add(a);
+        processes.add(b);
+
+        when(queueClient.request(any())).thenReturn(CompletableFuture.completedFuture(new HeartbeatResponse(0, Collections.emptyList())));
+
+        for (int i = 0; i < 3; i++) {
+            sender.tick();
+            Thread.sleep(MAX_NO_HEARTBEAT_INTERVAL / 2);
+        }
+
+        // one message per tick with all running processes
+        verify(queueClient, times(3)).request(argThat(r -> ((HeartbeatRequest) r).getInstanceIds().containsAll(Arrays.asList(a, b))));
+        assertTrue(cancelled.isEmpty());
+    }
+
+    @Test
+    public void testUnknownProcessesAreCancelled() throws Exception {
+        UUID known = UUID.randomUUID();
+        UUID unknown = UUID.randomUUID();
+        processes.add(known);
+        processes.add(unknown);
+
+        when(queueClient.request(any())).thenReturn(CompletableFuture.completedFuture(new HeartbeatResponse(0, Collections.singletonList(unknown))));
+
+        // the unknown process is not refreshed by the responses and times out
+        for (int i = 0; i < 3; i++) {
+            sender.tick();
+            Thread.sleep(MAX_NO_HEARTBEAT_INTERVAL * 6 / 10);
+        }
+
+        assertEquals(Collections.singletonList(unknown), cancelled);
+    }
+
+    @Test
+    public void testNoResponse() throws Exception {
+        UUID id = UUID.randomUUID();
+        processes.add(id);
+
+        // e.g. the agent is reconnecting
+        when(queueClient.request(any())).thenReturn(new CompletableFuture<>());
+
+        sender.tick();
+        Thread.sleep(MAX_NO_HEARTBEAT_INTERVAL * 2);
+        sender.tick();
+
+        // no new request while the previous one is in flight
+        verify(queueClient, times(1)).request(any());
+        assertEquals(Collections.singletonList(id), cancelled);
+    }
+}
@@ -0,0 +1,70 @@
+package com.walmartlabs.concord.agent.docker;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OrphanSweeperTest {
+
+    @Test
+    public void testStartAndDestroyEvents() {
+        Map<String, UUID> containers = new HashMap<>();
+        OrphanSweeper.EventReader reader = new OrphanSweeper.EventReader(null, containers);
+
+        UUID instanceId = UUID.randomUUID();
+        reader.onEvent("start " + instanceId + " c1");
+        reader.onEvent("start " + instanceId + " c2\n");
+        assertEquals(2, containers.size());
+        assertEquals(instanceId, containers.get("c1"));
+        assertEquals(instanceId, containers.get("c2"));
+
+        reader.onEvent("destroy " + instanceId + " c1");
+        assertEquals(1, containers.size());
+        assertEquals(instanceId, containers.get("c2"));
+
+        // unknown containers and actions are ignored
+        reader.onEvent("destroy " + instanceId + " c3");
+        reader.onEvent("die " + instanceId + " c2");
+        assertEquals(1, containers.size());
+    }
+
+    @Test
+    public void testInvalidEvents() {
+        Map<String, UUID> containers = new HashMap<>();
+        OrphanSweeper.EventReader reader = new OrphanSweeper.EventReader(null, containers);
+
+        reader.onEvent("");
+        reader.onEvent("start c1");
+        reader.onEvent("start " + UUID.randomUUID() + " c1 extra");
+        reader.onEvent("start not-a-uuid c1");
+        // containers without the label are reported with an empty ID
+        reader.onEvent("start  c1");
+
+        assertTrue(containers.isEmpty());
+    }
+}
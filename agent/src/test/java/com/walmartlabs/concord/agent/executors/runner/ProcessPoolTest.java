@@ -0,0 +1,113 @@
+package com.walmartlabs.concord.agent.executors.runner;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.typesafe.config.ConfigFactory;
+import com.walmartlabs.concord.agent.cfg.PreForkConfiguration;
+import com.walmartlabs.concord.agent.executors.runner.ProcessPool.ProcessEntry;
+import com.walmartlabs.concord.agent.executors.runner.ProcessPool.Stats;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ProcessPoolTest {
+
+    @Test(timeout = 30000)
+    public void testWarmStarts() throws Exception {
+        ProcessPool pool = new ProcessPool(cfg(3));
+        AtomicInteger started = new AtomicInteger();
+
+        HashCode hc = hash("a");
+        for (int i = 0; i < 10; i++) {
+            pool.take(hc, () -> start(started));
+            waitForWarmup(pool);
+        }
+
+        Stats stats = pool.getStats();
+        assertEquals(1, stats.getMisses());
+        assertEquals(9, stats.getHits());
+        assertEquals(1, stats.getCommands());
+    }
+
+    @Test(timeout = 30000)
+    public void testMaxCount() throws Exception {
+        int maxCount = 2;
+        ProcessPool pool = new ProcessPool(cfg(maxCount));
+        AtomicInteger started = new AtomicInteger();
+
+        // "a" arrives often, "b" and "c" only once
+        for (int i = 0; i < 5; i++) {
+            pool.take(hash("a"), () -> start(started));
+            waitForWarmup(pool);
+        }
+        pool.take(hash("b"), () -> start(started));
+        pool.take(hash("c"), () -> start(started));
+        waitForWarmup(pool);
+
+        // "b" and "c" can't evict the instances of a more active command
+        Stats stats = pool.getStats();
+        assertEquals(maxCount, stats.getIdle());
+        assertEquals(0, stats.getEvicted());
+
+        // the most active command keeps its pre-forked instance
+        pool.take(hash("a"), () -> start(started));
+        assertEquals(4 + 1, pool.getStats().getHits());
+    }
+
+    private static void waitForWarmup(ProcessPool pool) throws InterruptedException {
+        Thread.sleep(50);
+        while (pool.getStats().getStarting() > 0) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static ProcessEntry start(AtomicInteger started) {
+        started.incrementAndGet();
+
+        Process p = mock(Process.class);
+        when(p.isAlive()).thenReturn(true);
+        return new ProcessEntry(p, Paths.get("/tmp"));
+    }
+
+    private static HashCode hash(String s) {
+        return Hashing.sha256().hashString(s, StandardCharsets.UTF_8);
+    }
+
+    private static PreForkConfiguration cfg(int maxCount) {
+        Map<String, Object> m = new HashMap<>();
+        m.put("prefork.maxAge", "1 minute");
+        m.put("prefork.maxCount", maxCount);
+        m.put("prefork.warmupWindow", "10 seconds");
+        m.put("prefork.minFreeMemory", 0);
+        m.put("prefork.maintenancePeriod", "1 minute");
+        return new PreForkConfiguration(ConfigFactory.parseMap(m));
+    }
+}
@@ -0,0 +1,81 @@
+package com.walmartlabs.concord.agent.executors.runner;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.common.IOUtils;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.*;
+
+public class RunnerJobExecutorTest {
+
+    @Test
+    public void testMoveContentsIntoExistingEntries() throws Exception {
+        Path src = IOUtils.createTempDir("src");
+        Path dst = IOUtils.createTempDir("dst");
+        try {
+            write(src.resolve("a.txt"), "new");
+            write(src.resolve("dir/b.txt"), "new");
+            write(src.resolve("dir/c.txt"), "new");
+            Files.createSymbolicLink(src.resolve("dir/link"), Paths.get("c.txt"));
+            Files.createSymbolicLink(src.resolve("link"), Paths.get("a.txt"));
+
+            // the pre-forked JVM's payload directory, with some of the entries already present
+            write(dst.resolve("a.txt"), "old");
+            write(dst.resolve("dir/b.txt"), "old");
+            write(dst.resolve("dir/d.txt"), "old");
+            write(dst.resolve("link"), "old");
+
+            RunnerJobExecutor.moveContents(src, dst);
+
+            // existing files are replaced
+            assertEquals("new", read(dst.resolve("a.txt")));
+            assertEquals("new", read(dst.resolve("dir/b.txt")));
+
+            // existing directories are merged
+            assertEquals("new", read(dst.resolve("dir/c.txt")));
+            assertEquals("old", read(dst.resolve("dir/d.txt")));
+
+            // symlinks are kept as links
+            assertTrue(Files.isSymbolicLink(dst.resolve("dir/link")));
+            assertEquals(Paths.get("c.txt"), Files.readSymbolicLink(dst.resolve("dir/link")));
+            assertTrue(Files.isSymbolicLink(dst.resolve("link")));
+            assertEquals("new", read(dst.resolve("link")));
+        } finally {
+            IOUtils.deleteRecursively(src);
+            IOUtils.deleteRecursively(dst);
+        }
+    }
+
+    private static void write(Path p, String s) throws Exception {
+        Files.createDirectories(p.getParent());
+        Files.write(p, s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(Path p) throws Exception {
+        return new String(Files.readAllBytes(p), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,80 @@
+package com.walmartlabs.concord.agent.guice;
+
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.dependencymanager.DependencyEntity;
+import org.junit.Test;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+public class AgentDependencyManagerTest {
+
+    @Test
+    public void testCache() throws Exception {
+        Path src = Files.createTempFile("test", ".jar");
+        Files.write(src, new byte[]{1, 2, 3});
+
+        Collection<URI> deps = Collections.singletonList(src.toUri());
+
+        AgentDependencyManager m = new AgentDependencyManager(Files.createTempDirectory("cache"), 10, 60000);
+        Path p = resolve(m, deps);
+        assertEquals(3, Files.size(p));
+
+        // local files are not re-downloaded until the entry expires
+        Files.write(src, new byte[]{1, 2, 3, 4});
+        assertEquals(p, resolve(m, deps));
+        assertEquals(3, Files.size(p));
+
+        // removed files invalidate the entry
+        Files.delete(p);
+        assertEquals(p, resolve(m, deps));
+        assertEquals(4, Files.size(p));
+    }
+
+    @Test
+    public void testVolatileEntryTtl() throws Exception {
+        Path src = Files.createTempFile("test", ".jar");
+        Files.write(src, new byte[]{1, 2, 3});
+
+        Collection<URI> deps = Collections.singletonList(src.toUri());
+
+        AgentDependencyManager m = new AgentDependencyManager(Files.createTempDirectory("cache"), 10, 0);
+        Path p = resolve(m, deps);
+        assertEquals(3, Files.size(p));
+
+        Files.write(src, new byte[]{1, 2, 3, 4});
+        assertEquals(p, resolve(m, deps));
+        assertEquals(4, Files.size(p));
+    }
+
+    private static Path resolve(AgentDependencyManager m, Collection<URI> deps) throws Exception {
+        Collection<DependencyEntity> result = m.resolve(deps);
+        assertEquals(1, result.size());
+        return result.iterator().next().getPath();
+    }
+}
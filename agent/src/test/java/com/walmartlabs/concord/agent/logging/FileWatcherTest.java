@@ -0,0 +1,103 @@
+package com.walmartlabs.concord.agent.logging;
+
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertTrue;
+
+public class FileWatcherTest {
+
+    @Test(timeout = 30000)
+    public void testTail() throws Exception {
+        Path dir = Files.createTempDirectory("test");
+        Path log = dir.resolve("test.log");
+        Files.write(log, "first\n".getBytes());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FileWatcher.ByteArrayFileReader reader = new FileWatcher.ByteArrayFileReader();
+
+        AtomicBoolean stop = new AtomicBoolean();
+        Thread t = new Thread(() -> {
+            try {
+                FileWatcher.watch(dir, stop::get, 1000, p -> p.getFileName().toString(), new FileWatcher.FileListener<String>() {
+                    @Override
+                    public boolean onNewFile(String fileName) {
+                        return true;
+                    }
+
+                    @Override
+                    public long onChanged(String fileName, RandomAccessFile in) throws IOException {
+                        return reader.read(in, chunk -> {
+                            synchronized (out) {
+                                out.write(chunk.bytes(), 0, chunk.len());
+                            }
+                            return chunk.len();
+                        });
+                    }
+                });
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        t.start();
+
+        waitFor(out, "first\n");
+
+        try (OutputStream os = Files.newOutputStream(log, StandardOpenOption.APPEND)) {
+            os.write("second\n".getBytes());
+        }
+
+        waitFor(out, "first\nsecond\n");
+
+        stop.set(true);
+        t.join();
+
+        assertTrue(FileWatcher.getLagStats().getCount() >= 2);
+    }
+
+    private static void waitFor(ByteArrayOutputStream out, String expected) throws InterruptedException {
+        while (true) {
+            String s;
+            synchronized (out) {
+                s = new String(out.toByteArray(), StandardCharsets.UTF_8);
+            }
+
+            if (s.equals(expected)) {
+                return;
+            }
+
+            assertTrue(s, expected.startsWith(s));
+            Thread.sleep(10);
+        }
+    }
+}
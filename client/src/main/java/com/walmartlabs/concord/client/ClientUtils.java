@@ -37,6 +37,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.Type;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -218,6 +219,34 @@ public final class ClientUtils {
         }
     }
 
+    /**
+     * Request body produced while the request is being sent, e.g. an archive
+     * created on the fly. The content length is unknown, so the request is chunked.
+     */
+    public static class OutputStreamRequestBody extends RequestBody {
+
+        private final OutputStreamWriter writer;
+
+        public OutputStreamRequestBody(OutputStreamWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return APPLICATION_OCTET_STREAM_TYPE;
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            writer.write(sink.outputStream());
+        }
+
+        public interface OutputStreamWriter {
+
+            void write(OutputStream out) throws IOException;
+        }
+    }
+
     public static class PathRequestBody extends RequestBody {
 
         private final Path path;
@@ -37,7 +37,10 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Base64;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
 
 public class SecretClient {
@@ -109,6 +112,48 @@ public class SecretClient {
         }
     }
 
+    /**
+     * Fetches multiple decrypted Concord secrets of one organization using a single request.
+     *
+     * @return secret values keyed by organization and secret names, in the same order as {@code requests}.
+     */
+    public Map<SecretKey, Secret> getData(String orgName, List<SecretDataRequest> requests) throws Exception {
+        SecretsApi api = new SecretsApi(apiClient);
+
+        List<SecretDataResponse> entries;
+        try {
+            entries = ClientUtils.withRetry(retryCount, retryInterval,
+                    () -> api.getDataBulk(orgName, requests));
+        } catch (ApiException e) {
+            if (e.getCode() == 404) {
+                throw new IllegalArgumentException("Secret not found: " + e.getResponseBody());
+            }
+            throw e;
+        }
+
+        Map<SecretKey, Secret> result = new LinkedHashMap<>(entries.size());
+        for (SecretDataResponse e : entries) {
+            SecretEntry.TypeEnum type = SecretEntry.TypeEnum.valueOf(e.getType().getValue());
+            byte[] data = e.getData() != null ? Base64.getDecoder().decode(e.getData()) : new byte[0];
+            result.put(new SecretKey(orgName, e.getName()), readSecret(type, data));
+        }
+        return result;
+    }
+
+    /**
+     * Fetches decrypted Concord secrets of multiple organizations using one request per organization.
+     *
+     * @param requests secret requests keyed by organization names
+     * @return secret values keyed by organization and secret names
+     */
+    public Map<SecretKey, Secret> getData(Map<String, List<SecretDataRequest>> requests) throws Exception {
+        Map<SecretKey, Secret> result = new LinkedHashMap<>();
+        for (Map.Entry<String, List<SecretDataRequest>> e : requests.entrySet()) {
+            result.putAll(getData(e.getKey(), e.getValue()));
+        }
+        return result;
+    }
+
     /**
      * Decrypt the provided string using the project's key.
      */
@@ -234,4 +279,49 @@ public class SecretClient {
                 throw new IllegalArgumentException("unknown secret type: " + type);
         }
     }
+
+    /**
+     * Identifies a secret returned by the bulk {@code getData} methods.
+     * Secret names are unique only within an organization.
+     */
+    public static final class SecretKey {
+
+        private final String orgName;
+        private final String secretName;
+
+        public SecretKey(String orgName, String secretName) {
+            this.orgName = orgName;
+            this.secretName = secretName;
+        }
+
+        public String getOrgName() {
+            return orgName;
+        }
+
+        public String getSecretName() {
+            return secretName;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            SecretKey that = (SecretKey) o;
+            return orgName.equals(that.orgName) && secretName.equals(that.secretName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(orgName, secretName);
+        }
+
+        @Override
+        public String toString() {
+            return orgName + "/" + secretName;
+        }
+    }
 }
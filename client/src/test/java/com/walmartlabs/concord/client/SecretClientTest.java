@@ -23,12 +23,16 @@ package com.walmartlabs.concord.client;
 import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
 import com.walmartlabs.concord.ApiClient;
+import com.walmartlabs.concord.common.secret.BinaryDataSecret;
 import com.walmartlabs.concord.sdk.Constants;
+import com.walmartlabs.concord.sdk.Secret;
 import org.junit.Rule;
 import org.junit.Test;
 
+import java.util.*;
+
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
-import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.*;
 
 public class SecretClientTest {
 
@@ -56,4 +60,30 @@ public class SecretClientTest {
             assertTrue(e.getMessage().contains("Unexpected type of " + orgName + "/" + secretName));
         }
     }
+
+    @Test
+    public void testBulkDataFromMultipleOrgs() throws Exception {
+        String secretName = "secret_" + System.currentTimeMillis();
+
+        for (String orgName : Arrays.asList("orgA", "orgB")) {
+            String data = Base64.getEncoder().encodeToString(orgName.getBytes());
+            wireMock.stubFor(post(urlEqualTo("/api/v1/org/" + orgName + "/secret/data/bulk"))
+                    .willReturn(aResponse()
+                            .withStatus(200)
+                            .withHeader("Content-Type", "application/json")
+                            .withBody("[{\"name\": \"" + secretName + "\", \"type\": \"DATA\", \"data\": \"" + data + "\"}]")));
+        }
+
+        ApiClient apiClient = new ConcordApiClient("http://localhost:" + wireMock.port());
+        SecretClient secretClient = new SecretClient(apiClient);
+
+        Map<String, List<SecretDataRequest>> requests = new LinkedHashMap<>();
+        requests.put("orgA", Collections.singletonList(new SecretDataRequest().setName(secretName)));
+        requests.put("orgB", Collections.singletonList(new SecretDataRequest().setName(secretName)));
+
+        Map<SecretClient.SecretKey, Secret> result = secretClient.getData(requests);
+        assertEquals(2, result.size());
+        assertArrayEquals("orgA".getBytes(), ((BinaryDataSecret) result.get(new SecretClient.SecretKey("orgA", secretName))).getData());
+        assertArrayEquals("orgB".getBytes(), ((BinaryDataSecret) result.get(new SecretClient.SecretKey("orgB", secretName))).getData());
+    }
 }
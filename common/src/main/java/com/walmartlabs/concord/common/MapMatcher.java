@@ -22,9 +22,20 @@ package com.walmartlabs.concord.common;
 
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
 public final class MapMatcher {
 
+    /**
+     * Max number of compiled patterns to keep. Condition values are typically
+     * coming from a limited set of trigger definitions, the cache is simply
+     * reset when the limit is reached.
+     */
+    private static final int MAX_CACHED_PATTERNS = 4096;
+
+    private static final Map<String, Pattern> patterns = new ConcurrentHashMap<>();
+
     public static boolean matches(Map<String, Object> data, Map<String, Object> conditions) {
         if (conditions == null || conditions.isEmpty()) {
             return true;
@@ -95,7 +106,23 @@ public final class MapMatcher {
     }
 
     private static boolean compareStringValues(String dataValue, String conditionValue) {
-        return dataValue.matches(conditionValue);
+        return compile(conditionValue).matcher(dataValue).matches();
+    }
+
+    private static Pattern compile(String regex) {
+        Pattern p = patterns.get(regex);
+        if (p != null) {
+            return p;
+        }
+
+        p = Pattern.compile(regex);
+
+        if (patterns.size() >= MAX_CACHED_PATTERNS) {
+            patterns.clear();
+        }
+        patterns.put(regex, p);
+
+        return p;
     }
 
     private static boolean compareValues(Object dataValue, Object conditionValue) {
@@ -0,0 +1,102 @@
+package com.walmartlabs.concord.common;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link MapMatcher} performance using a typical GitHub push event
+ * and a set of trigger conditions. Build with the {@code jmh} profile
+ * to generate the benchmark classes, then run with {@link #main(String[])}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapMatcherBenchmark {
+
+    @Param({"1", "100", "1000"})
+    public int triggerCount;
+
+    private Map<String, Object> event;
+    private List<Map<String, Object>> conditions;
+
+    @Setup
+    public void setUp() {
+        Map<String, Object> files = new HashMap<>();
+        files.put("added", Collections.singletonList("src/main/java/Foo.java"));
+        files.put("modified", Arrays.asList("concord.yml", "README.md"));
+
+        event = new HashMap<>();
+        event.put("githubOrg", "myorg");
+        event.put("githubRepo", "monorepo");
+        event.put("githubHost", "github.com");
+        event.put("branch", "master");
+        event.put("type", "push");
+        event.put("status", "opened");
+        event.put("sender", "someuser");
+        event.put("version", 2);
+        event.put("files", files);
+
+        conditions = new ArrayList<>(triggerCount);
+        for (int i = 0; i < triggerCount; i++) {
+            Map<String, Object> c = new HashMap<>();
+            c.put("githubOrg", "myorg");
+            c.put("githubRepo", "monorepo");
+            c.put("type", "push");
+            c.put("branch", i % 2 == 0 ? "master" : "feature-" + i + ".*");
+            c.put("version", 2);
+
+            Map<String, Object> f = new HashMap<>();
+            f.put("modified", Collections.singletonList("module-" + (i % 10) + "/.*"));
+            c.put("files", f);
+
+            conditions.add(c);
+        }
+    }
+
+    @Benchmark
+    public int matchAll() {
+        int matched = 0;
+        for (Map<String, Object> c : conditions) {
+            if (MapMatcher.matches(event, c)) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options opts = new OptionsBuilder()
+                .include(MapMatcherBenchmark.class.getSimpleName())
+                .build();
+
+        new Runner(opts).run();
+    }
+}
@@ -69,6 +69,18 @@ public class DependencyManager {
     private static final int RETRY_COUNT = 3;
     private static final long RETRY_INTERVAL = 5000;
 
+    /**
+     * Number of locks used to serialize the resolution of the same artifacts or URLs.
+     */
+    private static final int LOCK_STRIPES = 64;
+
+    /**
+     * Max number of artifacts downloaded in parallel for a single resolution request.
+     */
+    private static final int PARALLEL_DOWNLOADS = 8;
+
+    private static final int RESOLVED_CACHE_SIZE = 1000;
+
     private static final String FILES_CACHE_DIR = "files";
     public static final String MAVEN_SCHEME = "mvn";
 
@@ -86,9 +98,20 @@ public class DependencyManager {
     private final Path cacheDir;
     private final Path localCacheDir;
     private final List<RemoteRepository> repositories;
-    private final Object mutex = new Object();
+    private final Object[] locks = newLocks(LOCK_STRIPES);
     private final RepositorySystem maven = newMavenRepositorySystem();
 
+    /**
+     * Results of the previous Maven resolutions. Contains only the requests
+     * without SNAPSHOT versions or version ranges.
+     */
+    private final Map<String, Collection<Artifact>> resolvedCache = Collections.synchronizedMap(new LinkedHashMap<String, Collection<Artifact>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Collection<Artifact>> eldest) {
+            return size() > RESOLVED_CACHE_SIZE;
+        }
+    });
+
     public DependencyManager(Path cacheDir) throws IOException {
         this(cacheDir, getRepositories());
     }
@@ -98,11 +121,15 @@ public class DependencyManager {
     }
 
     public DependencyManager(Path cacheDir, List<MavenRepository> repositories) throws IOException {
+        this(cacheDir, Paths.get(System.getProperty("user.home")).resolve(".m2/repository"), repositories);
+    }
+
+    DependencyManager(Path cacheDir, Path localCacheDir, List<MavenRepository> repositories) throws IOException {
         this.cacheDir = cacheDir;
         if (!Files.exists(cacheDir)) {
             Files.createDirectories(cacheDir);
         }
-        this.localCacheDir = Paths.get(System.getProperty("user.home")).resolve(".m2/repository");
+        this.localCacheDir = localCacheDir;
 
         log.info("init -> using repositories: {}", repositories);
         this.repositories = toRemote(repositories);
@@ -211,7 +238,7 @@ public class DependencyManager {
 
         Path dst = baseDir.resolve(name);
 
-        synchronized (mutex) {
+        synchronized (lockFor(dst.toString())) {
             if (!skipCache && Files.exists(dst)) {
                 log.info("resolveFile -> using a cached copy of {}...", uri);
                 return dst;
@@ -219,10 +246,11 @@ public class DependencyManager {
 
             log.info("resolveFile -> downloading {}...", uri);
 
-            Path tmp = baseDir.resolve(name + ".tmp");
+            // readers never see a partially downloaded file
+            Path tmp = Files.createTempFile(baseDir, name, ".tmp");
             try {
                 download(uri, tmp);
-                Files.move(tmp, dst, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(tmp, dst, StandardCopyOption.ATOMIC_MOVE);
             } finally {
                 if (Files.exists(tmp)) {
                     Files.delete(tmp);
@@ -261,16 +289,25 @@ public class DependencyManager {
     }
 
     private Artifact resolveMavenSingle(MavenDependency dep) throws IOException {
-        RepositorySystemSession session = newRepositorySystemSession(maven);
+        String key = "single:" + dep.artifact;
+
+        synchronized (lockFor(key)) {
+            Collection<Artifact> cached = getCached(key);
+            if (cached != null) {
+                return cached.iterator().next();
+            }
 
-        ArtifactRequest req = new ArtifactRequest();
-        req.setArtifact(dep.artifact);
-        req.setRepositories(repositories);
+            RepositorySystemSession session = newRepositorySystemSession(maven);
+
+            ArtifactRequest req = new ArtifactRequest();
+            req.setArtifact(dep.artifact);
+            req.setRepositories(repositories);
 
-        synchronized (mutex) {
             try {
                 ArtifactResult r = maven.resolveArtifact(session, req);
-                return r.getArtifact();
+                Artifact result = r.getArtifact();
+                putCached(key, Collections.singleton(result));
+                return result;
             } catch (ArtifactResolutionException e) {
                 throw new IOException(e);
             }
@@ -286,32 +323,92 @@ public class DependencyManager {
     }
 
     private Collection<Artifact> resolveMavenTransitiveDependencies(Collection<MavenDependency> deps) throws IOException {
-        RepositorySystem system = newMavenRepositorySystem();
-        RepositorySystemSession session = newRepositorySystemSession(system);
+        if (deps.isEmpty()) {
+            return Collections.emptySet();
+        }
 
-        CollectRequest req = new CollectRequest();
-        req.setDependencies(deps.stream()
-                .map(d -> new Dependency(d.artifact, d.scope))
-                .collect(Collectors.toList()));
-        req.setRepositories(repositories);
+        // only the identical requests are serialized, different requests are resolved concurrently
+        // (the resolver downloads into temporary files and guards the local repository's metadata with file locks)
+        String key = "transitive:" + deps.stream()
+                .map(d -> d.artifact + ":" + d.scope)
+                .collect(Collectors.joining(","));
+
+        synchronized (lockFor(key)) {
+            Collection<Artifact> cached = getCached(key);
+            if (cached != null) {
+                return cached;
+            }
+
+            RepositorySystemSession session = newRepositorySystemSession(maven);
+
+            CollectRequest req = new CollectRequest();
+            req.setDependencies(deps.stream()
+                    .map(d -> new Dependency(d.artifact, d.scope))
+                    .collect(Collectors.toList()));
+            req.setRepositories(repositories);
 
-        DependencyRequest dependencyRequest = new DependencyRequest(req, null);
+            DependencyRequest dependencyRequest = new DependencyRequest(req, null);
 
-        synchronized (mutex) {
             try {
-                return system.resolveDependencies(session, dependencyRequest)
+                Collection<Artifact> result = maven.resolveDependencies(session, dependencyRequest)
                         .getArtifactResults().stream()
                         .map(ArtifactResult::getArtifact)
                         .collect(Collectors.toSet());
+
+                putCached(key, result);
+                return result;
             } catch (DependencyResolutionException e) {
                 throw new IOException(e);
             }
         }
     }
 
+    private Collection<Artifact> getCached(String key) {
+        Collection<Artifact> result = resolvedCache.get(key);
+        if (result == null) {
+            return null;
+        }
+
+        for (Artifact a : result) {
+            if (a.getFile() == null || !a.getFile().exists()) {
+                resolvedCache.remove(key);
+                return null;
+            }
+        }
+
+        return result;
+    }
+
+    private void putCached(String key, Collection<Artifact> result) {
+        // SNAPSHOTs and version ranges can resolve into different artifacts later
+        if (key.contains("SNAPSHOT") || key.contains("[") || key.contains("(")
+                || key.contains("LATEST") || key.contains("RELEASE")) {
+            return;
+        }
+
+        resolvedCache.put(key, Collections.unmodifiableCollection(result));
+    }
+
+    int getCachedCount() {
+        return resolvedCache.size();
+    }
+
+    private Object lockFor(String key) {
+        return locks[(key.hashCode() & Integer.MAX_VALUE) % locks.length];
+    }
+
+    private static Object[] newLocks(int count) {
+        Object[] result = new Object[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = new Object();
+        }
+        return result;
+    }
+
     private DefaultRepositorySystemSession newRepositorySystemSession(RepositorySystem system) {
         DefaultRepositorySystemSession session = MavenRepositorySystemUtils.newSession();
         session.setChecksumPolicy(RepositoryPolicy.CHECKSUM_POLICY_IGNORE);
+        session.setConfigProperty("aether.connector.basic.threads", PARALLEL_DOWNLOADS);
 
         LocalRepository localRepo = new LocalRepository(localCacheDir.toFile());
         session.setLocalRepositoryManager(system.newLocalRepositoryManager(session, localRepo));
@@ -0,0 +1,205 @@
+package com.walmartlabs.concord.dependencymanager;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Resolves artifacts from a local file-based repository, doesn't require network access.
+ */
+public class DependencyManagerCacheTest {
+
+    private static final String GROUP_ID = "com.walmartlabs.concord.test";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path remoteRepo;
+    private DependencyManager dependencyManager;
+
+    @Before
+    public void setUp() throws Exception {
+        remoteRepo = folder.newFolder("remote").toPath();
+
+        deploy("a", "1.0");
+        deploy("b", "1.0", "c:1.0");
+        deploy("c", "1.0");
+
+        MavenRepository repo = MavenRepository.builder()
+                .id("test")
+                .url(remoteRepo.toUri().toString())
+                .build();
+
+        dependencyManager = new DependencyManager(folder.newFolder("cache").toPath(), folder.newFolder("local").toPath(),
+                Collections.singletonList(repo));
+    }
+
+    @Test(timeout = 60000)
+    public void testConcurrentOverlappingResolve() throws Exception {
+        List<List<String>> requests = Arrays.asList(
+                Arrays.asList("a:1.0", "b:1.0"),
+                Arrays.asList("b:1.0", "c:1.0"),
+                Arrays.asList("a:1.0", "c:1.0"));
+
+        List<Set<String>> expected = Arrays.asList(
+                set("a", "b", "c"),
+                set("b", "c"),
+                set("a", "c"));
+
+        int threads = 9;
+        int iterations = 10;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                int n = i % requests.size();
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < iterations; j++) {
+                        Collection<DependencyEntity> result = dependencyManager.resolve(uris(requests.get(n)));
+                        assertEquals(expected.get(n), artifactIds(result));
+                        for (DependencyEntity e : result) {
+                            assertTrue(Files.exists(e.getPath()));
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(requests.size(), dependencyManager.getCachedCount());
+    }
+
+    @Test
+    public void testCacheEntryDroppedWhenFileIsDeleted() throws Exception {
+        List<URI> uris = uris(Collections.singletonList("a:1.0"));
+
+        Path p = dependencyManager.resolve(uris).iterator().next().getPath();
+        assertEquals(1, dependencyManager.getCachedCount());
+
+        Files.delete(p);
+
+        // the cached result points to a missing file, must be resolved again
+        Collection<DependencyEntity> result = dependencyManager.resolve(uris);
+        assertEquals(set("a"), artifactIds(result));
+        assertTrue(Files.exists(result.iterator().next().getPath()));
+    }
+
+    @Test
+    public void testSnapshotsAndRangesAreNotCached() throws Exception {
+        deploy("a", "1.1");
+        deploy("d", "1.0-SNAPSHOT");
+        writeMetadata("a", "1.0", "1.1");
+
+        // "[" must be escaped in URIs
+        Collection<DependencyEntity> range = dependencyManager.resolve(uris(Collections.singletonList("a:%5B1.0,2.0)")));
+        assertEquals("1.1", range.iterator().next().getArtifact().getVersion());
+
+        Collection<DependencyEntity> snapshot = dependencyManager.resolve(uris(Collections.singletonList("d:1.0-SNAPSHOT")));
+        assertEquals(set("d"), artifactIds(snapshot));
+
+        DependencyEntity single = dependencyManager.resolveSingle(new URI("mvn://" + GROUP_ID + ":d:1.0-SNAPSHOT"));
+        assertEquals("d", single.getArtifact().getArtifactId());
+
+        assertEquals(0, dependencyManager.getCachedCount());
+
+        // fixed versions are cached
+        dependencyManager.resolve(uris(Collections.singletonList("a:1.0")));
+        assertEquals(1, dependencyManager.getCachedCount());
+    }
+
+    private void deploy(String artifactId, String version, String... dependencies) throws IOException {
+        Path dir = remoteRepo.resolve(GROUP_ID.replace('.', '/')).resolve(artifactId).resolve(version);
+        Files.createDirectories(dir);
+
+        StringBuilder deps = new StringBuilder();
+        for (String d : dependencies) {
+            String[] as = d.split(":");
+            deps.append("<dependency><groupId>").append(GROUP_ID).append("</groupId>")
+                    .append("<artifactId>").append(as[0]).append("</artifactId>")
+                    .append("<version>").append(as[1]).append("</version></dependency>");
+        }
+
+        String pom = "<project><modelVersion>4.0.0</modelVersion>" +
+                "<groupId>" + GROUP_ID + "</groupId>" +
+                "<artifactId>" + artifactId + "</artifactId>" +
+                "<version>" + version + "</version>" +
+                "<dependencies>" + deps + "</dependencies></project>";
+
+        String name = artifactId + "-" + version;
+        Files.write(dir.resolve(name + ".pom"), pom.getBytes(StandardCharsets.UTF_8));
+        Files.write(dir.resolve(name + ".jar"), name.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writeMetadata(String artifactId, String... versions) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (String v : versions) {
+            sb.append("<version>").append(v).append("</version>");
+        }
+
+        String metadata = "<metadata><groupId>" + GROUP_ID + "</groupId>" +
+                "<artifactId>" + artifactId + "</artifactId>" +
+                "<versioning><versions>" + sb + "</versions></versioning></metadata>";
+
+        Path dir = remoteRepo.resolve(GROUP_ID.replace('.', '/')).resolve(artifactId);
+        Files.write(dir.resolve("maven-metadata.xml"), metadata.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<URI> uris(List<String> artifacts) {
+        return artifacts.stream()
+                .map(a -> URI.create("mvn://" + GROUP_ID + ":" + a))
+                .collect(Collectors.toList());
+    }
+
+    private static Set<String> artifactIds(Collection<DependencyEntity> entities) {
+        return entities.stream()
+                .map(e -> e.getArtifact().getArtifactId())
+                .collect(Collectors.toSet());
+    }
+
+    private static Set<String> set(String... items) {
+        return new HashSet<>(Arrays.asList(items));
+    }
+}
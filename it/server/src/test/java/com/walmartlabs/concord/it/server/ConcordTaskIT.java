@@ -546,7 +546,7 @@ public class ConcordTaskIT extends AbstractServerIT {
         // ---
 
         ProcessV2Api processV2Api = new ProcessV2Api(getApiClient());
-        List<ProcessEntry> l = processV2Api.list(null, null, null, null, null, null, null, null, null, null, null, pe.getInstanceId(), null, null, null);
+        List<ProcessEntry> l = processV2Api.list(null, null, null, null, null, null, null, null, null, null, null, pe.getInstanceId(), null, null, null, null);
         assertEquals(2, l.size());
 
         for (ProcessEntry e : l) {
@@ -89,7 +89,7 @@ public class GitHubNonOrgEventIt extends AbstractServerIT {
 
         ProcessV2Api processV2Api = new ProcessV2Api(getApiClient());
         while (true) {
-            processes = processV2Api.list(null, orgName, null, projectName, null, null, null, null, null, ProcessEntry.StatusEnum.FINISHED.getValue(), null, null, null, null, null);
+            processes = processV2Api.list(null, orgName, null, projectName, null, null, null, null, null, ProcessEntry.StatusEnum.FINISHED.getValue(), null, null, null, null, null, null);
             if (processes.size() > 0) {
                 break;
             }
@@ -88,13 +88,13 @@ public class ProcessCountIT extends AbstractServerIT {
         // ---
 
         ProcessV2Api processV2Api = new ProcessV2Api(getApiClient());
-        List<ProcessEntry> l = processV2Api.list(null, orgName, null, projectName, null, repoName, null, null, null, null, null, null, null, null, null);
+        List<ProcessEntry> l = processV2Api.list(null, orgName, null, projectName, null, repoName, null, null, null, null, null, null, null, null, null, null);
         assertEquals(1, l.size());
         assertEquals(pe.getInstanceId(), l.get(0).getInstanceId());
 
         // specifying an invalid repository name should return a 404 response
         try {
-            processV2Api.list(null, orgName, null, projectName, null, repoName + randomString(), null, null, null, null, null, null, null, null, null);
+            processV2Api.list(null, orgName, null, projectName, null, repoName + randomString(), null, null, null, null, null, null, null, null, null, null);
         } catch (ApiException e) {
             assertEquals(404, e.getCode());
         }
@@ -51,14 +51,35 @@ public class ProcessQueueClient {
     }
 
     public List<ProcessQueueEntry> query(String processStatus, int limit) throws IOException {
+        return get("/api/v2/process/requirements?status=" + processStatus + "&limit=" + limit + "&startAt.len=");
+    }
+
+    /**
+     * Returns the number of processes in the specified status grouped by their requirements.
+     * Uses the server's precalculated statistics, falls back to {@link #query(String, int)}
+     * if the server doesn't support them.
+     */
+    public List<ProcessQueueEntry> queryStats(String processStatus, int fallbackLimit) throws IOException {
+        try {
+            return get("/api/v2/process/stats/requirements?status=" + processStatus);
+        } catch (NotFoundException e) {
+            return query(processStatus, fallbackLimit);
+        }
+    }
+
+    private List<ProcessQueueEntry> get(String path) throws IOException {
         Request req = new Request.Builder()
-                .url(baseUrl + "/api/v2/process/requirements?status=" + processStatus + "&limit=" + limit + "&startAt.len=")
+                .url(baseUrl + path)
                 .header("Authorization", apiToken)
                 .addHeader("User-Agent", "k8s-agent-operator")
                 .build();
 
         Call call = client.newCall(req);
         try (Response resp = call.execute()) {
+            if (resp.code() == 404) {
+                throw new NotFoundException();
+            }
+
             if (!resp.isSuccessful()) {
                 throw new IOException("Error while fetching the process queue data: " + resp.code());
             }
@@ -110,6 +131,11 @@ public class ProcessQueueClient {
         }
     }
 
+    private static class NotFoundException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+    }
+
     private static class AddCookiesInterceptor implements Interceptor {
 
         private final Map<String, String> cookieJar;
@@ -31,20 +31,35 @@ import java.util.Map;
 public class ProcessQueueEntry implements Serializable {
 
     private final Map<String, Object> requirements;
+    private final int count;
+
+    public ProcessQueueEntry(Map<String, Object> requirements) {
+        this(requirements, null);
+    }
 
     @JsonCreator
-    public ProcessQueueEntry(@JsonProperty("requirements") Map<String, Object> requirements) {
+    public ProcessQueueEntry(@JsonProperty("requirements") Map<String, Object> requirements,
+                             @JsonProperty("count") Integer count) {
         this.requirements = requirements;
+        this.count = count != null ? count : 1;
     }
 
     public Map<String, Object> getRequirements() {
         return requirements;
     }
 
+    /**
+     * Number of processes with the same requirements.
+     */
+    public int getCount() {
+        return count;
+    }
+
     @Override
     public String toString() {
         return "ProcessQueueEntry{" +
                 "requirements=" + requirements +
+                ", count=" + count +
                 '}';
     }
 }
@@ -27,7 +27,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
-import java.util.Objects;
 import java.util.function.Function;
 
 public class AutoScaler {
@@ -210,10 +209,10 @@ public class AutoScaler {
     }
 
     private int getProcessCount(AgentPoolConfiguration cfg, List<ProcessQueueEntry> processQueueEntries) {
-        return (int) processQueueEntries.stream()
-                .map(ProcessQueueEntry::getRequirements)
-                .filter(Objects::nonNull)
-                .filter(a -> MapMatcher.matches(a, cfg.getQueueSelector()))
-                .count();
+        return processQueueEntries.stream()
+                .filter(e -> e.getRequirements() != null)
+                .filter(e -> MapMatcher.matches(e.getRequirements(), cfg.getQueueSelector()))
+                .mapToInt(ProcessQueueEntry::getCount)
+                .sum();
     }
 }
@@ -154,7 +154,7 @@ public class Scheduler {
         }
 
         int queueQueryLimit = i.getResource().getSpec().getQueueQueryLimit();
-        List<ProcessQueueEntry> queueEntries = processQueueClient.query("ENQUEUED", queueQueryLimit);
+        List<ProcessQueueEntry> queueEntries = processQueueClient.queryStats("ENQUEUED", queueQueryLimit);
 
         AgentPoolConfiguration spec = i.getResource().getSpec();
         if (!spec.isAutoScale()) {
@@ -151,4 +151,38 @@ public class AutoScalerTest {
         pool = as.apply(pool, queue);
         assertEquals(6, pool.getTargetSize());
     }
+
+    @Test
+    public void testQueueStats() {
+        AtomicInteger podCount = new AtomicInteger(1);
+
+        AutoScaler as = new AutoScaler(n -> podCount.get(), i -> true, i -> true);
+
+        AgentPoolConfiguration spec = new AgentPoolConfiguration();
+        spec.setPercentIncrement(50);
+        spec.setDecrementThresholdFactor(1.0);
+        spec.setIncrementThresholdFactor(1.5);
+        spec.setPercentDecrement(10);
+        spec.setQueueSelector(Collections.singletonMap("test", 123));
+
+        AgentPool resource = new AgentPool();
+        resource.setSpec(spec);
+
+        AgentPoolInstance pool = new AgentPoolInstance("test", resource, AgentPoolInstance.Status.ACTIVE, 1, 0, 0, 0);
+
+        // same as 10 individual entries
+        List<ProcessQueueEntry> queue = new ArrayList<>();
+        queue.add(new ProcessQueueEntry(Collections.singletonMap("test", 123), 10));
+        queue.add(new ProcessQueueEntry(Collections.singletonMap("test", 456), 100));
+
+        // ---
+
+        pool = as.apply(pool, queue);
+        assertEquals(2, pool.getTargetSize());
+
+        podCount.set(2);
+
+        pool = as.apply(pool, queue);
+        assertEquals(3, pool.getTargetSize());
+    }
 }
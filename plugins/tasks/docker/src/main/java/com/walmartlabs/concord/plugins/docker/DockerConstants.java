@@ -36,4 +36,5 @@ public class DockerConstants {
     public static final String DEBUG_KEY = "debug";
     public static final String PULL_RETRY_COUNT_KEY = "pullRetryCount";
     public static final String PULL_RETRY_INTERVAL_KEY = "pullRetryInterval";
+    public static final String REUSE_CONTAINER_KEY = "reuseContainer";
 }
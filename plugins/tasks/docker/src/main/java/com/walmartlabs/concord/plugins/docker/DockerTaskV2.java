@@ -74,6 +74,7 @@ public class DockerTaskV2 implements Task {
                 .stdOutFilePath(stdOutFilePath)
                 .pullRetryCount(params.pullRetryCount())
                 .pullRetryInterval(params.pullRetryInterval())
+                .reuse(params.reuseContainer())
                 .build();
 
         StringBuilder stdErr = new StringBuilder();
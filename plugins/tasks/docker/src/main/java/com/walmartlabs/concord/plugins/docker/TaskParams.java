@@ -75,4 +75,8 @@ public class TaskParams {
     public long pullRetryInterval() {
         return variables.getLong(PULL_RETRY_INTERVAL_KEY, 10_000L);
     }
+
+    public boolean reuseContainer() {
+        return variables.getBoolean(REUSE_CONTAINER_KEY, false);
+    }
 }
@@ -28,6 +28,8 @@ import com.walmartlabs.concord.sdk.*;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Named("kv")
@@ -140,6 +142,18 @@ public class KvTask implements Task {
         return KvTaskUtils.incLong(api, txId, key);
     }
 
+    public Map<String, Object> getAll(@InjectVariable("context") Context ctx, List<String> keys) throws Exception {
+        ProcessKvStoreApi api = getApi(ctx);
+        UUID txId = ContextUtils.getTxId(ctx);
+        return KvTaskUtils.getAll(api, txId, keys);
+    }
+
+    public void putAll(@InjectVariable("context") Context ctx, Map<String, Object> values) throws Exception {
+        ProcessKvStoreApi api = getApi(ctx);
+        UUID txId = ContextUtils.getTxId(ctx);
+        KvTaskUtils.putAll(api, txId, values);
+    }
+
     private ProcessKvStoreApi getApi(Context ctx) {
         return new ProcessKvStoreApi(apiClientFactory.create(ApiClientConfiguration.builder()
                 .context(ctx)
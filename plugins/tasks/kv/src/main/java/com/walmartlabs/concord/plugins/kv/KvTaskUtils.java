@@ -21,9 +21,10 @@ package com.walmartlabs.concord.plugins.kv;
  */
 
 import com.walmartlabs.concord.client.ClientUtils;
+import com.walmartlabs.concord.client.KvEntry;
 import com.walmartlabs.concord.client.ProcessKvStoreApi;
 
-import java.util.UUID;
+import java.util.*;
 
 public final class KvTaskUtils {
 
@@ -69,6 +70,59 @@ public final class KvTaskUtils {
                 api.incLong(txId, key));
     }
 
+    /**
+     * Fetches multiple values in a single request. Missing keys are omitted
+     * from the result. The values are either strings or longs.
+     */
+    public static Map<String, Object> getAll(ProcessKvStoreApi api, UUID txId, Collection<String> keys) throws Exception {
+        if (keys == null || keys.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        keys.forEach(KvTaskUtils::assertValidKey);
+        List<KvEntry> entries = ClientUtils.withRetry(Constants.RETRY_COUNT, Constants.RETRY_INTERVAL, () ->
+                api.getBatch(txId, new ArrayList<>(keys)));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (KvEntry e : entries) {
+            result.put(e.getKey(), e.getLongValue() != null ? e.getLongValue() : e.getStringValue());
+        }
+        return result;
+    }
+
+    /**
+     * Stores multiple values in a single request. The values must be
+     * either strings or integer numbers.
+     */
+    public static void putAll(ProcessKvStoreApi api, UUID txId, Map<String, Object> values) throws Exception {
+        if (values == null || values.isEmpty()) {
+            return;
+        }
+
+        List<KvEntry> entries = new ArrayList<>(values.size());
+        for (Map.Entry<String, Object> e : values.entrySet()) {
+            assertValidKey(e.getKey());
+
+            KvEntry entry = new KvEntry().setKey(e.getKey());
+
+            Object v = e.getValue();
+            if (v instanceof String) {
+                entry.setStringValue((String) v);
+            } else if (v instanceof Long || v instanceof Integer || v instanceof Short || v instanceof Byte) {
+                entry.setLongValue(((Number) v).longValue());
+            } else {
+                throw new IllegalArgumentException("Invalid value for key '" + e.getKey() + "', expected a string or an integer number, got: " + v);
+            }
+
+            entries.add(entry);
+        }
+
+        ClientUtils.withRetry(Constants.RETRY_COUNT, Constants.RETRY_INTERVAL, () -> {
+            api.putBatch(txId, entries);
+            return null;
+        });
+    }
+
     private static void assertValidKey(String s) {
         if (s == null || s.isEmpty()) {
             throw new IllegalArgumentException("Keys cannot be empty or null");
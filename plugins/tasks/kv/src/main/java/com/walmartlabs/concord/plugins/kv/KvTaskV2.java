@@ -27,6 +27,8 @@ import com.walmartlabs.concord.runtime.v2.sdk.Task;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Named("kv")
@@ -74,4 +76,14 @@ public class KvTaskV2 implements Task {
         ProcessKvStoreApi api = new ProcessKvStoreApi(apiClient);
         return KvTaskUtils.incLong(api, processInstanceId, key);
     }
+
+    public Map<String, Object> getAll(List<String> keys) throws Exception {
+        ProcessKvStoreApi api = new ProcessKvStoreApi(apiClient);
+        return KvTaskUtils.getAll(api, processInstanceId, keys);
+    }
+
+    public void putAll(Map<String, Object> values) throws Exception {
+        ProcessKvStoreApi api = new ProcessKvStoreApi(apiClient);
+        KvTaskUtils.putAll(api, processInstanceId, values);
+    }
 }
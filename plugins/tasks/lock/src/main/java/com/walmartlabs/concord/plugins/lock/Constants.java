@@ -24,9 +24,11 @@ public final class Constants {
 
     public static final int RETRY_COUNT = 3;
     public static final long RETRY_INTERVAL = 5000;
+    public static final long WAIT_POLL_INTERVAL = 1000;
 
     public static final String LOCK_NAME_KEY = "name";
     public static final String SCOPE_KEY = "scope";
+    public static final String WAIT_TIMEOUT_KEY = "waitTimeout";
     public static final String PROJECT_SCOPE = "PROJECT";
 
     private Constants() {
@@ -30,9 +30,11 @@ import org.slf4j.LoggerFactory;
 
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 import static com.walmartlabs.concord.plugins.lock.Constants.RETRY_COUNT;
 import static com.walmartlabs.concord.plugins.lock.Constants.RETRY_INTERVAL;
+import static com.walmartlabs.concord.plugins.lock.Constants.WAIT_POLL_INTERVAL;
 
 public class LockTaskCommon {
 
@@ -52,13 +54,36 @@ public class LockTaskCommon {
     }
 
     public boolean lock(String lockName, String lockScope, Suspender suspender) throws ApiException {
+        return lock(lockName, lockScope, 0, suspender);
+    }
+
+    /**
+     * @param waitTimeout max number of seconds to wait for a busy lock before
+     *                    suspending the process. The lock is re-checked every
+     *                    {@link Constants#WAIT_POLL_INTERVAL} ms while waiting.
+     */
+    public boolean lock(String lockName, String lockScope, int waitTimeout, Suspender suspender) throws ApiException {
         log.info("Locking '{}' with scope '{}'...", lockName, lockScope);
 
         if (lockName == null) {
             throw new IllegalArgumentException("Mandatory variable 'lockName' is required");
         }
 
-        LockResult lock = withRetry(() -> api.tryLock(instanceId, lockName, checkScope(lockScope)));
+        String scope = checkScope(lockScope);
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(waitTimeout);
+
+        LockResult lock = withRetry(() -> api.tryLock(instanceId, lockName, scope));
+        while (!lock.isAcquired() && System.currentTimeMillis() + WAIT_POLL_INTERVAL <= deadline) {
+            try {
+                Thread.sleep(WAIT_POLL_INTERVAL);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            // the process is in the lock's wait queue, the lock is handed over to it once released
+            lock = withRetry(() -> api.tryLock(instanceId, lockName, scope));
+        }
 
         boolean result = lock.isAcquired();
         if (!result) {
@@ -39,4 +39,8 @@ public class TaskParams {
     public String scope() {
         return input.getString(SCOPE_KEY, PROJECT_SCOPE);
     }
+
+    public int waitTimeout() {
+        return input.getInt(WAIT_TIMEOUT_KEY, 0);
+    }
 }
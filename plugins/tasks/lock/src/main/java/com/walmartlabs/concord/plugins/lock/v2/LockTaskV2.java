@@ -47,7 +47,7 @@ public class LockTaskV2 implements Task {
     public TaskResult execute(Variables input) throws Exception {
         TaskParams params = new TaskParams(input);
 
-        delegate.lock(params.lockName(), params.scope(), context::suspend);
+        delegate.lock(params.lockName(), params.scope(), params.waitTimeout(), context::suspend);
 
         return TaskResult.success();
     }
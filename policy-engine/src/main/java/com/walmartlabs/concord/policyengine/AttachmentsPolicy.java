@@ -43,8 +43,6 @@ public class AttachmentsPolicy {
             return CheckResult.success();
         }
 
-        List<CheckResult.Item<AttachmentsRule, Long>> deny = new ArrayList<>();
-
         Long[] size = { 0L };
 
         Files.walkFileTree(p, new SimpleFileVisitor<Path>() {
@@ -57,8 +55,22 @@ public class AttachmentsPolicy {
             }
         });
 
-        if (size[0] > rule.getMaxSizeInBytes()) {
-            deny.add(new CheckResult.Item<>(rule, size[0], null));
+        return check(size[0]);
+    }
+
+    /**
+     * Checks the total size of the attachments, e.g. when the attachments
+     * are not available as a directory.
+     */
+    public CheckResult<AttachmentsRule, Long> check(long size) {
+        if (rule == null || rule.getMaxSizeInBytes() == null) {
+            return CheckResult.success();
+        }
+
+        List<CheckResult.Item<AttachmentsRule, Long>> deny = new ArrayList<>();
+
+        if (size > rule.getMaxSizeInBytes()) {
+            deny.add(new CheckResult.Item<>(rule, size, null));
         }
 
         return new CheckResult<>(Collections.emptyList(), deny);
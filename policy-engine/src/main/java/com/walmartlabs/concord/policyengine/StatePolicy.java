@@ -117,6 +117,23 @@ public class StatePolicy {
         return new CheckResult<>(warn, deny);
     }
 
+    /**
+     * Checks a single file name against the rules' patterns, without accessing the file system.
+     */
+    public CheckResult<StateRule, Path> checkFile(Path file) {
+        if (rules == null || rules.isEmpty()) {
+            return CheckResult.success();
+        }
+
+        List<CheckResult.Item<StateRule, Path>> warn = new ArrayList<>();
+        List<CheckResult.Item<StateRule, Path>> deny = new ArrayList<>();
+
+        checkPatterns(rules.getWarn().stream().filter(r -> !r.getPatterns().isEmpty()).collect(Collectors.toList()), file, warn);
+        checkPatterns(rules.getDeny().stream().filter(r -> !r.getPatterns().isEmpty()).collect(Collectors.toList()), file, deny);
+
+        return new CheckResult<>(warn, deny);
+    }
+
     private static void checkStats(List<StateRule> rules, StateStats stats, List<CheckResult.Item<StateRule, StateStats>> result) {
         for (StateRule r : rules) {
             if (r.getMaxFilesCount() != null && stats.getFilesCount() > r.getMaxFilesCount()) {
@@ -0,0 +1,323 @@
+package com.walmartlabs.concord.repository;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.common.FileVisitor;
+import com.walmartlabs.concord.common.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable copies of repositories keyed by the repository URL and the commit ID.
+ * <p>
+ * Unlike {@link RepositoryCache}, which keeps one mutable working copy per URL,
+ * a snapshot never changes after it is created. Exporting from a snapshot requires
+ * no git operations and no repository lock, so processes that use the same or
+ * different commits of the same repository can be exported in parallel.
+ * <p>
+ * The least recently used snapshots are removed when the total size exceeds
+ * the configured limit. Snapshots in use are removed after they are released.
+ * <p>
+ * Snapshots can be created in background with {@link #putAsync(String, String, Callable)},
+ * so the caller can export the working copy directly and doesn't have to wait
+ * for the additional copy. The background task copies the existing checkout,
+ * if it's still at the same commit, instead of fetching the commit again.
+ */
+public class CommitSnapshotCache {
+
+    private static final Logger log = LoggerFactory.getLogger(CommitSnapshotCache.class);
+
+    private static final Pattern COMMIT_ID_PATTERN = Pattern.compile("^[0-9a-f]{40}$");
+    private static final String GIT_DIR = "^\\.git$";
+    private static final String ROOT_DIR_NAME = ".commit-snapshots";
+    private static final String TMP_DIR_NAME = ".tmp";
+
+    private final Path cacheDir;
+    private final long maxSize;
+
+    private final ExecutorService executor;
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalSize;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param cacheDir the snapshot directory. Snapshots are stored in a dedicated
+     *                 subdirectory, existing snapshots are removed on start.
+     * @param maxSize  the max total size of snapshots in bytes
+     */
+    public CommitSnapshotCache(Path cacheDir, long maxSize) throws IOException {
+        this.cacheDir = cacheDir.resolve(ROOT_DIR_NAME);
+        this.maxSize = maxSize;
+
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "commit-snapshot-cache");
+            t.setDaemon(true);
+            return t;
+        });
+
+        // the snapshots' sizes and access times aren't persisted, start with an empty cache
+        // only the cache's own subdirectory is removed, the parent directory might be shared
+        IOUtils.deleteRecursively(this.cacheDir);
+        Files.createDirectories(this.cacheDir.resolve(TMP_DIR_NAME));
+    }
+
+    /**
+     * Returns {@code true} if the value is a full commit ID, i.e. the value
+     * can't refer to different commits over time.
+     */
+    public static boolean isCommitId(String commitId) {
+        return commitId != null && COMMIT_ID_PATTERN.matcher(commitId).matches();
+    }
+
+    /**
+     * Returns the snapshot of the specified commit or {@code null}
+     * if there's no such snapshot. The returned snapshot must be released
+     * after use.
+     */
+    public Entry get(String url, String commitId) {
+        if (!isCommitId(commitId)) {
+            return null;
+        }
+
+        synchronized (this) {
+            Entry e = entries.get(key(url, commitId));
+            if (e == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+
+            hits.incrementAndGet();
+            e.refs++;
+            return e;
+        }
+    }
+
+    /**
+     * Creates a snapshot of the working copy. The working copy must be checked
+     * out at the specified commit. The returned snapshot must be released after use.
+     * Returns {@code null} if the commit ID is not a full commit ID.
+     */
+    public Entry put(String url, String commitId, Path workingCopy, RepositoryInfo info) throws IOException {
+        if (!isCommitId(commitId)) {
+            return null;
+        }
+
+        String key = key(url, commitId);
+        synchronized (this) {
+            Entry e = entries.get(key);
+            if (e != null) {
+                e.refs++;
+                return e;
+            }
+        }
+
+        Path tmp = IOUtils.createTempDir(cacheDir.resolve(TMP_DIR_NAME), "snapshot");
+        SizeCounter size = new SizeCounter();
+        try {
+            IOUtils.copy(workingCopy, tmp, Collections.singletonList(GIT_DIR), size, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            IOUtils.deleteRecursively(tmp);
+            throw e;
+        }
+
+        Path dst = cacheDir.resolve(encodeUrl(url)).resolve(commitId);
+
+        synchronized (this) {
+            Entry e = entries.get(key);
+            if (e != null) {
+                // created concurrently
+                IOUtils.deleteRecursively(tmp);
+                e.refs++;
+                return e;
+            }
+
+            Files.createDirectories(dst.getParent());
+            Files.move(tmp, dst, StandardCopyOption.ATOMIC_MOVE);
+
+            e = new Entry(key, dst, info, size.total);
+            e.refs++;
+            entries.put(key, e);
+            totalSize += e.size;
+
+            evict();
+            return e;
+        }
+    }
+
+    /**
+     * Creates a snapshot in background. The {@code task} must check that the working
+     * copy is still at the specified commit and call {@link #put(String, String, Path, RepositoryInfo)}
+     * while holding the repository lock. The returned snapshot is released automatically.
+     * Does nothing if the snapshot already exists or is being created.
+     */
+    public void putAsync(String url, String commitId, Callable<Entry> task) {
+        if (!isCommitId(commitId)) {
+            return;
+        }
+
+        String key = key(url, commitId);
+        synchronized (this) {
+            if (entries.containsKey(key)) {
+                return;
+            }
+        }
+
+        if (!pending.add(key)) {
+            return;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    Entry e = task.call();
+                    if (e != null) {
+                        release(e);
+                    }
+                } catch (Exception ex) {
+                    log.warn("putAsync ['{}', '{}'] -> error: {}", url, commitId, ex.getMessage());
+                } finally {
+                    pending.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            pending.remove(key);
+            throw ex;
+        }
+    }
+
+    public synchronized void release(Entry e) {
+        e.refs--;
+        if (e.refs == 0 && e.evicted) {
+            delete(e);
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public synchronized long getSize() {
+        return totalSize;
+    }
+
+    private void evict() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (totalSize > maxSize && it.hasNext()) {
+            Entry e = it.next();
+            if (entries.size() == 1) {
+                // keep at least the latest snapshot
+                break;
+            }
+
+            it.remove();
+            totalSize -= e.size;
+            e.evicted = true;
+
+            if (e.refs == 0) {
+                delete(e);
+            }
+        }
+    }
+
+    private static void delete(Entry e) {
+        try {
+            IOUtils.deleteRecursively(e.path);
+            log.info("delete ['{}'] -> done, {} bytes", e.path, e.size);
+        } catch (IOException ex) {
+            log.warn("delete ['{}'] -> error: {}", e.path, ex.getMessage());
+        }
+    }
+
+    private static String key(String url, String commitId) {
+        return url + "@" + commitId;
+    }
+
+    private static String encodeUrl(String url) {
+        try {
+            return URLEncoder.encode(url, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new RepositoryException("Url encoding error", e);
+        }
+    }
+
+    public static final class Entry {
+
+        private final String key;
+        private final Path path;
+        private final RepositoryInfo info;
+        private final long size;
+
+        private int refs;
+        private boolean evicted;
+
+        private Entry(String key, Path path, RepositoryInfo info, long size) {
+            this.key = key;
+            this.path = path;
+            this.info = info;
+            this.size = size;
+        }
+
+        public Path path() {
+            return path;
+        }
+
+        public RepositoryInfo info() {
+            return info;
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{" +
+                    "key='" + key + '\'' +
+                    ", size=" + size +
+                    '}';
+        }
+    }
+
+    private static final class SizeCounter implements FileVisitor {
+
+        private long total;
+
+        @Override
+        public void visit(Path sourceFile, Path dstFile) throws IOException {
+            total += Files.size(dstFile);
+        }
+    }
+}
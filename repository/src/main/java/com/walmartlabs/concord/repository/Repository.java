@@ -31,18 +31,31 @@ public class Repository {
     private final Path repoPath;
     private final String branch;
     private final String fetchedCommitId;
+    private final RepositoryInfo info;
 
     private final RepositoryProvider provider;
 
     public Repository(String branch, Path rootPath, Path repoPath, String fetchedCommitId, RepositoryProvider provider) {
+        this(branch, rootPath, repoPath, fetchedCommitId, null, provider);
+    }
+
+    /**
+     * @param info pre-computed repository info, e.g. for repositories exported
+     *             from a {@link CommitSnapshotCache}
+     */
+    public Repository(String branch, Path rootPath, Path repoPath, String fetchedCommitId, RepositoryInfo info, RepositoryProvider provider) {
         this.branch = branch;
         this.rootPath = rootPath;
         this.repoPath = repoPath;
         this.provider = provider;
         this.fetchedCommitId = fetchedCommitId;
+        this.info = info;
     }
 
     public RepositoryInfo info() {
+        if (info != null) {
+            return info;
+        }
         return provider.getInfo(rootPath);
     }
 
@@ -43,6 +43,24 @@ public class RepositoryProviders {
         return new Repository(provider.getBranchOrDefault(branch), destDir, repoPath, fetchedCommitId, provider);
     }
 
+    /**
+     * Returns the info of the commit the working copy is currently at.
+     * Doesn't fetch anything.
+     */
+    public RepositoryInfo getInfo(String url, Path destDir) {
+        return getProvider(url).getInfo(destDir);
+    }
+
+    /**
+     * Returns a repository backed by the snapshot. The snapshot must be
+     * released after the repository is no longer used.
+     */
+    public Repository fromSnapshot(String url, String branch, String commitId, String path, CommitSnapshotCache.Entry snapshot) {
+        RepositoryProvider provider = getProvider(url);
+        Path repoPath = repoPath(snapshot.path(), path);
+        return new Repository(provider.getBranchOrDefault(branch), snapshot.path(), repoPath, commitId, snapshot.info(), provider);
+    }
+
     private RepositoryProvider getProvider(String url) {
         return providers.stream()
                 .filter(p -> p.canHandle(url))
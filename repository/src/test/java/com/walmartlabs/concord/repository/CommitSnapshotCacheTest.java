@@ -0,0 +1,148 @@
+package com.walmartlabs.concord.repository;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.common.IOUtils;
+import com.walmartlabs.concord.common.TemporaryPath;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class CommitSnapshotCacheTest {
+
+    private static final String URL = "https://example.com/repo.git";
+    private static final String COMMIT_A = "0000000000000000000000000000000000000001";
+    private static final String COMMIT_B = "0000000000000000000000000000000000000002";
+
+    @Test
+    public void testPutAndGet() throws Exception {
+        try (TemporaryPath cacheDir = IOUtils.tempDir("snapshots");
+             TemporaryPath workingCopy = IOUtils.tempDir("repo")) {
+
+            createWorkingCopy(workingCopy.path(), 10);
+
+            CommitSnapshotCache cache = new CommitSnapshotCache(cacheDir.path(), 1024);
+            assertNull(cache.get(URL, COMMIT_A));
+
+            // branches and short commit IDs are not cached
+            assertNull(cache.put(URL, "master", workingCopy.path(), null));
+            assertNull(cache.put(URL, "00000001", workingCopy.path(), null));
+
+            RepositoryInfo info = new RepositoryInfo(COMMIT_A, "msg", "author");
+            CommitSnapshotCache.Entry e = cache.put(URL, COMMIT_A, workingCopy.path(), info);
+            assertNotNull(e);
+            cache.release(e);
+
+            e = cache.get(URL, COMMIT_A);
+            assertNotNull(e);
+            assertSame(info, e.info());
+            assertTrue(Files.exists(e.path().resolve("concord.yml")));
+            assertFalse(Files.exists(e.path().resolve(".git")));
+            cache.release(e);
+
+            assertEquals(1, cache.getHits());
+            assertEquals(1, cache.getMisses());
+        }
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        try (TemporaryPath cacheDir = IOUtils.tempDir("snapshots");
+             TemporaryPath workingCopy = IOUtils.tempDir("repo")) {
+
+            createWorkingCopy(workingCopy.path(), 100);
+
+            CommitSnapshotCache cache = new CommitSnapshotCache(cacheDir.path(), 150);
+
+            CommitSnapshotCache.Entry a = cache.put(URL, COMMIT_A, workingCopy.path(), null);
+            Path pathA = a.path();
+
+            // "a" is still in use, the files must stay until it is released
+            CommitSnapshotCache.Entry b = cache.put(URL, COMMIT_B, workingCopy.path(), null);
+            assertNull(cache.get(URL, COMMIT_A));
+            assertTrue(Files.exists(pathA));
+
+            cache.release(a);
+            assertFalse(Files.exists(pathA));
+
+            cache.release(b);
+            assertEquals(100, cache.getSize());
+        }
+    }
+
+    @Test
+    public void testPutAsync() throws Exception {
+        try (TemporaryPath cacheDir = IOUtils.tempDir("snapshots");
+             TemporaryPath workingCopy = IOUtils.tempDir("repo")) {
+
+            createWorkingCopy(workingCopy.path(), 10);
+
+            CommitSnapshotCache cache = new CommitSnapshotCache(cacheDir.path(), 1024);
+            cache.putAsync(URL, COMMIT_A, () -> cache.put(URL, COMMIT_A, workingCopy.path(), null));
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            CommitSnapshotCache.Entry e;
+            while ((e = cache.get(URL, COMMIT_A)) == null && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            assertNotNull(e);
+            assertTrue(Files.exists(e.path().resolve("concord.yml")));
+            cache.release(e);
+
+            // the snapshot exists, the task is not called again
+            cache.putAsync(URL, COMMIT_A, () -> {
+                throw new AssertionError("unexpected call");
+            });
+        }
+    }
+
+    @Test
+    public void testCleanupOnStart() throws Exception {
+        try (TemporaryPath cacheDir = IOUtils.tempDir("snapshots");
+             TemporaryPath workingCopy = IOUtils.tempDir("repo")) {
+
+            createWorkingCopy(workingCopy.path(), 10);
+
+            Path unrelated = cacheDir.path().resolve("unrelated.txt");
+            Files.write(unrelated, new byte[10]);
+
+            CommitSnapshotCache cache = new CommitSnapshotCache(cacheDir.path(), 1024);
+            CommitSnapshotCache.Entry e = cache.put(URL, COMMIT_A, workingCopy.path(), null);
+            cache.release(e);
+
+            // only the snapshots are removed, other files in the directory are kept
+            new CommitSnapshotCache(cacheDir.path(), 1024);
+            assertFalse(Files.exists(e.path()));
+            assertTrue(Files.exists(unrelated));
+        }
+    }
+
+    private static void createWorkingCopy(Path dir, int size) throws IOException {
+        Files.write(dir.resolve("concord.yml"), new byte[size]);
+        Files.createDirectories(dir.resolve(".git"));
+        Files.write(dir.resolve(".git").resolve("HEAD"), new byte[size]);
+    }
+}
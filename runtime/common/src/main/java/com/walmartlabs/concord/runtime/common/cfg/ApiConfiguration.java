@@ -92,6 +92,15 @@ public interface ApiConfiguration {
         return TimeUnit.MINUTES.toMillis(5);
     }
 
+    /**
+     * If {@code false}, the process doesn't send its own heartbeat requests.
+     * Used when the agent sends heartbeats on behalf of its processes.
+     */
+    @Value.Default
+    default boolean heartbeatEnabled() {
+        return true;
+    }
+
     static ImmutableApiConfiguration.Builder builder() {
         return ImmutableApiConfiguration.builder();
     }
@@ -127,8 +127,10 @@ public class Main {
                 .txId(instanceId)
                 .build());
 
-        ProcessHeartbeat heartbeat = new ProcessHeartbeat(apiClient, instanceId, runnerCfg.api().maxNoHeartbeatInterval());
-        heartbeat.start();
+        if (runnerCfg.api().heartbeatEnabled()) {
+            ProcessHeartbeat heartbeat = new ProcessHeartbeat(apiClient, instanceId, runnerCfg.api().maxNoHeartbeatInterval());
+            heartbeat.start();
+        }
 
         ProcessApiClient processApiClient = new ProcessApiClient(runnerCfg, apiClient);
 
@@ -20,27 +20,31 @@ package com.walmartlabs.concord.runtime.v2.runner;
  * =====
  */
 
+import com.walmartlabs.concord.common.PrivilegedAction;
 import com.walmartlabs.concord.common.TruncBufferedReader;
 import com.walmartlabs.concord.runtime.common.cfg.RunnerConfiguration;
 import com.walmartlabs.concord.runtime.common.injector.InstanceId;
 import com.walmartlabs.concord.runtime.v2.sdk.DockerContainerSpec;
 import com.walmartlabs.concord.runtime.v2.sdk.DockerService;
 import com.walmartlabs.concord.runtime.v2.sdk.WorkingDirectory;
+import com.walmartlabs.concord.svm.ExecutionListener;
+import com.walmartlabs.concord.svm.Frame;
+import com.walmartlabs.concord.svm.Runtime;
+import com.walmartlabs.concord.svm.State;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import javax.inject.Singleton;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.regex.Pattern;
 
-public class DefaultDockerService implements DockerService {
+@Singleton
+public class DefaultDockerService implements DockerService, ExecutionListener {
 
     private static final Logger log = LoggerFactory.getLogger(DefaultDockerService.class);
 
@@ -56,6 +60,13 @@ public class DefaultDockerService implements DockerService {
     private final InstanceId instanceId;
     private final List<String> extraVolumes;
 
+    /**
+     * Running containers created with {@link DockerContainerSpec#reuse()},
+     * the keys are the container specs without the command.
+     */
+    private final Map<DockerContainerSpec, String> containers = new HashMap<>();
+    private boolean shutdownHookAdded = false;
+
     @Inject
     public DefaultDockerService(WorkingDirectory workingDirectory, InstanceId instanceId, RunnerConfiguration runnerCfg) {
         this.workingDirectory = workingDirectory;
@@ -65,13 +76,101 @@ public class DefaultDockerService implements DockerService {
 
     @Override
     public int start(DockerContainerSpec spec, LogCallback outCallback, LogCallback errCallback) throws IOException, InterruptedException {
+        // the image's own entry point can't be started with "docker exec"
+        if (spec.reuse() && spec.entryPoint() != null) {
+            String containerId = getOrStartContainer(spec, outCallback);
+            DockerProcessBuilder b = DockerProcessBuilder.from(instanceId.getValue(), spec);
+            return run(() -> b.buildExec(containerId), 0, 0, outCallback, errCallback);
+        }
+
+        return run(() -> start(spec, false), spec.pullRetryCount(), spec.pullRetryInterval(), outCallback, errCallback);
+    }
+
+    @Override
+    public void afterProcessEnds(Runtime runtime, State state, Frame lastFrame) {
+        removeContainers();
+    }
+
+    /**
+     * Returns the spec without the command and the output settings, i.e.
+     * the {@code docker exec} calls with the same key can share a container.
+     */
+    static DockerContainerSpec containerKey(DockerContainerSpec spec) {
+        return DockerContainerSpec.builder().from(spec)
+                .entryPoint(null)
+                .args(null)
+                .stdOutFilePath(null)
+                .redirectErrorStream(true)
+                .debug(false)
+                .build();
+    }
+
+    private synchronized String getOrStartContainer(DockerContainerSpec spec, LogCallback outCallback) throws IOException, InterruptedException {
+        DockerContainerSpec key = containerKey(spec);
+
+        String containerId = containers.get(key);
+        if (containerId != null) {
+            return containerId;
+        }
+
+        // keep the container running until it is removed
+        DockerContainerSpec keepAlive = DockerContainerSpec.builder().from(key)
+                .entryPoint("tail")
+                .args(Arrays.asList("-f", "/dev/null"))
+                .debug(spec.debug())
+                .build();
+
+        List<String> output = new ArrayList<>();
+        int code = run(() -> start(keepAlive, true), spec.pullRetryCount(), spec.pullRetryInterval(), output::add, null);
+
+        // "docker run -d" prints out the container's ID, after the "docker pull" output (if any)
+        int lines = output.size();
+        if (code != SUCCESS_EXIT_CODE || lines == 0) {
+            if (outCallback != null) {
+                output.forEach(outCallback::onLog);
+            }
+            throw new IOException("Error while starting a container (image: " + spec.image() + "), exit code " + code);
+        }
+
+        if (outCallback != null) {
+            output.subList(0, lines - 1).forEach(outCallback::onLog);
+        }
+
+        containerId = output.get(lines - 1).trim();
+        containers.put(key, containerId);
+        log.info("Started a reusable container {} (image: {})", containerId, spec.image());
+
+        if (!shutdownHookAdded) {
+            // remove the containers even if the process fails
+            java.lang.Runtime.getRuntime().addShutdownHook(new Thread(this::removeContainers, "docker-cleanup"));
+            shutdownHookAdded = true;
+        }
+
+        return containerId;
+    }
+
+    private synchronized void removeContainers() {
+        for (String containerId : containers.values()) {
+            try {
+                Process p = PrivilegedAction.perform("docker", () -> new ProcessBuilder("docker", "rm", "-f", containerId)
+                        .redirectErrorStream(true)
+                        .start());
+                streamToLog(p.getInputStream(), line -> log.debug("removeContainers -> {}", line));
+                p.waitFor();
+            } catch (Exception e) {
+                log.warn("removeContainers -> error while removing container {}: {}", containerId, e.getMessage());
+            }
+        }
+        containers.clear();
+    }
+
+    private int run(ProcessStarter starter, int retryCount, long retryInterval, LogCallback outCallback, LogCallback errCallback) throws IOException, InterruptedException {
         int tryCount = 0;
         int result;
-        int retryCount = Math.max(spec.pullRetryCount(), 0);
-        long retryInterval = spec.pullRetryInterval();
+        retryCount = Math.max(retryCount, 0);
 
         do {
-            Process p = start(spec);
+            Process p = starter.start();
 
             LogCapture c = new LogCapture(outCallback);
             streamToLog(p.getInputStream(), c);
@@ -96,8 +195,9 @@ public class DefaultDockerService implements DockerService {
         return result;
     }
 
-    private Process start(DockerContainerSpec spec) throws IOException {
-        DockerProcessBuilder b = DockerProcessBuilder.from(instanceId.getValue(), spec);
+    private Process start(DockerContainerSpec spec, boolean detached) throws IOException {
+        DockerProcessBuilder b = DockerProcessBuilder.from(instanceId.getValue(), spec)
+                .detached(detached);
 
         b.env(createEffectiveEnv(spec.env()));
         // add the default volume - mount the process' workDir as /workspace
@@ -151,6 +251,11 @@ public class DefaultDockerService implements DockerService {
         return m;
     }
 
+    private interface ProcessStarter {
+
+        Process start() throws IOException;
+    }
+
     private static class LogCapture implements LogCallback {
 
         private static final int MAX_CAPTURE_LINES = 5;
@@ -107,6 +107,7 @@ public class DockerProcessBuilder {
     private List<Map.Entry<String, String>> options = new ArrayList<>();
 
     private boolean cleanup = true;
+    private boolean detached = false;
     private boolean debug = false;
     private boolean forcePull = true;
     private boolean generateUsers = false;
@@ -146,6 +147,43 @@ public class DockerProcessBuilder {
                 .start());
     }
 
+    /**
+     * Starts a {@code docker exec} process that runs the entry point and
+     * the arguments in an existing container. The container's environment,
+     * user and working directory are used.
+     */
+    public Process buildExec(String containerId) throws IOException {
+        String[] cmd = buildExecCmd(containerId);
+
+        if (debug) {
+            log.info("CMD: {}", (Object) cmd);
+        }
+
+        return PrivilegedAction.perform("docker", () -> new ProcessBuilder(cmd)
+                .redirectErrorStream(redirectErrorStream)
+                .start());
+    }
+
+    public String[] buildExecCmd(String containerId) {
+        List<String> c = new ArrayList<>();
+        c.add("docker");
+        c.add("exec");
+        c.add("-i");
+        c.add(q(containerId));
+        if (entryPoint != null) {
+            c.add(entryPoint);
+        }
+        if (args != null) {
+            args.forEach(a -> c.add(q(a)));
+        }
+        if (stdOutFilePath != null) {
+            c.add("|");
+            c.add("tee");
+            c.add(q(stdOutFilePath));
+        }
+        return new String[]{"/bin/sh", "-c", String.join(" ", c)};
+    }
+
     public String[] buildCmd() throws IOException {
         if (forcePull) {
             return new String[]{"/bin/sh", "-c", "docker pull " + q(image) + " && " + buildDockerCmd()};
@@ -169,7 +207,7 @@ public class DockerProcessBuilder {
         if (cleanup) {
             c.add("--rm");
         }
-        c.add("-i");
+        c.add(detached ? "-d" : "-i");
         if (volumes != null) {
             volumes.forEach(v -> {
                 c.add("-v");
@@ -324,6 +362,11 @@ public class DockerProcessBuilder {
         return this;
     }
 
+    public DockerProcessBuilder detached(boolean detached) {
+        this.detached = detached;
+        return this;
+    }
+
     public DockerProcessBuilder args(List<String> args) {
         if (args == null) {
             return this;
@@ -394,7 +437,8 @@ public class DockerProcessBuilder {
             return null;
         }
 
-        return "'" + s + "'";
+        // close the quotes, add an escaped quote and reopen the quotes
+        return "'" + s.replace("'", "'\\''") + "'";
     }
 
     private static String env(String k, String defaultValue) {
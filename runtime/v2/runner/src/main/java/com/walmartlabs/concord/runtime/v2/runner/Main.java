@@ -87,8 +87,10 @@ public class Main {
         try {
             ProcessConfiguration processCfg = injector.getInstance(ProcessConfiguration.class);
             ApiClient apiClient = injector.getInstance(ApiClient.class);
-            ProcessHeartbeat heartbeat = new ProcessHeartbeat(apiClient, processCfg.instanceId(), runnerCfg.api().maxNoHeartbeatInterval());
-            heartbeat.start();
+            if (runnerCfg.api().heartbeatEnabled()) {
+                ProcessHeartbeat heartbeat = new ProcessHeartbeat(apiClient, processCfg.instanceId(), runnerCfg.api().maxNoHeartbeatInterval());
+                heartbeat.start();
+            }
 
             Main main = injector.getInstance(Main.class);
             main.execute();
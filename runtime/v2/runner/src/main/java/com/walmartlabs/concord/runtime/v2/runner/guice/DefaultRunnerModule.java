@@ -65,5 +65,6 @@ public class DefaultRunnerModule extends AbstractModule {
         executionListeners.addBinding().to(EventRecordingExecutionListener.class);
         executionListeners.addBinding().to(MetadataProcessor.class);
         executionListeners.addBinding().to(OutVariablesProcessor.class);
+        executionListeners.addBinding().to(DefaultDockerService.class);
     }
 }
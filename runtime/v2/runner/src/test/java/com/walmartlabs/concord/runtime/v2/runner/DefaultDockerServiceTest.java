@@ -0,0 +1,73 @@
+package com.walmartlabs.concord.runtime.v2.runner;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.runtime.v2.sdk.DockerContainerSpec;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static com.walmartlabs.concord.runtime.v2.runner.DefaultDockerService.containerKey;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class DefaultDockerServiceTest {
+
+    @Test
+    public void testContainerKeyIgnoresCommand() {
+        DockerContainerSpec a = DockerContainerSpec.builder()
+                .image("test-image")
+                .reuse(true)
+                .entryPoint("echo")
+                .args(Collections.singletonList("a"))
+                .stdOutFilePath("/tmp/a.log")
+                .debug(true)
+                .build();
+
+        DockerContainerSpec b = DockerContainerSpec.builder()
+                .image("test-image")
+                .reuse(true)
+                .entryPoint("ls")
+                .args(Arrays.asList("-la", "/workspace"))
+                .redirectErrorStream(false)
+                .build();
+
+        assertEquals(containerKey(a), containerKey(b));
+    }
+
+    @Test
+    public void testContainerKeyDependsOnContainerSettings() {
+        DockerContainerSpec a = DockerContainerSpec.builder()
+                .image("test-image")
+                .reuse(true)
+                .entryPoint("echo")
+                .build();
+
+        assertNotEquals(containerKey(a), containerKey(DockerContainerSpec.builder().from(a)
+                .image("another-image")
+                .build()));
+
+        assertNotEquals(containerKey(a), containerKey(DockerContainerSpec.builder().from(a)
+                .env(Collections.singletonMap("X", "Y"))
+                .build()));
+    }
+}
@@ -0,0 +1,53 @@
+package com.walmartlabs.concord.runtime.v2.runner;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class DockerProcessBuilderTest {
+
+    @Test
+    public void testExecCmd() {
+        String[] cmd = new DockerProcessBuilder("test-image")
+                .entryPoint("echo")
+                .args(Arrays.asList("hello world", "it's"))
+                .buildExecCmd("abc");
+
+        assertArrayEquals(new String[]{"/bin/sh", "-c",
+                "docker exec -i 'abc' echo 'hello world' 'it'\\''s'"}, cmd);
+    }
+
+    @Test
+    public void testExecCmdWithStdOutFile() {
+        String[] cmd = new DockerProcessBuilder("test-image")
+                .entryPoint("ls")
+                .args(Arrays.asList("-la", "/workspace"))
+                .stdOutFilePath("/tmp/my out.log")
+                .buildExecCmd("abc");
+
+        assertArrayEquals(new String[]{"/bin/sh", "-c",
+                "docker exec -i 'abc' ls '-la' '/workspace' | tee '/tmp/my out.log'"}, cmd);
+    }
+}
@@ -93,6 +93,17 @@ public interface DockerContainerSpec {
         return true;
     }
 
+    /**
+     * If {@code true}, the container is kept running after the command
+     * completes and the subsequent commands with the same image and options
+     * are executed in it using {@code docker exec}.
+     * The container is removed when the process ends.
+     */
+    @Value.Default
+    default boolean reuse() {
+        return false;
+    }
+
     static ImmutableDockerContainerSpec.Builder builder() {
         return ImmutableDockerContainerSpec.builder();
     }
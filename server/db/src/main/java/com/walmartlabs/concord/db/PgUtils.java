@@ -74,6 +74,10 @@ public final class PgUtils {
         return DSL.field("length({0})", Long.class, field);
     }
 
+    public static Field<String> md5(Field<byte[]> field) {
+        return DSL.field("md5({0})", String.class, field);
+    }
+
     public static boolean isUniqueViolationError(DataAccessException e) {
         Throwable cause = e.getCause();
         // see https://www.postgresql.org/docs/10/errcodes-appendix.html
@@ -0,0 +1,102 @@
+package com.walmartlabs.concord.server.agent.dispatcher;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.server.PeriodicTask;
+import com.walmartlabs.concord.server.cfg.AgentConfiguration;
+import com.walmartlabs.concord.server.process.queue.ProcessQueueDao;
+import com.walmartlabs.concord.server.queueclient.message.HeartbeatRequest;
+import com.walmartlabs.concord.server.queueclient.message.HeartbeatResponse;
+import com.walmartlabs.concord.server.queueclient.message.MessageType;
+import com.walmartlabs.concord.server.websocket.WebSocketChannel;
+import com.walmartlabs.concord.server.websocket.WebSocketChannelManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Applies process heartbeats sent by agents. Heartbeats of all connected
+ * agents are collected and applied using a single DB update.
+ */
+@Named
+@Singleton
+public class HeartbeatDispatcher extends PeriodicTask {
+
+    private static final Logger log = LoggerFactory.getLogger(HeartbeatDispatcher.class);
+
+    private static final long ERROR_DELAY = 10 * 1000L; // 10 sec
+
+    private final WebSocketChannelManager channelManager;
+    private final ProcessQueueDao queueDao;
+    private final Histogram batchSizeHistogram;
+
+    @Inject
+    public HeartbeatDispatcher(AgentConfiguration cfg,
+                               WebSocketChannelManager channelManager,
+                               ProcessQueueDao queueDao,
+                               MetricRegistry metricRegistry) {
+
+        super(cfg.getHeartbeatPollDelay().toMillis(), ERROR_DELAY);
+        this.channelManager = channelManager;
+        this.queueDao = queueDao;
+        this.batchSizeHistogram = metricRegistry.histogram("agent-heartbeat-batch-size");
+    }
+
+    @Override
+    protected boolean performTask() {
+        Map<WebSocketChannel, HeartbeatRequest> requests = channelManager.getRequests(MessageType.HEARTBEAT_REQUEST);
+        if (requests.isEmpty()) {
+            return false;
+        }
+
+        Set<UUID> instanceIds = requests.values().stream()
+                .flatMap(r -> r.getInstanceIds().stream())
+                .collect(Collectors.toSet());
+
+        batchSizeHistogram.update(instanceIds.size());
+
+        Set<UUID> found = queueDao.touch(instanceIds);
+
+        requests.forEach((channel, request) -> {
+            List<UUID> unknown = request.getInstanceIds().stream()
+                    .filter(id -> !found.contains(id))
+                    .collect(Collectors.toList());
+
+            if (!unknown.isEmpty()) {
+                log.warn("performTask ['{}'] -> process(es) not found: {}", channel.getAgentId(), unknown);
+            }
+
+            HeartbeatResponse response = new HeartbeatResponse(request.getCorrelationId(), unknown);
+            if (!channelManager.sendResponse(channel.getChannelId(), response)) {
+                log.warn("performTask ['{}'] -> failed to send the response", channel.getAgentId());
+            }
+        });
+
+        return false;
+    }
+}
@@ -30,20 +30,17 @@ import com.walmartlabs.concord.server.jooq.tables.records.AuditLogRecord;
 import com.walmartlabs.concord.server.org.EntityOwner;
 import com.walmartlabs.concord.server.sdk.audit.AuditEvent;
 import com.walmartlabs.concord.server.user.UserType;
-import org.jooq.Configuration;
-import org.jooq.JSONB;
-import org.jooq.Record9;
-import org.jooq.SelectOnConditionStep;
+import org.jooq.*;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import java.time.OffsetDateTime;
-import java.util.List;
-import java.util.Map;
-import java.util.UUID;
+import java.util.*;
 
+import static com.walmartlabs.concord.server.jooq.Sequences.AUDIT_LOG_ENTRY_SEQ_SEQ;
 import static com.walmartlabs.concord.server.jooq.tables.AuditLog.AUDIT_LOG;
 import static com.walmartlabs.concord.server.jooq.tables.Users.USERS;
+import static org.jooq.impl.DSL.generateSeries;
 
 @Named
 public class AuditDao extends AbstractDao {
@@ -86,6 +83,60 @@ public class AuditDao extends AbstractDao {
                 .build();
     }
 
+    /**
+     * Inserts multiple audit log entries using a single statement.
+     * The entries' sequence numbers are allocated beforehand, the dates
+     * are taken from the entries.
+     *
+     * @return the inserted events, in the same order as the entries.
+     */
+    public List<AuditEvent> insert(List<PendingAuditEntry> entries) {
+        if (entries.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        return txResult(tx -> {
+            List<Long> seqs = tx.select(AUDIT_LOG_ENTRY_SEQ_SEQ.nextval())
+                    .from(generateSeries(1, entries.size()))
+                    .fetch(Record1::value1);
+
+            InsertValuesStep6<AuditLogRecord, Long, OffsetDateTime, UUID, String, String, JSONB> q = tx.insertInto(AUDIT_LOG)
+                    .columns(AUDIT_LOG.ENTRY_SEQ,
+                            AUDIT_LOG.ENTRY_DATE,
+                            AUDIT_LOG.USER_ID,
+                            AUDIT_LOG.ENTRY_OBJECT,
+                            AUDIT_LOG.ENTRY_ACTION,
+                            AUDIT_LOG.ENTRY_DETAILS);
+
+            for (int i = 0; i < entries.size(); i++) {
+                PendingAuditEntry e = entries.get(i);
+                q.values(seqs.get(i),
+                        e.getEntryDate(),
+                        e.getUserId(),
+                        e.getObject().toString(),
+                        e.getAction().toString(),
+                        objectMapper.toJSONB(e.getDetails()));
+            }
+
+            q.execute();
+
+            List<AuditEvent> result = new ArrayList<>(entries.size());
+            for (int i = 0; i < entries.size(); i++) {
+                PendingAuditEntry e = entries.get(i);
+
+                result.add(AuditEvent.builder()
+                        .entrySeq(seqs.get(i))
+                        .entryDate(e.getEntryDate())
+                        .userId(e.getUserId())
+                        .object(e.getObject().toString())
+                        .action(e.getAction().toString())
+                        .details(e.getDetails())
+                        .build());
+            }
+            return result;
+        });
+    }
+
     public List<AuditLogEntry> list(AuditLogFilter filter) {
         return txResult(tx -> {
             AuditLog l = AUDIT_LOG.as("l");
@@ -33,10 +33,8 @@ import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Named;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.UUID;
+import java.util.*;
+import java.util.stream.Collectors;
 
 @Named
 public class AuditLog {
@@ -61,12 +59,18 @@ public class AuditLog {
     private final AuditConfiguration cfg;
     private final AuditDao auditDao;
     private final Listeners listeners;
+    private final AuditLogWriter writer;
+    private final Set<AuditObject> syncObjects;
 
     @Inject
-    public AuditLog(AuditConfiguration cfg, AuditDao auditDao, Listeners listeners) {
+    public AuditLog(AuditConfiguration cfg, AuditDao auditDao, Listeners listeners, AuditLogWriter writer) {
         this.cfg = cfg;
         this.auditDao = auditDao;
         this.listeners = listeners;
+        this.writer = writer;
+        this.syncObjects = cfg.getSyncObjects().stream()
+                .map(AuditObject::valueOf)
+                .collect(Collectors.toSet());
     }
 
     public EntryBuilder add(AuditObject object, AuditAction action) {
@@ -170,6 +174,19 @@ public class AuditLog {
                 details.put("changes", changes);
             }
 
+            if (cfg.isAsync() && !syncObjects.contains(object) && writer.isRunning()) {
+                if (writer.offer(new PendingAuditEntry(userId, object, action, details))) {
+                    return;
+                }
+
+                // the writer might have been stopped in the meantime, write synchronously in that case
+                if (writer.isRunning() && cfg.getOverflowPolicy() == AuditConfiguration.OverflowPolicy.DROP) {
+                    log.warn("log -> the audit log queue is full, dropping the entry: {}, {}", object, action);
+                    writer.onDrop();
+                    return;
+                }
+            }
+
             AuditEvent ev = auditDao.insert(userId, object, action, details);
             listeners.onAuditEvent(ev);
         }
@@ -0,0 +1,225 @@
+package com.walmartlabs.concord.server.audit;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.server.Listeners;
+import com.walmartlabs.concord.server.cfg.AuditConfiguration;
+import com.walmartlabs.concord.server.sdk.BackgroundTask;
+import com.walmartlabs.concord.server.sdk.audit.AuditEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Writes audit log entries in batches using a background thread.
+ * Once {@link #stop()} is called, new entries are rejected and the entries
+ * already in the queue are written before {@link #stop()} returns.
+ */
+@Named
+@Singleton
+public class AuditLogWriter implements BackgroundTask {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditLogWriter.class);
+
+    private static final long POLL_TIMEOUT = 1000;
+    private static final long ERROR_DELAY = 5000;
+
+    private final AuditConfiguration cfg;
+    private final AuditDao auditDao;
+    private final Listeners listeners;
+    private final BlockingQueue<PendingAuditEntry> queue;
+    private final Histogram batchSizeHistogram;
+    private final Meter droppedMeter;
+
+    private volatile Thread worker;
+
+    /**
+     * Guards {@link #accepting}: {@link #offer(PendingAuditEntry)} holds the read lock,
+     * {@link #stop()} takes the write lock, so no entry is added after the final drain.
+     */
+    private final ReadWriteLock acceptLock = new ReentrantReadWriteLock();
+    private volatile boolean accepting;
+
+    /**
+     * The batch that the worker failed to write before it was stopped.
+     */
+    private List<PendingAuditEntry> unwritten;
+
+    @Inject
+    public AuditLogWriter(AuditConfiguration cfg,
+                          AuditDao auditDao,
+                          Listeners listeners,
+                          MetricRegistry metricRegistry) {
+
+        this.cfg = cfg;
+        this.auditDao = auditDao;
+        this.listeners = listeners;
+        this.queue = new ArrayBlockingQueue<>(cfg.getQueueSize());
+
+        this.batchSizeHistogram = metricRegistry.histogram("audit-log-batch-size");
+        this.droppedMeter = metricRegistry.meter("audit-log-dropped");
+        metricRegistry.gauge("audit-log-queue-size", () -> queue::size);
+    }
+
+    @Override
+    public void start() {
+        if (!cfg.isEnabled() || !cfg.isAsync()) {
+            return;
+        }
+
+        worker = new Thread(this::run, "audit-log-writer");
+        worker.start();
+        accepting = true;
+        log.info("start -> done");
+    }
+
+    @Override
+    public void stop() {
+        Thread t = worker;
+        if (t == null) {
+            return;
+        }
+
+        // reject new entries, the callers write them synchronously
+        acceptLock.writeLock().lock();
+        try {
+            accepting = false;
+        } finally {
+            acceptLock.writeLock().unlock();
+        }
+
+        worker = null;
+        t.interrupt();
+        try {
+            t.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // write the remaining entries, if any
+        List<PendingAuditEntry> remaining = new ArrayList<>();
+        if (unwritten != null) {
+            remaining.addAll(unwritten);
+        }
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            write(remaining);
+        }
+
+        log.info("stop -> done");
+    }
+
+    public boolean isRunning() {
+        return accepting;
+    }
+
+    /**
+     * Adds the entry to the write queue.
+     *
+     * @return {@code false} if the queue is full or the writer is stopped,
+     * see {@link #isRunning()}.
+     */
+    public boolean offer(PendingAuditEntry entry) {
+        acceptLock.readLock().lock();
+        try {
+            return accepting && queue.offer(entry);
+        } finally {
+            acceptLock.readLock().unlock();
+        }
+    }
+
+    public void onDrop() {
+        droppedMeter.mark();
+    }
+
+    private void run() {
+        int batchSize = cfg.getBatchSize();
+
+        while (!Thread.currentThread().isInterrupted()) {
+            List<PendingAuditEntry> batch = new ArrayList<>(batchSize);
+            try {
+                PendingAuditEntry first = queue.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            batchSizeHistogram.update(batch.size());
+
+            while (!write(batch)) {
+                if (Thread.currentThread().isInterrupted()) {
+                    // let stop() retry the batch with the rest of the queue
+                    unwritten = batch;
+                    return;
+                }
+
+                sleep(ERROR_DELAY);
+            }
+        }
+    }
+
+    private boolean write(List<PendingAuditEntry> batch) {
+        List<AuditEvent> events;
+        try {
+            events = auditDao.insert(batch);
+        } catch (Exception e) {
+            log.error("write -> error while inserting {} audit log entries: {}", batch.size(), e.getMessage(), e);
+            return false;
+        }
+
+        for (AuditEvent ev : events) {
+            try {
+                listeners.onAuditEvent(ev);
+            } catch (Exception e) {
+                log.warn("write -> error while notifying the listeners: {}", e.getMessage());
+            }
+        }
+
+        return true;
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
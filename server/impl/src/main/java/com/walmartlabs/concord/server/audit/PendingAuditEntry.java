@@ -0,0 +1,66 @@
+package com.walmartlabs.concord.server.audit;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * An audit log entry waiting to be written into the DB. The entry's date
+ * is the time it was created, not the time the batch is written.
+ */
+public class PendingAuditEntry {
+
+    private final UUID userId;
+    private final AuditObject object;
+    private final AuditAction action;
+    private final Map<String, Object> details;
+    private final OffsetDateTime entryDate;
+
+    public PendingAuditEntry(UUID userId, AuditObject object, AuditAction action, Map<String, Object> details) {
+        this.userId = userId;
+        this.object = object;
+        this.action = action;
+        this.details = details;
+        this.entryDate = OffsetDateTime.now();
+    }
+
+    public UUID getUserId() {
+        return userId;
+    }
+
+    public AuditObject getObject() {
+        return object;
+    }
+
+    public AuditAction getAction() {
+        return action;
+    }
+
+    public Map<String, Object> getDetails() {
+        return details;
+    }
+
+    public OffsetDateTime getEntryDate() {
+        return entryDate;
+    }
+}
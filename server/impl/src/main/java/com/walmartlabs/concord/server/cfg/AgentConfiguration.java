@@ -36,7 +36,15 @@ public class AgentConfiguration implements Serializable {
     @Config("agent.commandPollDelay")
     private Duration commandPollDelay;
 
+    @Inject
+    @Config("agent.heartbeatPollDelay")
+    private Duration heartbeatPollDelay;
+
     public Duration getCommandPollDelay() {
         return commandPollDelay;
     }
+
+    public Duration getHeartbeatPollDelay() {
+        return heartbeatPollDelay;
+    }
 }
@@ -28,6 +28,7 @@ import javax.inject.Named;
 import javax.inject.Singleton;
 import java.io.Serializable;
 import java.time.Duration;
+import java.util.List;
 
 @Named
 @Singleton
@@ -50,6 +51,26 @@ public class AuditConfiguration implements Serializable {
     @Config("audit.maxSearchInterval")
     private Duration maxSearchInterval;
 
+    @Inject
+    @Config("audit.async")
+    private boolean async;
+
+    @Inject
+    @Config("audit.syncObjects")
+    private List<String> syncObjects;
+
+    @Inject
+    @Config("audit.queueSize")
+    private int queueSize;
+
+    @Inject
+    @Config("audit.batchSize")
+    private int batchSize;
+
+    @Inject
+    @Config("audit.overflowPolicy")
+    private String overflowPolicy;
+
     public boolean isEnabled() {
         return enabled;
     }
@@ -65,4 +86,37 @@ public class AuditConfiguration implements Serializable {
     public Duration getMaxSearchInterval() {
         return maxSearchInterval;
     }
+
+    public boolean isAsync() {
+        return async;
+    }
+
+    public List<String> getSyncObjects() {
+        return syncObjects;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return OverflowPolicy.valueOf(overflowPolicy.toUpperCase());
+    }
+
+    public enum OverflowPolicy {
+
+        /**
+         * Write the entry in the caller's thread.
+         */
+        SYNC,
+
+        /**
+         * Discard the entry.
+         */
+        DROP
+    }
 }
@@ -0,0 +1,98 @@
+package com.walmartlabs.concord.server.cfg;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.ollie.config.Config;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.io.Serializable;
+import java.time.Duration;
+
+@Named
+@Singleton
+public class EventQueueConfiguration implements Serializable {
+
+    @Inject
+    @Config("eventQueue.enabled")
+    private boolean enabled;
+
+    @Inject
+    @Config("eventQueue.workerThreads")
+    private int workerThreads;
+
+    @Inject
+    @Config("eventQueue.pollInterval")
+    private Duration pollInterval;
+
+    @Inject
+    @Config("eventQueue.batchSize")
+    private int batchSize;
+
+    @Inject
+    @Config("eventQueue.processingTimeout")
+    private Duration processingTimeout;
+
+    @Inject
+    @Config("eventQueue.maxAttempts")
+    private int maxAttempts;
+
+    @Inject
+    @Config("eventQueue.retryDelay")
+    private Duration retryDelay;
+
+    @Inject
+    @Config("eventQueue.coalescePushEvents")
+    private boolean coalescePushEvents;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public Duration getPollInterval() {
+        return pollInterval;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public Duration getProcessingTimeout() {
+        return processingTimeout;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public Duration getRetryDelay() {
+        return retryDelay;
+    }
+
+    public boolean isCoalescePushEvents() {
+        return coalescePushEvents;
+    }
+}
@@ -40,6 +40,14 @@ public class ProcessQueueConfiguration implements Serializable {
     @Config("queue.dispatcher.batchSize")
     private int dispatcherBatchSize;
 
+    @Inject
+    @Config("queue.stats.flushInterval")
+    private Duration statsFlushInterval;
+
+    @Inject
+    @Config("queue.stats.reconcileInterval")
+    private Duration statsReconcileInterval;
+
     public Duration getDispatcherPollDelay() {
         return dispatcherPollDelay;
     }
@@ -47,4 +55,12 @@ public class ProcessQueueConfiguration implements Serializable {
     public int getDispatcherBatchSize() {
         return dispatcherBatchSize;
     }
+
+    public Duration getStatsFlushInterval() {
+        return statsFlushInterval;
+    }
+
+    public Duration getStatsReconcileInterval() {
+        return statsReconcileInterval;
+    }
 }
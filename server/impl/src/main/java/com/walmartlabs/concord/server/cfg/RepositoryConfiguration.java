@@ -20,6 +20,7 @@ package com.walmartlabs.concord.server.cfg;
  * =====
  */
 
+import com.typesafe.config.ConfigMemorySize;
 import com.walmartlabs.ollie.config.Config;
 import org.eclipse.sisu.Nullable;
 import org.slf4j.Logger;
@@ -44,6 +45,8 @@ public class RepositoryConfiguration {
 
     private final Path cacheInfoDir;
 
+    private final Path snapshotDir;
+
     @Inject
     @Config("repositoryCache.concordFileValidationEnabled")
     private boolean concordFileValidationEnabled;
@@ -60,12 +63,22 @@ public class RepositoryConfiguration {
     @Config("repositoryCache.lockCount")
     private int lockCount;
 
+    @Inject
+    @Config("repositoryCache.refreshDebounce")
+    private Duration refreshDebounce;
+
+    @Inject
+    @Config("repositoryCache.snapshotMaxSize")
+    private ConfigMemorySize snapshotMaxSize;
+
     @Inject
     public RepositoryConfiguration(@Config("repositoryCache.cacheDir") @Nullable String cacheDir,
-                                   @Config("repositoryCache.cacheInfoDir") @Nullable String cacheInfoDir) throws IOException {
+                                   @Config("repositoryCache.cacheInfoDir") @Nullable String cacheInfoDir,
+                                   @Config("repositoryCache.snapshotDir") @Nullable String snapshotDir) throws IOException {
 
         this.cacheDir = getPath(cacheDir, "repoCache");
         this.cacheInfoDir = getPath(cacheInfoDir, "repoCacheInfo");
+        this.snapshotDir = getPath(snapshotDir, "repoSnapshots");
 
         log.info("init -> using {} ({}) to cache repositories", this.cacheDir, this.cacheInfoDir);
     }
@@ -93,4 +106,16 @@ public class RepositoryConfiguration {
     public Path getCacheInfoDir() {
         return cacheInfoDir;
     }
+
+    public Duration getRefreshDebounce() {
+        return refreshDebounce;
+    }
+
+    public Path getSnapshotDir() {
+        return snapshotDir;
+    }
+
+    public long getSnapshotMaxSize() {
+        return snapshotMaxSize.toBytes();
+    }
 }
@@ -26,6 +26,7 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import java.io.Serializable;
+import java.time.Duration;
 
 @Named
 @Singleton
@@ -51,6 +52,18 @@ public class SecretStoreConfiguration implements Serializable {
     @Config("secretStore.keySize")
     private int keySize;
 
+    @Inject
+    @Config("secretStore.cacheEnabled")
+    private boolean cacheEnabled;
+
+    @Inject
+    @Config("secretStore.cacheMaxSize")
+    private long cacheMaxSize;
+
+    @Inject
+    @Config("secretStore.cacheTtl")
+    private Duration cacheTtl;
+
     public byte[] getServerPwd() {
         return serverPwd;
     }
@@ -70,4 +83,16 @@ public class SecretStoreConfiguration implements Serializable {
     public int getKeySize() {
         return keySize;
     }
+
+    public boolean isCacheEnabled() {
+        return cacheEnabled;
+    }
+
+    public long getCacheMaxSize() {
+        return cacheMaxSize;
+    }
+
+    public Duration getCacheTtl() {
+        return cacheTtl;
+    }
 }
@@ -0,0 +1,58 @@
+package com.walmartlabs.concord.server.cfg;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.ollie.config.Config;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.io.Serializable;
+import java.time.Duration;
+
+@Named
+@Singleton
+public class TaskSchedulerConfiguration implements Serializable {
+
+    @Inject
+    @Config("scheduler.maxConcurrentTasks")
+    private int maxConcurrentTasks;
+
+    @Inject
+    @Config("scheduler.maxJitter")
+    private Duration maxJitter;
+
+    public TaskSchedulerConfiguration() {
+    }
+
+    public TaskSchedulerConfiguration(int maxConcurrentTasks, Duration maxJitter) {
+        this.maxConcurrentTasks = maxConcurrentTasks;
+        this.maxJitter = maxJitter;
+    }
+
+    public int getMaxConcurrentTasks() {
+        return maxConcurrentTasks;
+    }
+
+    public Duration getMaxJitter() {
+        return maxJitter;
+    }
+}
@@ -0,0 +1,192 @@
+package com.walmartlabs.concord.server.events;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.db.AbstractDao;
+import com.walmartlabs.concord.db.MainDB;
+import com.walmartlabs.concord.server.ConcordObjectMapper;
+import com.walmartlabs.concord.server.jooq.tables.records.EventQueueRecord;
+import org.jooq.Configuration;
+import org.jooq.Field;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static com.walmartlabs.concord.db.PgUtils.interval;
+import static com.walmartlabs.concord.server.jooq.Tables.EVENT_QUEUE;
+import static com.walmartlabs.concord.server.jooq.Tables.EVENT_QUEUE_STARTED_TRIGGERS;
+import static org.jooq.impl.DSL.currentOffsetDateTime;
+
+@Named
+public class EventQueueDao extends AbstractDao {
+
+    private final ConcordObjectMapper objectMapper;
+
+    @Inject
+    public EventQueueDao(@MainDB Configuration cfg, ConcordObjectMapper objectMapper) {
+        super(cfg);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Adds a new event into the queue.
+     *
+     * @return {@code false} if an event with the same source and delivery ID
+     * is already in the queue.
+     */
+    public boolean insert(String source, String eventName, String deliveryId, UUID projectId, UUID userId,
+                          String coalesceKey, Map<String, Object> data) {
+
+        return txResult(tx -> tx.insertInto(EVENT_QUEUE)
+                .columns(EVENT_QUEUE.EVENT_ID,
+                        EVENT_QUEUE.EVENT_SOURCE,
+                        EVENT_QUEUE.EVENT_NAME,
+                        EVENT_QUEUE.DELIVERY_ID,
+                        EVENT_QUEUE.PROJECT_ID,
+                        EVENT_QUEUE.USER_ID,
+                        EVENT_QUEUE.COALESCE_KEY,
+                        EVENT_QUEUE.EVENT_DATA)
+                .values(UUID.randomUUID(),
+                        source,
+                        eventName,
+                        deliveryId,
+                        projectId,
+                        userId,
+                        coalesceKey,
+                        objectMapper.toJSONB(data))
+                .onConflictDoNothing()
+                .execute() > 0);
+    }
+
+    /**
+     * Fetches the oldest events and marks them as being processed. Events
+     * that are being processed longer than {@code processingTimeout} are
+     * returned again. Failed events are skipped until their next attempt
+     * is due.
+     */
+    public List<QueuedEvent> poll(int limit, Duration processingTimeout) {
+        Field<OffsetDateTime> cutOff = currentOffsetDateTime().minus(interval(processingTimeout.getSeconds() + " seconds"));
+
+        return txResult(tx -> {
+            List<EventQueueRecord> records = tx.selectFrom(EVENT_QUEUE)
+                    .where(EVENT_QUEUE.PROCESSING_STARTED_AT.isNull()
+                            .or(EVENT_QUEUE.PROCESSING_STARTED_AT.lessThan(cutOff)))
+                    .and(EVENT_QUEUE.NEXT_ATTEMPT_AT.isNull()
+                            .or(EVENT_QUEUE.NEXT_ATTEMPT_AT.lessOrEqual(currentOffsetDateTime())))
+                    .orderBy(EVENT_QUEUE.CREATED_AT)
+                    .limit(limit)
+                    .forUpdate()
+                    .skipLocked()
+                    .fetch();
+
+            if (records.isEmpty()) {
+                return Collections.emptyList();
+            }
+
+            List<UUID> ids = records.stream().map(EventQueueRecord::getEventId).collect(Collectors.toList());
+
+            // only retried events can have started triggers
+            Map<UUID, Set<UUID>> startedTriggers = new HashMap<>();
+            if (records.stream().anyMatch(r -> r.getAttempts() > 0)) {
+                tx.select(EVENT_QUEUE_STARTED_TRIGGERS.EVENT_ID, EVENT_QUEUE_STARTED_TRIGGERS.TRIGGER_ID)
+                        .from(EVENT_QUEUE_STARTED_TRIGGERS)
+                        .where(EVENT_QUEUE_STARTED_TRIGGERS.EVENT_ID.in(ids))
+                        .forEach(r -> startedTriggers.computeIfAbsent(r.value1(), k -> new HashSet<>()).add(r.value2()));
+            }
+
+            List<QueuedEvent> result = records.stream()
+                    .map(r -> QueuedEvent.builder()
+                            .eventId(r.getEventId())
+                            .source(r.getEventSource())
+                            .eventName(r.getEventName())
+                            .deliveryId(r.getDeliveryId())
+                            .projectId(r.getProjectId())
+                            .userId(r.getUserId())
+                            .coalesceKey(r.getCoalesceKey())
+                            .data(objectMapper.fromJSONB(r.getEventData()))
+                            .createdAt(r.getCreatedAt())
+                            .attempts(r.getAttempts() + 1)
+                            .startedTriggers(startedTriggers.getOrDefault(r.getEventId(), Collections.emptySet()))
+                            .build())
+                    .collect(Collectors.toList());
+
+            tx.update(EVENT_QUEUE)
+                    .set(EVENT_QUEUE.PROCESSING_STARTED_AT, currentOffsetDateTime())
+                    .set(EVENT_QUEUE.ATTEMPTS, EVENT_QUEUE.ATTEMPTS.plus(1))
+                    .where(EVENT_QUEUE.EVENT_ID.in(ids))
+                    .execute();
+
+            return result;
+        });
+    }
+
+    /**
+     * Records a process started by the event's trigger. The trigger is
+     * skipped if the event is processed again.
+     */
+    public void addStartedTrigger(UUID eventId, UUID triggerId, UUID instanceId) {
+        tx(tx -> tx.insertInto(EVENT_QUEUE_STARTED_TRIGGERS)
+                .columns(EVENT_QUEUE_STARTED_TRIGGERS.EVENT_ID,
+                        EVENT_QUEUE_STARTED_TRIGGERS.TRIGGER_ID,
+                        EVENT_QUEUE_STARTED_TRIGGERS.INSTANCE_ID)
+                .values(eventId, triggerId, instanceId)
+                .onConflictDoNothing()
+                .execute());
+    }
+
+    /**
+     * Extends the processing lease of the specified events, so they are
+     * not picked up again while still being processed.
+     */
+    public void touch(Collection<UUID> eventIds) {
+        tx(tx -> tx.update(EVENT_QUEUE)
+                .set(EVENT_QUEUE.PROCESSING_STARTED_AT, currentOffsetDateTime())
+                .where(EVENT_QUEUE.EVENT_ID.in(eventIds)
+                        .and(EVENT_QUEUE.PROCESSING_STARTED_AT.isNotNull()))
+                .execute());
+    }
+
+    /**
+     * Returns a failed event back into the queue. The event is picked up
+     * again after the specified delay.
+     */
+    public void retry(UUID eventId, Duration delay) {
+        tx(tx -> tx.update(EVENT_QUEUE)
+                .setNull(EVENT_QUEUE.PROCESSING_STARTED_AT)
+                .set(EVENT_QUEUE.NEXT_ATTEMPT_AT, currentOffsetDateTime().plus(interval(delay.getSeconds() + " seconds")))
+                .where(EVENT_QUEUE.EVENT_ID.eq(eventId))
+                .execute());
+    }
+
+    public void delete(Collection<UUID> eventIds) {
+        tx(tx -> tx.deleteFrom(EVENT_QUEUE)
+                .where(EVENT_QUEUE.EVENT_ID.in(eventIds))
+                .execute());
+    }
+
+    public int count() {
+        return dsl().fetchCount(EVENT_QUEUE);
+    }
+}
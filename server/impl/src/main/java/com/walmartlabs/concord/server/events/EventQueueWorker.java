@@ -0,0 +1,310 @@
+package com.walmartlabs.concord.server.events;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.sdk.MapUtils;
+import com.walmartlabs.concord.server.PeriodicTask;
+import com.walmartlabs.concord.server.cfg.EventQueueConfiguration;
+import com.walmartlabs.concord.server.events.TriggerProcessExecutor.StartedTriggers;
+import com.walmartlabs.concord.server.org.triggers.TriggerEntry;
+import com.walmartlabs.concord.server.process.ProcessSecurityContext;
+import com.walmartlabs.concord.server.sdk.PartialProcessKey;
+import com.walmartlabs.concord.server.sdk.metrics.WithTimer;
+import org.apache.shiro.util.ThreadContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.walmartlabs.concord.server.events.github.Constants.EVENT_SOURCE;
+
+/**
+ * Drains the event queue filled by {@link GithubEventResource} and
+ * {@link ExternalEventResource} when {@code eventQueue.enabled} is set.
+ * Events with the same "coalesce key" (e.g. pushes into the same branch)
+ * polled in the same batch are collapsed into the latest one.
+ * <p>
+ * Events are removed from the queue only after they are processed
+ * successfully. Failed events are retried with an exponential backoff
+ * up to {@code eventQueue.maxAttempts} times. Triggers which already
+ * started a process during the previous attempts are skipped.
+ */
+@Named
+@Singleton
+public class EventQueueWorker extends PeriodicTask {
+
+    private static final Logger log = LoggerFactory.getLogger(EventQueueWorker.class);
+
+    private static final long ERROR_DELAY = TimeUnit.SECONDS.toMillis(5);
+    private static final long MIN_LEASE_RENEWAL_INTERVAL = TimeUnit.SECONDS.toMillis(1);
+    private static final int MAX_BACKOFF_SHIFT = 10;
+    private static final long QUEUE_SIZE_REFRESH_INTERVAL = TimeUnit.SECONDS.toMillis(10);
+
+    private final EventQueueConfiguration cfg;
+    private final EventQueueDao dao;
+    private final GithubEventResource githubEventResource;
+    private final ExternalEventResource externalEventResource;
+    private final ProcessSecurityContext securityContext;
+
+    private final ExecutorService executor;
+    private final AtomicInteger freeWorkersCount;
+    private final Set<UUID> inFlight;
+
+    private volatile int queueSize;
+    private long queueSizeUpdatedAt;
+
+    private final Histogram lag;
+    private final Counter coalesced;
+    private final Counter retried;
+    private final Counter failed;
+
+    @Inject
+    public EventQueueWorker(EventQueueConfiguration cfg,
+                            EventQueueDao dao,
+                            GithubEventResource githubEventResource,
+                            ExternalEventResource externalEventResource,
+                            ProcessSecurityContext securityContext,
+                            MetricRegistry metricRegistry) {
+
+        super(cfg.isEnabled() ? cfg.getPollInterval().toMillis() : 0, ERROR_DELAY);
+
+        this.cfg = cfg;
+        this.dao = dao;
+        this.githubEventResource = githubEventResource;
+        this.externalEventResource = externalEventResource;
+        this.securityContext = securityContext;
+
+        this.executor = Executors.newFixedThreadPool(cfg.getWorkerThreads());
+        this.freeWorkersCount = new AtomicInteger(cfg.getWorkerThreads());
+        this.inFlight = ConcurrentHashMap.newKeySet();
+
+        this.lag = metricRegistry.histogram("event-queue-lag");
+        this.coalesced = metricRegistry.counter("event-queue-coalesced");
+        this.retried = metricRegistry.counter("event-queue-retried");
+        this.failed = metricRegistry.counter("event-queue-failed");
+        metricRegistry.gauge("event-queue-workers-available", () -> freeWorkersCount::get);
+        metricRegistry.gauge("event-queue-size", () -> () -> queueSize);
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+
+        executor.shutdownNow();
+
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    @WithTimer
+    protected boolean performTask() throws Exception {
+        refreshQueueSize();
+
+        List<QueuedEvent> events = dao.poll(cfg.getBatchSize(), cfg.getProcessingTimeout());
+        if (events.isEmpty()) {
+            return false;
+        }
+
+        List<QueuedEvent> latest = coalesce(events);
+        if (latest.size() < events.size()) {
+            Set<UUID> skipped = new HashSet<>();
+            events.forEach(e -> skipped.add(e.eventId()));
+            latest.forEach(e -> skipped.remove(e.eventId()));
+
+            dao.delete(skipped);
+            coalesced.inc(skipped.size());
+            log.info("performTask -> coalesced {} event(s)", skipped.size());
+        }
+
+        List<Future<?>> futures = new ArrayList<>(latest.size());
+        for (QueuedEvent e : latest) {
+            inFlight.add(e.eventId());
+            futures.add(executor.submit(() -> process(e)));
+        }
+
+        // wait for the whole batch, events polled later might have the same coalesce key
+        // renew the processing lease while waiting, otherwise long-running events are
+        // picked up again by other servers
+        long renewalInterval = Math.max(MIN_LEASE_RENEWAL_INTERVAL, cfg.getProcessingTimeout().toMillis() / 2);
+        for (Future<?> f : futures) {
+            while (true) {
+                try {
+                    f.get(renewalInterval, TimeUnit.MILLISECONDS);
+                    break;
+                } catch (TimeoutException ex) {
+                    renewLeases();
+                }
+            }
+        }
+
+        return events.size() >= cfg.getBatchSize();
+    }
+
+    /**
+     * Updates the value of the "event-queue-size" gauge, at most once
+     * per {@link #QUEUE_SIZE_REFRESH_INTERVAL}.
+     */
+    private void refreshQueueSize() {
+        long now = System.currentTimeMillis();
+        if (now - queueSizeUpdatedAt < QUEUE_SIZE_REFRESH_INTERVAL) {
+            return;
+        }
+
+        queueSize = dao.count();
+        queueSizeUpdatedAt = now;
+    }
+
+    private void renewLeases() {
+        List<UUID> ids = new ArrayList<>(inFlight);
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        dao.touch(ids);
+        log.info("renewLeases -> {} event(s) are still being processed", ids.size());
+    }
+
+    private void process(QueuedEvent e) {
+        freeWorkersCount.decrementAndGet();
+        boolean success = false;
+        try {
+            lag.update(ChronoUnit.MILLIS.between(e.createdAt(), OffsetDateTime.now()));
+
+            StartedTriggers startedTriggers = new QueuedEventTriggers(dao, e);
+            securityContext.runAs(e.userId(), () -> {
+                if (EVENT_SOURCE.equals(e.source())) {
+                    githubEventResource.process(e.deliveryId(), e.eventName(), e.projectId(), e.data(), startedTriggers);
+                } else {
+                    String eventId = MapUtils.getString(e.data(), "id", e.deliveryId());
+                    externalEventResource.process(eventId, e.eventName(), e.data(), startedTriggers);
+                }
+                return null;
+            });
+            success = true;
+        } catch (Exception ex) {
+            log.error("process ['{}', '{}', '{}'] -> error (attempt {})", e.source(), e.eventName(), e.deliveryId(), e.attempts(), ex);
+        } finally {
+            ThreadContext.unbindSubject();
+            ThreadContext.unbindSecurityManager();
+
+            inFlight.remove(e.eventId());
+            try {
+                if (success) {
+                    dao.delete(Collections.singletonList(e.eventId()));
+                } else {
+                    onFailure(e);
+                }
+            } finally {
+                freeWorkersCount.incrementAndGet();
+            }
+        }
+    }
+
+    private void onFailure(QueuedEvent e) {
+        if (e.attempts() >= cfg.getMaxAttempts()) {
+            log.warn("onFailure ['{}', '{}', '{}'] -> giving up after {} attempt(s)", e.source(), e.eventName(), e.deliveryId(), e.attempts());
+            dao.delete(Collections.singletonList(e.eventId()));
+            failed.inc();
+            return;
+        }
+
+        Duration delay = retryDelay(cfg.getRetryDelay(), e.attempts());
+        dao.retry(e.eventId(), delay);
+        retried.inc();
+    }
+
+    /**
+     * Exponential backoff: {@code baseDelay * 2^(attempt - 1)}.
+     */
+    static Duration retryDelay(Duration baseDelay, int attempt) {
+        int shift = Math.min(Math.max(attempt - 1, 0), MAX_BACKOFF_SHIFT);
+        return baseDelay.multipliedBy(1L << shift);
+    }
+
+    /**
+     * Keeps only the most recent event for each coalesce key.
+     * The result is in the original (creation) order.
+     */
+    private static List<QueuedEvent> coalesce(List<QueuedEvent> events) {
+        Map<String, QueuedEvent> latestByKey = new HashMap<>();
+        for (QueuedEvent e : events) {
+            if (e.coalesceKey() != null) {
+                latestByKey.put(e.coalesceKey(), e);
+            }
+        }
+
+        if (latestByKey.isEmpty()) {
+            return events;
+        }
+
+        List<QueuedEvent> result = new ArrayList<>(events.size());
+        for (QueuedEvent e : events) {
+            if (e.coalesceKey() == null || latestByKey.get(e.coalesceKey()) == e) {
+                result.add(e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Remembers the processes started by the event's triggers in the queue,
+     * so a retry doesn't start them again.
+     */
+    private static class QueuedEventTriggers implements StartedTriggers {
+
+        private final EventQueueDao dao;
+        private final QueuedEvent event;
+
+        private QueuedEventTriggers(EventQueueDao dao, QueuedEvent event) {
+            this.dao = dao;
+            this.event = event;
+        }
+
+        @Override
+        public boolean isStarted(TriggerEntry t) {
+            boolean started = event.startedTriggers().contains(t.getId());
+            if (started) {
+                log.info("process ['{}', '{}'] -> skipping {}, already started a process", event.source(), event.deliveryId(), t);
+            }
+            return started;
+        }
+
+        @Override
+        public void onStart(TriggerEntry t, PartialProcessKey processKey) {
+            dao.addStartedTrigger(event.eventId(), t.getId(), processKey.getInstanceId());
+        }
+    }
+}
@@ -20,9 +20,11 @@ package com.walmartlabs.concord.server.events;
  * =====
  */
 
+import com.walmartlabs.concord.server.cfg.EventQueueConfiguration;
 import com.walmartlabs.concord.server.events.externalevent.ExternalEventTriggerProcessor;
 import com.walmartlabs.concord.server.sdk.PartialProcessKey;
 import com.walmartlabs.concord.server.sdk.metrics.WithTimer;
+import com.walmartlabs.concord.server.security.UserPrincipal;
 import com.walmartlabs.concord.server.user.UserManager;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -58,21 +60,29 @@ public class ExternalEventResource implements Resource {
 
     private static final Logger log = LoggerFactory.getLogger(ExternalEventResource.class);
 
+    public static final String EVENT_QUEUE_SOURCE = "external";
+
     private final TriggerProcessExecutor executor;
     private final UserManager userManager;
     private final TriggerEventInitiatorResolver initiatorResolver;
     private final List<ExternalEventTriggerProcessor> processors;
+    private final EventQueueConfiguration eventQueueCfg;
+    private final EventQueueDao eventQueueDao;
 
     @Inject
     public ExternalEventResource(TriggerProcessExecutor executor,
                                  UserManager userManager,
                                  TriggerEventInitiatorResolver initiatorResolver,
-                                 List<ExternalEventTriggerProcessor> processors) {
+                                 List<ExternalEventTriggerProcessor> processors,
+                                 EventQueueConfiguration eventQueueCfg,
+                                 EventQueueDao eventQueueDao) {
 
         this.executor = executor;
         this.userManager = userManager;
         this.initiatorResolver = initiatorResolver;
         this.processors = processors;
+        this.eventQueueCfg = eventQueueCfg;
+        this.eventQueueDao = eventQueueDao;
     }
 
     @POST
@@ -92,6 +102,35 @@ public class ExternalEventResource implements Resource {
 
         String eventId = (String) event.computeIfAbsent("id", s -> UUID.randomUUID().toString());
 
+        UserPrincipal u = UserPrincipal.getCurrent();
+        if (eventQueueCfg.isEnabled() && u != null) {
+            // check the roles now, the queued event is processed later in the background
+            executor.assertRoles(eventName);
+
+            // the event's ID is provided by the caller and can be reused, so each submission gets its own "delivery" ID
+            eventQueueDao.insert(EVENT_QUEUE_SOURCE, eventName, UUID.randomUUID().toString(), null, u.getId(), null, event);
+            log.info("event ['{}', '{}'] -> queued", eventId, eventName);
+            return Response.ok().build();
+        }
+
+        process(eventId, eventName, event);
+
+        return Response.ok().build();
+    }
+
+    /**
+     * Matches the event with the registered triggers and starts the processes.
+     */
+    public void process(String eventId, String eventName, Map<String, Object> event) {
+        process(eventId, eventName, event, null);
+    }
+
+    /**
+     * @param startedTriggers optional, see {@link TriggerProcessExecutor.StartedTriggers}
+     */
+    public void process(String eventId, String eventName, Map<String, Object> event,
+                        TriggerProcessExecutor.StartedTriggers startedTriggers) {
+
         List<ExternalEventTriggerProcessor.Result> results = new ArrayList<>();
         processors.forEach(p -> p.process(eventName, event, results));
 
@@ -103,10 +142,8 @@ public class ExternalEventResource implements Resource {
                     .initiator(memo(new EventInitiatorSupplier("author", userManager, r.event())))
                     .build();
 
-            List<PartialProcessKey> processKeys = executor.execute(e, initiatorResolver, r.triggers());
+            List<PartialProcessKey> processKeys = executor.execute(e, r.triggers(), initiatorResolver, null, startedTriggers);
             log.info("event ['{}', '{}', '{}'] -> done, {} processes started", eventId, eventName, event, processKeys.size());
         }
-
-        return Response.ok().build();
     }
 }
@@ -27,6 +27,7 @@ import com.walmartlabs.concord.sdk.MapUtils;
 import com.walmartlabs.concord.server.audit.AuditAction;
 import com.walmartlabs.concord.server.audit.AuditLog;
 import com.walmartlabs.concord.server.audit.AuditObject;
+import com.walmartlabs.concord.server.cfg.EventQueueConfiguration;
 import com.walmartlabs.concord.server.cfg.GithubConfiguration;
 import com.walmartlabs.concord.server.events.github.GithubTriggerProcessor;
 import com.walmartlabs.concord.server.events.github.Payload;
@@ -34,6 +35,8 @@ import com.walmartlabs.concord.server.org.triggers.TriggerUtils;
 import com.walmartlabs.concord.server.sdk.ConcordApplicationException;
 import com.walmartlabs.concord.server.sdk.PartialProcessKey;
 import com.walmartlabs.concord.server.sdk.metrics.WithTimer;
+import com.walmartlabs.concord.server.security.github.GithubKey;
+import com.walmartlabs.concord.server.security.github.GithubRealm;
 import com.walmartlabs.concord.server.security.ldap.LdapManager;
 import com.walmartlabs.concord.server.security.ldap.LdapPrincipal;
 import com.walmartlabs.concord.server.user.UserEntry;
@@ -56,11 +59,13 @@ import javax.ws.rs.core.UriInfo;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Supplier;
 
 import static com.walmartlabs.concord.common.MemoSupplier.memo;
 import static com.walmartlabs.concord.server.events.github.Constants.COMMIT_ID_KEY;
 import static com.walmartlabs.concord.server.events.github.Constants.EVENT_SOURCE;
+import static com.walmartlabs.concord.server.events.github.Constants.PUSH_EVENT;
 
 /**
  * Handles external GitHub events.
@@ -78,6 +83,8 @@ public class GithubEventResource implements Resource {
     private static final Logger log = LoggerFactory.getLogger(GithubEventResource.class);
 
     private final GithubConfiguration githubCfg;
+    private final EventQueueConfiguration eventQueueCfg;
+    private final EventQueueDao eventQueueDao;
     private final TriggerProcessExecutor executor;
     private final AuditLog auditLog;
     private final List<GithubTriggerProcessor> processors;
@@ -88,6 +95,8 @@ public class GithubEventResource implements Resource {
 
     @Inject
     public GithubEventResource(GithubConfiguration githubCfg,
+                               EventQueueConfiguration eventQueueCfg,
+                               EventQueueDao eventQueueDao,
                                TriggerProcessExecutor executor, AuditLog auditLog,
                                List<GithubTriggerProcessor> processors,
                                UserManager userManager,
@@ -96,6 +105,8 @@ public class GithubEventResource implements Resource {
                                MetricRegistry metricRegistry) {
 
         this.githubCfg = githubCfg;
+        this.eventQueueCfg = eventQueueCfg;
+        this.eventQueueDao = eventQueueDao;
         this.executor = executor;
         this.auditLog = auditLog;
         this.processors = processors;
@@ -136,14 +147,43 @@ public class GithubEventResource implements Resource {
                     .log();
         }
 
+        UUID projectId = GithubKey.getCurrent().getProjectId();
+
+        if (eventQueueCfg.isEnabled()) {
+            // check the roles now, the queued event is processed later in the background
+            executor.assertRoles(EVENT_SOURCE);
+            enqueue(deliveryId, eventName, projectId, data);
+            return "ok";
+        }
+
+        process(deliveryId, eventName, projectId, data);
+
+        return "ok";
+    }
+
+    /**
+     * Matches the event with the registered triggers and starts the processes.
+     * Called directly by {@link #onEvent(Map, String, String, UriInfo)} or
+     * by {@link EventQueueWorker} when the event queue is enabled.
+     */
+    public void process(String deliveryId, String eventName, UUID projectId, Map<String, Object> data) {
+        process(deliveryId, eventName, projectId, data, null);
+    }
+
+    /**
+     * @param startedTriggers optional, see {@link TriggerProcessExecutor.StartedTriggers}
+     */
+    public void process(String deliveryId, String eventName, UUID projectId, Map<String, Object> data,
+                        TriggerProcessExecutor.StartedTriggers startedTriggers) {
+
         Payload payload = Payload.from(eventName, data);
         if (payload == null) {
             log.warn("event ['{}', '{}'] -> can't parse payload", deliveryId, eventName);
-            return "ok";
+            return;
         }
 
         List<GithubTriggerProcessor.Result> results = new ArrayList<>();
-        processors.forEach(p -> p.process(eventName, payload, uriInfo, results));
+        processors.forEach(p -> p.process(eventName, projectId, payload, results));
 
         Supplier<UserEntry> initiatorSupplier = memo(new GithubEventInitiatorSupplier(userManager, ldapManager, payload));
 
@@ -163,12 +203,32 @@ public class GithubEventResource implements Resource {
                     cfg.put(Constants.Request.REPO_COMMIT_ID, commitId);
                 }
                 return cfg;
-            });
+            }, startedTriggers);
             startedProcesses += processes.size();
         }
         startedProcessesPerEvent.update(startedProcesses);
+    }
 
-        return "ok";
+    private void enqueue(String deliveryId, String eventName, UUID projectId, Map<String, Object> data) {
+        if (deliveryId == null) {
+            deliveryId = UUID.randomUUID().toString();
+        }
+
+        String coalesceKey = null;
+        if (eventQueueCfg.isCoalescePushEvents() && PUSH_EVENT.equals(eventName)) {
+            Payload payload = Payload.from(eventName, data);
+            if (payload != null && payload.getFullRepoName() != null && payload.getBranch() != null) {
+                coalesceKey = EVENT_SOURCE + "/" + projectId + "/" + payload.getFullRepoName() + "/" + payload.getBranch();
+            }
+        }
+
+        boolean added = eventQueueDao.insert(EVENT_SOURCE, eventName, deliveryId, projectId, GithubRealm.USER_ID, coalesceKey, data);
+        if (!added) {
+            log.info("enqueue ['{}', '{}'] -> duplicate delivery, skipping", deliveryId, eventName);
+            return;
+        }
+
+        log.info("enqueue ['{}', '{}'] -> done", deliveryId, eventName);
     }
 
     private class GithubEventInitiatorSupplier implements Supplier<UserEntry> {
@@ -0,0 +1,70 @@
+package com.walmartlabs.concord.server.events;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.common.AllowNulls;
+import org.immutables.value.Value;
+
+import javax.annotation.Nullable;
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+@Value.Immutable
+public interface QueuedEvent {
+
+    UUID eventId();
+
+    String source();
+
+    String eventName();
+
+    String deliveryId();
+
+    @Nullable
+    UUID projectId();
+
+    UUID userId();
+
+    @Nullable
+    String coalesceKey();
+
+    @AllowNulls
+    Map<String, Object> data();
+
+    OffsetDateTime createdAt();
+
+    /**
+     * Number of the current processing attempt, starting from 1.
+     */
+    int attempts();
+
+    /**
+     * IDs of the triggers which already started a process for the event
+     * during the previous attempts.
+     */
+    Set<UUID> startedTriggers();
+
+    static ImmutableQueuedEvent.Builder builder() {
+        return ImmutableQueuedEvent.builder();
+    }
+}
@@ -54,6 +54,17 @@ public class TriggerProcessExecutor {
         Map<String, Object> enrich(TriggerEntry t, Map<String, Object> cfg);
     }
 
+    /**
+     * Keeps track of the triggers which already started a process for an event,
+     * so the event can be processed again without starting the same processes twice.
+     */
+    public interface StartedTriggers {
+
+        boolean isStarted(TriggerEntry t);
+
+        void onStart(TriggerEntry t, PartialProcessKey processKey);
+    }
+
     private static final Logger log = LoggerFactory.getLogger(TriggerProcessExecutor.class);
 
     private final ExternalEventsConfiguration eventsCfg;
@@ -89,15 +100,28 @@ public class TriggerProcessExecutor {
                                            TriggerEventInitiatorResolver initiatorResolver,
                                            List<TriggerEntry> triggers) {
 
-        return execute(event, triggers, initiatorResolver, null);
+        return execute(event, triggers, initiatorResolver, null, null);
     }
 
-    @WithTimer
     public List<PartialProcessKey> execute(Event event,
                                            List<TriggerEntry> triggers,
                                            TriggerEventInitiatorResolver initiatorResolver,
                                            ProcessConfigurationEnricher cfgEnricher) {
 
+        return execute(event, triggers, initiatorResolver, cfgEnricher, null);
+    }
+
+    /**
+     * @param startedTriggers optional, triggers which already started a process
+     *                        for the event are skipped
+     */
+    @WithTimer
+    public List<PartialProcessKey> execute(Event event,
+                                           List<TriggerEntry> triggers,
+                                           TriggerEventInitiatorResolver initiatorResolver,
+                                           ProcessConfigurationEnricher cfgEnricher,
+                                           StartedTriggers startedTriggers) {
+
         if (isDisabled(event.name())) {
             log.warn("process ['{}'] event '{}' disabled", event.id(), event.name());
             return Collections.emptyList();
@@ -106,8 +130,9 @@ public class TriggerProcessExecutor {
         assertRoles(event.name());
 
         return triggers.stream()
+                .filter(t -> startedTriggers == null || !startedTriggers.isStarted(t))
                 .filter(t -> !isRepositoryDisabled(t))
-                .map(t -> submitProcess(event, t, initiatorResolver, cfgEnricher))
+                .map(t -> submitProcess(event, t, initiatorResolver, cfgEnricher, startedTriggers))
                 .collect(Collectors.toList()) // collect all "futures"
                 .stream()
                 .map(TriggerProcessExecutor::resolve)
@@ -115,7 +140,7 @@ public class TriggerProcessExecutor {
                 .collect(Collectors.toList());
     }
 
-    private void assertRoles(String eventName) {
+    void assertRoles(String eventName) {
         if (Roles.isAdmin()) {
             return;
         }
@@ -142,7 +167,8 @@ public class TriggerProcessExecutor {
     private Future<PartialProcessKey> submitProcess(Event event,
                                                     TriggerEntry t,
                                                     TriggerEventInitiatorResolver initiatorResolver,
-                                                    ProcessConfigurationEnricher cfgEnricher) {
+                                                    ProcessConfigurationEnricher cfgEnricher,
+                                                    StartedTriggers startedTriggers) {
 
         UserEntry initiator;
         try {
@@ -187,6 +213,11 @@ public class TriggerProcessExecutor {
 
                 PartialProcessKey pk = startProcess(event.id(), orgId, t, cfg, initiator);
                 log.info("process ['{}'] -> new process ('{}') triggered by {}", event.id(), pk, t);
+
+                if (startedTriggers != null) {
+                    recordStart(event, t, pk, startedTriggers);
+                }
+
                 return pk;
             } catch (Exception e) {
                 log.error("process ['{}', '{}', '{}'] -> error", event.id(), event.name(), t.getId(), e);
@@ -195,6 +226,16 @@ public class TriggerProcessExecutor {
         });
     }
 
+    private static void recordStart(Event event, TriggerEntry t, PartialProcessKey processKey, StartedTriggers startedTriggers) {
+        try {
+            startedTriggers.onStart(t, processKey);
+        } catch (Exception e) {
+            // the process is already started, don't report it as failed
+            log.warn("process ['{}', '{}', '{}'] -> error while recording the started process '{}': {}",
+                    event.id(), event.name(), t.getId(), processKey, e.getMessage());
+        }
+    }
+
     private PartialProcessKey startProcess(String eventId,
                                            UUID orgId,
                                            TriggerEntry t,
@@ -22,14 +22,18 @@ package com.walmartlabs.concord.server.events.github;
 
 import com.walmartlabs.concord.server.org.triggers.TriggerEntry;
 
-import javax.ws.rs.core.UriInfo;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 public interface GithubTriggerProcessor {
 
-    void process(String eventName, Payload payload, UriInfo uriInfo, List<Result> result);
+    /**
+     * @param projectId ID of the project the webhook was registered for, can be {@code null}
+     *                  for the organization-level webhooks.
+     */
+    void process(String eventName, UUID projectId, Payload payload, List<Result> result);
 
     class Result {
 
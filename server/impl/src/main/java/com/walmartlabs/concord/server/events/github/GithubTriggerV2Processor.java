@@ -20,6 +20,8 @@ package com.walmartlabs.concord.server.events.github;
  * =====
  */
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.walmartlabs.concord.repository.GitCliRepositoryProvider;
 import com.walmartlabs.concord.sdk.MapUtils;
 import com.walmartlabs.concord.server.events.DefaultEventFilter;
@@ -28,12 +30,10 @@ import com.walmartlabs.concord.server.org.project.RepositoryEntry;
 import com.walmartlabs.concord.server.org.triggers.TriggerEntry;
 import com.walmartlabs.concord.server.org.triggers.TriggersDao;
 import com.walmartlabs.concord.server.sdk.metrics.WithTimer;
-import com.walmartlabs.concord.server.security.github.GithubKey;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
-import javax.ws.rs.core.UriInfo;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -56,19 +56,29 @@ public class GithubTriggerV2Processor implements GithubTriggerProcessor {
 
     @Override
     @WithTimer
-    public void process(String eventName, Payload payload, UriInfo uriInfo, List<Result> result) {
-        GithubKey githubKey = GithubKey.getCurrent();
-        UUID projectId = githubKey.getProjectId();
-
+    public void process(String eventName, UUID projectId, Payload payload, List<Result> result) {
         List<TriggerEntry> triggers = listTriggers(projectId, payload.getOrg(), payload.getRepo());
+        if (triggers.isEmpty()) {
+            return;
+        }
+
+        boolean emptyPush = GithubUtils.isEmptyPush(eventName, payload);
+
+        // the event's data is the same for all triggers, only the enrichment depends on the trigger
+        Map<String, Object> baseEvent = buildEvent(eventName, payload);
+
+        List<TriggerEnricher> enrichers = eventEnrichers.stream()
+                .map(e -> e.prepare(payload))
+                .collect(Collectors.toList());
+
         for (TriggerEntry t : triggers) {
             // skip empty push events if the trigger's configuration says so
-            if (GithubUtils.ignoreEmptyPush(t) && GithubUtils.isEmptyPush(eventName, payload)) {
+            if (emptyPush && GithubUtils.ignoreEmptyPush(t)) {
                 continue;
             }
 
-            Map<String, Object> event = buildEvent(eventName, payload);
-            enrichEventConditions(payload, t, event);
+            Map<String, Object> event = new HashMap<>(baseEvent);
+            enrichers.forEach(e -> e.enrich(t, event));
 
             if (DefaultEventFilter.filter(event, t)) {
                 result.add(Result.from(event, t));
@@ -76,12 +86,6 @@ public class GithubTriggerV2Processor implements GithubTriggerProcessor {
         }
     }
 
-    private void enrichEventConditions(Payload payload, TriggerEntry trigger, Map<String, Object> result) {
-        for (EventEnricher e : eventEnrichers) {
-            e.enrich(payload, trigger, result);
-        }
-    }
-
     @WithTimer
     List<TriggerEntry> listTriggers(UUID projectId, String org, String repo) {
         Map<String, String> conditions = new HashMap<>();
@@ -143,7 +147,17 @@ public class GithubTriggerV2Processor implements GithubTriggerProcessor {
 
     interface EventEnricher {
 
-        void enrich(Payload payload, TriggerEntry trigger, Map<String, Object> result);
+        /**
+         * Called once per event. The returned {@link TriggerEnricher} is
+         * applied to each trigger's copy of the event, so any expensive
+         * lookups should be done (or memoized) here.
+         */
+        TriggerEnricher prepare(Payload payload);
+    }
+
+    interface TriggerEnricher {
+
+        void enrich(TriggerEntry trigger, Map<String, Object> result);
     }
 
     /**
@@ -161,15 +175,27 @@ public class GithubTriggerV2Processor implements GithubTriggerProcessor {
         }
 
         @Override
-        @WithTimer
-        public void enrich(Payload payload, TriggerEntry trigger, Map<String, Object> result) {
-            Object projectInfoConditions = trigger.getConditions().get(com.walmartlabs.concord.sdk.Constants.Trigger.REPOSITORY_INFO);
-            if (projectInfoConditions == null || payload.getFullRepoName() == null) {
-                return;
-            }
+        public TriggerEnricher prepare(Payload payload) {
+            // the repository info is the same for all triggers, fetch it only once and only if needed
+            Supplier<List<Map<String, Object>>> repositoryInfos = Suppliers.memoize(() -> findRepositories(payload.getFullRepoName()));
+
+            return (trigger, result) -> {
+                Object projectInfoConditions = trigger.getConditions().get(com.walmartlabs.concord.sdk.Constants.Trigger.REPOSITORY_INFO);
+                if (projectInfoConditions == null || payload.getFullRepoName() == null) {
+                    return;
+                }
+
+                List<Map<String, Object>> l = repositoryInfos.get();
+                if (!l.isEmpty()) {
+                    result.put(com.walmartlabs.concord.sdk.Constants.Trigger.REPOSITORY_INFO, l);
+                }
+            };
+        }
 
+        @WithTimer
+        List<Map<String, Object>> findRepositories(String fullRepoName) {
             List<Map<String, Object>> repositoryInfos = new ArrayList<>();
-            List<RepositoryEntry> repositories = repositoryDao.find(payload.getFullRepoName());
+            List<RepositoryEntry> repositories = repositoryDao.find(fullRepoName);
             for (RepositoryEntry r : repositories) {
                 Map<String, Object> repositoryInfo = new HashMap<>();
                 repositoryInfo.put(REPO_ID_KEY, r.getId());
@@ -179,10 +205,7 @@ public class GithubTriggerV2Processor implements GithubTriggerProcessor {
 
                 repositoryInfos.add(repositoryInfo);
             }
-
-            if (!repositoryInfos.isEmpty()) {
-                result.put(com.walmartlabs.concord.sdk.Constants.Trigger.REPOSITORY_INFO, repositoryInfos);
-            }
+            return repositoryInfos;
         }
     }
 }
@@ -24,6 +24,7 @@ import com.walmartlabs.concord.db.AbstractDao;
 import com.walmartlabs.concord.db.MainDB;
 import com.walmartlabs.concord.server.ConcordObjectMapper;
 import com.walmartlabs.concord.server.jooq.tables.JsonStoreData;
+import com.walmartlabs.concord.server.org.jsonstore.JsonStoreQueryResultCache;
 import com.walmartlabs.concord.server.jooq.tables.JsonStores;
 import org.jooq.*;
 
@@ -43,13 +44,16 @@ import static org.jooq.impl.DSL.*;
 public class InventoryDataDao extends AbstractDao {
 
     private final ConcordObjectMapper objectMapper;
+    private final JsonStoreQueryResultCache queryResultCache;
 
     // TODO shouldn't it be @InventoryDB?
     @Inject
     public InventoryDataDao(@MainDB Configuration cfg,
-                            ConcordObjectMapper objectMapper) {
+                            ConcordObjectMapper objectMapper,
+                            JsonStoreQueryResultCache queryResultCache) {
         super(cfg);
         this.objectMapper = objectMapper;
+        this.queryResultCache = queryResultCache;
     }
 
     public Object getSingleItem(UUID id, String itemPath) {
@@ -68,10 +72,12 @@ public class InventoryDataDao extends AbstractDao {
 
     public void merge(UUID inventoryId, String itemPath, Object data) {
         tx(tx -> merge(tx, inventoryId, itemPath, data));
+        queryResultCache.invalidate(inventoryId);
     }
 
     public void delete(UUID inventoryId, String itemPath) {
         tx(tx -> delete(tx, inventoryId, itemPath));
+        queryResultCache.invalidate(inventoryId);
     }
 
     public List<Map<String, Object>> list(UUID inventoryId) {
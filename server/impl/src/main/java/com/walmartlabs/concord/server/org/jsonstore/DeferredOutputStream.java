@@ -0,0 +1,118 @@
+package com.walmartlabs.concord.server.org.jsonstore;
+
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Holds the written data in memory until {@link #commit()} is called.
+ * Used to keep the HTTP response uncommitted until the first page of
+ * results is ready, so errors in the first page are returned with a proper
+ * status code instead of a truncated response.
+ * <p>
+ * Closing the stream before {@link #commit()} discards the data and leaves
+ * the target stream open.
+ */
+class DeferredOutputStream extends OutputStream {
+
+    private final OutputStream target;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+    private boolean committed;
+    private boolean closed;
+
+    DeferredOutputStream(OutputStream target) {
+        this.target = target;
+    }
+
+    /**
+     * Writes out the buffered data. All subsequent writes go directly
+     * to the target stream.
+     */
+    void commit() throws IOException {
+        assertOpen();
+
+        if (committed) {
+            return;
+        }
+
+        buffer.writeTo(target);
+        buffer.reset();
+        committed = true;
+    }
+
+    boolean isCommitted() {
+        return committed;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        assertOpen();
+
+        if (committed) {
+            target.write(b);
+        } else {
+            buffer.write(b);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        assertOpen();
+
+        if (committed) {
+            target.write(b, off, len);
+        } else {
+            buffer.write(b, off, len);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (committed && !closed) {
+            target.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+
+        if (committed) {
+            target.close();
+        } else {
+            buffer.reset();
+        }
+    }
+
+    private void assertOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
@@ -40,13 +40,16 @@ import static org.jooq.impl.DSL.sum;
 public class JsonStoreDataDao extends AbstractDao {
 
     private final ConcordObjectMapper objectMapper;
+    private final JsonStoreQueryResultCache queryResultCache;
 
     @Inject
     public JsonStoreDataDao(@MainDB Configuration cfg,
-                            ConcordObjectMapper objectMapper) {
+                            ConcordObjectMapper objectMapper,
+                            JsonStoreQueryResultCache queryResultCache) {
 
         super(cfg);
         this.objectMapper = objectMapper;
+        this.queryResultCache = queryResultCache;
     }
 
     public Long getItemSize(UUID storeId, String itemPath) {
@@ -103,6 +106,8 @@ public class JsonStoreDataDao extends AbstractDao {
                 .set(JSON_STORE_DATA.ITEM_DATA, objectMapper.jsonStringToJSONB(data))
                 .set(JSON_STORE_DATA.ITEM_DATA_SIZE, (long) data.length())
                 .execute());
+
+        queryResultCache.invalidate(storeId);
     }
 
     public Long getSize(UUID storeId) {
@@ -113,10 +118,14 @@ public class JsonStoreDataDao extends AbstractDao {
     }
 
     public boolean delete(UUID storeId, String itemPath) {
-        return txResult(tx -> tx.deleteFrom(JSON_STORE_DATA)
+        boolean deleted = txResult(tx -> tx.deleteFrom(JSON_STORE_DATA)
                 .where(JSON_STORE_DATA.JSON_STORE_ID.eq(storeId)
                         .and(JSON_STORE_DATA.ITEM_PATH.eq(itemPath)))
                 .execute() > 0);
+
+        queryResultCache.invalidate(storeId);
+
+        return deleted;
     }
 
     private JsonStoreDataEntry toDataEntry(Record2<String, JSONB> r) {
@@ -20,10 +20,16 @@ package com.walmartlabs.concord.server.org.jsonstore;
  * =====
  */
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.walmartlabs.concord.db.AbstractDao;
 import com.walmartlabs.concord.db.JsonStorageDB;
 import com.walmartlabs.concord.server.ConcordObjectMapper;
+import com.walmartlabs.concord.server.cfg.JsonStoreQueryConfiguration;
 import net.sf.jsqlparser.JSQLParserException;
 import net.sf.jsqlparser.expression.*;
 import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
@@ -37,14 +43,18 @@ import net.sf.jsqlparser.statement.StatementVisitorAdapter;
 import net.sf.jsqlparser.statement.create.table.ColDataType;
 import net.sf.jsqlparser.statement.select.*;
 import org.jooq.Configuration;
+import org.jooq.Cursor;
 import org.jooq.QueryPart;
 import org.jooq.Record;
 import org.sonatype.siesta.ValidationErrorsException;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
 
 import static com.walmartlabs.concord.server.jooq.Tables.INVENTORY_DATA;
@@ -54,17 +64,37 @@ import static org.jooq.impl.DSL.val;
 @Named
 public class JsonStoreQueryExecDao extends AbstractDao {
 
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            // the array must stay unclosed if the stream fails, so the client gets invalid JSON instead of partial results
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+
     private final ConcordObjectMapper objectMapper;
     private final JsonStoreQueryDao storeQueryDao;
+    private final JsonStoreQueryResultCache resultCache;
+    private final int fetchSize;
+
+    /**
+     * Parsed and rewritten queries. The SQL text of a query stays the same
+     * between calls which allows the JDBC driver to reuse server-side
+     * prepared statements.
+     */
+    private final Cache<SqlKey, String> sqlCache;
 
     @Inject
     public JsonStoreQueryExecDao(@JsonStorageDB Configuration cfg,
                                  ConcordObjectMapper objectMapper,
-                                 JsonStoreQueryDao storeQueryDao) {
+                                 JsonStoreQueryDao storeQueryDao,
+                                 JsonStoreQueryResultCache resultCache,
+                                 JsonStoreQueryConfiguration queryCfg) {
 
         super(cfg);
         this.objectMapper = objectMapper;
         this.storeQueryDao = storeQueryDao;
+        this.resultCache = resultCache;
+        this.fetchSize = queryCfg.getFetchSize();
+        this.sqlCache = CacheBuilder.newBuilder()
+                .maximumSize(queryCfg.getSqlCacheSize())
+                .build();
     }
 
     public List<Object> exec(UUID storeId, String queryName, Map<String, Object> params) {
@@ -77,22 +107,93 @@ public class JsonStoreQueryExecDao extends AbstractDao {
     }
 
     public List<Object> execSql(UUID storeId, String query, Map<String, Object> params, Integer maxLimit) {
-        String sql = createQuery(query, maxLimit);
+        String sql = getQuery(query, maxLimit);
+        String paramsJson = params != null ? objectMapper.toString(params) : null;
+
+        return resultCache.get(storeId, sql, paramsJson, () -> dsl().resultQuery(sql, args(storeId, paramsJson))
+                .fetch(this::toExecResult));
+    }
+
+    /**
+     * Executes the query and writes the results into the specified stream
+     * as a JSON array. The rows are fetched from the DB and written out in
+     * batches of {@code fetchSize} rows.
+     * <p>
+     * Nothing is written until the first batch is fetched, so most errors
+     * (invalid queries, bad parameters, etc) are thrown before any output.
+     * If the query fails later, the output is left truncated, i.e. it is not
+     * a valid JSON array.
+     */
+    public void stream(JsonStoreQueryEntry q, Map<String, Object> params, OutputStream out) {
+        String sql = getQuery(q.text(), null);
+        String paramsJson = params != null ? objectMapper.toString(params) : null;
+
+        // PostgreSQL uses cursors only within a transaction
+        tx(tx -> {
+            DeferredOutputStream deferred = new DeferredOutputStream(out);
+            try (Cursor<Record> cursor = tx.resultQuery(sql, args(q.storeId(), paramsJson))
+                    .fetchSize(fetchSize)
+                    .fetchLazy();
+                 JsonGenerator gen = JSON_FACTORY.createGenerator(deferred)) {
+
+                gen.writeStartArray();
+
+                int rows = 0;
+                for (Record r : cursor) {
+                    writeExecResult(r, gen);
+
+                    if (++rows == fetchSize) {
+                        gen.flush();
+                        deferred.commit();
+                    }
+                }
+
+                gen.writeEndArray();
+                gen.flush();
+                deferred.commit();
+            }
+        });
+    }
+
+    private String getQuery(String query, Integer maxLimit) {
+        SqlKey key = new SqlKey(query, maxLimit);
 
+        String sql = sqlCache.getIfPresent(key);
+        if (sql == null) {
+            sql = createQuery(query, maxLimit);
+            sqlCache.put(key, sql);
+        }
+
+        return sql;
+    }
+
+    private static QueryPart[] args(UUID storeId, String paramsJson) {
         // TODO we should probably inspect the query to determine whether we need to bind the params or not
 
-        QueryPart[] args;
-        if (params == null) {
-            args = new QueryPart[]{val(storeId)};
+        if (paramsJson == null) {
+            return new QueryPart[]{val(storeId)};
         } else {
-            args = new QueryPart[]{val(objectMapper.toString(params)), val(storeId)};
+            return new QueryPart[]{val(paramsJson), val(storeId)};
         }
+    }
 
-        return dsl().resultQuery(sql, args)
-                .fetch(this::toExecResult);
+    private static void writeExecResult(Record record, JsonGenerator gen) throws IOException {
+        Object value = getExecResult(record);
+        if (value == null) {
+            gen.writeNull();
+            return;
+        }
+
+        // copy the value token by token instead of deserializing it
+        try (JsonParser parser = JSON_FACTORY.createParser(value.toString())) {
+            parser.nextToken();
+            gen.copyCurrentStructure(parser);
+        } catch (JsonParseException e) {
+            throw new RuntimeException("Invalid JSON value: " + value + ". Expected a valid JSON object.");
+        }
     }
 
-    private Object toExecResult(Record record) {
+    private static Object getExecResult(Record record) {
         Object value = record.get(0);
         if (value == null) {
             return null;
@@ -103,6 +204,15 @@ public class JsonStoreQueryExecDao extends AbstractDao {
                     "Change the query to return a single column or to build a JSON object.");
         }
 
+        return value;
+    }
+
+    private Object toExecResult(Record record) {
+        Object value = getExecResult(record);
+        if (value == null) {
+            return null;
+        }
+
         try {
             return objectMapper.fromString(value.toString(), Object.class);
         } catch (RuntimeException e) {
@@ -201,4 +311,32 @@ public class JsonStoreQueryExecDao extends AbstractDao {
             throw new IllegalArgumentException("Query parse error: " + t.getMessage(), t);
         }
     }
+
+    private static final class SqlKey {
+
+        private final String query;
+        private final Integer maxLimit;
+
+        private SqlKey(String query, Integer maxLimit) {
+            this.query = query;
+            this.maxLimit = maxLimit;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            SqlKey sqlKey = (SqlKey) o;
+            return query.equals(sqlKey.query) && Objects.equals(maxLimit, sqlKey.maxLimit);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(query, maxLimit);
+        }
+    }
 }
@@ -37,6 +37,7 @@ import org.sonatype.siesta.ValidationErrorsException;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
+import java.io.OutputStream;
 import java.util.*;
 
 @Named
@@ -135,6 +136,26 @@ public class JsonStoreQueryManager {
         return execDao.exec(store.id(), queryName, params);
     }
 
+    /**
+     * Returns an existing query, checking the caller's access to the store.
+     * Use with {@link #stream(JsonStoreQueryEntry, Map, OutputStream)}.
+     */
+    public JsonStoreQueryEntry assertQuery(String orgName, String storeName, String queryName) {
+        OrganizationEntry org = orgManager.assertAccess(orgName, true);
+        JsonStoreEntry store = jsonStoreAccessManager.assertAccess(org.getId(), null, storeName, ResourceAccessLevel.READER, true);
+
+        JsonStoreQueryEntry q = queryDao.get(store.id(), queryName);
+        if (q == null) {
+            throw new ValidationErrorsException("Query not found: " + queryName);
+        }
+
+        return q;
+    }
+
+    public void stream(JsonStoreQueryEntry q, Map<String, Object> params, OutputStream out) {
+        execDao.stream(q, params, out);
+    }
+
     public List<Object> exec(String orgName, String storeName, String text, int maxLimit) {
         OrganizationEntry org = orgManager.assertAccess(orgName, true);
         JsonStoreEntry store = jsonStoreAccessManager.assertAccess(org.getId(), null, storeName, ResourceAccessLevel.READER, true);
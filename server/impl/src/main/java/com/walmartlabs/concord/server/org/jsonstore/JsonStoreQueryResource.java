@@ -38,6 +38,8 @@ import javax.inject.Singleton;
 import javax.validation.Valid;
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import java.util.List;
 import java.util.Map;
 
@@ -163,6 +165,47 @@ public class JsonStoreQueryResource implements Resource {
         }
     }
 
+    /**
+     * Executes an existing JSON store query. Unlike {@link #exec(String, String, String, Map)},
+     * the results are written into the response as they are fetched from the DB.
+     * <p>
+     * The response is sent after the first batch of rows is fetched, errors up to
+     * that point are returned as usual. If the query fails later, the response
+     * is already sent with the 200 status and its body is truncated, i.e. it is
+     * not a valid JSON array. Clients must treat such responses as failed.
+     *
+     * @param orgName   organization's name
+     * @param storeName store's name
+     * @param queryName query's name
+     * @param params    query params
+     * @return query result
+     */
+    @POST
+    @ApiOperation(value = "Execute an existing JSON store query and stream the results", response = Object.class, responseContainer = "list")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/{orgName}/jsonstore/{storeName}/query/{queryName}/stream")
+    @WithTimer
+    public Response stream(@ApiParam @PathParam("orgName") @ConcordKey String orgName,
+                           @ApiParam @PathParam("storeName") @ConcordKey String storeName,
+                           @ApiParam @PathParam("queryName") @ConcordKey String queryName,
+                           @ApiParam @Valid Map<String, Object> params) {
+
+        JsonStoreQueryEntry q = storeQueryManager.assertQuery(orgName, storeName, queryName);
+
+        StreamingOutput out = output -> {
+            try {
+                storeQueryManager.stream(q, params, output);
+            } catch (ValidationErrorsException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new ConcordApplicationException("Error while executing a query: " + e.getMessage(), e);
+            }
+        };
+
+        return Response.ok(out, MediaType.APPLICATION_JSON).build();
+    }
+
     /**
      * Executes a JSON store query.
      *
@@ -0,0 +1,140 @@
+package com.walmartlabs.concord.server.org.jsonstore;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.walmartlabs.concord.server.cfg.JsonStoreQueryConfiguration;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Caches JSON store query results. Entries of a store are invalidated
+ * when the store's data is modified on this server. Modifications made by
+ * other servers become visible after the configured TTL.
+ */
+@Named
+@Singleton
+public class JsonStoreQueryResultCache {
+
+    private static final int GENERATION_STRIPES = 256;
+
+    private final boolean enabled;
+    private final int maxRows;
+    private final Cache<Key, List<Object>> cache;
+
+    /**
+     * Invalidation counters, one per stripe of stores. Results loaded while
+     * a store of the same stripe was modified are not cached. The number of
+     * counters is fixed, it doesn't grow with the number of stores.
+     */
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    @Inject
+    public JsonStoreQueryResultCache(JsonStoreQueryConfiguration cfg, MetricRegistry metricRegistry) {
+        this.enabled = cfg.isResultCacheEnabled();
+        this.maxRows = cfg.getResultCacheMaxRows();
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(cfg.getResultCacheMaxSize())
+                .expireAfterWrite(cfg.getResultCacheTtl().toMillis(), TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+
+        metricRegistry.gauge("jsonstore-query-cache-hit-rate", () -> () -> cache.stats().hitRate());
+        metricRegistry.gauge("jsonstore-query-cache-size", () -> cache::size);
+    }
+
+    public List<Object> get(UUID storeId, String sql, String params, Supplier<List<Object>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+
+        Key key = new Key(storeId, sql, params);
+
+        List<Object> result = cache.getIfPresent(key);
+        if (result != null) {
+            return result;
+        }
+
+        int stripe = stripe(storeId);
+        long gen = generations.get(stripe);
+
+        result = Collections.unmodifiableList(loader.get());
+        if (result.size() <= maxRows && gen == generations.get(stripe)) {
+            cache.put(key, result);
+        }
+
+        return result;
+    }
+
+    public void invalidate(UUID storeId) {
+        if (!enabled) {
+            return;
+        }
+
+        generations.incrementAndGet(stripe(storeId));
+        cache.asMap().keySet().removeIf(k -> k.storeId.equals(storeId));
+    }
+
+    private static int stripe(UUID storeId) {
+        return (storeId.hashCode() & Integer.MAX_VALUE) % GENERATION_STRIPES;
+    }
+
+    private static final class Key {
+
+        private final UUID storeId;
+        private final String sql;
+        private final String params;
+
+        private Key(UUID storeId, String sql, String params) {
+            this.storeId = storeId;
+            this.sql = sql;
+            this.params = params;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return storeId.equals(key.storeId) && sql.equals(key.sql) && Objects.equals(params, key.params);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(storeId, sql, params);
+        }
+    }
+}
@@ -22,27 +22,29 @@ package com.walmartlabs.concord.server.org.project;
 
 import com.walmartlabs.concord.db.AbstractDao;
 import com.walmartlabs.concord.db.MainDB;
-import com.walmartlabs.concord.server.Locks;
 import com.walmartlabs.concord.server.jooq.tables.ProjectKvStore;
 import org.jooq.Configuration;
+import org.jooq.DSLContext;
+import org.jooq.Query;
 import org.jooq.Record1;
 import org.jooq.exception.DataAccessException;
 
 import javax.inject.Inject;
 import javax.inject.Named;
-import java.util.UUID;
+import java.util.*;
 
 import static com.walmartlabs.concord.server.jooq.tables.ProjectKvStore.PROJECT_KV_STORE;
 
+/**
+ * Project KV store. All writes are single "upsert" statements, concurrent
+ * updates of the same key are serialized by the DB's row locks.
+ */
 @Named
 public class KvDao extends AbstractDao {
 
-    private final Locks locks;
-
     @Inject
-    public KvDao(@MainDB Configuration cfg, Locks locks) {
+    public KvDao(@MainDB Configuration cfg) {
         super(cfg);
-        this.locks = locks;
     }
 
     public void remove(UUID projectId, String key) {
@@ -53,38 +55,51 @@ public class KvDao extends AbstractDao {
                 .execute());
     }
 
-    public synchronized void putString(UUID projectId, String key, String value) {
-        ProjectKvStore kv = PROJECT_KV_STORE.as("kv");
+    public void putString(UUID projectId, String key, String value) {
         tx(tx -> {
-            int rows = tx.insertInto(kv)
-                    .columns(kv.PROJECT_ID, kv.VALUE_KEY, kv.VALUE_STRING)
-                    .values(projectId, key, value)
-                    .onConflict(kv.PROJECT_ID, kv.VALUE_KEY)
-                    .doUpdate().set(kv.VALUE_STRING, value)
-                    .execute();
-
+            int rows = putString(tx, projectId, key, value).execute();
             if (rows != 1) {
                 throw new DataAccessException("Invalid number of rows: " + rows);
             }
         });
     }
 
-    public synchronized void putLong(UUID projectId, String key, long value) {
-        ProjectKvStore kv = PROJECT_KV_STORE.as("kv");
+    public void putLong(UUID projectId, String key, long value) {
         tx(tx -> {
-            int rows = tx.insertInto(kv)
-                    .columns(kv.PROJECT_ID, kv.VALUE_KEY, kv.VALUE_LONG)
-                    .values(projectId, key, value)
-                    .onConflict(kv.PROJECT_ID, kv.VALUE_KEY)
-                    .doUpdate().set(kv.VALUE_LONG, value)
-                    .execute();
-
+            int rows = putLong(tx, projectId, key, value).execute();
             if (rows != 1) {
                 throw new DataAccessException("Invalid number of rows: " + rows);
             }
         });
     }
 
+    /**
+     * Stores multiple values in a single transaction. The statements are
+     * sent to the DB as a single batch.
+     */
+    public void put(UUID projectId, Collection<KvEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        // update the rows in the same order to avoid deadlocks between concurrent batches
+        List<KvEntry> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparing(KvEntry::key));
+
+        tx(tx -> {
+            List<Query> queries = new ArrayList<>();
+            for (KvEntry e : sorted) {
+                if (e.stringValue() != null) {
+                    queries.add(putString(tx, projectId, e.key(), e.stringValue()));
+                }
+                if (e.longValue() != null) {
+                    queries.add(putLong(tx, projectId, e.key(), e.longValue()));
+                }
+            }
+            tx.batch(queries).execute();
+        });
+    }
+
     public String getString(UUID projectId, String key) {
         ProjectKvStore kv = PROJECT_KV_STORE.as("kv");
         return dsl().select(kv.VALUE_STRING)
@@ -110,26 +125,59 @@ public class KvDao extends AbstractDao {
         return r.value1();
     }
 
-    public synchronized long inc(UUID projectId, String key) {
+    /**
+     * Fetches multiple values in a single query. Missing keys are omitted
+     * from the result.
+     */
+    public List<KvEntry> get(UUID projectId, Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return Collections.emptyList();
+        }
+
         ProjectKvStore kv = PROJECT_KV_STORE.as("kv");
-        return txResult(tx -> {
-            // grab a lock, it will be released when the transaction ends
-            locks.lock(tx, projectId + "/" + key);
-
-            // "upsert" the record
-            tx.insertInto(kv)
-                    .columns(kv.PROJECT_ID, kv.VALUE_KEY, kv.VALUE_LONG)
-                    .values(projectId, key, 1L)
-                    .onConflict(kv.PROJECT_ID, kv.VALUE_KEY)
-                    .doUpdate().set(kv.VALUE_LONG, kv.VALUE_LONG.plus(1))
-                    .execute();
-
-            // get an updated value
-            return tx.select(kv.VALUE_LONG)
-                    .from(kv)
-                    .where(kv.PROJECT_ID.eq(projectId)
-                            .and(kv.VALUE_KEY.eq(key)))
-                    .fetchOne(kv.VALUE_LONG);
-        });
+        return dsl().select(kv.VALUE_KEY, kv.VALUE_STRING, kv.VALUE_LONG)
+                .from(kv)
+                .where(kv.PROJECT_ID.eq(projectId)
+                        .and(kv.VALUE_KEY.in(keys)))
+                .orderBy(kv.VALUE_KEY)
+                .fetch(r -> KvEntry.builder()
+                        .key(r.value1())
+                        .stringValue(r.value2())
+                        .longValue(r.value3())
+                        .build());
+    }
+
+    /**
+     * Atomically increments the value and returns the result. Creates
+     * the key with value {@code 1} if it doesn't exist.
+     */
+    public long inc(UUID projectId, String key) {
+        ProjectKvStore kv = PROJECT_KV_STORE.as("kv");
+        return txResult(tx -> tx.insertInto(kv)
+                .columns(kv.PROJECT_ID, kv.VALUE_KEY, kv.VALUE_LONG)
+                .values(projectId, key, 1L)
+                .onConflict(kv.PROJECT_ID, kv.VALUE_KEY)
+                .doUpdate().set(kv.VALUE_LONG, kv.VALUE_LONG.plus(1))
+                .returning(kv.VALUE_LONG)
+                .fetchOne()
+                .getValueLong());
+    }
+
+    private static Query putString(DSLContext tx, UUID projectId, String key, String value) {
+        ProjectKvStore kv = PROJECT_KV_STORE.as("kv");
+        return tx.insertInto(kv)
+                .columns(kv.PROJECT_ID, kv.VALUE_KEY, kv.VALUE_STRING)
+                .values(projectId, key, value)
+                .onConflict(kv.PROJECT_ID, kv.VALUE_KEY)
+                .doUpdate().set(kv.VALUE_STRING, value);
+    }
+
+    private static Query putLong(DSLContext tx, UUID projectId, String key, long value) {
+        ProjectKvStore kv = PROJECT_KV_STORE.as("kv");
+        return tx.insertInto(kv)
+                .columns(kv.PROJECT_ID, kv.VALUE_KEY, kv.VALUE_LONG)
+                .values(projectId, key, value)
+                .onConflict(kv.PROJECT_ID, kv.VALUE_KEY)
+                .doUpdate().set(kv.VALUE_LONG, value);
     }
 }
@@ -0,0 +1,177 @@
+package com.walmartlabs.concord.server.org.secret;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import com.walmartlabs.concord.server.cfg.SecretStoreConfiguration;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Short-lived cache of decrypted secret data. Entries are scoped to
+ * a process (session key) and to the password used to decrypt the secret.
+ * Cached values are zeroed on eviction. Entries of a secret are invalidated
+ * when the secret is updated or removed on this server. Changes made on other
+ * servers become visible after the configured TTL ({@code secretStore.cacheTtl}).
+ */
+@Named
+@Singleton
+public class SecretCache {
+
+    private static final int GENERATION_STRIPES = 256;
+
+    private final boolean enabled;
+    private final Cache<Key, byte[]> cache;
+
+    /**
+     * Invalidation counters, one per stripe of secrets. Values decrypted while
+     * a secret of the same stripe was modified are not cached. The number of
+     * counters doesn't grow with the number of secrets.
+     */
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    @Inject
+    public SecretCache(SecretStoreConfiguration cfg, MetricRegistry metricRegistry) {
+        this.enabled = cfg.isCacheEnabled();
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(cfg.getCacheMaxSize())
+                .expireAfterWrite(cfg.getCacheTtl().toMillis(), TimeUnit.MILLISECONDS)
+                .removalListener(SecretCache::onRemoval)
+                .recordStats()
+                .build();
+
+        metricRegistry.gauge("secret-cache-hit-rate", () -> () -> cache.stats().hitRate());
+        metricRegistry.gauge("secret-cache-size", () -> cache::size);
+    }
+
+    /**
+     * Returns a copy of the decrypted secret data. The data is cached only if
+     * {@code scopeId} is not {@code null}.
+     *
+     * @param scopeId  ID of the process on behalf of which the secret is requested
+     * @param secretId ID of the secret
+     * @param password the password used to decrypt the secret, can be {@code null}
+     * @param loader   decrypts the secret's data
+     */
+    public byte[] get(UUID scopeId, UUID secretId, String password, Supplier<byte[]> loader) {
+        if (!enabled || scopeId == null) {
+            return loader.get();
+        }
+
+        Key key = new Key(scopeId, secretId, hash(password));
+
+        byte[] cached = cache.getIfPresent(key);
+        if (cached != null) {
+            byte[] copy = cached.clone();
+            // the value is zeroed only after it was removed from the cache
+            if (cache.asMap().get(key) == cached) {
+                return copy;
+            }
+        }
+
+        int stripe = stripe(secretId);
+        long gen = generations.get(stripe);
+
+        byte[] result = loader.get();
+        if (gen == generations.get(stripe)) {
+            cache.put(key, result.clone());
+        }
+
+        return result;
+    }
+
+    public void invalidate(UUID secretId) {
+        if (!enabled) {
+            return;
+        }
+
+        generations.incrementAndGet(stripe(secretId));
+        cache.asMap().keySet().removeIf(k -> k.secretId.equals(secretId));
+    }
+
+    private static int stripe(UUID secretId) {
+        return (secretId.hashCode() & Integer.MAX_VALUE) % GENERATION_STRIPES;
+    }
+
+    private static void onRemoval(RemovalNotification<Key, byte[]> n) {
+        byte[] value = n.getValue();
+        if (value != null) {
+            Arrays.fill(value, (byte) 0);
+        }
+    }
+
+    private static byte[] hash(String password) {
+        if (password == null) {
+            return new byte[0];
+        }
+
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return md.digest(password.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static final class Key {
+
+        private final UUID scopeId;
+        private final UUID secretId;
+        private final byte[] passwordHash;
+
+        private Key(UUID scopeId, UUID secretId, byte[] passwordHash) {
+            this.scopeId = scopeId;
+            this.secretId = secretId;
+            this.passwordHash = passwordHash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return scopeId.equals(key.scopeId) && secretId.equals(key.secretId) && Arrays.equals(passwordHash, key.passwordHash);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(scopeId, secretId, Arrays.hashCode(passwordHash));
+        }
+    }
+}
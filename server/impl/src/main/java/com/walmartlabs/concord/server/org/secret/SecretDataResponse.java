@@ -0,0 +1,51 @@
+package com.walmartlabs.concord.server.org.secret;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import io.swagger.annotations.ApiModelProperty;
+import org.immutables.value.Value;
+
+import java.io.Serializable;
+
+@Value.Immutable
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+@JsonSerialize(as = ImmutableSecretDataResponse.class)
+@JsonDeserialize(as = ImmutableSecretDataResponse.class)
+public interface SecretDataResponse extends Serializable {
+
+    String name();
+
+    SecretType type();
+
+    @ApiModelProperty(dataType = "string")
+    byte[] data();
+
+    static SecretDataResponse of(String name, SecretType type, byte[] data) {
+        return ImmutableSecretDataResponse.builder()
+                .name(name)
+                .type(type)
+                .data(data)
+                .build();
+    }
+}
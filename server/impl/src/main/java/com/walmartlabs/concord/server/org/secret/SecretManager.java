@@ -88,6 +88,7 @@ public class SecretManager {
     private final ProjectAccessManager projectAccessManager;
     private final RepositoryDao repositoryDao;
     private final UserManager userManager;
+    private final SecretCache secretCache;
 
     @Inject
     public SecretManager(PolicyManager policyManager,
@@ -100,7 +101,8 @@ public class SecretManager {
                          UserDao userDao,
                          ProjectAccessManager projectAccessManager,
                          RepositoryDao repositoryDao,
-                         UserManager userManager) {
+                         UserManager userManager,
+                         SecretCache secretCache) {
 
         this.policyManager = policyManager;
         this.processQueueManager = processQueueManager;
@@ -113,6 +115,7 @@ public class SecretManager {
         this.projectAccessManager = projectAccessManager;
         this.repositoryDao = repositoryDao;
         this.userManager = userManager;
+        this.secretCache = secretCache;
     }
 
     @WithTimer
@@ -408,6 +411,8 @@ public class SecretManager {
             secretDao.update(tx, e.getId(), req.name(), updatedOwnerId, newEncryptedData, req.visibility(), finalProjectId, orgIdUpdate);
         });
 
+        secretCache.invalidate(e.getId());
+
         Map<String, Object> changes = DiffUtils.compare(e, secretDao.get(e.getId()));
         changes.put("updated", updated);
 
@@ -430,6 +435,8 @@ public class SecretManager {
         // now delete secret information from secret table
         secretDao.delete(tx, e.getId());
 
+        secretCache.invalidate(e.getId());
+
         auditLog.add(AuditObject.SECRET, AuditAction.DELETE)
                 .field("orgId", e.getOrgId())
                 .field("secretId", e.getId())
@@ -485,7 +492,8 @@ public class SecretManager {
         SecretEncryptedByType providedEncryptedByType = getEncryptedBy(password);
         assertEncryptedByType(name, providedEncryptedByType, e.getEncryptedBy());
 
-        byte[] ab = decryptData(e.getId(), e.getStoreType(), password);
+        byte[] ab = secretCache.get(getCurrentProcessId(), e.getId(), password,
+                () -> decryptData(e.getId(), e.getStoreType(), password));
 
         auditLog.add(AuditObject.SECRET, AuditAction.ACCESS)
                 .field("orgId", e.getOrgId())
@@ -634,6 +642,14 @@ public class SecretManager {
         return pwd.getBytes(StandardCharsets.UTF_8);
     }
 
+    private static UUID getCurrentProcessId() {
+        SessionKeyPrincipal session = SessionKeyPrincipal.getCurrent();
+        if (session == null) {
+            return null;
+        }
+        return session.getProcessKey().getInstanceId();
+    }
+
     private void assertProjectScope(AccessScope scope, SecretEntry e) {
         UUID projectId = e.getProjectId();
         if (projectId == null) {
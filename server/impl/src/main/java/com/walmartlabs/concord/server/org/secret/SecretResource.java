@@ -53,6 +53,7 @@ import javax.ws.rs.core.StreamingOutput;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
@@ -65,6 +66,8 @@ public class SecretResource implements Resource {
 
     private static final Logger log = LoggerFactory.getLogger(SecretResource.class);
 
+    private static final int MAX_BULK_DATA_SIZE = 100;
+
     private final OrganizationManager orgManager;
     private final OrganizationDao orgDao;
     private final SecretManager secretManager;
@@ -199,6 +202,43 @@ public class SecretResource implements Resource {
         }
     }
 
+    @POST
+    @ApiOperation(value = "Get the data of multiple existing secrets", responseContainer = "list", response = SecretDataResponse.class)
+    @Path("/{orgName}/secret/data/bulk")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Validate
+    @WithTimer
+    public List<SecretDataResponse> getDataBulk(@ApiParam @PathParam("orgName") @ConcordKey String orgName,
+                                                @ApiParam(required = true) @Valid List<SecretDataRequest> entries) {
+
+        if (entries == null || entries.isEmpty()) {
+            throw new ValidationErrorsException("Secret names are required");
+        }
+
+        if (entries.size() > MAX_BULK_DATA_SIZE) {
+            throw new ValidationErrorsException("Too many secrets, max " + MAX_BULK_DATA_SIZE + " allowed");
+        }
+
+        OrganizationEntry org = orgManager.assertAccess(orgName, false);
+
+        List<SecretDataResponse> result = new ArrayList<>(entries.size());
+        for (SecretDataRequest r : entries) {
+            String secretName = r.name();
+            try {
+                SecretDao.SecretDataEntry e = secretManager.getRaw(SecretManager.AccessScope.apiRequest(), org.getId(), secretName, r.storePassword());
+                if (e == null) {
+                    throw new WebApplicationException("Secret not found: " + secretName, Status.NOT_FOUND);
+                }
+                result.add(SecretDataResponse.of(secretName, e.getType(), e.getData()));
+            } catch (SecurityException e) {
+                log.warn("getDataBulk -> error: {}", e.getMessage());
+                throw new SecretException("Error while fetching a secret '" + secretName + "': " + e.getMessage());
+            }
+        }
+        return result;
+    }
+
     @GET
     @ApiOperation("Retrieves the public key of a key pair")
     @Path("/{orgName}/secret/{secretName}/public")
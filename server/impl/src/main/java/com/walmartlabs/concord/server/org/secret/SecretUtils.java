@@ -20,14 +20,10 @@ package com.walmartlabs.concord.server.org.secret;
  * =====
  */
 
-import com.walmartlabs.concord.common.IOUtils;
-
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.CipherInputStream;
 import javax.crypto.spec.SecretKeySpec;
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
 import java.io.InputStream;
 import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
@@ -35,17 +31,33 @@ import java.security.NoSuchAlgorithmException;
 
 public final class SecretUtils {
 
+    /**
+     * Cipher instances are relatively expensive to create, the byte array
+     * variants of {@link #encrypt(byte[], byte[], byte[])} and
+     * {@link #decrypt(byte[], byte[], byte[])} reuse a per-thread instance.
+     * The stream variants must create a new instance, the returned streams
+     * can outlive the call.
+     */
+    private static final ThreadLocal<Cipher> CIPHER = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance("AES");
+        } catch (GeneralSecurityException e) {
+            throw new SecurityException("Error while creating a cipher: " + e.getMessage());
+        }
+    });
+
     public static byte[] encrypt(byte[] input, byte[] password, byte[] salt) {
         try {
-            return IOUtils.toByteArray(encrypt(new ByteArrayInputStream(input), password, salt));
-        } catch (IOException e) {
+            Cipher c = init(CIPHER.get(), password, salt, Cipher.ENCRYPT_MODE);
+            return c.doFinal(input);
+        } catch (GeneralSecurityException e) {
             throw new SecurityException("Error encrypting a secret: " + e);
         }
     }
 
     public static InputStream encrypt(InputStream input, byte[] password, byte[] salt) {
         try {
-            Cipher c = init(password, salt, Cipher.ENCRYPT_MODE);
+            Cipher c = init(Cipher.getInstance("AES"), password, salt, Cipher.ENCRYPT_MODE);
             return new CipherInputStream(input, c);
         } catch (GeneralSecurityException e) {
             throw new SecurityException("Error encrypting a secret: " + e);
@@ -54,20 +66,18 @@ public final class SecretUtils {
 
     public static byte[] decrypt(byte[] input, byte[] password, byte[] salt) {
         try {
-            InputStream out = decrypt(new ByteArrayInputStream(input), password, salt);
-            return IOUtils.toByteArray(out);
-        } catch (IOException e) {
-            Throwable t = e.getCause() == null ? e : e.getCause();
-            if (t instanceof BadPaddingException) {
-                throw new SecurityException("Error decrypting a secret: " + t.getMessage() + ". Invalid input data and/or a password.");
-            }
-            throw new SecurityException("Error decrypting a secret: " + e.getMessage(), t);
+            Cipher c = init(CIPHER.get(), password, salt, Cipher.DECRYPT_MODE);
+            return c.doFinal(input);
+        } catch (BadPaddingException e) {
+            throw new SecurityException("Error decrypting a secret: " + e.getMessage() + ". Invalid input data and/or a password.");
+        } catch (GeneralSecurityException e) {
+            throw new SecurityException("Error decrypting a secret: " + e.getMessage(), e);
         }
     }
 
     public static InputStream decrypt(InputStream input, byte[] password, byte[] salt) {
         try {
-            Cipher c = init(password, salt, Cipher.DECRYPT_MODE);
+            Cipher c = init(Cipher.getInstance("AES"), password, salt, Cipher.DECRYPT_MODE);
             return new CipherInputStream(input, c);
         } catch (BadPaddingException e) {
             throw new SecurityException("Error decrypting a secret: " + e.getMessage() + ". Invalid input data and/or a password.");
@@ -82,9 +92,7 @@ public final class SecretUtils {
         return in != null ? digest.digest(in) : digest.digest();
     }
 
-    private static Cipher init(byte[] password, byte[] salt, int mode) throws GeneralSecurityException {
-        Cipher c = Cipher.getInstance("AES");
-
+    private static Cipher init(Cipher c, byte[] password, byte[] salt, int mode) throws GeneralSecurityException {
         byte[] key = hash(password, salt);
         SecretKeySpec k = new SecretKeySpec(key, "AES");
 
@@ -20,6 +20,8 @@ package com.walmartlabs.concord.server.policy;
  * =====
  */
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.walmartlabs.concord.common.ConfigurationUtils;
 import com.walmartlabs.concord.db.AbstractDao;
@@ -39,14 +41,20 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import java.util.*;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
 
 import static com.walmartlabs.concord.server.jooq.Tables.POLICIES;
 import static com.walmartlabs.concord.server.jooq.Tables.POLICY_LINKS;
 
+/**
+ * Keeps the policy links indexed by organization, project and user IDs.
+ * <p>
+ * Lookups read an immutable {@link Snapshot} without locking, updates build
+ * a new snapshot and swap it. {@link PolicyEngine} instances are created once
+ * per policy and shared by all links of the policy. Changes in the links
+ * rebuild only the indexes, changes in the policies rebuild everything.
+ * The periodic reload is skipped if the policies and the links are unchanged.
+ */
 @Named
 @Singleton
 public class PolicyCache implements BackgroundTask {
@@ -55,26 +63,24 @@ public class PolicyCache implements BackgroundTask {
     private static final long ERROR_DELAY = 10000;
 
     private final ObjectMapper objectMapper;
-    private final ReadWriteLock rwLock = new ReentrantReadWriteLock();
     private final Object refreshMutex = new Object();
+    private final Object updateMutex = new Object();
 
     private final PolicyCacheConfiguration cacheCfg;
     private final Dao dao;
+    private final Timer reloadTimer;
 
-    private PolicyEngine defaultPolicy;
-    private Map<UUID, PolicyEngine> byOrg = Collections.emptyMap();
-    private Map<UUID, PolicyEngine> byProject = Collections.emptyMap();
-    private Map<UUID, PolicyEngine> byUser = Collections.emptyMap();
-    private List<PolicyItem> otherUserPolicies = Collections.emptyList();
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
 
     private volatile long lastRefreshRequestAt = -1;
     private Thread loader;
 
     @Inject
-    public PolicyCache(ObjectMapper objectMapper, PolicyCacheConfiguration cacheCfg, Dao dao) {
+    public PolicyCache(ObjectMapper objectMapper, PolicyCacheConfiguration cacheCfg, Dao dao, MetricRegistry metricRegistry) {
         this.objectMapper = objectMapper;
         this.cacheCfg = cacheCfg;
         this.dao = dao;
+        this.reloadTimer = metricRegistry.timer("policy-cache-reload");
     }
 
     @Override
@@ -93,81 +99,40 @@ public class PolicyCache implements BackgroundTask {
 
     public void refresh() {
         try {
-            reloadPolicies();
+            reloadPolicies(true);
         } catch (Exception e) {
-            synchronized (refreshMutex) {
-                lastRefreshRequestAt = System.currentTimeMillis();
-                refreshMutex.notifyAll();
-            }
+            requestRefresh();
         }
     }
 
-    public PolicyEngine get(UUID orgId, UUID projectId, UUID userId) {
-        Lock l = rwLock.readLock();
-        l.lock();
+    /**
+     * Rebuilds the indexes after policy links were changed. The policies
+     * themselves are reloaded only if a link points to an unknown policy.
+     */
+    public void refreshLinks() {
         try {
-            return getUnsafe(orgId, projectId, userId);
-        } finally {
-            l.unlock();
+            reloadLinks();
+        } catch (Exception e) {
+            requestRefresh();
         }
     }
 
-    private PolicyEngine getUnsafe(UUID orgId, UUID projectId, UUID userId) {
-        if (userId != null) {
-            if (projectId != null) {
-                PolicyEngine result = otherUserPolicies.stream()
-                        .filter(p -> userId.equals(p.link().userId()))
-                        .filter(p -> projectId.equals(p.link().projectId()))
-                        .findAny()
-                        .map(PolicyItem::engine)
-                        .orElse(null);
-
-                if (result != null) {
-                    return result;
-                }
-            }
-
-            if (orgId != null) {
-                PolicyEngine result = otherUserPolicies.stream()
-                        .filter(p -> userId.equals(p.link().userId()))
-                        .filter(p -> orgId.equals(p.link().orgId()))
-                        .findAny()
-                        .map(PolicyItem::engine)
-                        .orElse(null);
-
-                if (result != null) {
-                    return result;
-                }
-            }
-
-            PolicyEngine result = byUser.get(userId);
-            if (result != null) {
-                return result;
-            }
-        }
-
-        if (projectId != null) {
-            PolicyEngine result = byProject.get(projectId);
-            if (result != null) {
-                return result;
-            }
-        }
+    public PolicyEngine get(UUID orgId, UUID projectId, UUID userId) {
+        return snapshot.get(orgId, projectId, userId);
+    }
 
-        if (orgId != null) {
-            PolicyEngine result = byOrg.get(orgId);
-            if (result != null) {
-                return result;
-            }
+    private void requestRefresh() {
+        synchronized (refreshMutex) {
+            lastRefreshRequestAt = System.currentTimeMillis();
+            refreshMutex.notifyAll();
         }
-
-        return defaultPolicy;
     }
 
     private void run() {
         while (!Thread.currentThread().isInterrupted()) {
             try {
                 long now = System.currentTimeMillis();
-                reloadPolicies();
+                reloadPolicies(false);
 
                 synchronized (refreshMutex) {
                     if (lastRefreshRequestAt > now) {
@@ -190,67 +155,47 @@ public class PolicyCache implements BackgroundTask {
         }
     }
 
-    private void reloadPolicies() {
-        PolicyEngine defaultPolicy = null;
-        Map<UUID, PolicyEngine> byOrg = new HashMap<>();
-        Map<UUID, PolicyEngine> byProject = new HashMap<>();
-        Map<UUID, PolicyEngine> byUser = new HashMap<>();
-        List<PolicyItem> otherUserPolicies = new ArrayList<>();
-
-        List<PolicyLink> links = dao.listLinks();
-        if (links.isEmpty()) {
-            setPolicies(defaultPolicy, byOrg, byProject, byUser, otherUserPolicies);
-            return;
-        }
-
-        Map<UUID, Policy> policies = mergePolicies(dao.listPolicies());
-        for (PolicyLink l : links) {
-            Policy policy = policies.get(l.policyId());
-            if (policy == null) {
-                continue;
+    private void reloadPolicies(boolean force) {
+        synchronized (updateMutex) {
+            String fingerprint = dao.fingerprint();
+            if (!force && fingerprint.equals(snapshot.fingerprint)) {
+                return;
             }
-            PolicyEngine pe = new PolicyEngine(policy.policyNames(), policy.rules());
-            if (l.orgId() == null && l.projectId() == null && l.userId() == null) {
-                defaultPolicy = pe;
-            } else if (l.orgId() != null && l.projectId() == null && l.userId() == null) {
-                byOrg.put(l.orgId(), pe);
-            } else if (l.orgId() == null && l.projectId() != null && l.userId() == null) {
-                byProject.put(l.projectId(), pe);
-            } else if (l.orgId() == null && l.projectId() == null && l.userId() != null) {
-                byUser.put(l.userId(), pe);
-            } else if (l.userId() != null) {
-                otherUserPolicies.add(PolicyItem.of(l, pe));
-            } else {
-                log.warn("Unexpected policy link: {}", l);
+
+            try (Timer.Context ignored = reloadTimer.time()) {
+                Map<UUID, PolicyEngine> engines = new HashMap<>();
+                Map<UUID, Policy> policies = mergePolicies(dao.listPolicies());
+                policies.forEach((id, p) -> engines.put(id, new PolicyEngine(p.policyNames(), p.rules())));
+
+                this.snapshot = Snapshot.build(fingerprint, engines, dao.listLinks());
             }
         }
-
-        setPolicies(defaultPolicy, byOrg, byProject, byUser, otherUserPolicies);
     }
 
-    private void setPolicies(PolicyEngine defaultPolicy,
-                             Map<UUID, PolicyEngine> byOrg,
-                             Map<UUID, PolicyEngine> byProject,
-                             Map<UUID, PolicyEngine> byUser,
-                             List<PolicyItem> otherUserPolicies) {
+    private void reloadLinks() {
+        synchronized (updateMutex) {
+            Snapshot current = this.snapshot;
 
-        Lock l = rwLock.writeLock();
-        l.lock();
-        try {
-            this.defaultPolicy = defaultPolicy;
-            this.byOrg = byOrg;
-            this.byProject = byProject;
-            this.byUser = byUser;
-            this.otherUserPolicies = otherUserPolicies;
-        } finally {
-            l.unlock();
+            List<PolicyLink> links = dao.listLinks();
+            boolean unknownPolicy = links.stream().anyMatch(l -> !current.engines.containsKey(l.policyId()));
+            if (unknownPolicy) {
+                // e.g. a newly created policy, the merged rules are not available yet
+                reloadPolicies(true);
+                return;
+            }
+
+            // the fingerprint is not updated, the next periodic reload verifies the whole state
+            this.snapshot = Snapshot.build(null, current.engines, links);
         }
     }
 
     private Map<UUID, Policy> mergePolicies(List<PolicyRules> policies) {
+        Map<UUID, PolicyRules> byId = policies.stream()
+                .collect(Collectors.toMap(PolicyRules::id, p -> p));
+
         Map<UUID, Policy> result = new HashMap<>();
         for (PolicyRules p : policies) {
-            List<PolicyRules> rules = combinePolicies(p, policies);
+            List<PolicyRules> rules = combinePolicies(p, byId);
             Map<String, Object> mergedRules = mergeRules(rules);
 
             result.put(p.id(), ImmutablePolicy.builder()
@@ -270,7 +215,7 @@ public class PolicyCache implements BackgroundTask {
         return result;
     }
 
-    private static List<PolicyRules> combinePolicies(PolicyRules p, List<PolicyRules> policies) {
+    private static List<PolicyRules> combinePolicies(PolicyRules p, Map<UUID, PolicyRules> policies) {
         List<PolicyRules> result = new ArrayList<>();
         result.add(p);
 
@@ -280,9 +225,7 @@ public class PolicyCache implements BackgroundTask {
             if (parentId == null) {
                 return result;
             }
-            PolicyRules parent = policies.stream()
-                    .filter(r -> r.id().equals(parentId))
-                    .findAny().orElse(null);
+            PolicyRules parent = policies.get(parentId);
             if (parent != null) {
                 result.add(parent);
             }
@@ -314,6 +257,18 @@ public class PolicyCache implements BackgroundTask {
                             .build()));
         }
 
+        /**
+         * Returns a hash of all policies and policy links. Used to detect changes
+         * made by other servers without loading and merging the policies.
+         */
+        public String fingerprint() {
+            return txResult(tx -> tx.resultQuery("select md5(coalesce(string_agg(x, ',' order by x), '')) from (" +
+                    "select 'l:' || POLICY_ID || ':' || coalesce(ORG_ID::text, '') || ':' || coalesce(PROJECT_ID::text, '') || ':' || coalesce(USER_ID::text, '') as x from POLICY_LINKS " +
+                    "union all " +
+                    "select 'p:' || POLICY_ID || ':' || coalesce(PARENT_POLICY_ID::text, '') || ':' || POLICY_NAME || ':' || md5(RULES::text) as x from POLICIES) t")
+                    .fetchOne(0, String.class));
+        }
+
         public List<PolicyRules> listPolicies() {
             return txResult(tx -> tx.selectFrom(POLICIES)
                     .fetch(r -> ImmutablePolicyRules.builder()
@@ -353,17 +308,96 @@ public class PolicyCache implements BackgroundTask {
         Map<String, Object> rules();
     }
 
-    @Value.Immutable
-    interface PolicyItem {
+    private static final class Snapshot {
+
+        private static final Snapshot EMPTY = new Snapshot(null, Collections.emptyMap());
+
+        @Nullable
+        private final String fingerprint;
+
+        private final Map<UUID, PolicyEngine> engines;
+
+        private PolicyEngine defaultPolicy;
+        private final Map<UUID, PolicyEngine> byOrg = new HashMap<>();
+        private final Map<UUID, PolicyEngine> byProject = new HashMap<>();
+        private final Map<UUID, PolicyEngine> byUser = new HashMap<>();
+        private final Map<List<UUID>, PolicyEngine> byUserAndOrg = new HashMap<>();
+        private final Map<List<UUID>, PolicyEngine> byUserAndProject = new HashMap<>();
+
+        private Snapshot(String fingerprint, Map<UUID, PolicyEngine> engines) {
+            this.fingerprint = fingerprint;
+            this.engines = engines;
+        }
+
+        static Snapshot build(String fingerprint, Map<UUID, PolicyEngine> engines, List<PolicyLink> links) {
+            Snapshot result = new Snapshot(fingerprint, engines);
+
+            for (PolicyLink l : links) {
+                PolicyEngine pe = engines.get(l.policyId());
+                if (pe == null) {
+                    continue;
+                }
+
+                if (l.orgId() == null && l.projectId() == null && l.userId() == null) {
+                    result.defaultPolicy = pe;
+                } else if (l.orgId() != null && l.projectId() == null && l.userId() == null) {
+                    result.byOrg.put(l.orgId(), pe);
+                } else if (l.orgId() == null && l.projectId() != null && l.userId() == null) {
+                    result.byProject.put(l.projectId(), pe);
+                } else if (l.orgId() == null && l.projectId() == null && l.userId() != null) {
+                    result.byUser.put(l.userId(), pe);
+                } else if (l.userId() != null) {
+                    if (l.projectId() != null) {
+                        result.byUserAndProject.putIfAbsent(Arrays.asList(l.userId(), l.projectId()), pe);
+                    }
+                    if (l.orgId() != null) {
+                        result.byUserAndOrg.putIfAbsent(Arrays.asList(l.userId(), l.orgId()), pe);
+                    }
+                } else {
+                    log.warn("Unexpected policy link: {}", l);
+                }
+            }
+
+            return result;
+        }
+
+        PolicyEngine get(UUID orgId, UUID projectId, UUID userId) {
+            if (userId != null) {
+                if (projectId != null) {
+                    PolicyEngine result = byUserAndProject.get(Arrays.asList(userId, projectId));
+                    if (result != null) {
+                        return result;
+                    }
+                }
+
+                if (orgId != null) {
+                    PolicyEngine result = byUserAndOrg.get(Arrays.asList(userId, orgId));
+                    if (result != null) {
+                        return result;
+                    }
+                }
+
+                PolicyEngine result = byUser.get(userId);
+                if (result != null) {
+                    return result;
+                }
+            }
 
-        @Value.Parameter
-        PolicyLink link();
+            if (projectId != null) {
+                PolicyEngine result = byProject.get(projectId);
+                if (result != null) {
+                    return result;
+                }
+            }
 
-        @Value.Parameter
-        PolicyEngine engine();
+            if (orgId != null) {
+                PolicyEngine result = byOrg.get(orgId);
+                if (result != null) {
+                    return result;
+                }
+            }
 
-        static PolicyItem of(PolicyLink link, PolicyEngine engine) {
-            return ImmutablePolicyItem.of(link, engine);
+            return defaultPolicy;
         }
     }
 
@@ -91,12 +91,12 @@ public class PolicyManager {
 
     public void link(UUID policyId, UUID orgId, UUID projectId, UUID userId) {
         policyDao.link(policyId, orgId, projectId, userId);
-        policyCache.refresh();
+        policyCache.refreshLinks();
     }
 
     public void unlink(UUID policyId, UUID orgId, UUID projectId, UUID userId) {
         policyDao.unlink(policyId, orgId, projectId, userId);
-        policyCache.refresh();
+        policyCache.refreshLinks();
     }
 
     public void checkEntity(UUID orgId, UUID projectId,
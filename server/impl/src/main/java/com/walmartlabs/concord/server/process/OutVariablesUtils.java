@@ -24,10 +24,12 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.walmartlabs.concord.sdk.Constants;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collections;
 import java.util.Map;
+import java.util.Optional;
 
 public final class OutVariablesUtils {
 
@@ -43,6 +45,15 @@ public final class OutVariablesUtils {
         return objectMapper.readValue(processOut.toFile(), Map.class);
     }
 
+    @SuppressWarnings("unchecked")
+    public static Optional<Map<String, Object>> read(InputStream in) {
+        try {
+            return Optional.of(objectMapper.readValue(in, Map.class));
+        } catch (IOException e) {
+            throw new RuntimeException("Error while reading the process' out variables: " + e.getMessage(), e);
+        }
+    }
+
     private OutVariablesUtils() {
     }
 }
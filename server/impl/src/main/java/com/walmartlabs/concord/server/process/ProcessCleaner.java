@@ -23,6 +23,10 @@ package com.walmartlabs.concord.server.process;
 import com.walmartlabs.concord.db.AbstractDao;
 import com.walmartlabs.concord.db.MainDB;
 import com.walmartlabs.concord.server.cfg.ProcessConfiguration;
+import com.walmartlabs.concord.server.process.queue.ProcessQueueDao;
+import com.walmartlabs.concord.server.process.queue.ProcessStatsChange;
+import com.walmartlabs.concord.server.process.queue.ProcessStatsDao;
+import com.walmartlabs.concord.server.process.queue.ProcessStatsRecorder;
 import com.walmartlabs.concord.server.sdk.ProcessStatus;
 import com.walmartlabs.concord.server.sdk.ScheduledTask;
 import org.jooq.*;
@@ -33,6 +37,7 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import java.time.OffsetDateTime;
+import java.util.List;
 import java.util.UUID;
 
 import static com.walmartlabs.concord.db.PgUtils.interval;
@@ -58,11 +63,13 @@ public class ProcessCleaner implements ScheduledTask {
 
     private final ProcessConfiguration cfg;
     private final CleanerDao cleanerDao;
+    private final ProcessStatsRecorder statsRecorder;
 
     @Inject
-    public ProcessCleaner(ProcessConfiguration cfg, CleanerDao cleanerDao) {
+    public ProcessCleaner(ProcessConfiguration cfg, CleanerDao cleanerDao, ProcessStatsRecorder statsRecorder) {
         this.cfg = cfg;
         this.cleanerDao = cleanerDao;
+        this.statsRecorder = statsRecorder;
     }
 
     @Override
@@ -73,19 +80,24 @@ public class ProcessCleaner implements ScheduledTask {
     @Override
     public void performTask() {
         Field<OffsetDateTime> cutoff = currentOffsetDateTime().minus(interval(cfg.getMaxStateAge()));
-        cleanerDao.deleteOldState(cutoff, cfg);
+        cleanerDao.deleteOldState(cutoff, cfg, statsRecorder.isEnabled());
         cleanerDao.deleteOrphans(cfg);
     }
 
     @Named
     private static class CleanerDao extends AbstractDao {
 
+        private final ProcessQueueDao queueDao;
+        private final ProcessStatsDao statsDao;
+
         @Inject
-        protected CleanerDao(@MainDB Configuration cfg) {
+        protected CleanerDao(@MainDB Configuration cfg, ProcessQueueDao queueDao, ProcessStatsDao statsDao) {
             super(cfg);
+            this.queueDao = queueDao;
+            this.statsDao = statsDao;
         }
 
-        void deleteOldState(Field<OffsetDateTime> cutoff, ProcessConfiguration jobCfg) {
+        void deleteOldState(Field<OffsetDateTime> cutoff, ProcessConfiguration jobCfg, boolean recordStats) {
             long t1 = System.currentTimeMillis();
 
             tx(tx -> {
@@ -96,9 +108,11 @@ public class ProcessCleaner implements ScheduledTask {
 
                 int queueEntries = 0;
                 if (jobCfg.isQueueCleanup()) {
-                    queueEntries = tx.deleteFrom(PROCESS_QUEUE)
-                            .where(PROCESS_QUEUE.INSTANCE_ID.in(ids))
-                            .execute();
+                    List<ProcessStatsChange> stats = queueDao.delete(tx, ids);
+                    if (recordStats) {
+                        statsDao.record(tx, stats);
+                    }
+                    queueEntries = stats.size();
                 }
 
                 int stateRecords = 0;
@@ -21,6 +21,7 @@ package com.walmartlabs.concord.server.process;
  */
 
 import com.walmartlabs.concord.server.org.project.KvDao;
+import com.walmartlabs.concord.server.org.project.KvEntry;
 import com.walmartlabs.concord.server.process.queue.ProcessQueueManager;
 import com.walmartlabs.concord.server.sdk.ConcordApplicationException;
 import com.walmartlabs.concord.server.sdk.PartialProcessKey;
@@ -38,6 +39,8 @@ import javax.inject.Singleton;
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 @Named
@@ -49,6 +52,7 @@ public class ProcessKvResource implements Resource {
     private static final Logger log = LoggerFactory.getLogger(ProcessKvResource.class);
 
     private static final UUID DEFAULT_PROJECT_ID = UUID.fromString("00000000-0000-0000-0000-000000000000");
+    private static final int MAX_BATCH_SIZE = 1000;
 
     private final ProcessQueueManager processQueueManager;
     private final KvDao kvDao;
@@ -126,6 +130,38 @@ public class ProcessKvResource implements Resource {
         return kvDao.inc(projectId, key);
     }
 
+    @GET
+    @ApiOperation("Get multiple KV")
+    @Path("{id}/kv")
+    @Produces(MediaType.APPLICATION_JSON)
+    public List<KvEntry> getBatch(@PathParam("id") UUID instanceId,
+                                  @QueryParam("key") List<String> keys) {
+
+        assertBatchSize(keys);
+
+        UUID projectId = assertProjectId(instanceId);
+        return kvDao.get(projectId, keys);
+    }
+
+    @PUT
+    @ApiOperation("Put multiple KV")
+    @Path("{id}/kv")
+    @Consumes(MediaType.APPLICATION_JSON)
+    public void putBatch(@PathParam("id") UUID instanceId,
+                         @ApiParam(required = true) List<KvEntry> entries) {
+
+        assertBatchSize(entries);
+
+        for (KvEntry e : entries) {
+            if (e.stringValue() == null && e.longValue() == null) {
+                throw new ConcordApplicationException("Missing value for key '" + e.key() + "'", Response.Status.BAD_REQUEST);
+            }
+        }
+
+        UUID projectId = assertProjectId(instanceId);
+        kvDao.put(projectId, entries);
+    }
+
     private UUID assertProjectId(UUID instanceId) {
         PartialProcessKey processKey = PartialProcessKey.from(instanceId);
 
@@ -143,4 +179,14 @@ public class ProcessKvResource implements Resource {
 
         return projectId;
     }
+
+    private static void assertBatchSize(Collection<?> items) {
+        if (items == null || items.isEmpty()) {
+            throw new ConcordApplicationException("At least one key is required", Response.Status.BAD_REQUEST);
+        }
+
+        if (items.size() > MAX_BATCH_SIZE) {
+            throw new ConcordApplicationException("Too many keys, max " + MAX_BATCH_SIZE + " allowed", Response.Status.BAD_REQUEST);
+        }
+    }
 }
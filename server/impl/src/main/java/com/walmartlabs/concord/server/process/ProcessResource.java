@@ -62,7 +62,10 @@ import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import io.swagger.annotations.Authorization;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
 import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
 import org.apache.shiro.authz.UnauthorizedException;
 import org.jboss.resteasy.plugins.providers.multipart.MultipartInput;
 import org.slf4j.Logger;
@@ -83,7 +86,6 @@ import javax.ws.rs.core.Response.Status;
 import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
 import java.text.MessageFormat;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -735,7 +737,7 @@ public class ProcessResource implements Resource {
      * @param initiator
      * @param limit
      * @return
-     * @deprecated use {@link ProcessResourceV2#list(UUID, String, UUID, String, UUID, String, OffsetDateTimeParam, OffsetDateTimeParam, Set, ProcessStatus, String, UUID, Set, int, int, UriInfo)}
+     * @deprecated use {@link ProcessResourceV2#list(UUID, String, UUID, String, UUID, String, OffsetDateTimeParam, OffsetDateTimeParam, Set, ProcessStatus, String, UUID, Set, int, int, UUID, UriInfo)}
      */
     @GET
     @ApiOperation(value = "List processes for all user's organizations", responseContainer = "list", response = ProcessEntry.class)
@@ -757,7 +759,7 @@ public class ProcessResource implements Resource {
 
         return v2.list(null, orgName, projectId, projectName, null, null, afterCreatedAt, beforeCreatedAt, tags,
                 processStatus, initiator, parentId, Collections.singleton(ProcessDataInclude.CHILDREN_IDS),
-                limit, offset, uriInfo);
+                limit, offset, null, uriInfo);
     }
 
     /**
@@ -915,8 +917,32 @@ public class ProcessResource implements Resource {
                 .build();
     }
 
+    /**
+     * Returns checksums of the process attachments. Can be used by the agents
+     * to skip the unchanged files when uploading the attachments
+     * (see {@link #uploadAttachments(UUID, InputStream)}).
+     *
+     * @param instanceId
+     * @return MD5 checksums (hex) of the attachments, by the attachment's path
+     */
+    @GET
+    @javax.ws.rs.Path("{id}/attachment-checksums")
+    @Produces(MediaType.APPLICATION_JSON)
+    @WithTimer
+    public Map<String, String> attachmentChecksums(@PathParam("id") UUID instanceId) {
+        ProcessEntry entry = assertProcess(PartialProcessKey.from(instanceId));
+        ProcessKey processKey = new ProcessKey(entry.instanceId(), entry.createdAt());
+
+        return stateManager.checksums(processKey, Constants.Files.JOB_ATTACHMENTS_DIR_NAME);
+    }
+
     /**
      * Upload process attachments.
+     * <p>
+     * The archive is received into a temporary file first, so the database transaction
+     * is only open while the entries are imported. The existing attachments
+     * that are not in the archive are kept, except for the {@code _state} directory
+     * which is always replaced.
      *
      * @param instanceId
      * @param data
@@ -928,24 +954,25 @@ public class ProcessResource implements Resource {
         ProcessEntry entry = assertProcess(PartialProcessKey.from(instanceId));
         ProcessKey processKey = new ProcessKey(entry.instanceId(), entry.createdAt());
 
-        Path tmpIn = null;
-        Path tmpDir = null;
-        try {
-            tmpIn = IOUtils.createTempFile("attachments", ".zip");
-            Files.copy(data, tmpIn, StandardCopyOption.REPLACE_EXISTING);
-
-            tmpDir = IOUtils.createTempDir("attachments");
-            IOUtils.unzip(tmpIn, tmpDir);
+        PolicyEngine policy = policyManager.get(entry.orgId(), entry.projectId(), UserPrincipal.assertCurrent().getUser().getId());
 
-            assertAttachmentsPolicy(tmpDir, entry);
+        Path tmp = copyToTmp(data).get();
+        try {
+            // the archive's entries alone must fit into the limit, reject it before touching the DB
+            assertAttachmentsPolicy(policy, processKey, uncompressedSize(tmp));
 
-            Path finalTmpDir = tmpDir;
             stateManager.tx(tx -> {
                 stateManager.deleteDirectory(tx, processKey, path(Constants.Files.JOB_ATTACHMENTS_DIR_NAME, Constants.Files.JOB_STATE_DIR_NAME));
-                stateManager.importPath(tx, processKey, Constants.Files.JOB_ATTACHMENTS_DIR_NAME, finalTmpDir, (p, attrs) -> true);
+
+                try (ZipArchiveInputStream zip = new ZipArchiveInputStream(new BufferedInputStream(Files.newInputStream(tmp)))) {
+                    stateManager.importZip(tx, processKey, Constants.Files.JOB_ATTACHMENTS_DIR_NAME, zip);
+                }
+
+                assertAttachmentsPolicy(policy, processKey, stateManager.size(tx, processKey, Constants.Files.JOB_ATTACHMENTS_DIR_NAME));
             });
 
-            Map<String, Object> out = OutVariablesUtils.read(tmpDir);
+            Map<String, Object> out = stateManager.get(processKey, path(Constants.Files.JOB_ATTACHMENTS_DIR_NAME, Constants.Files.OUT_VALUES_FILE_NAME), OutVariablesUtils::read)
+                    .orElse(Collections.emptyMap());
             if (out.isEmpty()) {
                 queueDao.removeMeta(processKey, "out");
             } else {
@@ -953,23 +980,14 @@ public class ProcessResource implements Resource {
             }
         } catch (PolicyException e) {
             throw new ConcordApplicationException(e.getMessage(), Status.FORBIDDEN);
-        } catch (IOException e) {
+        } catch (Exception e) {
             log.error("uploadAttachments ['{}'] -> error", processKey, e);
             throw new ConcordApplicationException("upload error: " + e.getMessage());
         } finally {
-            if (tmpDir != null) {
-                try {
-                    IOUtils.deleteRecursively(tmpDir);
-                } catch (IOException e) {
-                    log.warn("uploadAttachments -> cleanup error: {}", e.getMessage());
-                }
-            }
-            if (tmpIn != null) {
-                try {
-                    Files.delete(tmpIn);
-                } catch (IOException e) {
-                    log.warn("uploadAttachments -> cleanup error: {}", e.getMessage());
-                }
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException e) {
+                log.warn("uploadAttachments ['{}'] -> error while removing a temporary file: {}", processKey, e.getMessage());
             }
         }
     }
@@ -1143,21 +1161,38 @@ public class ProcessResource implements Resource {
         }
     }
 
+    /**
+     * Returns the total uncompressed size of the archive's file entries, as recorded
+     * in its central directory.
+     */
+    private static long uncompressedSize(Path archive) throws IOException {
+        long result = 0;
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            Enumeration<ZipArchiveEntry> entries = zip.getEntries();
+            while (entries.hasMoreElements()) {
+                ZipArchiveEntry e = entries.nextElement();
+                if (!e.isDirectory() && e.getSize() > 0) {
+                    result += e.getSize();
+                }
+            }
+        }
+        return result;
+    }
+
     private static RuntimeException syncIsForbidden() {
         return new ConcordApplicationException("The 'sync' mode is no longer available. " +
                 "Please use sync=false and poll for the status updates.", Status.BAD_REQUEST);
     }
 
-    private void assertAttachmentsPolicy(Path tmpDir, ProcessEntry entry) throws IOException {
-        PolicyEngine policy = policyManager.get(entry.orgId(), entry.projectId(), UserPrincipal.assertCurrent().getUser().getId());
+    private void assertAttachmentsPolicy(PolicyEngine policy, ProcessKey processKey, long size) {
         if (policy == null) {
             return;
         }
 
-        CheckResult<AttachmentsRule, Long> checkResult = policy.getAttachmentsPolicy().check(tmpDir);
+        CheckResult<AttachmentsRule, Long> checkResult = policy.getAttachmentsPolicy().check(size);
         if (!checkResult.getDeny().isEmpty()) {
             String errorMessage = buildErrorMessage(checkResult.getDeny());
-            processLogManager.error(new ProcessKey(entry.instanceId(), entry.createdAt()), errorMessage);
+            processLogManager.error(processKey, errorMessage);
             throw new PolicyException("Found forbidden policy: " + errorMessage);
         }
     }
@@ -57,6 +57,7 @@ import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.UriInfo;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
@@ -77,6 +78,8 @@ public class ProcessResourceV2 implements Resource {
     private final UserDao userDao;
     private final OrganizationManager orgManager;
     private final ProjectAccessManager projectAccessManager;
+    private final ProcessMetaIndexes metaIndexes;
+    private final ProcessStatsDao statsDao;
 
     @Inject
     public ProcessResourceV2(ProcessQueueDao queueDao,
@@ -85,7 +88,9 @@ public class ProcessResourceV2 implements Resource {
                              RepositoryDao repositoryDao,
                              UserDao userDao,
                              OrganizationManager orgManager,
-                             ProjectAccessManager projectAccessManager) {
+                             ProjectAccessManager projectAccessManager,
+                             ProcessMetaIndexes metaIndexes,
+                             ProcessStatsDao statsDao) {
 
         this.queueDao = queueDao;
         this.processQueueManager = processQueueManager;
@@ -94,6 +99,8 @@ public class ProcessResourceV2 implements Resource {
         this.userDao = userDao;
         this.orgManager = orgManager;
         this.projectAccessManager = projectAccessManager;
+        this.metaIndexes = metaIndexes;
+        this.statsDao = statsDao;
     }
 
     /**
@@ -144,6 +151,7 @@ public class ProcessResourceV2 implements Resource {
                                    @ApiParam @QueryParam("include") Set<ProcessDataInclude> processData,
                                    @ApiParam @QueryParam("limit") @DefaultValue("30") int limit,
                                    @ApiParam @QueryParam("offset") @DefaultValue("0") int offset,
+                                   @ApiParam(value = "ID of the last process of the previous page") @QueryParam("cursor") UUID cursor,
                                    @Context UriInfo uriInfo) {
 
         if (limit <= 0) {
@@ -154,8 +162,16 @@ public class ProcessResourceV2 implements Resource {
             throw new ValidationErrorsException("'offset' must be a positive number or zero");
         }
 
+        if (cursor != null && offset > 0) {
+            throw new ValidationErrorsException("'cursor' and 'offset' can't be used together");
+        }
+
+        if (cursor != null && !queueDao.exists(PartialProcessKey.from(cursor))) {
+            throw new ValidationErrorsException("Invalid cursor, process not found: " + cursor);
+        }
+
         ProcessFilter filter = createProcessFilter(orgId, orgName, projectId, projectName, repoId, repoName,
-                afterCreatedAt, beforeCreatedAt, tags, processStatus, initiator, parentId, processData, limit, offset, uriInfo);
+                afterCreatedAt, beforeCreatedAt, tags, processStatus, initiator, parentId, processData, cursor, limit, offset, uriInfo);
 
         return queueDao.list(filter);
     }
@@ -185,6 +201,45 @@ public class ProcessResourceV2 implements Resource {
         return queueDao.listRequirements(processStatus, FilterUtils.parseDate("startAt", uriInfo), limit, offset);
     }
 
+    /**
+     * Returns the number of processes in each status.
+     * The values are precalculated and can be slightly out of date.
+     */
+    @GET
+    @ApiOperation(value = "Process statistics")
+    @Path("/stats")
+    @Produces(MediaType.APPLICATION_JSON)
+    @WithTimer
+    public Map<String, Long> stats(@ApiParam @QueryParam("orgId") UUID orgId,
+                                   @ApiParam @QueryParam("orgName") String orgName,
+                                   @ApiParam @QueryParam("projectId") UUID projectId,
+                                   @ApiParam @QueryParam("projectName") String projectName,
+                                   @Context UriInfo uriInfo) {
+
+        ProcessFilter filter = createProcessFilter(orgId, orgName, projectId, projectName, null, null,
+                null, null, null, null, null, null, Collections.emptySet(),
+                null, null, null, uriInfo);
+
+        return statsDao.countByStatus(filter.orgIds(), filter.projectId());
+    }
+
+    /**
+     * Returns the number of processes in the specified status grouped by their requirements.
+     * The values are precalculated and can be slightly out of date.
+     */
+    @GET
+    @ApiOperation(value = "Process requirements statistics")
+    @Path("/stats/requirements")
+    @Produces(MediaType.APPLICATION_JSON)
+    @WithTimer
+    public List<ProcessRequirementsCountEntry> requirementsStats(@ApiParam @QueryParam("status") ProcessStatus processStatus) {
+        if (processStatus == null) {
+            throw new ValidationErrorsException("'status' is required");
+        }
+
+        return statsDao.countByRequirements(processStatus);
+    }
+
     /**
      * Counts processes applying the specified filters.
      */
@@ -209,7 +264,7 @@ public class ProcessResourceV2 implements Resource {
 
         ProcessFilter filter = createProcessFilter(orgId, orgName, projectId, projectName, repoId, repoName,
                 afterCreatedAt, beforeCreatedAt, tags, processStatus, initiator, parentId, Collections.emptySet(),
-                null, null, uriInfo);
+                null, null, null, uriInfo);
 
         if (filter.projectId() == null) {
             throw new ValidationErrorsException("A project ID or name is required");
@@ -231,6 +286,7 @@ public class ProcessResourceV2 implements Resource {
                                               String initiator,
                                               UUID parentId,
                                               Set<ProcessDataInclude> processData,
+                                              UUID cursor,
                                               Integer limit,
                                               Integer offset,
                                               UriInfo uriInfo) {
@@ -286,8 +342,8 @@ public class ProcessResourceV2 implements Resource {
         // collect all metadata filters, we assume that they have "meta." prefix in their query parameter names
         List<MetadataFilter> metaFilters = MetadataUtils.parseMetadataFilters(uriInfo);
 
-        // can't allow seq scans, we don't index PROCESS_QUEUE.META (yet?)
-        if (!metaFilters.isEmpty() && effectiveProjectId == null) {
+        // can't allow seq scans, only the keys listed in process.metaIndexes are indexed
+        if (!metaFilters.isEmpty() && effectiveProjectId == null && !metaIndexes.isIndexed(metaFilters)) {
             throw new ValidationErrorsException("Process metadata filters require a project name or an ID to be included in the query.");
         }
 
@@ -307,6 +363,7 @@ public class ProcessResourceV2 implements Resource {
                 .requirements(FilterUtils.parseJson("requirements", uriInfo))
                 .startAt(FilterUtils.parseDate("startAt", uriInfo))
                 .includes(processData != null ? processData : Collections.emptySet())
+                .cursor(cursor)
                 .limit(limit)
                 .offset(offset)
                 .build();
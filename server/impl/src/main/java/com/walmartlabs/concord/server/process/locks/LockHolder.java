@@ -0,0 +1,47 @@
+package com.walmartlabs.concord.server.process.locks;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.immutables.value.Value;
+
+import javax.annotation.Nullable;
+import java.time.OffsetDateTime;
+
+@Value.Immutable
+public interface LockHolder {
+
+    LockEntry lock();
+
+    /**
+     * When the holder started to wait for the lock. {@code null} if the lock
+     * was acquired without waiting.
+     */
+    @Nullable
+    OffsetDateTime waitingSince();
+
+    static LockHolder of(LockEntry lock) {
+        return builder().lock(lock).build();
+    }
+
+    static ImmutableLockHolder.Builder builder() {
+        return ImmutableLockHolder.builder();
+    }
+}
@@ -0,0 +1,216 @@
+package com.walmartlabs.concord.server.process.locks;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.server.jooq.enums.ProcessLockScope;
+import com.walmartlabs.concord.server.process.Payload;
+import com.walmartlabs.concord.server.process.PayloadManager;
+import com.walmartlabs.concord.server.process.ProcessEntry;
+import com.walmartlabs.concord.server.process.ProcessManager;
+import com.walmartlabs.concord.server.process.queue.AbstractWaitCondition;
+import com.walmartlabs.concord.server.process.queue.ProcessLockCondition;
+import com.walmartlabs.concord.server.process.queue.ProcessQueueManager;
+import com.walmartlabs.concord.server.sdk.BackgroundTask;
+import com.walmartlabs.concord.server.sdk.ConcordApplicationException;
+import com.walmartlabs.concord.server.sdk.PartialProcessKey;
+import com.walmartlabs.concord.server.sdk.ProcessKey;
+import com.walmartlabs.concord.server.sdk.ProcessStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+/**
+ * Acquires and releases process locks. Released locks are handed over to
+ * the next waiting process. If the process is already suspended it is resumed
+ * in background right after the release. Otherwise the process is resumed by
+ * {@link com.walmartlabs.concord.server.process.queue.WaitProcessLockHandler}.
+ * <p>
+ * Requests never wait for a busy lock. Processes that want to avoid suspending
+ * poll {@link #tryLock(UUID, UUID, UUID, ProcessLockScope, String)} and receive
+ * the lock once it is handed over to them.
+ */
+@Named
+@Singleton
+public class ProcessLockManager implements BackgroundTask {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessLockManager.class);
+
+    private static final int RESUME_THREADS = 2;
+
+    private final ProcessLocksDao dao;
+    private final ProcessQueueManager queueManager;
+    private final ProcessManager processManager;
+    private final PayloadManager payloadManager;
+
+    private volatile ExecutorService resumeExecutor;
+
+    private final Histogram waitTime;
+    private final Counter handOffs;
+
+    @Inject
+    public ProcessLockManager(ProcessLocksDao dao,
+                              ProcessQueueManager queueManager,
+                              ProcessManager processManager,
+                              PayloadManager payloadManager,
+                              MetricRegistry metricRegistry) {
+
+        this.dao = dao;
+        this.queueManager = queueManager;
+        this.processManager = processManager;
+        this.payloadManager = payloadManager;
+
+        this.waitTime = metricRegistry.histogram("process-lock-wait-time");
+        this.handOffs = metricRegistry.counter("process-lock-handoffs");
+        metricRegistry.gauge("process-lock-waiters", () -> dao::countWaiters);
+    }
+
+    @Override
+    public void start() {
+        resumeExecutor = Executors.newFixedThreadPool(RESUME_THREADS);
+    }
+
+    @Override
+    public void stop() {
+        ExecutorService executor = resumeExecutor;
+        if (executor == null) {
+            return;
+        }
+
+        resumeExecutor = null;
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Acquires the lock or puts the process into the lock's wait queue.
+     *
+     * @return the current holder of the lock
+     */
+    public LockEntry tryLock(UUID instanceId, UUID orgId, UUID projectId, ProcessLockScope scope, String lockName) {
+        LockHolder holder = dao.tryLock(instanceId, orgId, projectId, scope, lockName);
+        if (holder.lock().instanceId().equals(instanceId)) {
+            recordWaitTime(holder);
+        }
+        return holder.lock();
+    }
+
+    /**
+     * Releases the lock and hands it over to the next waiting process.
+     * Suspended processes are resumed in background.
+     */
+    public void unlock(UUID instanceId, UUID orgId, UUID projectId, ProcessLockScope scope, String lockName) {
+        LockHolder next = dao.unlock(instanceId, orgId, projectId, scope, lockName);
+        if (next == null) {
+            return;
+        }
+
+        handOffs.inc();
+        recordWaitTime(next);
+
+        LockEntry lock = next.lock();
+
+        ExecutorService executor = resumeExecutor;
+        if (executor == null) {
+            // not started or stopping, the process will be resumed by the wait watchdog
+            return;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    resumeWaiting(lock);
+                } catch (Exception e) {
+                    // the process will be resumed by the wait watchdog
+                    log.warn("unlock ['{}', '{}'] -> error while resuming the next process '{}': {}",
+                            instanceId, lockName, lock.instanceId(), e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("unlock ['{}', '{}'] -> can't resume the next process '{}', will be resumed by the wait watchdog",
+                    instanceId, lockName, lock.instanceId());
+        }
+    }
+
+    /**
+     * Resumes a suspended process after it acquired the lock.
+     */
+    public void resume(UUID instanceId, String lockName) {
+        Payload payload;
+        try {
+            payload = payloadManager.createResumePayload(PartialProcessKey.from(instanceId), lockName, null);
+        } catch (IOException e) {
+            throw new ConcordApplicationException("Error creating a payload", e);
+        }
+
+        processManager.resume(payload);
+    }
+
+    private void resumeWaiting(LockEntry lock) {
+        PartialProcessKey partialKey = PartialProcessKey.from(lock.instanceId());
+
+        ProcessEntry e = queueManager.get(partialKey);
+        if (e == null || e.status() != ProcessStatus.SUSPENDED) {
+            // still running, e.g. polling tryLock or suspending
+            return;
+        }
+
+        AbstractWaitCondition wait = queueManager.getWait(partialKey);
+        if (!isWaitingFor(wait, lock)) {
+            return;
+        }
+
+        resume(lock.instanceId(), lock.name());
+        queueManager.updateWait(new ProcessKey(e.instanceId(), e.createdAt()), null);
+    }
+
+    private void recordWaitTime(LockHolder holder) {
+        OffsetDateTime since = holder.waitingSince();
+        if (since == null) {
+            return;
+        }
+
+        waitTime.update(Math.max(0, Duration.between(since, OffsetDateTime.now()).toMillis()));
+    }
+
+    private static boolean isWaitingFor(AbstractWaitCondition wait, LockEntry lock) {
+        if (!(wait instanceof ProcessLockCondition)) {
+            return false;
+        }
+
+        ProcessLockCondition c = (ProcessLockCondition) wait;
+        return c.scope() == lock.scope() && c.name().equals(lock.name());
+    }
+}
@@ -22,83 +22,220 @@ package com.walmartlabs.concord.server.process.locks;
 
 import com.walmartlabs.concord.db.AbstractDao;
 import com.walmartlabs.concord.db.MainDB;
+import com.walmartlabs.concord.server.Locks;
 import com.walmartlabs.concord.server.jooq.enums.ProcessLockScope;
+import com.walmartlabs.concord.server.jooq.tables.ProcessLockWaiters;
 import com.walmartlabs.concord.server.jooq.tables.ProcessLocks;
+import com.walmartlabs.concord.server.jooq.tables.ProcessQueue;
 import com.walmartlabs.concord.server.jooq.tables.records.ProcessLocksRecord;
-import org.jooq.Configuration;
-import org.jooq.DSLContext;
-import org.jooq.SelectConditionStep;
+import com.walmartlabs.concord.server.sdk.ProcessStatus;
+import org.jooq.*;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.time.OffsetDateTime;
 import java.util.UUID;
 
-import static com.walmartlabs.concord.server.jooq.Tables.PROCESS_LOCKS;
+import static com.walmartlabs.concord.server.jooq.Tables.*;
 
+/**
+ * Process locks with FIFO wait queues. All operations on the same lock are
+ * serialized using an advisory lock.
+ */
 @Named
 public class ProcessLocksDao extends AbstractDao {
 
+    private static final String[] FINISHED_STATUSES = {
+            ProcessStatus.FINISHED.name(),
+            ProcessStatus.FAILED.name(),
+            ProcessStatus.CANCELLED.name(),
+            ProcessStatus.TIMED_OUT.name()
+    };
+
+    private final Locks locks;
+
     @Inject
-    protected ProcessLocksDao(@MainDB Configuration cfg) {
+    protected ProcessLocksDao(@MainDB Configuration cfg, Locks locks) {
         super(cfg);
+        this.locks = locks;
     }
 
-    public LockEntry tryLock(UUID instanceId, UUID orgId, UUID projectId, ProcessLockScope scope, String lockName) {
-        while (true) {
-            boolean locked = insert(instanceId, orgId, projectId, scope, lockName);
-            if (locked) {
-                return LockEntry.builder()
-                        .instanceId(instanceId)
-                        .orgId(orgId)
-                        .projectId(projectId)
-                        .scope(scope)
-                        .name(lockName)
-                        .build();
-            } else {
-                LockEntry e = get(orgId, projectId, scope, lockName);
-                if (e != null) {
-                    return e;
+    /**
+     * Acquires the lock if it is free and there are no other processes
+     * waiting for it. Otherwise adds the process to the lock's wait queue.
+     *
+     * @return the current holder of the lock or the first process in the queue
+     */
+    public LockHolder tryLock(UUID instanceId, UUID orgId, UUID projectId, ProcessLockScope scope, String lockName) {
+        return txResult(tx -> {
+            lockQueue(tx, orgId, projectId, scope, lockName);
+
+            LockEntry current = get(tx, orgId, projectId, scope, lockName);
+            if (current != null) {
+                if (!current.instanceId().equals(instanceId)) {
+                    enqueue(tx, instanceId, orgId, projectId, scope, lockName);
                 }
+                return LockHolder.of(current);
             }
-        }
+
+            LockHolder next = nextWaiter(tx, orgId, projectId, scope, lockName);
+            if (next != null && !next.lock().instanceId().equals(instanceId)) {
+                enqueue(tx, instanceId, orgId, projectId, scope, lockName);
+                return next;
+            }
+
+            insert(tx, instanceId, orgId, projectId, scope, lockName);
+            deleteWaiter(tx, instanceId, scope, lockName);
+
+            LockEntry lock = LockEntry.builder()
+                    .instanceId(instanceId)
+                    .orgId(orgId)
+                    .projectId(projectId)
+                    .scope(scope)
+                    .name(lockName)
+                    .build();
+
+            return LockHolder.builder()
+                    .lock(lock)
+                    .waitingSince(next != null ? next.waitingSince() : null)
+                    .build();
+        });
+    }
+
+    /**
+     * Releases the lock and hands it over to the first waiting process.
+     *
+     * @return the new holder of the lock or {@code null} if the lock
+     * wasn't held by the process or if there are no waiting processes
+     */
+    public LockHolder unlock(UUID instanceId, UUID orgId, UUID projectId, ProcessLockScope scope, String lockName) {
+        return txResult(tx -> {
+            lockQueue(tx, orgId, projectId, scope, lockName);
+
+            deleteWaiter(tx, instanceId, scope, lockName);
+
+            if (delete(tx, instanceId, orgId, projectId, scope, lockName) == 0) {
+                return null;
+            }
+
+            LockHolder next = nextWaiter(tx, orgId, projectId, scope, lockName);
+            if (next == null) {
+                return null;
+            }
+
+            LockEntry l = next.lock();
+            insert(tx, l.instanceId(), l.orgId(), l.projectId(), scope, lockName);
+            deleteWaiter(tx, l.instanceId(), scope, lockName);
+            return next;
+        });
     }
 
     public LockEntry get(UUID orgId, UUID projectId, ProcessLockScope scope, String lockName) {
         return txResult(tx -> get(tx, orgId, projectId, scope, lockName));
     }
 
-    public boolean insert(UUID instanceId, UUID orgId, UUID projectId, ProcessLockScope scope, String lockName) {
-        return txResult(tx -> insert(tx, instanceId, orgId, projectId, scope, lockName));
+    public int countWaiters() {
+        return dsl().fetchCount(PROCESS_LOCK_WAITERS);
+    }
+
+    /**
+     * Removes the finished processes from all wait queues.
+     */
+    public int deleteStalledWaiters() {
+        return txResult(tx -> {
+            ProcessQueue q = PROCESS_QUEUE.as("q");
+            ProcessLockWaiters w = PROCESS_LOCK_WAITERS.as("w");
+
+            return tx.deleteFrom(w)
+                    .where(w.INSTANCE_ID.in(tx.select(q.INSTANCE_ID)
+                            .from(q)
+                            .where(q.INSTANCE_ID.eq(w.INSTANCE_ID)
+                                    .and(q.CURRENT_STATUS.in(FINISHED_STATUSES)))))
+                    .execute();
+        });
     }
 
-    public void delete(UUID instanceId, UUID orgId, UUID projectId, ProcessLockScope scope, String lockName) {
-        tx(tx -> delete(tx, instanceId, orgId, projectId, scope, lockName));
+    private void lockQueue(DSLContext tx, UUID orgId, UUID projectId, ProcessLockScope scope, String lockName) {
+        UUID scopeId = scope == ProcessLockScope.ORG ? orgId : projectId;
+        locks.lock(tx, "process-lock/" + scope + "/" + scopeId + "/" + lockName);
     }
 
-    private boolean insert(DSLContext tx, UUID instanceId, UUID orgId, UUID projectId, ProcessLockScope scope, String lockName) {
+    private void insert(DSLContext tx, UUID instanceId, UUID orgId, UUID projectId, ProcessLockScope scope, String lockName) {
         ProcessLocks l = PROCESS_LOCKS.as("l");
-        return tx.insertInto(l, l.INSTANCE_ID, l.ORG_ID, l.PROJECT_ID, l.LOCK_SCOPE, l.LOCK_NAME)
+        tx.insertInto(l, l.INSTANCE_ID, l.ORG_ID, l.PROJECT_ID, l.LOCK_SCOPE, l.LOCK_NAME)
+                .values(instanceId, orgId, projectId, scope, lockName)
+                .execute();
+    }
+
+    private void enqueue(DSLContext tx, UUID instanceId, UUID orgId, UUID projectId, ProcessLockScope scope, String lockName) {
+        ProcessLockWaiters w = PROCESS_LOCK_WAITERS.as("w");
+        tx.insertInto(w, w.INSTANCE_ID, w.ORG_ID, w.PROJECT_ID, w.LOCK_SCOPE, w.LOCK_NAME)
                 .values(instanceId, orgId, projectId, scope, lockName)
                 .onConflictDoNothing()
-                .execute() == 1;
+                .execute();
+    }
+
+    /**
+     * Returns the first waiting process. Finished processes are removed from the queue.
+     */
+    private LockHolder nextWaiter(DSLContext tx, UUID orgId, UUID projectId, ProcessLockScope scope, String lockName) {
+        ProcessLockWaiters w = PROCESS_LOCK_WAITERS.as("w");
+        ProcessQueue q = PROCESS_QUEUE.as("q");
+
+        while (true) {
+            SelectConditionStep<Record6<Long, UUID, UUID, UUID, OffsetDateTime, String>> s = tx.select(w.SEQ_ID, w.INSTANCE_ID, w.ORG_ID, w.PROJECT_ID, w.CREATED_AT, q.CURRENT_STATUS)
+                    .from(w)
+                    .leftJoin(q).on(q.INSTANCE_ID.eq(w.INSTANCE_ID))
+                    .where(w.LOCK_NAME.eq(lockName)
+                            .and(w.LOCK_SCOPE.eq(scope))
+                            .and(scopeCondition(w.ORG_ID, w.PROJECT_ID, orgId, projectId, scope)));
+
+            Record6<Long, UUID, UUID, UUID, OffsetDateTime, String> r = s.orderBy(w.SEQ_ID)
+                    .limit(1)
+                    .fetchOne();
+
+            if (r == null) {
+                return null;
+            }
+
+            String status = r.value6();
+            if (status == null || isFinished(status)) {
+                tx.deleteFrom(w)
+                        .where(w.SEQ_ID.eq(r.value1()))
+                        .execute();
+                continue;
+            }
+
+            LockEntry lock = LockEntry.builder()
+                    .instanceId(r.value2())
+                    .orgId(r.value3())
+                    .projectId(r.value4())
+                    .scope(scope)
+                    .name(lockName)
+                    .build();
+
+            return LockHolder.builder()
+                    .lock(lock)
+                    .waitingSince(r.value5())
+                    .build();
+        }
+    }
+
+    private void deleteWaiter(DSLContext tx, UUID instanceId, ProcessLockScope scope, String lockName) {
+        ProcessLockWaiters w = PROCESS_LOCK_WAITERS.as("w");
+        tx.deleteFrom(w)
+                .where(w.INSTANCE_ID.eq(instanceId)
+                        .and(w.LOCK_SCOPE.eq(scope))
+                        .and(w.LOCK_NAME.eq(lockName)))
+                .execute();
     }
 
     private LockEntry get(DSLContext tx, UUID orgId, UUID projectId, ProcessLockScope scope, String lockName) {
         ProcessLocks l = PROCESS_LOCKS.as("l");
         SelectConditionStep<ProcessLocksRecord> q = tx.selectFrom(l)
                 .where(l.LOCK_NAME.eq(lockName)
-                        .and(l.LOCK_SCOPE.eq(scope)));
-
-        switch (scope) {
-            case ORG:
-                q.and(l.ORG_ID.eq(orgId));
-                break;
-            case PROJECT:
-                q.and(l.PROJECT_ID.eq(projectId));
-                break;
-            default:
-                throw new IllegalArgumentException("unknown lock scope: " + scope);
-        }
+                        .and(l.LOCK_SCOPE.eq(scope))
+                        .and(scopeCondition(l.ORG_ID, l.PROJECT_ID, orgId, projectId, scope)));
 
         return q.fetchOne(r -> LockEntry.builder()
                 .instanceId(r.getInstanceId())
@@ -109,9 +246,9 @@ public class ProcessLocksDao extends AbstractDao {
                 .build());
     }
 
-    private void delete(DSLContext tx, UUID instanceId, UUID orgId, UUID projectId, ProcessLockScope scope, String lockName) {
+    private int delete(DSLContext tx, UUID instanceId, UUID orgId, UUID projectId, ProcessLockScope scope, String lockName) {
         ProcessLocks l = PROCESS_LOCKS.as("l");
-        tx.deleteFrom(l)
+        return tx.deleteFrom(l)
                 .where(l.INSTANCE_ID.eq(instanceId)
                         .and(l.ORG_ID.eq(orgId))
                         .and(l.PROJECT_ID.eq(projectId))
@@ -119,4 +256,24 @@ public class ProcessLocksDao extends AbstractDao {
                         .and(l.LOCK_NAME.eq(lockName)))
                 .execute();
     }
+
+    private static Condition scopeCondition(Field<UUID> orgIdField, Field<UUID> projectIdField, UUID orgId, UUID projectId, ProcessLockScope scope) {
+        switch (scope) {
+            case ORG:
+                return orgIdField.eq(orgId);
+            case PROJECT:
+                return projectIdField.eq(projectId);
+            default:
+                throw new IllegalArgumentException("unknown lock scope: " + scope);
+        }
+    }
+
+    private static boolean isFinished(String status) {
+        for (String s : FINISHED_STATUSES) {
+            if (s.equals(status)) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
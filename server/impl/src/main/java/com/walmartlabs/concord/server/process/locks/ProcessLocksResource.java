@@ -50,18 +50,24 @@ public class ProcessLocksResource implements Resource {
 
     private final ProcessQueueManager processQueueManager;
     private final ProcessQueueManager queueManager;
-    private final ProcessLocksDao dao;
+    private final ProcessLockManager lockManager;
 
     @Inject
-    public ProcessLocksResource(ProcessQueueManager processQueueManager, ProcessQueueManager queueManager, ProcessLocksDao dao) {
+    public ProcessLocksResource(ProcessQueueManager processQueueManager,
+                                ProcessQueueManager queueManager,
+                                ProcessLockManager lockManager) {
+
         this.processQueueManager = processQueueManager;
         this.queueManager = queueManager;
-        this.dao = dao;
+        this.lockManager = lockManager;
     }
 
     /**
      * Acquires the lock if it is available and returns the LockResult.acquired = true.
-     * If the lock is not available then this method will return the LockResult.acquired = false.
+     * If the lock is not available then this method will return the LockResult.acquired = false
+     * and the process is added to the lock's wait queue. The request doesn't wait
+     * for the lock, callers can call the method again to check whether the lock
+     * was handed over to the process.
      */
     @POST
     @ApiOperation("Try lock")
@@ -74,7 +80,8 @@ public class ProcessLocksResource implements Resource {
 
         ProcessEntry e = assertProcess(instanceId);
 
-        LockEntry lock = dao.tryLock(e.instanceId(), e.orgId(), e.projectId(), scope, lockName);
+        LockEntry lock = lockManager.tryLock(e.instanceId(), e.orgId(), e.projectId(), scope, lockName);
+
         boolean acquired = lock.instanceId().equals(instanceId);
         AbstractWaitCondition waitCondition = acquired ? null : ProcessLockCondition.from(lock);
         queueManager.updateWait(new ProcessKey(e.instanceId(), e.createdAt()), waitCondition);
@@ -96,7 +103,7 @@ public class ProcessLocksResource implements Resource {
                        @QueryParam("scope") @DefaultValue("PROJECT") ProcessLockScope scope) {
 
         ProcessEntry e = assertProcess(instanceId);
-        dao.delete(e.instanceId(), e.orgId(), e.projectId(), scope, lockName);
+        lockManager.unlock(e.instanceId(), e.orgId(), e.projectId(), scope, lockName);
     }
 
     private ProcessEntry assertProcess(UUID instanceId) {
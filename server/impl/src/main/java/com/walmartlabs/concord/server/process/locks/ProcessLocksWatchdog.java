@@ -36,6 +36,7 @@ import org.slf4j.LoggerFactory;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
+import java.util.List;
 import java.util.UUID;
 
 import static com.walmartlabs.concord.server.jooq.Tables.PROCESS_LOCKS;
@@ -43,7 +44,8 @@ import static com.walmartlabs.concord.server.jooq.tables.ProcessQueue.PROCESS_QU
 
 /**
  * Takes care of processes dead process locks.
- * E.g. removes locks for finished processes.
+ * E.g. releases locks of finished processes and removes finished processes
+ * from the wait queues.
  */
 @Named("process-locks-watchdog")
 @Singleton
@@ -52,10 +54,14 @@ public class ProcessLocksWatchdog implements ScheduledTask {
     private static final Logger log = LoggerFactory.getLogger(ProcessLocksWatchdog.class);
 
     private final WatchdogDao dao;
+    private final ProcessLocksDao locksDao;
+    private final ProcessLockManager lockManager;
 
     @Inject
-    public ProcessLocksWatchdog(WatchdogDao dao) {
+    public ProcessLocksWatchdog(WatchdogDao dao, ProcessLocksDao locksDao, ProcessLockManager lockManager) {
         this.dao = dao;
+        this.locksDao = locksDao;
+        this.lockManager = lockManager;
     }
 
     @Override
@@ -66,8 +72,15 @@ public class ProcessLocksWatchdog implements ScheduledTask {
 
     @Override
     public void performTask() {
-        int count = dao.deleteStalledLocks();
-        log.debug("performTask -> {} locks deleted", count);
+        // released one by one to hand the locks over to the waiting processes
+        List<LockEntry> locks = dao.listStalledLocks();
+        for (LockEntry l : locks) {
+            lockManager.unlock(l.instanceId(), l.orgId(), l.projectId(), l.scope(), l.name());
+        }
+        log.debug("performTask -> {} locks released", locks.size());
+
+        int waiters = locksDao.deleteStalledWaiters();
+        log.debug("performTask -> {} waiters removed", waiters);
     }
 
     @Named
@@ -85,20 +98,24 @@ public class ProcessLocksWatchdog implements ScheduledTask {
             super(cfg);
         }
 
-        public int deleteStalledLocks() {
-            return txResult(tx -> {
-                ProcessQueue q = PROCESS_QUEUE.as("q");
-                ProcessLocks l = PROCESS_LOCKS.as("l");
-
-                SelectConditionStep<Record1<UUID>> finishedProcesses = tx.select(q.INSTANCE_ID)
-                        .from(q)
-                        .where(q.INSTANCE_ID.eq(l.INSTANCE_ID)
-                                .and(q.CURRENT_STATUS.in(Utils.toString(FINISHED_STATUSES))));
-
-                return tx.deleteFrom(l)
-                        .where(l.INSTANCE_ID.in(finishedProcesses))
-                        .execute();
-            });
+        public List<LockEntry> listStalledLocks() {
+            ProcessQueue q = PROCESS_QUEUE.as("q");
+            ProcessLocks l = PROCESS_LOCKS.as("l");
+
+            SelectConditionStep<Record1<UUID>> finishedProcesses = dsl().select(q.INSTANCE_ID)
+                    .from(q)
+                    .where(q.INSTANCE_ID.eq(l.INSTANCE_ID)
+                            .and(q.CURRENT_STATUS.in(Utils.toString(FINISHED_STATUSES))));
+
+            return dsl().selectFrom(l)
+                    .where(l.INSTANCE_ID.in(finishedProcesses))
+                    .fetch(r -> LockEntry.builder()
+                            .instanceId(r.getInstanceId())
+                            .orgId(r.getOrgId())
+                            .projectId(r.getProjectId())
+                            .scope(r.getLockScope())
+                            .name(r.getLockName())
+                            .build());
         }
     }
 }
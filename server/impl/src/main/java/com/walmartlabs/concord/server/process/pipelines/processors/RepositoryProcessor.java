@@ -43,6 +43,7 @@ import java.nio.file.Path;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 /**
@@ -90,6 +91,26 @@ public class RepositoryProcessor implements PayloadProcessor {
 
         Path dst = payload.getHeader(Payload.WORKSPACE_DIR);
 
+        // repositories pointing to a specific commit can be exported from a snapshot without the lock
+        Optional<Payload> snapshotPayload = Optional.empty();
+        if (payload.getHeader(Payload.REPOSITORY) == null) {
+            try {
+                snapshotPayload = repositoryManager.withSnapshot(repo, repository -> {
+                    Snapshot snapshot = repository.export(dst);
+                    // the snapshot can be removed after use, so the repository is not passed down the pipeline
+                    return toPayload(payload, repo, repository, repository.info(), snapshot);
+                });
+            } catch (Exception e) {
+                log.error("process -> repository error", e);
+                logManager.error(processKey, "Error while processing a repository: " + repo.getUrl(), e);
+                throw new ProcessException(processKey, "Error while processing a repository: " + repo.getUrl(), e);
+            }
+        }
+
+        if (snapshotPayload.isPresent()) {
+            return chain.process(snapshotPayload.get());
+        }
+
         Payload newPayload = repositoryManager.withLock(repo.getUrl(), () -> {
             try {
                 Repository repository = payload.getHeader(Payload.REPOSITORY);
@@ -99,18 +120,11 @@ public class RepositoryProcessor implements PayloadProcessor {
 
                 Snapshot snapshot = repository.export(dst);
                 com.walmartlabs.concord.repository.RepositoryInfo info = repository.info();
-                String branch = repository.branch();
 
-                CommitInfo ci = null;
-                if (info != null) {
-                    ci = new CommitInfo(info.getCommitId(), info.getAuthor(), info.getMessage());
-                }
+                repositoryManager.saveSnapshot(repo, repository);
 
-                RepositoryInfo i = new RepositoryInfo(repo.getId(), repo.getName(), repo.getUrl(), repo.getPath(), branch, repo.getCommitId(), ci);
-                return payload
-                        .putHeader(REPOSITORY_INFO_KEY, i)
-                        .putHeader(Payload.REPOSITORY, repository)
-                        .putHeader(Payload.REPOSITORY_SNAPSHOT, Collections.singletonList(snapshot));
+                return toPayload(payload, repo, repository, info, snapshot)
+                        .putHeader(Payload.REPOSITORY, repository);
             } catch (Exception e) {
                 log.error("process -> repository error", e);
                 logManager.error(processKey, "Error while processing a repository: " + repo.getUrl(), e);
@@ -121,6 +135,20 @@ public class RepositoryProcessor implements PayloadProcessor {
         return chain.process(newPayload);
     }
 
+    private static Payload toPayload(Payload payload, RepositoryEntry repo, Repository repository,
+                                     com.walmartlabs.concord.repository.RepositoryInfo info, Snapshot snapshot) {
+
+        CommitInfo ci = null;
+        if (info != null) {
+            ci = new CommitInfo(info.getCommitId(), info.getAuthor(), info.getMessage());
+        }
+
+        RepositoryInfo i = new RepositoryInfo(repo.getId(), repo.getName(), repo.getUrl(), repo.getPath(), repository.branch(), repo.getCommitId(), ci);
+        return payload
+                .putHeader(REPOSITORY_INFO_KEY, i)
+                .putHeader(Payload.REPOSITORY_SNAPSHOT, Collections.singletonList(snapshot));
+    }
+
     private RepositoryEntry getRepositoryEntry(Payload payload) {
         UUID projectId = payload.getHeader(Payload.PROJECT_ID);
         UUID repoId = payload.getHeader(Payload.REPOSITORY_ID);
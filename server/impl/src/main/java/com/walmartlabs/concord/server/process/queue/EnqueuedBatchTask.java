@@ -32,13 +32,11 @@ import com.walmartlabs.concord.server.process.PayloadBuilder;
 import com.walmartlabs.concord.server.process.pipelines.EnqueueProcessPipeline;
 import com.walmartlabs.concord.server.process.pipelines.processors.Pipeline;
 import com.walmartlabs.concord.server.repository.RepositoryManager;
-import com.walmartlabs.concord.server.sdk.PartialProcessKey;
 import com.walmartlabs.concord.server.sdk.ProcessKey;
 import com.walmartlabs.concord.server.sdk.ProcessStatus;
 import com.walmartlabs.concord.server.sdk.metrics.WithTimer;
 import org.immutables.value.Value;
 import org.jooq.Configuration;
-import org.jooq.DSLContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -52,7 +50,6 @@ import java.util.stream.Collectors;
 
 import static com.walmartlabs.concord.server.jooq.Tables.REPOSITORIES;
 import static com.walmartlabs.concord.server.jooq.tables.ProcessQueue.PROCESS_QUEUE;
-import static org.jooq.impl.DSL.value;
 
 public class EnqueuedBatchTask extends PeriodicTask {
 
@@ -282,9 +279,12 @@ public class EnqueuedBatchTask extends PeriodicTask {
     @Named
     static class Dao extends AbstractDao {
 
+        private final ProcessQueueManager queueManager;
+
         @Inject
-        public Dao(@MainDB Configuration cfg) {
+        public Dao(@MainDB Configuration cfg, ProcessQueueManager queueManager) {
             super(cfg);
+            this.queueManager = queueManager;
         }
 
         @WithTimer
@@ -307,10 +307,9 @@ public class EnqueuedBatchTask extends PeriodicTask {
                 Collection<Batch> batches = toBatches(items);
                 batches = removeDuplicateUrls(batches);
 
-                toPreparing(tx, batches.stream()
+                queueManager.toPreparing(tx, batches.stream()
                         .map(Batch::keys)
                         .flatMap(Collection::stream)
-                        .map(PartialProcessKey::getInstanceId)
                         .collect(Collectors.toList()));
 
                 return batches;
@@ -334,9 +333,7 @@ public class EnqueuedBatchTask extends PeriodicTask {
                     return result;
                 }
 
-                toPreparing(tx, result.stream()
-                        .map(PartialProcessKey::getInstanceId)
-                        .collect(Collectors.toList()));
+                queueManager.toPreparing(tx, result);
 
                 return result;
             });
@@ -373,12 +370,5 @@ public class EnqueuedBatchTask extends PeriodicTask {
             }
             return result;
         }
-
-        private void toPreparing(DSLContext tx, List<UUID> processes) {
-            tx.update(PROCESS_QUEUE)
-                    .set(PROCESS_QUEUE.CURRENT_STATUS, value(ProcessStatus.PREPARING.name()))
-                    .where(PROCESS_QUEUE.INSTANCE_ID.in(processes))
-                    .execute();
-        }
     }
 }
@@ -29,7 +29,6 @@ import com.walmartlabs.concord.server.process.Payload;
 import com.walmartlabs.concord.server.process.PayloadBuilder;
 import com.walmartlabs.concord.server.process.pipelines.EnqueueProcessPipeline;
 import com.walmartlabs.concord.server.process.pipelines.processors.Pipeline;
-import com.walmartlabs.concord.server.sdk.PartialProcessKey;
 import com.walmartlabs.concord.server.sdk.ProcessKey;
 import com.walmartlabs.concord.server.sdk.ProcessStatus;
 import com.walmartlabs.concord.server.sdk.metrics.WithTimer;
@@ -42,10 +41,8 @@ import javax.inject.Named;
 import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
 
 import static com.walmartlabs.concord.server.jooq.tables.ProcessQueue.PROCESS_QUEUE;
-import static org.jooq.impl.DSL.value;
 
 public class EnqueuedTask extends PeriodicTask {
 
@@ -161,9 +158,12 @@ public class EnqueuedTask extends PeriodicTask {
     @Named
     private static class Dao extends AbstractDao {
 
+        private final ProcessQueueManager queueManager;
+
         @Inject
-        public Dao(@MainDB Configuration cfg) {
+        public Dao(@MainDB Configuration cfg, ProcessQueueManager queueManager) {
             super(cfg);
+            this.queueManager = queueManager;
         }
 
         public List<ProcessKey> poll(int limit) {
@@ -181,10 +181,7 @@ public class EnqueuedTask extends PeriodicTask {
                     return result;
                 }
 
-                tx.update(PROCESS_QUEUE)
-                        .set(PROCESS_QUEUE.CURRENT_STATUS, value(ProcessStatus.PREPARING.name()))
-                        .where(PROCESS_QUEUE.INSTANCE_ID.in(result.stream().map(PartialProcessKey::getInstanceId).collect(Collectors.toList())))
-                        .execute();
+                queueManager.toPreparing(tx, result);
 
                 return result;
             });
@@ -87,6 +87,14 @@ public interface ProcessFilter {
     @Nullable
     List<DateFilter> startAt();
 
+    /**
+     * ID of the last process of the previous page. If specified, only
+     * the processes created before that process are returned
+     * (keyset pagination by CREATED_AT and INSTANCE_ID).
+     */
+    @Nullable
+    UUID cursor();
+
     @Nullable
     Integer limit();
 
@@ -0,0 +1,213 @@
+package com.walmartlabs.concord.server.process.queue;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.db.AbstractDao;
+import com.walmartlabs.concord.db.MainDB;
+import com.walmartlabs.concord.server.cfg.ProcessConfiguration;
+import com.walmartlabs.concord.server.process.queue.ProcessFilter.FilterType;
+import com.walmartlabs.concord.server.process.queue.ProcessFilter.MetadataFilter;
+import com.walmartlabs.concord.server.sdk.BackgroundTask;
+import org.jooq.Configuration;
+import org.jooq.ConnectionProvider;
+import org.jooq.QueryPart;
+import org.jooq.exception.DataAccessException;
+import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.jooq.impl.DSL.*;
+
+/**
+ * Creates GIN (pg_trgm) indexes for the process metadata keys listed in
+ * {@code process.metaIndexes}. The indexes are created concurrently
+ * in a background thread, the server doesn't wait for them on startup.
+ */
+@Named
+@Singleton
+public class ProcessMetaIndexes implements BackgroundTask {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessMetaIndexes.class);
+
+    private static final String INDEX_PREFIX = "idx_proc_meta_";
+
+    /**
+     * Filter types that can use the trigram indexes. EQUALS is rendered as
+     * a jsonb containment check on the whole META column and can't use them.
+     */
+    private static final Set<FilterType> INDEXED_FILTER_TYPES = EnumSet.of(
+            FilterType.CONTAINS,
+            FilterType.STARTS_WITH,
+            FilterType.ENDS_WITH);
+
+    private final List<String> keys;
+    private final Dao dao;
+    private final Set<String> indexedKeys = ConcurrentHashMap.newKeySet();
+
+    private volatile Thread worker;
+
+    @Inject
+    public ProcessMetaIndexes(ProcessConfiguration cfg, Dao dao) {
+        this.keys = cfg.getMetaIndexes() != null ? cfg.getMetaIndexes() : Collections.emptyList();
+        this.dao = dao;
+    }
+
+    @Override
+    public void start() {
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        worker = new Thread(this::createIndexes, "process-meta-indexes");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public void stop() {
+        Thread t = worker;
+        if (t != null) {
+            worker = null;
+            t.interrupt();
+        }
+    }
+
+    /**
+     * @return {@code true} if all filters can use the metadata indexes.
+     */
+    public boolean isIndexed(List<MetadataFilter> filters) {
+        for (MetadataFilter f : filters) {
+            if (!indexedKeys.contains(f.key()) || !INDEXED_FILTER_TYPES.contains(f.type())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void createIndexes() {
+        Map<String, Boolean> existing = dao.listIndexes();
+
+        for (String key : keys) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+
+            String indexName = indexName(key);
+            try {
+                Boolean valid = existing.get(indexName);
+                if (valid == null || !valid) {
+                    log.info("createIndexes -> creating '{}' for the metadata key '{}'...", indexName, key);
+                    if (valid != null) {
+                        // left by a failed "create index concurrently"
+                        dao.dropIndex(indexName);
+                    }
+                    dao.createIndex(indexName, key);
+                    log.info("createIndexes -> '{}' created", indexName);
+                }
+                indexedKeys.add(key);
+            } catch (Exception e) {
+                log.warn("createIndexes -> error while creating '{}' for the metadata key '{}': {}", indexName, key, e.getMessage());
+            }
+        }
+    }
+
+    static String indexName(String key) {
+        String s = key.toLowerCase().replaceAll("[^a-z0-9_]", "_");
+        if (s.length() > 32) {
+            s = s.substring(0, 32);
+        }
+        return INDEX_PREFIX + s + "_" + hash(key);
+    }
+
+    private static String hash(String s) {
+        try {
+            byte[] ab = MessageDigest.getInstance("SHA-1").digest(s.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 4; i++) {
+                sb.append(String.format("%02x", ab[i]));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Named
+    static class Dao extends AbstractDao {
+
+        @Inject
+        public Dao(@MainDB Configuration cfg) {
+            super(cfg);
+        }
+
+        /**
+         * @return names of the existing metadata indexes and their validity.
+         */
+        public Map<String, Boolean> listIndexes() {
+            return dsl().resultQuery("select c.relname, i.indisvalid " +
+                    "from pg_index i join pg_class c on c.oid = i.indexrelid " +
+                    "where i.indrelid = 'process_queue'::regclass and c.relname like {0}", inline(INDEX_PREFIX + "%"))
+                    .fetchMap(r -> r.get(0, String.class), r -> r.get(1, Boolean.class));
+        }
+
+        public void createIndex(String indexName, String key) {
+            executeWithoutTx("create index concurrently if not exists {0} on PROCESS_QUEUE using gin ((META ->> {1}) gin_trgm_ops)",
+                    name(indexName), inline(key));
+        }
+
+        public void dropIndex(String indexName) {
+            executeWithoutTx("drop index concurrently if exists {0}", name(indexName));
+        }
+
+        /**
+         * "concurrently" statements can't be executed in a transaction,
+         * the connection is switched to the autocommit mode.
+         */
+        private void executeWithoutTx(String sql, QueryPart... parts) {
+            ConnectionProvider cp = cfg.connectionProvider();
+            Connection conn = cp.acquire();
+            try {
+                boolean autoCommit = conn.getAutoCommit();
+                conn.setAutoCommit(true);
+                try {
+                    DSL.using(conn, cfg.dialect()).execute(sql, (Object[]) parts);
+                } finally {
+                    conn.setAutoCommit(autoCommit);
+                }
+            } catch (SQLException e) {
+                throw new DataAccessException("Error while executing: " + sql, e);
+            } finally {
+                cp.release(conn);
+            }
+        }
+    }
+}
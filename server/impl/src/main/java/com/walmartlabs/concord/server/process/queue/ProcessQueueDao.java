@@ -102,11 +102,16 @@ public class ProcessQueueDao extends AbstractDao {
                 .fetchOne(r -> new ProcessKey(instanceId, r.value1()));
     }
 
-    public void insert(DSLContext tx, ProcessKey processKey, ProcessStatus status, ProcessKind kind,
-                       UUID parentInstanceId, UUID projectId, UUID repoId, UUID initiatorId,
-                       Map<String, Object> meta, TriggeredByEntry triggeredBy) {
+    /**
+     * @return the stats key of the new process
+     */
+    public List<ProcessStatsChange> insert(DSLContext tx, ProcessKey processKey, ProcessStatus status, ProcessKind kind,
+                                           UUID parentInstanceId, UUID projectId, UUID repoId, UUID initiatorId,
+                                           Map<String, Object> meta, TriggeredByEntry triggeredBy) {
+
+        Field<String> requirementsHash = ProcessStatsDao.requirementsHash(PROCESS_QUEUE.REQUIREMENTS);
 
-        tx.insertInto(PROCESS_QUEUE)
+        Record5<UUID, UUID, String, String, JSONB> r = tx.insertInto(PROCESS_QUEUE)
                 .set(PROCESS_QUEUE.INSTANCE_ID, processKey.getInstanceId())
                 .set(PROCESS_QUEUE.PROCESS_KIND, kind.toString())
                 .set(PROCESS_QUEUE.PARENT_INSTANCE_ID, parentInstanceId)
@@ -118,23 +123,58 @@ public class ProcessQueueDao extends AbstractDao {
                 .set(PROCESS_QUEUE.LAST_UPDATED_AT, currentOffsetDateTime())
                 .set(PROCESS_QUEUE.META, objectMapper.toJSONB(meta))
                 .set(PROCESS_QUEUE.TRIGGERED_BY, objectMapper.toJSONB(triggeredBy))
-                .execute();
+                .returningResult(ProcessStatsDao.orgId(PROCESS_QUEUE.PROJECT_ID), PROCESS_QUEUE.PROJECT_ID,
+                        PROCESS_QUEUE.CURRENT_STATUS, requirementsHash, PROCESS_QUEUE.REQUIREMENTS)
+                .fetchOne();
+
+        ProcessStatsKey to = ProcessStatsDao.key(r.value1(), r.value2(), r.value3(), r.value4(), r.value5());
+        return Collections.singletonList(ProcessStatsChange.of(null, to));
     }
 
-    public void updateAgentId(DSLContext tx, ProcessKey processKey, String agentId, ProcessStatus status) {
+    public List<ProcessStatsChange> updateAgentId(DSLContext tx, ProcessKey processKey, String agentId, ProcessStatus status) {
         UUID instanceId = processKey.getInstanceId();
 
-        int i = tx.update(PROCESS_QUEUE)
+        UpdateSetMoreStep<ProcessQueueRecord> q = tx.update(PROCESS_QUEUE)
                 .set(PROCESS_QUEUE.CURRENT_STATUS, status.toString())
                 .set(PROCESS_QUEUE.LAST_AGENT_ID, agentId)
                 .set(PROCESS_QUEUE.LAST_UPDATED_AT, currentOffsetDateTime())
-                .set(PROCESS_QUEUE.LAST_RUN_AT, createRunningAtValue(status))
-                .where(PROCESS_QUEUE.INSTANCE_ID.eq(instanceId))
-                .execute();
+                .set(PROCESS_QUEUE.LAST_RUN_AT, createRunningAtValue(status));
 
+        List<ProcessStatsChange> result = updateWithStats(q, Collections.singleton(instanceId), noCondition());
+
+        int i = result.size();
         if (i != 1) {
             throw new DataAccessException("Invalid number of rows updated: " + i);
         }
+
+        return result;
+    }
+
+    /**
+     * Executes the update and returns the stats keys of the updated processes
+     * before and after the update. The "prev" subquery locks the rows before
+     * the update, the returned previous values can't be stale.
+     */
+    private static List<ProcessStatsChange> updateWithStats(UpdateSetMoreStep<ProcessQueueRecord> q, Collection<UUID> instanceIds, Condition condition) {
+        ProcessQueue prev = PROCESS_QUEUE.as("prev");
+        Table<Record3<UUID, String, JSONB>> p = select(prev.INSTANCE_ID, prev.CURRENT_STATUS, prev.REQUIREMENTS)
+                .from(prev)
+                .where(prev.INSTANCE_ID.in(instanceIds))
+                .forUpdate()
+                .asTable("p");
+
+        Field<String> prevStatus = p.field(prev.CURRENT_STATUS);
+        Field<JSONB> prevRequirements = p.field(prev.REQUIREMENTS);
+
+        return q.from(p)
+                .where(PROCESS_QUEUE.INSTANCE_ID.eq(p.field(prev.INSTANCE_ID)).and(condition))
+                .returningResult(ProcessStatsDao.orgId(PROCESS_QUEUE.PROJECT_ID), PROCESS_QUEUE.PROJECT_ID,
+                        prevStatus, ProcessStatsDao.requirementsHash(prevRequirements), prevRequirements,
+                        PROCESS_QUEUE.CURRENT_STATUS, ProcessStatsDao.requirementsHash(PROCESS_QUEUE.REQUIREMENTS), PROCESS_QUEUE.REQUIREMENTS)
+                .fetch()
+                .map(r -> ProcessStatsChange.of(
+                        ProcessStatsDao.key(r.value1(), r.value2(), r.value3(), r.value4(), r.value5()),
+                        ProcessStatsDao.key(r.value1(), r.value2(), r.value6(), r.value7(), r.value8())));
     }
 
     private static Field<OffsetDateTime> createRunningAtValue(ProcessStatus status) {
@@ -143,10 +183,10 @@ public class ProcessQueueDao extends AbstractDao {
                         .otherwise(PROCESS_QUEUE.LAST_RUN_AT));
     }
 
-    public void enqueue(DSLContext tx, ProcessKey processKey, Set<String> tags, OffsetDateTime startAt,
-                        Map<String, Object> requirements, Long processTimeout, Set<String> handlers,
-                        Map<String, Object> meta, Imports imports, Map<String, Object> exclusive,
-                        String runtime, List<String> dependencies) {
+    public List<ProcessStatsChange> enqueue(DSLContext tx, ProcessKey processKey, Set<String> tags, OffsetDateTime startAt,
+                                            Map<String, Object> requirements, Long processTimeout, Set<String> handlers,
+                                            Map<String, Object> meta, Imports imports, Map<String, Object> exclusive,
+                                            String runtime, List<String> dependencies) {
 
         UpdateSetMoreStep<ProcessQueueRecord> q = tx.update(PROCESS_QUEUE)
                 .set(PROCESS_QUEUE.CURRENT_STATUS, ProcessStatus.ENQUEUED.toString())
@@ -192,13 +232,14 @@ public class ProcessQueueDao extends AbstractDao {
             q.set(PROCESS_QUEUE.DEPENDENCIES, Utils.toArray(dependencies));
         }
 
-        int i = q
-                .where(PROCESS_QUEUE.INSTANCE_ID.eq(processKey.getInstanceId()))
-                .execute();
+        List<ProcessStatsChange> result = updateWithStats(q, Collections.singleton(processKey.getInstanceId()), noCondition());
 
+        int i = result.size();
         if (i != 1) {
             throw new DataAccessException("Invalid number of rows updated: " + i);
         }
+
+        return result;
     }
 
     public void updateRepositoryDetails(PartialProcessKey processKey, UUID repoId, String repoUrl, String repoPath, String commitId, String commitMsg) {
@@ -236,29 +277,29 @@ public class ProcessQueueDao extends AbstractDao {
         });
     }
 
-    public void updateStatus(DSLContext tx, ProcessKey processKey, ProcessStatus status) {
+    public List<ProcessStatsChange> updateStatus(DSLContext tx, ProcessKey processKey, ProcessStatus status) {
         UUID instanceId = processKey.getInstanceId();
 
-        tx.update(PROCESS_QUEUE)
+        UpdateSetMoreStep<ProcessQueueRecord> q = tx.update(PROCESS_QUEUE)
                 .set(PROCESS_QUEUE.CURRENT_STATUS, status.toString())
                 .set(PROCESS_QUEUE.LAST_RUN_AT, createRunningAtValue(status))
-                .set(PROCESS_QUEUE.LAST_UPDATED_AT, currentOffsetDateTime())
-                .where(PROCESS_QUEUE.INSTANCE_ID.eq(instanceId))
-                .execute();
+                .set(PROCESS_QUEUE.LAST_UPDATED_AT, currentOffsetDateTime());
+
+        return updateWithStats(q, Collections.singleton(instanceId), noCondition());
     }
 
-    public boolean updateStatus(DSLContext tx, ProcessKey processKey, ProcessStatus expected, ProcessStatus status) {
+    /**
+     * @return the stats changes, empty if the process wasn't in the {@code expected} status
+     */
+    public List<ProcessStatsChange> updateStatus(DSLContext tx, ProcessKey processKey, ProcessStatus expected, ProcessStatus status) {
         UUID instanceId = processKey.getInstanceId();
 
-        int i = tx.update(PROCESS_QUEUE)
+        UpdateSetMoreStep<ProcessQueueRecord> q = tx.update(PROCESS_QUEUE)
                 .set(PROCESS_QUEUE.CURRENT_STATUS, status.toString())
                 .set(PROCESS_QUEUE.LAST_UPDATED_AT, currentOffsetDateTime())
-                .set(PROCESS_QUEUE.LAST_RUN_AT, createRunningAtValue(status))
-                .where(PROCESS_QUEUE.INSTANCE_ID.eq(instanceId)
-                        .and(PROCESS_QUEUE.CURRENT_STATUS.eq(expected.toString())))
-                .execute();
+                .set(PROCESS_QUEUE.LAST_RUN_AT, createRunningAtValue(status));
 
-        return i == 1;
+        return updateWithStats(q, Collections.singleton(instanceId), PROCESS_QUEUE.CURRENT_STATUS.eq(expected.toString()));
     }
 
     public boolean updateMeta(PartialProcessKey processKey, Map<String, Object> meta) {
@@ -288,29 +329,44 @@ public class ProcessQueueDao extends AbstractDao {
         });
     }
 
-    public boolean updateStatus(List<ProcessKey> processKeys, List<ProcessStatus> expected, ProcessStatus status) {
-        return txResult(tx -> {
-            List<UUID> instanceIds = processKeys.stream()
-                    .map(PartialProcessKey::getInstanceId)
-                    .collect(Collectors.toList());
+    /**
+     * @return the stats changes of the updated processes, the processes
+     * which weren't in one of the {@code expected} statuses are skipped
+     */
+    public List<ProcessStatsChange> updateStatus(DSLContext tx, List<ProcessKey> processKeys, List<ProcessStatus> expected, ProcessStatus status) {
+        List<UUID> instanceIds = processKeys.stream()
+                .map(PartialProcessKey::getInstanceId)
+                .collect(Collectors.toList());
 
-            UpdateConditionStep<ProcessQueueRecord> q = tx.update(PROCESS_QUEUE)
-                    .set(PROCESS_QUEUE.CURRENT_STATUS, status.toString())
-                    .set(PROCESS_QUEUE.LAST_UPDATED_AT, currentOffsetDateTime())
-                    .set(PROCESS_QUEUE.LAST_RUN_AT, createRunningAtValue(status))
-                    .where(PROCESS_QUEUE.INSTANCE_ID.in(instanceIds));
+        UpdateSetMoreStep<ProcessQueueRecord> q = tx.update(PROCESS_QUEUE)
+                .set(PROCESS_QUEUE.CURRENT_STATUS, status.toString())
+                .set(PROCESS_QUEUE.LAST_UPDATED_AT, currentOffsetDateTime())
+                .set(PROCESS_QUEUE.LAST_RUN_AT, createRunningAtValue(status));
 
-            if (expected != null) {
-                List<String> l = expected.stream()
-                        .map(Enum::toString)
-                        .collect(Collectors.toList());
+        Condition condition = noCondition();
+        if (expected != null) {
+            List<String> l = expected.stream()
+                    .map(Enum::toString)
+                    .collect(Collectors.toList());
 
-                q.and(PROCESS_QUEUE.CURRENT_STATUS.in(l));
-            }
+            condition = PROCESS_QUEUE.CURRENT_STATUS.in(l);
+        }
 
-            int i = q.execute();
-            return i == processKeys.size();
-        });
+        return updateWithStats(q, instanceIds, condition);
+    }
+
+    /**
+     * Removes the specified processes.
+     *
+     * @return the stats keys of the removed processes
+     */
+    public List<ProcessStatsChange> delete(DSLContext tx, Select<? extends Record1<UUID>> instanceIds) {
+        return tx.deleteFrom(PROCESS_QUEUE)
+                .where(PROCESS_QUEUE.INSTANCE_ID.in(instanceIds))
+                .returningResult(ProcessStatsDao.orgId(PROCESS_QUEUE.PROJECT_ID), PROCESS_QUEUE.PROJECT_ID,
+                        PROCESS_QUEUE.CURRENT_STATUS, ProcessStatsDao.requirementsHash(PROCESS_QUEUE.REQUIREMENTS), PROCESS_QUEUE.REQUIREMENTS)
+                .fetch()
+                .map(r -> ProcessStatsChange.of(ProcessStatsDao.key(r.value1(), r.value2(), r.value3(), r.value4(), r.value5()), null));
     }
 
     public void disable(ProcessKey processKey, boolean disabled) {
@@ -346,6 +402,26 @@ public class ProcessQueueDao extends AbstractDao {
         });
     }
 
+    /**
+     * Updates the "last updated at" timestamp of multiple processes at once.
+     *
+     * @return IDs of the processes that were found and updated
+     */
+    public Set<UUID> touch(Collection<UUID> instanceIds) {
+        if (instanceIds.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        return txResult(tx -> tx.update(PROCESS_QUEUE)
+                .set(PROCESS_QUEUE.LAST_UPDATED_AT, currentOffsetDateTime())
+                .where(PROCESS_QUEUE.INSTANCE_ID.in(instanceIds))
+                .returning(PROCESS_QUEUE.INSTANCE_ID)
+                .fetch()
+                .stream()
+                .map(ProcessQueueRecord::getInstanceId)
+                .collect(Collectors.toSet()));
+    }
+
     public ProcessEntry get(ProcessKey processKey) {
         return get(processKey, DEFAULT_INCLUDES);
     }
@@ -379,6 +455,15 @@ public class ProcessQueueDao extends AbstractDao {
         return ProcessStatus.valueOf(status);
     }
 
+    public AbstractWaitCondition getWait(PartialProcessKey processKey) {
+        JSONB waits = dsl().select(PROCESS_QUEUE.WAIT_CONDITIONS)
+                .from(PROCESS_QUEUE)
+                .where(PROCESS_QUEUE.INSTANCE_ID.eq(processKey.getInstanceId()))
+                .fetchOne(PROCESS_QUEUE.WAIT_CONDITIONS);
+
+        return objectMapper.fromJSONB(waits, AbstractWaitCondition.class);
+    }
+
     public List<ProcessEntry> get(List<PartialProcessKey> processKeys) {
         List<UUID> instanceIds = processKeys.stream()
                 .map(PartialProcessKey::getInstanceId)
@@ -442,9 +527,9 @@ public class ProcessQueueDao extends AbstractDao {
 
         boolean findAdjacentToDateRows = filter.beforeCreatedAt() == null && filter.beforeCreatedAt() != null;
         if (findAdjacentToDateRows) {
-            query.addOrderBy(PROCESS_QUEUE.CREATED_AT.asc());
+            query.addOrderBy(PROCESS_QUEUE.CREATED_AT.asc(), PROCESS_QUEUE.INSTANCE_ID.asc());
         } else {
-            query.addOrderBy(PROCESS_QUEUE.CREATED_AT.desc());
+            query.addOrderBy(PROCESS_QUEUE.CREATED_AT.desc(), PROCESS_QUEUE.INSTANCE_ID.desc());
         }
 
         List<ProcessEntry> processEntries = query.fetch(this::toEntry);
@@ -640,6 +725,14 @@ public class ProcessQueueDao extends AbstractDao {
             query.addConditions(PROCESS_QUEUE.CREATED_AT.lessThan(filter.beforeCreatedAt()));
         }
 
+        if (filter.cursor() != null) {
+            ProcessQueue pq = PROCESS_QUEUE.as("pq");
+            query.addConditions(row(PROCESS_QUEUE.CREATED_AT, PROCESS_QUEUE.INSTANCE_ID).lessThan(
+                    select(pq.CREATED_AT, pq.INSTANCE_ID)
+                            .from(pq)
+                            .where(pq.INSTANCE_ID.eq(filter.cursor()))));
+        }
+
         ProcessStatus status = filter.status();
         if (status != null) {
             query.addConditions(PROCESS_QUEUE.CURRENT_STATUS.eq(status.name()));
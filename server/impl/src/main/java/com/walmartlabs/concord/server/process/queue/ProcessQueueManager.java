@@ -32,6 +32,7 @@ import com.walmartlabs.concord.server.process.logs.ProcessLogManager;
 import com.walmartlabs.concord.server.sdk.PartialProcessKey;
 import com.walmartlabs.concord.server.sdk.ProcessKey;
 import com.walmartlabs.concord.server.sdk.ProcessStatus;
+import com.walmartlabs.concord.server.security.AuthenticationCache;
 import org.jooq.DSLContext;
 
 import javax.inject.Inject;
@@ -44,24 +45,39 @@ import java.util.*;
 @Named
 public class ProcessQueueManager {
 
+    private static final Set<ProcessStatus> FINISHED_STATUSES = Collections.unmodifiableSet(EnumSet.of(
+            ProcessStatus.FINISHED,
+            ProcessStatus.FAILED,
+            ProcessStatus.CANCELLED,
+            ProcessStatus.TIMED_OUT));
+
     private final ProcessQueueDao queueDao;
     private final ConcordObjectMapper objectMapper;
     private final ProcessKeyCache keyCache;
     private final ProcessEventManager eventManager;
     private final ProcessLogManager processLogManager;
+    private final AuthenticationCache authCache;
+    private final ProcessStatsDao statsDao;
+    private final ProcessStatsRecorder statsRecorder;
 
     @Inject
     public ProcessQueueManager(ProcessQueueDao queueDao,
                                ConcordObjectMapper objectMapper,
                                ProcessKeyCache keyCache,
                                ProcessEventManager eventManager,
-                               ProcessLogManager processLogManager) {
+                               ProcessLogManager processLogManager,
+                               AuthenticationCache authCache,
+                               ProcessStatsDao statsDao,
+                               ProcessStatsRecorder statsRecorder) {
 
         this.queueDao = queueDao;
         this.eventManager = eventManager;
         this.objectMapper = objectMapper;
         this.keyCache = keyCache;
         this.processLogManager = processLogManager;
+        this.authCache = authCache;
+        this.statsDao = statsDao;
+        this.statsRecorder = statsRecorder;
     }
 
     /**
@@ -79,9 +95,10 @@ public class ProcessQueueManager {
         TriggeredByEntry triggeredBy = payload.getHeader(Payload.TRIGGERED_BY);
 
         queueDao.tx(tx -> {
-            queueDao.insert(tx, processKey, status, kind, parentInstanceId, projectId, repoId, initiatorId, meta, triggeredBy);
+            List<ProcessStatsChange> stats = queueDao.insert(tx, processKey, status, kind, parentInstanceId, projectId, repoId, initiatorId, meta, triggeredBy);
             eventManager.insertStatusHistory(tx, processKey, status, Collections.emptyMap());
             processLogManager.createSystemSegment(tx, payload.getProcessKey());
+            recordStats(tx, stats);
         });
     }
 
@@ -112,8 +129,9 @@ public class ProcessQueueManager {
         List<String> dependencies = payload.getHeader(Payload.DEPENDENCIES);
 
         queueDao.tx(tx -> {
-            queueDao.enqueue(tx, processKey, tags, startAt, requirements, processTimeout, handlers, meta, imports, exclusive, runtime, dependencies);
+            List<ProcessStatsChange> stats = queueDao.enqueue(tx, processKey, tags, startAt, requirements, processTimeout, handlers, meta, imports, exclusive, runtime, dependencies);
             eventManager.insertStatusHistory(tx, processKey, ProcessStatus.ENQUEUED, Collections.emptyMap());
+            recordStats(tx, stats);
         });
     }
 
@@ -142,8 +160,10 @@ public class ProcessQueueManager {
      * Updates the process' status. Adds a process status history event with an optional {@code statusPayload}.
      */
     public void updateStatus(DSLContext tx, ProcessKey processKey, ProcessStatus status, Map<String, Object> statusPayload) {
-        queueDao.updateStatus(tx, processKey, status);
+        List<ProcessStatsChange> stats = queueDao.updateStatus(tx, processKey, status);
         eventManager.insertStatusHistory(tx, processKey, status, statusPayload);
+        onStatusChange(tx, processKey, status);
+        recordStats(tx, stats);
     }
 
     /**
@@ -153,8 +173,13 @@ public class ProcessQueueManager {
      */
     public boolean updateExpectedStatus(ProcessKey processKey, ProcessStatus expected, ProcessStatus status) {
         return queueDao.txResult(tx -> {
-            boolean success = queueDao.updateStatus(tx, processKey, expected, status);
+            List<ProcessStatsChange> stats = queueDao.updateStatus(tx, processKey, expected, status);
             eventManager.insertStatusHistory(tx, processKey, status, Collections.emptyMap());
+            boolean success = !stats.isEmpty();
+            if (success) {
+                onStatusChange(tx, processKey, status);
+                recordStats(tx, stats);
+            }
             return success;
         });
     }
@@ -167,12 +192,23 @@ public class ProcessQueueManager {
      */
     public boolean updateExpectedStatus(List<ProcessKey> processKeys, List<ProcessStatus> expected, ProcessStatus status) {
         return queueDao.txResult(tx -> {
-            boolean success = queueDao.updateStatus(processKeys, expected, status);
+            List<ProcessStatsChange> stats = queueDao.updateStatus(tx, processKeys, expected, status);
             eventManager.insertStatusHistory(tx, processKeys, status);
-            return success;
+            processKeys.forEach(k -> onStatusChange(tx, k, status));
+            recordStats(tx, stats);
+            return stats.size() == processKeys.size();
         });
     }
 
+    /**
+     * Moves the NEW processes into PREPARING. Used by the enqueue workers,
+     * doesn't add status history events.
+     */
+    public void toPreparing(DSLContext tx, List<ProcessKey> processKeys) {
+        List<ProcessStatsChange> stats = queueDao.updateStatus(tx, processKeys, Collections.singletonList(ProcessStatus.NEW), ProcessStatus.PREPARING);
+        recordStats(tx, stats);
+    }
+
     /**
      * @see #updateAgentId(DSLContext, ProcessKey, String, ProcessStatus)
      */
@@ -184,8 +220,10 @@ public class ProcessQueueManager {
      * Updates the process' agent ID and status.
      */
     public void updateAgentId(DSLContext tx, ProcessKey processKey, String agentId, ProcessStatus status) {
-        queueDao.updateAgentId(tx, processKey, agentId, status);
+        List<ProcessStatsChange> stats = queueDao.updateAgentId(tx, processKey, agentId, status);
         eventManager.insertStatusHistory(tx, processKey, status, Collections.emptyMap());
+        onStatusChange(tx, processKey, status);
+        recordStats(tx, stats);
     }
 
     /**
@@ -234,6 +272,10 @@ public class ProcessQueueManager {
         return queueDao.getInitiator(key);
     }
 
+    public AbstractWaitCondition getWait(PartialProcessKey partialProcessKey) {
+        return queueDao.getWait(partialProcessKey);
+    }
+
     public ProcessEntry get(PartialProcessKey partialProcessKey, Set<ProcessDataInclude> includes) {
         ProcessKey key = keyCache.get(partialProcessKey.getInstanceId());
         if (key == null) {
@@ -242,6 +284,24 @@ public class ProcessQueueManager {
         return queueDao.get(key, includes);
     }
 
+    /**
+     * Session keys of finished processes must stop working immediately,
+     * evicts the cached authentication results.
+     */
+    private void onStatusChange(DSLContext tx, ProcessKey processKey, ProcessStatus status) {
+        if (FINISHED_STATUSES.contains(status)) {
+            authCache.invalidateProcess(tx, processKey.getInstanceId());
+        }
+    }
+
+    private void recordStats(DSLContext tx, List<ProcessStatsChange> changes) {
+        if (!statsRecorder.isEnabled()) {
+            return;
+        }
+
+        statsDao.record(tx, changes);
+    }
+
     private static Map<String, Object> getCfg(Payload payload) {
         return payload.getHeader(Payload.CONFIGURATION, Collections.emptyMap());
     }
@@ -0,0 +1,51 @@
+package com.walmartlabs.concord.server.process.queue;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.immutables.value.Value;
+
+import javax.annotation.Nullable;
+
+/**
+ * A process moving from one PROCESS_STATS key to another.
+ */
+@Value.Immutable
+public interface ProcessStatsChange {
+
+    /**
+     * The previous key or {@code null} for new processes.
+     */
+    @Nullable
+    ProcessStatsKey from();
+
+    /**
+     * The new key or {@code null} for removed processes.
+     */
+    @Nullable
+    ProcessStatsKey to();
+
+    static ProcessStatsChange of(ProcessStatsKey from, ProcessStatsKey to) {
+        return ImmutableProcessStatsChange.builder()
+                .from(from)
+                .to(to)
+                .build();
+    }
+}
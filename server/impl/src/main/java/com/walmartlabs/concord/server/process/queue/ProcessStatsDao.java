@@ -0,0 +1,344 @@
+package com.walmartlabs.concord.server.process.queue;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.db.AbstractDao;
+import com.walmartlabs.concord.db.MainDB;
+import com.walmartlabs.concord.server.ConcordObjectMapper;
+import com.walmartlabs.concord.server.jooq.tables.ProcessQueue;
+import com.walmartlabs.concord.server.jooq.tables.ProcessStats;
+import com.walmartlabs.concord.server.jooq.tables.ProcessStatsDeltas;
+import com.walmartlabs.concord.server.jooq.tables.Projects;
+import com.walmartlabs.concord.server.jooq.tables.records.ProcessStatsDeltasRecord;
+import com.walmartlabs.concord.server.sdk.ProcessStatus;
+import org.jooq.Condition;
+import org.jooq.Configuration;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.InsertValuesStep6;
+import org.jooq.JSONB;
+import org.jooq.Query;
+import org.jooq.Record1;
+import org.jooq.Record2;
+import org.jooq.Record3;
+import org.jooq.Record6;
+import org.jooq.Result;
+import org.jooq.SelectQuery;
+import org.jooq.impl.SQLDataType;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.*;
+
+import static com.walmartlabs.concord.server.jooq.tables.ProcessQueue.PROCESS_QUEUE;
+import static com.walmartlabs.concord.server.jooq.tables.ProcessStats.PROCESS_STATS;
+import static com.walmartlabs.concord.server.jooq.tables.ProcessStatsDeltas.PROCESS_STATS_DELTAS;
+import static com.walmartlabs.concord.server.jooq.tables.Projects.PROJECTS;
+import static org.jooq.impl.DSL.*;
+
+/**
+ * PROCESS_STATS counters. Status changes are recorded into PROCESS_STATS_DELTAS
+ * in the same transaction as the change itself and periodically folded
+ * into PROCESS_STATS by {@link #flush()}. {@link #flush()} and {@link #reconcile()}
+ * are serialized by a PROCESS_STATS table lock.
+ */
+@Named
+public class ProcessStatsDao extends AbstractDao {
+
+    /**
+     * Used as ORG_ID and PROJECT_ID of processes without a project.
+     */
+    public static final UUID NO_ID = new UUID(0, 0);
+
+    private static final Comparator<ProcessStatsKey> KEY_ORDER = Comparator.comparing(ProcessStatsKey::orgId)
+            .thenComparing(ProcessStatsKey::projectId)
+            .thenComparing(ProcessStatsKey::status)
+            .thenComparing(ProcessStatsKey::requirementsHash);
+
+    private final ConcordObjectMapper objectMapper;
+
+    @Inject
+    public ProcessStatsDao(@MainDB Configuration cfg, ConcordObjectMapper objectMapper) {
+        super(cfg);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Records the specified changes. Must be called in the same transaction
+     * as the status changes themselves.
+     */
+    public void record(DSLContext tx, Collection<ProcessStatsChange> changes) {
+        ProcessStatsDeltas d = PROCESS_STATS_DELTAS;
+
+        InsertValuesStep6<ProcessStatsDeltasRecord, UUID, UUID, String, String, JSONB, Integer> q = tx.insertInto(d,
+                d.ORG_ID, d.PROJECT_ID, d.CURRENT_STATUS, d.REQUIREMENTS_HASH, d.REQUIREMENTS, d.DELTA);
+
+        int rows = 0;
+        for (ProcessStatsChange c : changes) {
+            ProcessStatsKey from = c.from();
+            ProcessStatsKey to = c.to();
+            if (Objects.equals(from, to)) {
+                continue;
+            }
+
+            if (from != null) {
+                q.values(from.orgId(), from.projectId(), from.status(), from.requirementsHash(), from.requirements(), -1);
+                rows++;
+            }
+
+            if (to != null) {
+                q.values(to.orgId(), to.projectId(), to.status(), to.requirementsHash(), to.requirements(), 1);
+                rows++;
+            }
+        }
+
+        if (rows > 0) {
+            q.execute();
+        }
+    }
+
+    /**
+     * Moves the recorded changes into the counters.
+     *
+     * @return number of updated counters
+     */
+    public int flush() {
+        ProcessStatsDeltas d = PROCESS_STATS_DELTAS;
+
+        return txResult(tx -> {
+            lockStats(tx);
+
+            Result<Record6<UUID, UUID, String, String, JSONB, Integer>> rows = tx.deleteFrom(d)
+                    .returningResult(d.ORG_ID, d.PROJECT_ID, d.CURRENT_STATUS, d.REQUIREMENTS_HASH, d.REQUIREMENTS, d.DELTA)
+                    .fetch();
+
+            Map<ProcessStatsKey, Long> deltas = new HashMap<>();
+            for (Record6<UUID, UUID, String, String, JSONB, Integer> r : rows) {
+                ProcessStatsKey k = key(r.value1(), r.value2(), r.value3(), r.value4(), r.value5());
+                deltas.merge(k, r.value6().longValue(), Long::sum);
+            }
+            deltas.values().removeIf(v -> v == 0);
+
+            apply(tx, deltas);
+            return deltas.size();
+        });
+    }
+
+    /**
+     * Recalculates all counters using the current PROCESS_QUEUE data.
+     * The recorded changes that are visible to the same snapshot are already
+     * reflected in the data and are discarded, the rest are left for the next
+     * {@link #flush()}.
+     */
+    public void reconcile() {
+        ProcessQueue q = PROCESS_QUEUE.as("q");
+        Projects p = PROJECTS.as("p");
+
+        Field<UUID> orgId = coalesce(p.ORG_ID, inline(NO_ID));
+        Field<UUID> projectId = coalesce(q.PROJECT_ID, inline(NO_ID));
+
+        tx(tx -> {
+            // must be the first statement, the snapshot is taken after the lock is acquired
+            tx.execute("set transaction isolation level repeatable read");
+            lockStats(tx);
+
+            tx.deleteFrom(PROCESS_STATS_DELTAS).execute();
+            tx.deleteFrom(PROCESS_STATS).execute();
+
+            tx.insertInto(PROCESS_STATS, PROCESS_STATS.ORG_ID, PROCESS_STATS.PROJECT_ID, PROCESS_STATS.CURRENT_STATUS,
+                    PROCESS_STATS.REQUIREMENTS_HASH, PROCESS_STATS.REQUIREMENTS, PROCESS_STATS.PROCESS_COUNT)
+                    .select(select(orgId,
+                            projectId,
+                            q.CURRENT_STATUS,
+                            requirementsHash(q.REQUIREMENTS),
+                            q.REQUIREMENTS,
+                            count().cast(SQLDataType.BIGINT))
+                            .from(q)
+                            .leftJoin(p).on(p.PROJECT_ID.eq(q.PROJECT_ID))
+                            .groupBy(orgId, projectId, q.CURRENT_STATUS, q.REQUIREMENTS))
+                    .execute();
+        });
+    }
+
+    /**
+     * Returns the number of processes in each status. ENQUEUED processes
+     * with {@code startAt} in the future are not counted.
+     *
+     * @param orgIds    if not {@code null} only the processes of the specified orgs are counted
+     * @param projectId if not {@code null} only the processes of the specified project are counted
+     */
+    public Map<String, Long> countByStatus(Set<UUID> orgIds, UUID projectId) {
+        ProcessStats s = PROCESS_STATS.as("s");
+
+        SelectQuery<Record2<String, Long>> query = dsl().select(s.CURRENT_STATUS, sum(s.PROCESS_COUNT).cast(SQLDataType.BIGINT))
+                .from(s)
+                .getQuery();
+
+        if (orgIds != null) {
+            query.addConditions(s.ORG_ID.in(orgIds));
+        }
+
+        if (projectId != null) {
+            query.addConditions(s.PROJECT_ID.eq(projectId));
+        }
+
+        query.addGroupBy(s.CURRENT_STATUS);
+
+        Map<String, Long> result = new HashMap<>();
+        for (Record2<String, Long> r : query.fetch()) {
+            result.put(r.value1(), r.value2());
+        }
+
+        // negative values are not hidden, they mean that some changes weren't recorded
+        if (result.getOrDefault(ProcessStatus.ENQUEUED.name(), 0L) > 0) {
+            long scheduled = countScheduled(orgIds, projectId);
+            if (scheduled > 0) {
+                result.computeIfPresent(ProcessStatus.ENQUEUED.name(), (k, v) -> v - scheduled);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the number of processes in the specified status grouped by their requirements.
+     * ENQUEUED processes with {@code startAt} in the future are not counted.
+     */
+    public List<ProcessRequirementsCountEntry> countByRequirements(ProcessStatus status) {
+        ProcessStats s = PROCESS_STATS.as("s");
+
+        Field<Long> count = sum(s.PROCESS_COUNT).cast(SQLDataType.BIGINT);
+        Result<Record3<String, JSONB, Long>> rows = dsl().select(s.REQUIREMENTS_HASH, s.REQUIREMENTS, count)
+                .from(s)
+                .where(s.CURRENT_STATUS.eq(status.name()))
+                .groupBy(s.REQUIREMENTS_HASH, s.REQUIREMENTS)
+                .fetch();
+
+        Map<String, Long> scheduled = status == ProcessStatus.ENQUEUED && !rows.isEmpty() ? countScheduledByRequirements() : Collections.emptyMap();
+
+        List<ProcessRequirementsCountEntry> result = new ArrayList<>(rows.size());
+        for (Record3<String, JSONB, Long> r : rows) {
+            long n = r.value3() - scheduled.getOrDefault(r.value1(), 0L);
+            if (n == 0) {
+                continue;
+            }
+
+            result.add(ProcessRequirementsCountEntry.builder()
+                    .requirements(objectMapper.fromJSONB(r.value2()))
+                    .count(n)
+                    .build());
+        }
+        return result;
+    }
+
+    static Field<UUID> orgId(Field<UUID> projectId) {
+        return coalesce(field(select(PROJECTS.ORG_ID).from(PROJECTS).where(PROJECTS.PROJECT_ID.eq(projectId))), inline(NO_ID));
+    }
+
+    static Field<String> requirementsHash(Field<JSONB> requirements) {
+        return coalesce(md5(requirements.cast(SQLDataType.VARCHAR)), inline(""));
+    }
+
+    static ProcessStatsKey key(UUID orgId, UUID projectId, String status, String requirementsHash, JSONB requirements) {
+        return ProcessStatsKey.builder()
+                .orgId(orgId)
+                .projectId(projectId != null ? projectId : NO_ID)
+                .status(status)
+                .requirementsHash(requirementsHash)
+                .requirements(requirements)
+                .build();
+    }
+
+    private void apply(DSLContext tx, Map<ProcessStatsKey, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        List<ProcessStatsKey> keys = new ArrayList<>(deltas.keySet());
+        keys.sort(KEY_ORDER);
+
+        List<Query> queries = new ArrayList<>(keys.size());
+        for (ProcessStatsKey k : keys) {
+            long delta = deltas.get(k);
+            queries.add(tx.insertInto(PROCESS_STATS)
+                    .set(PROCESS_STATS.ORG_ID, k.orgId())
+                    .set(PROCESS_STATS.PROJECT_ID, k.projectId())
+                    .set(PROCESS_STATS.CURRENT_STATUS, k.status())
+                    .set(PROCESS_STATS.REQUIREMENTS_HASH, k.requirementsHash())
+                    .set(PROCESS_STATS.REQUIREMENTS, k.requirements())
+                    .set(PROCESS_STATS.PROCESS_COUNT, delta)
+                    .onConflict(PROCESS_STATS.ORG_ID, PROCESS_STATS.PROJECT_ID, PROCESS_STATS.CURRENT_STATUS, PROCESS_STATS.REQUIREMENTS_HASH)
+                    .doUpdate()
+                    .set(PROCESS_STATS.PROCESS_COUNT, PROCESS_STATS.PROCESS_COUNT.plus(delta))
+                    .set(PROCESS_STATS.LAST_UPDATED_AT, currentOffsetDateTime()));
+        }
+        tx.batch(queries).execute();
+    }
+
+    /**
+     * Serializes {@link #flush()} and {@link #reconcile()} across the cluster.
+     * Doesn't block the readers and the status changes.
+     */
+    private static void lockStats(DSLContext tx) {
+        tx.execute("lock table {0} in share row exclusive mode", PROCESS_STATS);
+    }
+
+    private long countScheduled(Set<UUID> orgIds, UUID projectId) {
+        ProcessQueue q = PROCESS_QUEUE.as("q");
+
+        SelectQuery<Record1<Integer>> query = dsl().selectCount()
+                .from(q)
+                .where(scheduled(q))
+                .getQuery();
+
+        if (orgIds != null) {
+            query.addConditions(orgId(q.PROJECT_ID).in(orgIds));
+        }
+
+        if (projectId != null) {
+            query.addConditions(coalesce(q.PROJECT_ID, inline(NO_ID)).eq(projectId));
+        }
+
+        return query.fetchOne().value1();
+    }
+
+    private Map<String, Long> countScheduledByRequirements() {
+        ProcessQueue q = PROCESS_QUEUE.as("q");
+
+        Field<String> hash = requirementsHash(q.REQUIREMENTS);
+        return dsl().select(hash, count().cast(SQLDataType.BIGINT))
+                .from(q)
+                .where(scheduled(q))
+                .groupBy(hash)
+                .fetchMap(Record2::value1, Record2::value2);
+    }
+
+    /**
+     * ENQUEUED processes that can't be dispatched yet. Uses IDX_PROC_ENQUEUED,
+     * i.e. only the ENQUEUED processes are scanned. Can't be served from the
+     * counters: the processes become ready as the time passes, without
+     * any status change that could be recorded.
+     */
+    private static Condition scheduled(ProcessQueue q) {
+        return q.CURRENT_STATUS.eq(ProcessStatus.ENQUEUED.name())
+                .and(q.START_AT.greaterThan(currentOffsetDateTime()));
+    }
+}
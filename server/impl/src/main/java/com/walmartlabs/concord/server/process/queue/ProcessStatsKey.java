@@ -0,0 +1,54 @@
+package com.walmartlabs.concord.server.process.queue;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.immutables.value.Value;
+import org.jooq.JSONB;
+
+import javax.annotation.Nullable;
+import java.util.UUID;
+
+/**
+ * A single PROCESS_STATS row's key.
+ */
+@Value.Immutable
+public interface ProcessStatsKey {
+
+    UUID orgId();
+
+    UUID projectId();
+
+    String status();
+
+    String requirementsHash();
+
+    /**
+     * The requirements are identified by {@link #requirementsHash()},
+     * the value itself is carried along to be stored with the counter.
+     */
+    @Nullable
+    @Value.Auxiliary
+    JSONB requirements();
+
+    static ImmutableProcessStatsKey.Builder builder() {
+        return ImmutableProcessStatsKey.builder();
+    }
+}
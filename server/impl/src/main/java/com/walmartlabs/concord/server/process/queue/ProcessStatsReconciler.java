@@ -0,0 +1,56 @@
+package com.walmartlabs.concord.server.process.queue;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.cfg.ProcessQueueConfiguration;
+import com.walmartlabs.concord.server.sdk.ScheduledTask;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+/**
+ * Recalculates the PROCESS_STATS counters to correct the drift
+ * of the incremental updates made by {@link ProcessStatsRecorder}.
+ */
+@Named("process-stats-reconciler")
+@Singleton
+public class ProcessStatsReconciler implements ScheduledTask {
+
+    private final ProcessQueueConfiguration cfg;
+    private final ProcessStatsDao dao;
+
+    @Inject
+    public ProcessStatsReconciler(ProcessQueueConfiguration cfg, ProcessStatsDao dao) {
+        this.cfg = cfg;
+        this.dao = dao;
+    }
+
+    @Override
+    public long getIntervalInSec() {
+        return cfg.getStatsReconcileInterval().getSeconds();
+    }
+
+    @Override
+    public void performTask() {
+        dao.reconcile();
+    }
+}
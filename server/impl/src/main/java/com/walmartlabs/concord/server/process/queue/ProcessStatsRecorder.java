@@ -0,0 +1,72 @@
+package com.walmartlabs.concord.server.process.queue;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.PeriodicTask;
+import com.walmartlabs.concord.server.cfg.ProcessQueueConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+/**
+ * Periodically folds the status changes recorded by {@link ProcessQueueManager}
+ * and {@link com.walmartlabs.concord.server.process.ProcessCleaner} into the
+ * PROCESS_STATS counters. {@link ProcessStatsReconciler} corrects the counters
+ * periodically, in case some changes weren't recorded.
+ */
+@Named
+@Singleton
+public class ProcessStatsRecorder extends PeriodicTask {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessStatsRecorder.class);
+
+    private static final long ERROR_DELAY = 5000;
+
+    private final ProcessStatsDao dao;
+    private final boolean enabled;
+
+    @Inject
+    public ProcessStatsRecorder(ProcessQueueConfiguration cfg, ProcessStatsDao dao) {
+        super(cfg.getStatsFlushInterval().toMillis(), ERROR_DELAY);
+
+        this.dao = dao;
+        this.enabled = cfg.getStatsFlushInterval().toMillis() > 0;
+    }
+
+    /**
+     * @return {@code true} if the status changes should be recorded
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    protected boolean performTask() {
+        int n = dao.flush();
+        if (n > 0) {
+            log.debug("performTask -> {} counter(s) updated", n);
+        }
+        return false;
+    }
+}
@@ -20,19 +20,13 @@ package com.walmartlabs.concord.server.process.queue;
  * =====
  */
 
-import com.walmartlabs.concord.server.process.Payload;
-import com.walmartlabs.concord.server.process.PayloadManager;
-import com.walmartlabs.concord.server.process.ProcessManager;
 import com.walmartlabs.concord.server.process.locks.LockEntry;
-import com.walmartlabs.concord.server.process.locks.ProcessLocksDao;
-import com.walmartlabs.concord.server.sdk.ConcordApplicationException;
-import com.walmartlabs.concord.server.sdk.PartialProcessKey;
+import com.walmartlabs.concord.server.process.locks.ProcessLockManager;
 import com.walmartlabs.concord.server.sdk.ProcessStatus;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
-import java.io.IOException;
 import java.util.Collections;
 import java.util.Set;
 import java.util.UUID;
@@ -40,6 +34,10 @@ import java.util.UUID;
 /**
  * Handles the processes that are waiting for locks. Resumes a suspended process
  * if the lock was acquired successfully.
+ * <p>
+ * Released locks are handed over to the waiting processes by {@link ProcessLockManager},
+ * this handler resumes processes that weren't suspended yet at the moment
+ * of the hand-over.
  */
 @Named
 @Singleton
@@ -47,15 +45,11 @@ public class WaitProcessLockHandler implements ProcessWaitHandler<ProcessLockCon
 
     private static final Set<ProcessStatus> STATUSES = Collections.singleton(ProcessStatus.SUSPENDED);
 
-    private final ProcessLocksDao locksDao;
-    private final ProcessManager processManager;
-    private final PayloadManager payloadManager;
+    private final ProcessLockManager lockManager;
 
     @Inject
-    public WaitProcessLockHandler(ProcessLocksDao locksDao, ProcessManager processManager, PayloadManager payloadManager) {
-        this.locksDao = locksDao;
-        this.processManager = processManager;
-        this.payloadManager = payloadManager;
+    public WaitProcessLockHandler(ProcessLockManager lockManager) {
+        this.lockManager = lockManager;
     }
 
     @Override
@@ -70,23 +64,12 @@ public class WaitProcessLockHandler implements ProcessWaitHandler<ProcessLockCon
 
     @Override
     public ProcessLockCondition process(UUID instanceId, ProcessStatus status, ProcessLockCondition wait) {
-        LockEntry lock = locksDao.tryLock(instanceId, wait.orgId(), wait.projectId(), wait.scope(), wait.name());
+        LockEntry lock = lockManager.tryLock(instanceId, wait.orgId(), wait.projectId(), wait.scope(), wait.name());
         if (lock.instanceId().equals(instanceId)) {
-            resumeProcess(instanceId, wait.name());
+            lockManager.resume(instanceId, wait.name());
             return null;
         }
 
         return ProcessLockCondition.from(lock);
     }
-
-    private void resumeProcess(UUID instanceId, String eventName) {
-        Payload payload;
-        try {
-            payload = payloadManager.createResumePayload(PartialProcessKey.from(instanceId), eventName, null);
-        } catch (IOException e) {
-            throw new ConcordApplicationException("Error creating a payload", e);
-        }
-
-        processManager.resume(payload);
-    }
 }
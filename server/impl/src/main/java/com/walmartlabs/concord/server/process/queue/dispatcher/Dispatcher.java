@@ -37,7 +37,9 @@ import com.walmartlabs.concord.server.process.SessionTokenCreator;
 import com.walmartlabs.concord.server.process.logs.ProcessLogManager;
 import com.walmartlabs.concord.server.process.queue.ProcessQueueEntry;
 import com.walmartlabs.concord.server.process.queue.ProcessQueueManager;
+import com.walmartlabs.concord.server.queueclient.message.Message;
 import com.walmartlabs.concord.server.queueclient.message.MessageType;
+import com.walmartlabs.concord.server.queueclient.message.ProcessBatchResponse;
 import com.walmartlabs.concord.server.queueclient.message.ProcessRequest;
 import com.walmartlabs.concord.server.queueclient.message.ProcessResponse;
 import com.walmartlabs.concord.server.sdk.ProcessKey;
@@ -154,10 +156,14 @@ public class Dispatcher extends PeriodicTask {
             return false;
         }
 
+        // a request can get multiple processes if the agent has multiple free slots
+        Map<Request, List<ProcessQueueEntry>> responses = matches.stream()
+                .collect(Collectors.groupingBy(m -> m.request, LinkedHashMap::new, Collectors.mapping(m -> m.response, Collectors.toList())));
+
         // send all responses in parallel
-        withTimer(responseTimer, () -> matches.stream()
+        withTimer(responseTimer, () -> responses.entrySet().stream()
                 .parallel()
-                .forEach(this::sendResponse));
+                .forEach(e -> sendResponse(e.getKey(), e.getValue())));
 
         return true;
     }
@@ -189,7 +195,11 @@ public class Dispatcher extends PeriodicTask {
 
                 if (pass(tx, e, startingProcesses)) {
                     matches.add(new Match(req, e));
-                    inbox.remove(req);
+
+                    req.freeSlots--;
+                    if (req.freeSlots <= 0) {
+                        inbox.remove(req);
+                    }
 
                     if (inbox.isEmpty()) {
                         break;
@@ -251,41 +261,63 @@ public class Dispatcher extends PeriodicTask {
         return true;
     }
 
-    private void sendResponse(Match match) {
-        WebSocketChannel channel = match.request.channel;
-        long correlationId = match.request.request.getCorrelationId();
-        ProcessQueueEntry item = match.response;
+    private void sendResponse(Request request, List<ProcessQueueEntry> items) {
+        WebSocketChannel channel = request.channel;
+        long correlationId = request.request.getCorrelationId();
 
-        try {
-            SecretReference secret = null;
-            if (item.repoId() != null) {
-                secret = dao.getSecretReference(item.repoId());
+        List<ProcessQueueEntry> acquired = new ArrayList<>(items.size());
+        List<ProcessResponse> processes = new ArrayList<>(items.size());
+        for (ProcessQueueEntry item : items) {
+            try {
+                processes.add(toResponse(correlationId, item));
+                acquired.add(item);
+            } catch (Exception e) {
+                log.error("sendResponse ['{}'] -> failed (instanceId: {})", correlationId, item.key().getInstanceId());
             }
+        }
 
-            // backward compatibility with old process queue entries that are not normalized
-            Imports imports = importsNormalizerFactory.forProject(item.projectId())
-                    .normalize(item.imports());
-
-            ProcessResponse resp = new ProcessResponse(correlationId,
-                    sessionTokenCreator.create(item.key()),
-                    item.key().getInstanceId(),
-                    secret != null ? secret.orgName : null,
-                    item.repoUrl(),
-                    item.repoPath(),
-                    item.commitId(),
-                    secret != null ? secret.secretName : null,
-                    imports);
-
-            if (!channelManager.sendResponse(channel.getChannelId(), resp)) {
-                log.warn("sendResponse ['{}'] -> failed", correlationId);
-            }
+        if (processes.isEmpty()) {
+            return;
+        }
+
+        Message resp;
+        if (request.isBatch()) {
+            resp = new ProcessBatchResponse(correlationId, processes);
+        } else {
+            resp = processes.get(0);
+        }
 
+        if (!channelManager.sendResponse(channel.getChannelId(), resp)) {
+            log.warn("sendResponse ['{}'] -> failed", correlationId);
+            return;
+        }
+
+        for (ProcessQueueEntry item : acquired) {
             logManager.info(item.key(), "Acquired by: " + channel.getUserAgent());
-        } catch (Exception e) {
-            log.error("sendResponse ['{}'] -> failed (instanceId: {})", correlationId, item.key().getInstanceId());
         }
     }
 
+    private ProcessResponse toResponse(long correlationId, ProcessQueueEntry item) {
+        SecretReference secret = null;
+        if (item.repoId() != null) {
+            secret = dao.getSecretReference(item.repoId());
+        }
+
+        // backward compatibility with old process queue entries that are not normalized
+        Imports imports = importsNormalizerFactory.forProject(item.projectId())
+                .normalize(item.imports());
+
+        return new ProcessResponse(correlationId,
+                sessionTokenCreator.create(item.key()),
+                item.key().getInstanceId(),
+                secret != null ? secret.orgName : null,
+                item.repoUrl(),
+                item.repoPath(),
+                item.commitId(),
+                secret != null ? secret.secretName : null,
+                imports);
+    }
+
     @Named
     public static class DispatcherDao extends AbstractDao {
 
@@ -374,9 +406,16 @@ public class Dispatcher extends PeriodicTask {
         private final WebSocketChannel channel;
         private final ProcessRequest request;
 
+        private int freeSlots;
+
         private Request(WebSocketChannel channel, ProcessRequest request) {
             this.channel = channel;
             this.request = request;
+            this.freeSlots = request.getSlots() != null ? Math.max(1, request.getSlots()) : 1;
+        }
+
+        private boolean isBatch() {
+            return request.getSlots() != null;
         }
     }
 
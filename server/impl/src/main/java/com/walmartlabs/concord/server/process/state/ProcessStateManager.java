@@ -40,6 +40,7 @@ import com.walmartlabs.concord.server.sdk.PartialProcessKey;
 import com.walmartlabs.concord.server.sdk.ProcessKey;
 import com.walmartlabs.concord.server.sdk.metrics.WithTimer;
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
 import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.jooq.Configuration;
 import org.jooq.DSLContext;
@@ -51,6 +52,7 @@ import org.slf4j.LoggerFactory;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -261,6 +263,36 @@ public class ProcessStateManager extends AbstractDao {
                 .execute();
     }
 
+    /**
+     * Returns the MD5 checksums of the unencrypted elements whose path begins with the specified value.
+     * The returned paths are relative to the specified path.
+     */
+    public Map<String, String> checksums(ProcessKey processKey, String path) {
+        String dir = fixPath(path);
+
+        return dsl().select(PROCESS_STATE.ITEM_PATH, PgUtils.md5(PROCESS_STATE.ITEM_DATA))
+                .from(PROCESS_STATE)
+                .where(PROCESS_STATE.INSTANCE_ID.eq(processKey.getInstanceId())
+                        .and(PROCESS_STATE.INSTANCE_CREATED_AT.eq(processKey.getCreatedAt()))
+                        .and(PROCESS_STATE.ITEM_PATH.startsWith(dir))
+                        .and(PROCESS_STATE.IS_ENCRYPTED.isFalse()))
+                .fetchMap(r -> relativize(dir, r.value1()), r -> r.value2());
+    }
+
+    /**
+     * Returns the total size of the elements whose path begins with the specified value.
+     */
+    public long size(DSLContext tx, ProcessKey processKey, String path) {
+        Long result = tx.select(DSL.sum(PgUtils.length(PROCESS_STATE.ITEM_DATA)))
+                .from(PROCESS_STATE)
+                .where(PROCESS_STATE.INSTANCE_ID.eq(processKey.getInstanceId())
+                        .and(PROCESS_STATE.INSTANCE_CREATED_AT.eq(processKey.getCreatedAt()))
+                        .and(PROCESS_STATE.ITEM_PATH.startsWith(fixPath(path))))
+                .fetchOne(r -> r.value1() != null ? r.value1().longValue() : 0L);
+
+        return result != null ? result : 0;
+    }
+
     /**
      * Replaces a single value.
      */
@@ -366,6 +398,64 @@ public class ProcessStateManager extends AbstractDao {
         assertPolicy(tx, processKey, policyEngine);
     }
 
+    /**
+     * Imports the entries of a ZIP archive as they are read from the stream,
+     * without unpacking the archive first. Each entry replaces the existing
+     * element with the same path.
+     *
+     * @return paths of the imported elements
+     */
+    @WithTimer
+    public Set<String> importZip(DSLContext tx, ProcessKey processKey, String path, ZipArchiveInputStream zip) throws IOException {
+        PolicyEngine policyEngine = getPolicyEngine(tx, processKey);
+
+        String prefix = fixPath(path);
+
+        Set<String> result = new HashSet<>();
+
+        // the entries are read sequentially, the JDBC driver must not close the archive's stream
+        InputStream data = new FilterInputStream(zip) {
+            @Override
+            public void close() {
+                // do nothing
+            }
+        };
+
+        ZipArchiveEntry e;
+        while ((e = zip.getNextZipEntry()) != null) {
+            if (e.isDirectory() || e.isUnixSymlink()) {
+                continue;
+            }
+
+            String name = e.getName();
+            if (name.startsWith(PATH_SEPARATOR) || Paths.get(name).normalize().startsWith("..")) {
+                throw new IOException("Invalid archive entry: " + name);
+            }
+
+            String n = name;
+            if (prefix != null) {
+                n = prefix + n;
+            }
+
+            assertPolicy(processKey, policyEngine, n);
+
+            int unixMode = e.getUnixMode() != 0 ? e.getUnixMode() : Posix.DEFAULT_UNIX_MODE;
+            boolean needsEncryption = secureFiles.contains(n);
+
+            tx.deleteFrom(PROCESS_STATE).where(PROCESS_STATE.INSTANCE_ID.eq(processKey.getInstanceId())
+                    .and(PROCESS_STATE.INSTANCE_CREATED_AT.eq(processKey.getCreatedAt()))
+                    .and(PROCESS_STATE.ITEM_PATH.eq(n)))
+                    .execute();
+
+            insert(tx, processKey, n, unixMode, data, needsEncryption);
+            result.add(n);
+        }
+
+        assertPolicy(tx, processKey, policyEngine);
+
+        return result;
+    }
+
     /**
      * Exports all data of a process instance.
      */
@@ -542,6 +632,25 @@ public class ProcessStateManager extends AbstractDao {
         }
     }
 
+    private void insert(DSLContext tx, ProcessKey processKey, String itemPath, int unixMode, InputStream data, boolean needsEncryption) {
+        String sql = tx.insertInto(PROCESS_STATE)
+                .columns(PROCESS_STATE.INSTANCE_ID, PROCESS_STATE.INSTANCE_CREATED_AT, PROCESS_STATE.ITEM_PATH, PROCESS_STATE.UNIX_MODE, PROCESS_STATE.ITEM_DATA, PROCESS_STATE.IS_ENCRYPTED)
+                .values((UUID) null, null, null, null, null, null)
+                .getSQL();
+
+        tx.connection(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setObject(1, processKey.getInstanceId());
+                ps.setObject(2, processKey.getCreatedAt());
+                ps.setString(3, itemPath);
+                ps.setInt(4, unixMode);
+                ps.setBinaryStream(5, needsEncryption ? encrypt(data) : data);
+                ps.setBoolean(6, needsEncryption);
+                ps.executeUpdate();
+            }
+        });
+    }
+
     private InputStream decrypt(InputStream in) {
         return SecretUtils.decrypt(in, secretCfg.getServerPwd(), secretCfg.getSecretStoreSalt());
     }
@@ -597,6 +706,21 @@ public class ProcessStateManager extends AbstractDao {
         return pe;
     }
 
+    private void assertPolicy(ProcessKey processKey, PolicyEngine policyEngine, String itemPath) {
+        if (policyEngine == null) {
+            return;
+        }
+
+        CheckResult<StateRule, Path> result = policyEngine.getStatePolicy().checkFile(Paths.get(itemPath));
+
+        result.getWarn().forEach(w -> logManager.warn(processKey, "Potentially restricted state file '{}' (state policy: {})", itemPath, w.getRule().getMsg()));
+        result.getDeny().forEach(e -> logManager.error(processKey, "State file '{}' is forbidden by the state policy {}", itemPath, e.getRule().getMsg()));
+
+        if (!result.getDeny().isEmpty()) {
+            throw new PolicyException("Found forbidden state files");
+        }
+    }
+
     private void assertPolicy(DSLContext tx, ProcessKey processKey, PolicyEngine policyEngine) {
         if (policyEngine == null) {
             return;
@@ -20,6 +20,7 @@ package com.walmartlabs.concord.server.repository;
  * =====
  */
 
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.walmartlabs.concord.common.IOUtils;
 import com.walmartlabs.concord.process.loader.ProjectLoader;
@@ -43,6 +44,7 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.Callable;
 
@@ -57,13 +59,15 @@ public class RepositoryManager {
     private final SecretManager secretManager;
     private final RepositoryCache repositoryCache;
     private final RepositoryConfiguration repoCfg;
+    private final CommitSnapshotCache snapshotCache;
 
     @Inject
     public RepositoryManager(ObjectMapper objectMapper,
                              GitConfiguration gitCfg,
                              RepositoryConfiguration repoCfg,
                              ProjectDao projectDao,
-                             SecretManager secretManager) throws IOException {
+                             SecretManager secretManager,
+                             MetricRegistry metricRegistry) throws IOException {
 
         GitClientConfiguration gitCliCfg = GitClientConfiguration.builder()
                 .oauthToken(gitCfg.getOauthToken())
@@ -89,6 +93,16 @@ public class RepositoryManager {
                 repoCfg.getMaxAge(),
                 repoCfg.getLockCount(),
                 objectMapper);
+
+        if (repoCfg.getSnapshotMaxSize() > 0) {
+            CommitSnapshotCache c = new CommitSnapshotCache(repoCfg.getSnapshotDir(), repoCfg.getSnapshotMaxSize());
+            metricRegistry.gauge("repository-snapshot-cache-hits", () -> c::getHits);
+            metricRegistry.gauge("repository-snapshot-cache-misses", () -> c::getMisses);
+            metricRegistry.gauge("repository-snapshot-cache-size", () -> c::getSize);
+            this.snapshotCache = c;
+        } else {
+            this.snapshotCache = null;
+        }
     }
 
     public void testConnection(UUID orgId, UUID projectId, String uri, String branch, String commitId, String path, String secretName) {
@@ -155,6 +169,54 @@ public class RepositoryManager {
         }
     }
 
+    /**
+     * Calls the function with the repository exported from the snapshot cache.
+     * Doesn't require the repository lock. Returns an empty value if the
+     * repository's commit ID is not cached.
+     */
+    public <T> Optional<T> withSnapshot(RepositoryEntry repository, SnapshotFunction<T> f) throws Exception {
+        if (snapshotCache == null) {
+            return Optional.empty();
+        }
+
+        CommitSnapshotCache.Entry e = snapshotCache.get(repository.getUrl(), repository.getCommitId());
+        if (e == null) {
+            return Optional.empty();
+        }
+
+        try {
+            Repository repo = providers.fromSnapshot(repository.getUrl(), repository.getBranch(), repository.getCommitId(), repository.getPath(), e);
+            return Optional.of(f.apply(repo));
+        } finally {
+            snapshotCache.release(e);
+        }
+    }
+
+    /**
+     * Schedules a snapshot of the fetched repository if the repository entry
+     * points to a specific commit. The snapshot is created in background,
+     * the caller doesn't wait for the copy.
+     */
+    public void saveSnapshot(RepositoryEntry repository, Repository fetched) {
+        String commitId = repository.getCommitId();
+        if (snapshotCache == null || !CommitSnapshotCache.isCommitId(commitId) || !commitId.equals(fetched.fetchedCommitId())) {
+            return;
+        }
+
+        // copy the same checkout, unless the working copy was checked out at a different commit by then
+        String url = repository.getUrl();
+        snapshotCache.putAsync(url, commitId, () -> withLock(url, () -> {
+            Path workingCopy = repositoryCache.getPath(url);
+
+            RepositoryInfo info = providers.getInfo(url, workingCopy);
+            if (info == null || !commitId.equals(info.getCommitId())) {
+                return null;
+            }
+
+            return snapshotCache.put(url, commitId, workingCopy, info);
+        }));
+    }
+
     private UUID getOrgId(UUID projectId) {
         UUID orgId = projectDao.getOrgId(projectId);
 
@@ -178,4 +240,9 @@ public class RepositoryManager {
 
         return s.getSecret();
     }
+
+    public interface SnapshotFunction<T> {
+
+        T apply(Repository repository) throws Exception;
+    }
 }
@@ -0,0 +1,179 @@
+package com.walmartlabs.concord.server.repository;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.walmartlabs.concord.server.cfg.RepositoryConfiguration;
+import com.walmartlabs.concord.server.sdk.ConcordApplicationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Coalesces concurrent refresh requests of the same repository.
+ * <p>
+ * Only one refresh of a repository runs at a time. Requests received while
+ * a refresh is running wait for it to finish and then are handled by a single
+ * follow-up refresh. Requests that are already covered by a refresh started
+ * after them return immediately.
+ */
+@Named
+@Singleton
+public class RepositoryRefreshCoordinator {
+
+    private static final Logger log = LoggerFactory.getLogger(RepositoryRefreshCoordinator.class);
+
+    private final RepositoryConfiguration cfg;
+    private final ConcurrentMap<UUID, Slot> slots = new ConcurrentHashMap<>();
+
+    private final Counter coalesced;
+    private final Histogram lag;
+    private final Timer duration;
+
+    @Inject
+    public RepositoryRefreshCoordinator(RepositoryConfiguration cfg, MetricRegistry metricRegistry) {
+        this.cfg = cfg;
+        this.coalesced = metricRegistry.counter("repository-refresh-coalesced");
+        this.lag = metricRegistry.histogram("repository-refresh-lag");
+        this.duration = metricRegistry.timer("repository-refresh-duration");
+    }
+
+    /**
+     * Runs the refresh or waits for a refresh which covers the request.
+     *
+     * @param refresh returns {@code false} if the refresh was skipped, e.g. when
+     *                the repository was already refreshed by another server
+     */
+    public void refresh(UUID repoId, Refresh refresh) throws Exception {
+        long requestedAt = System.currentTimeMillis();
+
+        Slot slot = acquire(repoId);
+        try {
+            refresh(repoId, slot, refresh);
+        } finally {
+            release(repoId);
+            lag.update(System.currentTimeMillis() - requestedAt);
+        }
+    }
+
+    private void refresh(UUID repoId, Slot slot, Refresh refresh) throws Exception {
+        long ticket = slot.requested.incrementAndGet();
+
+        Duration lockTimeout = cfg.getLockTimeout();
+        if (!slot.lock.tryLock(lockTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            throw new ConcordApplicationException("Timeout waiting for the repository refresh (" + lockTimeout + "): " + repoId);
+        }
+
+        try {
+            if (slot.completed >= ticket) {
+                log.info("refresh ['{}'] -> already refreshed", repoId);
+                coalesced.inc();
+                return;
+            }
+
+            Duration debounce = cfg.getRefreshDebounce();
+            if (debounce != null && !debounce.isZero()) {
+                Thread.sleep(debounce.toMillis());
+            }
+
+            // the refresh handles all requests received so far
+            long covered = slot.requested.get();
+
+            boolean refreshed;
+            try (Timer.Context ignored = duration.time()) {
+                refreshed = refresh.run();
+            }
+
+            if (!refreshed) {
+                coalesced.inc();
+            }
+
+            slot.completed = covered;
+        } finally {
+            slot.lock.unlock();
+        }
+    }
+
+    private Slot acquire(UUID repoId) {
+        return slots.compute(repoId, (k, v) -> {
+            Slot slot = v != null ? v : new Slot();
+            slot.users++;
+            return slot;
+        });
+    }
+
+    /**
+     * Removes the slot when nobody is using it anymore. A request received
+     * afterwards simply starts with a new slot.
+     */
+    private void release(UUID repoId) {
+        slots.computeIfPresent(repoId, (k, v) -> --v.users > 0 ? v : null);
+    }
+
+    /**
+     * Returns the number of repositories with active or waiting refresh requests.
+     */
+    int getSlotCount() {
+        return slots.size();
+    }
+
+    /**
+     * Returns the number of requests waiting for the repository's refresh.
+     */
+    int getQueueLength(UUID repoId) {
+        Slot slot = slots.get(repoId);
+        return slot != null ? slot.lock.getQueueLength() : 0;
+    }
+
+    public interface Refresh {
+
+        boolean run() throws Exception;
+    }
+
+    private static final class Slot {
+
+        private final ReentrantLock lock = new ReentrantLock(true);
+        private final AtomicLong requested = new AtomicLong();
+
+        /**
+         * Number of requests using the slot. Guarded by {@link #slots}' compute methods.
+         */
+        private int users;
+
+        /**
+         * The last request handled by a successful refresh. Guarded by {@link #lock}.
+         */
+        private long completed;
+    }
+}
@@ -32,16 +32,21 @@ import com.walmartlabs.concord.server.org.project.*;
 import com.walmartlabs.concord.server.repository.listeners.RepositoryRefreshListener;
 import com.walmartlabs.concord.server.sdk.ConcordApplicationException;
 import org.jooq.Configuration;
+import org.jooq.DSLContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonatype.siesta.ValidationErrorsException;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.time.OffsetDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
+import static com.walmartlabs.concord.server.jooq.Tables.REPOSITORIES;
+import static com.walmartlabs.concord.server.jooq.Tables.REPOSITORY_REFRESH_STATE;
 import static com.walmartlabs.concord.server.org.project.RepositoryUtils.assertRepository;
+import static org.jooq.impl.DSL.currentOffsetDateTime;
 
 @Named
 public class RepositoryRefresher extends AbstractDao {
@@ -55,6 +60,7 @@ public class RepositoryRefresher extends AbstractDao {
     private final ExternalEventResource externalEventResource;
     private final RepositoryDao repositoryDao;
     private final ProjectDao projectDao;
+    private final RepositoryRefreshCoordinator refreshCoordinator;
 
     @Inject
     public RepositoryRefresher(@MainDB Configuration cfg,
@@ -64,7 +70,8 @@ public class RepositoryRefresher extends AbstractDao {
                                RepositoryManager repositoryManager,
                                ExternalEventResource externalEventResource,
                                RepositoryDao repositoryDao,
-                               ProjectDao projectDao) {
+                               ProjectDao projectDao,
+                               RepositoryRefreshCoordinator refreshCoordinator) {
 
         super(cfg);
 
@@ -75,6 +82,7 @@ public class RepositoryRefresher extends AbstractDao {
         this.externalEventResource = externalEventResource;
         this.repositoryDao = repositoryDao;
         this.projectDao = projectDao;
+        this.refreshCoordinator = refreshCoordinator;
     }
 
     public void refresh(List<UUID> repositoryIds) {
@@ -119,24 +127,89 @@ public class RepositoryRefresher extends AbstractDao {
             return;
         }
 
+        OffsetDateTime requestedAt = currentTime();
+        try {
+            refreshCoordinator.refresh(repositoryEntry.getId(), () -> refresh(projectId, repositoryEntry, requestedAt));
+        } catch (Exception e) {
+            String errorMessage = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+            throw new ConcordApplicationException("Error while refreshing repository: \n" + errorMessage, e);
+        }
+    }
+
+    /**
+     * @return {@code false} if the refresh was skipped because another refresh,
+     * started after {@code requestedAt}, already updated the repository data.
+     */
+    private boolean refresh(UUID projectId, RepositoryEntry repositoryEntry, OffsetDateTime requestedAt) throws Exception {
+        UUID repoId = repositoryEntry.getId();
+
+        // another server might have refreshed the repository while we were waiting
+        OffsetDateTime lastStartedAt = getLastStartedAt(repoId);
+        if (lastStartedAt != null && !lastStartedAt.isBefore(requestedAt)) {
+            log.info("refresh ['{}'] -> already refreshed at {}, skipping", repoId, lastStartedAt);
+            return false;
+        }
+
+        OffsetDateTime startedAt = currentTime();
+
         try (TemporaryPath tmpRepoPath = IOUtils.tempDir("refreshRepo_")) {
-            repositoryManager.withLock(repositoryEntry.getUrl(), () -> {
+            String commitId = repositoryManager.withLock(repositoryEntry.getUrl(), () -> {
                 Repository repo = repositoryManager.fetch(projectId, repositoryEntry);
                 repo.export(tmpRepoPath.path());
-                return null;
+                return repo.fetchedCommitId();
             });
 
-            tx(tx -> {
+            return txResult(tx -> {
+                // serialize the updates of the same repository across all servers
+                tx.select(REPOSITORIES.REPO_ID)
+                        .from(REPOSITORIES)
+                        .where(REPOSITORIES.REPO_ID.eq(repoId))
+                        .forUpdate()
+                        .fetchOne();
+
+                // don't overwrite the results of a more recent refresh with the older data
+                OffsetDateTime last = getLastStartedAt(tx, repoId);
+                if (last != null && last.isAfter(startedAt)) {
+                    log.info("refresh ['{}'] -> a more recent refresh finished at {}, skipping", repoId, last);
+                    return false;
+                }
+
                 for (RepositoryRefreshListener l : listeners) {
                     l.onRefresh(tx, repositoryEntry, tmpRepoPath.path());
                 }
+
+                updateState(tx, repoId, startedAt, commitId);
+                return true;
             });
-        } catch (Exception e) {
-            String errorMessage = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
-            throw new ConcordApplicationException("Error while refreshing repository: \n" + errorMessage, e);
         }
     }
 
+    private OffsetDateTime currentTime() {
+        return dsl().select(currentOffsetDateTime()).fetchOne(0, OffsetDateTime.class);
+    }
+
+    private OffsetDateTime getLastStartedAt(UUID repoId) {
+        return getLastStartedAt(dsl(), repoId);
+    }
+
+    private static OffsetDateTime getLastStartedAt(DSLContext tx, UUID repoId) {
+        return tx.select(REPOSITORY_REFRESH_STATE.LAST_STARTED_AT)
+                .from(REPOSITORY_REFRESH_STATE)
+                .where(REPOSITORY_REFRESH_STATE.REPO_ID.eq(repoId))
+                .fetchOne(REPOSITORY_REFRESH_STATE.LAST_STARTED_AT);
+    }
+
+    private static void updateState(DSLContext tx, UUID repoId, OffsetDateTime startedAt, String commitId) {
+        tx.insertInto(REPOSITORY_REFRESH_STATE)
+                .columns(REPOSITORY_REFRESH_STATE.REPO_ID, REPOSITORY_REFRESH_STATE.LAST_STARTED_AT, REPOSITORY_REFRESH_STATE.LAST_COMMIT_ID)
+                .values(repoId, startedAt, commitId)
+                .onConflict(REPOSITORY_REFRESH_STATE.REPO_ID)
+                .doUpdate()
+                .set(REPOSITORY_REFRESH_STATE.LAST_STARTED_AT, startedAt)
+                .set(REPOSITORY_REFRESH_STATE.LAST_COMMIT_ID, commitId)
+                .execute();
+    }
+
     private ProjectEntry assertProject(UUID orgId, String projectName, ResourceAccessLevel accessLevel, boolean orgMembersOnly) {
         if (projectName == null) {
             throw new ValidationErrorsException("Invalid project name");
@@ -0,0 +1,362 @@
+package com.walmartlabs.concord.server.security;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.walmartlabs.concord.db.AbstractDao;
+import com.walmartlabs.concord.db.MainDB;
+import com.walmartlabs.concord.server.PeriodicTask;
+import com.walmartlabs.concord.server.cfg.AuthCacheConfiguration;
+import com.walmartlabs.concord.server.security.apikey.ApiKeyEntry;
+import com.walmartlabs.concord.server.user.UserEntry;
+import org.apache.shiro.subject.PrincipalCollection;
+import org.immutables.value.Value;
+import org.jooq.Condition;
+import org.jooq.Configuration;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static com.walmartlabs.concord.db.PgUtils.interval;
+import static com.walmartlabs.concord.server.jooq.Tables.AUTH_CACHE_INVALIDATIONS;
+import static org.jooq.impl.DSL.currentOffsetDateTime;
+
+/**
+ * Caches the results of API key and session key lookups.
+ * <p>
+ * Changes that must take effect immediately (API key removal, user account
+ * updates, process termination) evict the entries locally and record an
+ * invalidation in the DB. Other servers poll the invalidations and evict
+ * their entries. The TTL bounds the staleness of everything else.
+ * <p>
+ * SEQ_IDs are assigned before the transactions commit, so a lower SEQ_ID can
+ * become visible after a higher one. The skipped SEQ_IDs are polled again
+ * until they show up or until the TTL passes (rolled back transactions leave
+ * permanent gaps, entries cached before an invalidation expire with the TTL anyway).
+ */
+@Named
+@Singleton
+public class AuthenticationCache extends PeriodicTask {
+
+    private static final Logger log = LoggerFactory.getLogger(AuthenticationCache.class);
+
+    private static final long ERROR_DELAY = TimeUnit.SECONDS.toMillis(10);
+    private static final int POLL_BATCH_SIZE = 1000;
+    private static final long CLEANUP_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+    private static final int MAX_GAPS = 1000;
+
+    private final AuthCacheConfiguration cfg;
+    private final Dao dao;
+
+    private final Cache<String, ApiKeyEntry> apiKeys;
+    private final Cache<UUID, UserEntry> users;
+    private final Cache<UUID, PrincipalCollection> sessions;
+
+    /**
+     * Processes with invalidations recorded in not yet committed (or not yet
+     * polled) transactions. Their sessions are not cached, otherwise a load
+     * that reads the old data before the commit could put them back.
+     */
+    private final Cache<UUID, Boolean> pendingSessions;
+
+    /**
+     * Incremented on every eviction. Results loaded while an eviction
+     * happens are not cached.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private Long lastSeqId;
+    private long lastCleanupAt;
+
+    /**
+     * SEQ_IDs skipped by the poll, with the time they were detected.
+     */
+    private final NavigableMap<Long, Long> gaps = new TreeMap<>();
+
+    @Inject
+    public AuthenticationCache(AuthCacheConfiguration cfg, Dao dao, MetricRegistry metricRegistry) {
+        super(cfg.isEnabled() ? cfg.getInvalidationPollInterval().toMillis() : 0, ERROR_DELAY);
+
+        this.cfg = cfg;
+        this.dao = dao;
+
+        this.apiKeys = newCache(cfg);
+        this.users = newCache(cfg);
+        this.sessions = newCache(cfg);
+        this.pendingSessions = CacheBuilder.newBuilder()
+                .expireAfterWrite(cfg.getTtl().toMillis(), TimeUnit.MILLISECONDS)
+                .build();
+
+        registerMetrics(metricRegistry, "apikey", apiKeys);
+        registerMetrics(metricRegistry, "user", users);
+        registerMetrics(metricRegistry, "session", sessions);
+    }
+
+    /**
+     * Returns the API key with the specified hash. Expired keys are not returned.
+     *
+     * @param loader loads the key if it's not cached, returns {@code null} if the key is not found
+     */
+    public ApiKeyEntry getApiKey(String keyHash, Function<String, ApiKeyEntry> loader) {
+        ApiKeyEntry result = get(apiKeys, keyHash, loader);
+        if (result != null && result.getExpiredAt() != null && !result.getExpiredAt().isAfter(OffsetDateTime.now())) {
+            apiKeys.invalidate(keyHash);
+            return null;
+        }
+        return result;
+    }
+
+    /**
+     * @param loader loads the user if it's not cached, returns {@code null} if the user is not found
+     */
+    public UserEntry getUser(UUID userId, Function<UUID, UserEntry> loader) {
+        return get(users, userId, loader);
+    }
+
+    /**
+     * @param loader loads the principals of an active process, returns {@code null}
+     *               if the process is not found or already finished
+     */
+    public PrincipalCollection getSession(UUID instanceId, Function<UUID, PrincipalCollection> loader) {
+        if (pendingSessions.getIfPresent(instanceId) != null) {
+            return loader.apply(instanceId);
+        }
+        return get(sessions, instanceId, loader);
+    }
+
+    public void invalidateApiKey(UUID keyId) {
+        if (!cfg.isEnabled()) {
+            return;
+        }
+
+        invalidate(Target.API_KEY, keyId);
+        dao.insert(Target.API_KEY, keyId);
+    }
+
+    public void invalidateUser(UUID userId) {
+        if (!cfg.isEnabled()) {
+            return;
+        }
+
+        invalidate(Target.USER, userId);
+        dao.insert(Target.USER, userId);
+    }
+
+    /**
+     * Evicts the session of a finished process. The invalidation is recorded
+     * in the specified transaction, the session is not cached again until
+     * the invalidation is polled back after the commit.
+     */
+    public void invalidateProcess(DSLContext tx, UUID instanceId) {
+        if (!cfg.isEnabled()) {
+            return;
+        }
+
+        pendingSessions.put(instanceId, Boolean.TRUE);
+        invalidate(Target.PROCESS, instanceId);
+        dao.insert(tx, Target.PROCESS, instanceId);
+    }
+
+    @Override
+    protected boolean performTask() {
+        long now = System.currentTimeMillis();
+
+        if (lastSeqId == null) {
+            // the local caches are empty on start, older invalidations can be ignored.
+            // The last batch is polled again to detect the gaps of the in-flight transactions
+            lastSeqId = Math.max(0, dao.lastSeqId() - POLL_BATCH_SIZE);
+        }
+
+        gaps.values().removeIf(detectedAt -> now - detectedAt >= cfg.getTtl().toMillis());
+
+        List<Invalidation> items = dao.poll(lastSeqId, gaps.keySet(), POLL_BATCH_SIZE);
+        for (Invalidation i : items) {
+            invalidate(i.target(), i.targetId());
+            if (i.target() == Target.PROCESS) {
+                pendingSessions.invalidate(i.targetId());
+            }
+
+            long seqId = i.seqId();
+            if (gaps.remove(seqId) != null) {
+                continue;
+            }
+
+            for (long id = Math.max(lastSeqId + 1, seqId - MAX_GAPS); id < seqId; id++) {
+                gaps.put(id, now);
+            }
+            lastSeqId = seqId;
+        }
+
+        while (gaps.size() > MAX_GAPS) {
+            gaps.pollFirstEntry();
+        }
+        if (now - lastCleanupAt >= CLEANUP_INTERVAL) {
+            int deleted = dao.cleanup(cfg.getInvalidationRetention().getSeconds());
+            if (deleted > 0) {
+                log.info("performTask -> removed {} old invalidation(s)", deleted);
+            }
+            lastCleanupAt = now;
+        }
+
+        return items.size() >= POLL_BATCH_SIZE;
+    }
+
+    private void invalidate(Target target, UUID id) {
+        if (!cfg.isEnabled()) {
+            return;
+        }
+
+        generation.incrementAndGet();
+
+        switch (target) {
+            case API_KEY: {
+                apiKeys.asMap().values().removeIf(k -> id.equals(k.getId()));
+                break;
+            }
+            case USER: {
+                users.invalidate(id);
+                // the user's keys are removed with the user
+                apiKeys.asMap().values().removeIf(k -> id.equals(k.getUserId()));
+                break;
+            }
+            case PROCESS: {
+                sessions.invalidate(id);
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown invalidation target: " + target);
+        }
+    }
+
+    private <K, V> V get(Cache<K, V> cache, K key, Function<K, V> loader) {
+        if (!cfg.isEnabled()) {
+            return loader.apply(key);
+        }
+
+        V result = cache.getIfPresent(key);
+        if (result != null) {
+            return result;
+        }
+
+        long gen = generation.get();
+        result = loader.apply(key);
+        if (result != null && gen == generation.get()) {
+            cache.put(key, result);
+        }
+        return result;
+    }
+
+    private static <K, V> Cache<K, V> newCache(AuthCacheConfiguration cfg) {
+        return CacheBuilder.newBuilder()
+                .maximumSize(cfg.getMaxSize())
+                .expireAfterWrite(cfg.getTtl().toMillis(), TimeUnit.MILLISECONDS)
+                .concurrencyLevel(32)
+                .recordStats()
+                .build();
+    }
+
+    private static void registerMetrics(MetricRegistry metricRegistry, String name, Cache<?, ?> cache) {
+        metricRegistry.gauge("auth-cache-" + name + "-hits", () -> () -> cache.stats().hitCount());
+        metricRegistry.gauge("auth-cache-" + name + "-misses", () -> () -> cache.stats().missCount());
+        metricRegistry.gauge("auth-cache-" + name + "-hit-rate", () -> () -> cache.stats().hitRate());
+        metricRegistry.gauge("auth-cache-" + name + "-size", () -> cache::size);
+    }
+
+    enum Target {
+        API_KEY,
+        USER,
+        PROCESS
+    }
+
+    @Value.Immutable
+    interface Invalidation {
+
+        long seqId();
+
+        Target target();
+
+        UUID targetId();
+    }
+
+    @Named
+    private static class Dao extends AbstractDao {
+
+        @Inject
+        public Dao(@MainDB Configuration cfg) {
+            super(cfg);
+        }
+
+        public void insert(Target target, UUID targetId) {
+            tx(tx -> insert(tx, target, targetId));
+        }
+
+        public void insert(DSLContext tx, Target target, UUID targetId) {
+            tx.insertInto(AUTH_CACHE_INVALIDATIONS)
+                    .columns(AUTH_CACHE_INVALIDATIONS.TARGET_TYPE, AUTH_CACHE_INVALIDATIONS.TARGET_ID)
+                    .values(target.name(), targetId)
+                    .execute();
+        }
+
+        public long lastSeqId() {
+            Long result = dsl().select(AUTH_CACHE_INVALIDATIONS.SEQ_ID.max())
+                    .from(AUTH_CACHE_INVALIDATIONS)
+                    .fetchOne(AUTH_CACHE_INVALIDATIONS.SEQ_ID.max());
+            return result != null ? result : 0;
+        }
+
+        public List<Invalidation> poll(long afterSeqId, Collection<Long> gaps, int limit) {
+            Condition c = AUTH_CACHE_INVALIDATIONS.SEQ_ID.greaterThan(afterSeqId);
+            if (!gaps.isEmpty()) {
+                c = c.or(AUTH_CACHE_INVALIDATIONS.SEQ_ID.in(gaps));
+            }
+
+            return dsl().select(AUTH_CACHE_INVALIDATIONS.SEQ_ID, AUTH_CACHE_INVALIDATIONS.TARGET_TYPE, AUTH_CACHE_INVALIDATIONS.TARGET_ID)
+                    .from(AUTH_CACHE_INVALIDATIONS)
+                    .where(c)
+                    .orderBy(AUTH_CACHE_INVALIDATIONS.SEQ_ID)
+                    .limit(limit)
+                    .fetch(r -> ImmutableInvalidation.builder()
+                            .seqId(r.value1())
+                            .target(Target.valueOf(r.value2()))
+                            .targetId(r.value3())
+                            .build());
+        }
+
+        public int cleanup(long retentionSeconds) {
+            Field<OffsetDateTime> cutoff = currentOffsetDateTime().minus(interval(retentionSeconds + " seconds"));
+            return txResult(tx -> tx.deleteFrom(AUTH_CACHE_INVALIDATIONS)
+                    .where(AUTH_CACHE_INVALIDATIONS.CREATED_AT.lessThan(cutoff))
+                    .execute());
+        }
+    }
+}
@@ -102,9 +102,13 @@ public class ApiKeyDao extends AbstractDao {
     }
 
     public ApiKeyEntry find(String key) {
+        return findByHash(hash(key));
+    }
+
+    public ApiKeyEntry findByHash(String keyHash) {
         return dsl().select(API_KEYS.KEY_ID, API_KEYS.USER_ID, API_KEYS.KEY_NAME, API_KEYS.EXPIRED_AT)
                 .from(API_KEYS)
-                .where(API_KEYS.API_KEY.eq(hash(key))
+                .where(API_KEYS.API_KEY.eq(keyHash)
                         .and(API_KEYS.EXPIRED_AT.isNull()
                                 .or(API_KEYS.EXPIRED_AT.greaterThan(currentOffsetDateTime()))))
                 .fetchOne(ApiKeyDao::toEntry);
@@ -114,7 +118,7 @@ public class ApiKeyDao extends AbstractDao {
         return dsl().fetchCount(selectFrom(API_KEYS).where(API_KEYS.USER_ID.eq(userId)));
     }
 
-    private static String hash(String s) {
+    public static String hash(String s) {
         MessageDigest md;
         try {
             md = MessageDigest.getInstance("SHA-256");
@@ -24,6 +24,7 @@ import com.walmartlabs.concord.server.audit.AuditAction;
 import com.walmartlabs.concord.server.audit.AuditLog;
 import com.walmartlabs.concord.server.audit.AuditObject;
 import com.walmartlabs.concord.server.sdk.metrics.WithTimer;
+import com.walmartlabs.concord.server.security.AuthenticationCache;
 import com.walmartlabs.concord.server.security.PrincipalUtils;
 import com.walmartlabs.concord.server.security.UserPrincipal;
 import com.walmartlabs.concord.server.user.UserEntry;
@@ -47,11 +48,13 @@ public class ApiKeyRealm extends AuthorizingRealm {
 
     private final UserManager userManager;
     private final AuditLog auditLog;
+    private final AuthenticationCache authCache;
 
     @Inject
-    public ApiKeyRealm(UserManager userManager, AuditLog auditLog) {
+    public ApiKeyRealm(UserManager userManager, AuditLog auditLog, AuthenticationCache authCache) {
         this.userManager = userManager;
         this.auditLog = auditLog;
+        this.authCache = authCache;
     }
 
     @Override
@@ -64,7 +67,7 @@ public class ApiKeyRealm extends AuthorizingRealm {
     protected AuthenticationInfo doGetAuthenticationInfo(AuthenticationToken token) throws AuthenticationException {
         ApiKey t = (ApiKey) token;
 
-        UserEntry u = userManager.get(t.getUserId()).orElse(null);
+        UserEntry u = authCache.getUser(t.getUserId(), id -> userManager.get(id).orElse(null));
         if (u == null) {
             return null;
         }
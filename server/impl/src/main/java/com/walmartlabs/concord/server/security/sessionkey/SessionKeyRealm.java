@@ -27,6 +27,7 @@ import com.walmartlabs.concord.server.process.queue.ProcessQueueManager;
 import com.walmartlabs.concord.server.sdk.PartialProcessKey;
 import com.walmartlabs.concord.server.sdk.ProcessStatus;
 import com.walmartlabs.concord.server.sdk.metrics.WithTimer;
+import com.walmartlabs.concord.server.security.AuthenticationCache;
 import org.apache.shiro.authc.AuthenticationException;
 import org.apache.shiro.authc.AuthenticationInfo;
 import org.apache.shiro.authc.AuthenticationToken;
@@ -42,6 +43,7 @@ import org.slf4j.LoggerFactory;
 import javax.inject.Inject;
 import javax.inject.Named;
 import java.util.Set;
+import java.util.UUID;
 
 @Named
 public class SessionKeyRealm extends AuthorizingRealm {
@@ -59,12 +61,16 @@ public class SessionKeyRealm extends AuthorizingRealm {
             ProcessStatus.CANCELLED,
             ProcessStatus.TIMED_OUT);
 
+    private final AuthenticationCache authCache;
+
     @Inject
     public SessionKeyRealm(ProcessSecurityContext processSecurityContext,
-                           ProcessQueueManager processQueueManager) {
+                           ProcessQueueManager processQueueManager,
+                           AuthenticationCache authCache) {
 
         this.processSecurityContext = processSecurityContext;
         this.processQueueManager = processQueueManager;
+        this.authCache = authCache;
     }
 
     @Override
@@ -76,26 +82,13 @@ public class SessionKeyRealm extends AuthorizingRealm {
     @WithTimer
     protected AuthenticationInfo doGetAuthenticationInfo(AuthenticationToken token) throws AuthenticationException {
         SessionKey t = (SessionKey) token;
-        PartialProcessKey processKey = PartialProcessKey.from(t.getInstanceId());
 
         try {
-            ProcessInitiatorEntry p = processQueueManager.getInitiator(processKey);
-            if (p == null) {
-                log.warn("doGetAuthenticationInfo -> process not found: {}", t.getInstanceId());
-                return null;
-            }
-
-            if (p.initiatorId() == null) {
-                log.warn("doGetAuthenticationInfo -> initiator not found: {}", t.getInstanceId());
-                return null;
-            }
-
-            if (isFinished(p)) {
-                log.warn("doGetAuthenticationInfo -> process is finished: {}", t.getInstanceId());
+            PrincipalCollection principals = authCache.getSession(t.getInstanceId(), this::loadPrincipals);
+            if (principals == null) {
                 return null;
             }
 
-            PrincipalCollection principals = getPrincipals(processKey);
             return new SimpleAccount(principals, t.getInstanceId(), getName());
         } catch (Exception e) {
             log.error("doGetAuthenticationInfo ['{}'] -> error", t.getInstanceId(), e);
@@ -103,6 +96,28 @@ public class SessionKeyRealm extends AuthorizingRealm {
         }
     }
 
+    private PrincipalCollection loadPrincipals(UUID instanceId) {
+        PartialProcessKey processKey = PartialProcessKey.from(instanceId);
+
+        ProcessInitiatorEntry p = processQueueManager.getInitiator(processKey);
+        if (p == null) {
+            log.warn("doGetAuthenticationInfo -> process not found: {}", instanceId);
+            return null;
+        }
+
+        if (p.initiatorId() == null) {
+            log.warn("doGetAuthenticationInfo -> initiator not found: {}", instanceId);
+            return null;
+        }
+
+        if (isFinished(p)) {
+            log.warn("doGetAuthenticationInfo -> process is finished: {}", instanceId);
+            return null;
+        }
+
+        return getPrincipals(processKey);
+    }
+
     private PrincipalCollection getPrincipals(PartialProcessKey processKey) {
         PrincipalCollection principals = processSecurityContext.getPrincipals(processKey);
 
@@ -55,25 +55,30 @@ public final class SchedulerDao extends AbstractDao {
         super(cfg);
     }
 
-    public List<String> poll() {
+    public List<PolledTask> poll(int limit) {
         @SuppressWarnings("unchecked")
         Field<? extends Number> i = (Field<? extends Number>) PgUtils.interval("1 second");
 
         return txResult(tx -> {
-            List<String> ids = tx.select(TASKS.TASK_ID)
+            List<PolledTask> tasks = tx.select(TASKS.TASK_ID, TASKS.FINISHED_AT.plus(i.mul(TASKS.TASK_INTERVAL)))
                     .from(TASKS)
                     .where(TASKS.TASK_INTERVAL.greaterThan(0L)
                             .and(TASKS.TASK_STATUS.notEqual(TaskStatusType.RUNNING).or(TASKS.TASK_STATUS.isNull()))
                             .and(TASKS.FINISHED_AT.isNull()
                                     .or(TASKS.FINISHED_AT.plus(i.mul(TASKS.TASK_INTERVAL)).lessOrEqual(currentOffsetDateTime()))))
+                    .limit(limit)
                     .forUpdate()
                     .skipLocked()
-                    .fetch(TASKS.TASK_ID);
+                    .fetch(r -> new PolledTask(r.value1(), r.value2()));
 
-            if (ids.isEmpty()) {
-                return ids;
+            if (tasks.isEmpty()) {
+                return tasks;
             }
 
+            List<String> ids = tasks.stream()
+                    .map(PolledTask::getTaskId)
+                    .collect(Collectors.toList());
+
             tx.update(TASKS)
                     .set(TASKS.STARTED_AT, currentOffsetDateTime())
                     .set(TASKS.TASK_STATUS, value(TaskStatusType.RUNNING))
@@ -82,7 +87,7 @@ public final class SchedulerDao extends AbstractDao {
                     .where(TASKS.TASK_ID.in(ids))
                     .execute();
 
-            return ids;
+            return tasks;
         });
     }
 
@@ -171,4 +176,27 @@ public final class SchedulerDao extends AbstractDao {
             return null;
         }
     }
+
+    public static final class PolledTask {
+
+        private final String taskId;
+        private final OffsetDateTime dueAt;
+
+        private PolledTask(String taskId, OffsetDateTime dueAt) {
+            this.taskId = taskId;
+            this.dueAt = dueAt;
+        }
+
+        public String getTaskId() {
+            return taskId;
+        }
+
+        /**
+         * @return the moment the task became eligible to run or {@code null}
+         * if the task never ran before.
+         */
+        public OffsetDateTime getDueAt() {
+            return dueAt;
+        }
+    }
 }
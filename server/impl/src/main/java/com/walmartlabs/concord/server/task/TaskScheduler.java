@@ -20,8 +20,14 @@ package com.walmartlabs.concord.server.task;
  * =====
  */
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.walmartlabs.concord.server.PeriodicTask;
+import com.walmartlabs.concord.server.cfg.TaskSchedulerConfiguration;
 import com.walmartlabs.concord.server.sdk.ScheduledTask;
+import com.walmartlabs.concord.server.task.SchedulerDao.PolledTask;
 import org.jooq.Field;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,15 +35,24 @@ import org.slf4j.LoggerFactory;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
+import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
 
 import static com.walmartlabs.concord.db.PgUtils.interval;
 import static org.jooq.impl.DSL.currentOffsetDateTime;
 
+/**
+ * Runs {@link ScheduledTask}s using the TASKS table to coordinate between
+ * the cluster nodes.
+ * <p/>
+ * Each task gets its own single-threaded executor, so a slow task can't
+ * occupy threads of other tasks. The total number of simultaneously running
+ * tasks is limited by {@link TaskSchedulerConfiguration#getMaxConcurrentTasks()}
+ * (most tasks hold a DB connection while running). A node polls only as many
+ * tasks as it can start, the remaining tasks are left for other nodes.
+ */
 @Named
 @Singleton
 public class TaskScheduler extends PeriodicTask {
@@ -50,21 +65,36 @@ public class TaskScheduler extends PeriodicTask {
     private static final long STALLED_CHECK_INTERVAL = TimeUnit.SECONDS.toMillis(20);
     private static final long RUNNING_UPDATE_INTERVAL = TimeUnit.SECONDS.toMillis(20);
 
-    private final ExecutorService executor;
     private final SchedulerDao dao;
     private final Map<String, ScheduledTask> tasks;
+    private final Map<String, TaskRunner> runners;
+    private final Semaphore slots;
+    private final long maxJitter;
     private final Set<String> runningTasks = Collections.synchronizedSet(new HashSet<>());
 
     private long lastUpdateDate;
     private long lasStalledCheckDate;
 
     @Inject
-    public TaskScheduler(Map<String, ScheduledTask> tasks, SchedulerDao dao) {
+    public TaskScheduler(Map<String, ScheduledTask> tasks,
+                         SchedulerDao dao,
+                         TaskSchedulerConfiguration cfg,
+                         MetricRegistry metricRegistry) {
+
         super(POLL_INTERVAL, ERROR_DELAY);
 
-        this.executor = Executors.newCachedThreadPool();
         this.dao = dao;
         this.tasks = tasks;
+        this.slots = new Semaphore(cfg.getMaxConcurrentTasks());
+        this.maxJitter = cfg.getMaxJitter().toMillis();
+
+        Map<String, TaskRunner> runners = new HashMap<>();
+        for (String id : tasks.keySet()) {
+            runners.put(id, new TaskRunner(id, metricRegistry));
+        }
+        this.runners = Collections.unmodifiableMap(runners);
+
+        metricRegistry.gauge("task-scheduler-available-slots", () -> slots::availablePermits);
 
         this.dao.updateTaskIntervals(tasks);
     }
@@ -81,8 +111,13 @@ public class TaskScheduler extends PeriodicTask {
             lasStalledCheckDate = System.currentTimeMillis();
         }
 
-        List<String> ids = dao.poll();
-        ids.forEach(this::startTask);
+        int limit = slots.availablePermits();
+        if (limit <= 0) {
+            return false;
+        }
+
+        List<PolledTask> polled = dao.poll(limit);
+        polled.forEach(this::startTask);
 
         return false;
     }
@@ -91,43 +126,84 @@ public class TaskScheduler extends PeriodicTask {
     public void stop() {
         super.stop();
 
-        executor.shutdown();
+        runners.values().forEach(r -> r.executor.shutdown());
 
         try {
-            if (executor.awaitTermination(5, TimeUnit.MINUTES)) {
-                log.info("stop -> done");
-            } else {
-                log.info("stop -> timeout");
+            long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(5);
+            for (TaskRunner r : runners.values()) {
+                long timeout = Math.max(0, deadline - System.currentTimeMillis());
+                if (!r.executor.awaitTermination(timeout, TimeUnit.MILLISECONDS)) {
+                    log.info("stop -> timeout");
+                    return;
+                }
             }
+            log.info("stop -> done");
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
     }
 
-    private void startTask(String id) {
+    private void startTask(PolledTask polled) {
+        String id = polled.getTaskId();
+
         ScheduledTask task = tasks.get(id);
-        if (task == null) {
+        TaskRunner runner = runners.get(id);
+        if (task == null || runner == null) {
             log.error("startTask -> task with id '{}' not found", id);
             return;
         }
 
-        executor.submit(() -> {
-            try {
-                runningTasks.add(id);
+        if (!runningTasks.add(id)) {
+            // the previous run was marked as stalled, but it is still running on this node
+            // the previous run's completion will update the task's status
+            runner.overlapCounter.inc();
+            log.warn("startTask ['{}'] -> the task is still running, skipping...", id);
+            return;
+        }
 
-                task.performTask();
+        if (!slots.tryAcquire()) {
+            // shouldn't happen, only the scheduler's thread acquires the slots
+            runningTasks.remove(id);
+            dao.error(id, new IllegalStateException("No available slots"));
+            return;
+        }
 
-                dao.success(id);
+        OffsetDateTime dueAt = polled.getDueAt();
+        if (dueAt != null) {
+            long lag = Duration.between(dueAt, OffsetDateTime.now()).toMillis();
+            runner.lagHistogram.update(Math.max(0, lag));
+        }
 
-                log.debug("startTask ['{}'] -> done", id);
-            } catch (Exception e) {
-                log.error("startTask ['{}'] -> error", id, e);
+        long delay = maxJitter > 0 ? ThreadLocalRandom.current().nextLong(maxJitter) : 0;
 
-                dao.error(id, e);
-            } finally {
-                runningTasks.remove(id);
-            }
-        });
+        try {
+            runner.executor.schedule(() -> run(id, task, runner), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // the executor is shut down (e.g. the server is stopping)
+            log.warn("startTask ['{}'] -> rejected: {}", id, e.getMessage());
+            runningTasks.remove(id);
+            slots.release();
+            dao.error(id, e);
+        }
+    }
+
+    private void run(String id, ScheduledTask task, TaskRunner runner) {
+        Timer.Context ctx = runner.durationTimer.time();
+        try {
+            task.performTask();
+
+            dao.success(id);
+
+            log.debug("startTask ['{}'] -> done", id);
+        } catch (Exception e) {
+            log.error("startTask ['{}'] -> error", id, e);
+
+            dao.error(id, e);
+        } finally {
+            ctx.stop();
+            runningTasks.remove(id);
+            slots.release();
+        }
     }
 
     private void updateRunningTasks() {
@@ -163,4 +239,18 @@ public class TaskScheduler extends PeriodicTask {
         }
     }
 
+    private static final class TaskRunner {
+
+        private final ScheduledExecutorService executor;
+        private final Timer durationTimer;
+        private final Histogram lagHistogram;
+        private final Counter overlapCounter;
+
+        private TaskRunner(String taskId, MetricRegistry metricRegistry) {
+            this.executor = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "task-scheduler-" + taskId));
+            this.durationTimer = metricRegistry.timer("task-scheduler-" + taskId + "-duration");
+            this.lagHistogram = metricRegistry.histogram("task-scheduler-" + taskId + "-lag");
+            this.overlapCounter = metricRegistry.counter("task-scheduler-" + taskId + "-overlap");
+        }
+    }
 }
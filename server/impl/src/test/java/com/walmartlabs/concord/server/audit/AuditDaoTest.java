@@ -0,0 +1,95 @@
+package com.walmartlabs.concord.server.audit;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.AbstractDaoTest;
+import com.walmartlabs.concord.server.ConcordObjectMapper;
+import com.walmartlabs.concord.server.TestObjectMapper;
+import com.walmartlabs.concord.server.sdk.audit.AuditEvent;
+import org.jooq.impl.DSL;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static com.walmartlabs.concord.server.jooq.tables.AuditLog.AUDIT_LOG;
+import static org.junit.Assert.*;
+
+@Ignore("requires a local DB instance")
+public class AuditDaoTest extends AbstractDaoTest {
+
+    @Test
+    public void testBatchInsert() throws Exception {
+        AuditDao auditDao = new AuditDao(getConfiguration(), new ConcordObjectMapper(TestObjectMapper.INSTANCE));
+
+        List<PendingAuditEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            AuditAction action = AuditAction.values()[i % AuditAction.values().length];
+            entries.add(new PendingAuditEntry(null, AuditObject.PROJECT, action, Collections.singletonMap("n", i)));
+        }
+
+        List<AuditEvent> events = auditDao.insert(entries);
+        assertEquals(entries.size(), events.size());
+
+        long prevSeq = -1;
+        for (int i = 0; i < events.size(); i++) {
+            AuditEvent ev = events.get(i);
+            assertEquals(entries.get(i).getAction().toString(), ev.action());
+            assertEquals(i, ev.details().get("n"));
+            assertTrue(ev.entrySeq() > prevSeq);
+            assertNotNull(ev.entryDate());
+            prevSeq = ev.entrySeq();
+
+            // the event's sequence number points to the corresponding row
+            long seq = ev.entrySeq();
+            String details = DSL.using(getConfiguration()).select(AUDIT_LOG.ENTRY_DETAILS)
+                    .from(AUDIT_LOG)
+                    .where(AUDIT_LOG.ENTRY_SEQ.eq(seq))
+                    .fetchOne(AUDIT_LOG.ENTRY_DETAILS).data();
+            assertEquals(i, TestObjectMapper.INSTANCE.readValue(details, Map.class).get("n"));
+        }
+    }
+
+    @Test
+    public void testEntryDateIsCreationTime() throws Exception {
+        AuditDao auditDao = new AuditDao(getConfiguration(), new ConcordObjectMapper(TestObjectMapper.INSTANCE));
+
+        PendingAuditEntry entry = new PendingAuditEntry(null, AuditObject.PROJECT, AuditAction.CREATE, Collections.emptyMap());
+
+        // the entry waits in the writer's queue
+        Thread.sleep(500);
+
+        AuditEvent ev = auditDao.insert(Collections.singletonList(entry)).get(0);
+
+        OffsetDateTime stored = DSL.using(getConfiguration()).select(AUDIT_LOG.ENTRY_DATE)
+                .from(AUDIT_LOG)
+                .where(AUDIT_LOG.ENTRY_SEQ.eq(ev.entrySeq()))
+                .fetchOne(AUDIT_LOG.ENTRY_DATE);
+
+        assertTrue(stored.isEqual(entry.getEntryDate().truncatedTo(ChronoUnit.MICROS)));
+        assertTrue(ev.entryDate().isEqual(entry.getEntryDate()));
+    }
+}
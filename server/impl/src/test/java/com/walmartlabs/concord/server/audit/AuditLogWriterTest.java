@@ -0,0 +1,78 @@
+package com.walmartlabs.concord.server.audit;
+
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.server.Listeners;
+import com.walmartlabs.concord.server.cfg.AuditConfiguration;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AuditLogWriterTest {
+
+    @Test(timeout = 30000)
+    public void testStop() {
+        AuditConfiguration cfg = mock(AuditConfiguration.class);
+        when(cfg.isEnabled()).thenReturn(true);
+        when(cfg.isAsync()).thenReturn(true);
+        when(cfg.getQueueSize()).thenReturn(100);
+        when(cfg.getBatchSize()).thenReturn(10);
+
+        AtomicInteger written = new AtomicInteger();
+        AuditDao auditDao = mock(AuditDao.class);
+        when(auditDao.insert(anyList())).thenAnswer(i -> {
+            List<?> entries = i.getArgument(0);
+            written.addAndGet(entries.size());
+            return Collections.emptyList();
+        });
+
+        AuditLogWriter writer = new AuditLogWriter(cfg, auditDao, mock(Listeners.class), new MetricRegistry());
+        writer.start();
+        assertTrue(writer.isRunning());
+
+        int count = 50;
+        for (int i = 0; i < count; i++) {
+            assertTrue(writer.offer(entry(i)));
+        }
+
+        writer.stop();
+
+        // everything accepted before stop() is written
+        assertEquals(count, written.get());
+
+        // ...and nothing is accepted after
+        assertFalse(writer.isRunning());
+        assertFalse(writer.offer(entry(count)));
+    }
+
+    private static PendingAuditEntry entry(int n) {
+        return new PendingAuditEntry(null, AuditObject.PROJECT, AuditAction.CREATE, Collections.singletonMap("n", n));
+    }
+}
@@ -0,0 +1,123 @@
+package com.walmartlabs.concord.server.events;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.AbstractDaoTest;
+import com.walmartlabs.concord.server.ConcordObjectMapper;
+import com.walmartlabs.concord.server.TestObjectMapper;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+@Ignore("requires a local DB instance")
+public class EventQueueDaoTest extends AbstractDaoTest {
+
+    private static final UUID ADMIN_ID = UUID.fromString("230c5c9c-d9a7-11e6-bcfd-bb681c07b26c");
+
+    private EventQueueDao dao;
+
+    @Before
+    public void setUp() {
+        dao = new EventQueueDao(getConfiguration(), new ConcordObjectMapper(TestObjectMapper.INSTANCE));
+    }
+
+    @Test
+    public void testInsertAndPoll() {
+        String deliveryId = UUID.randomUUID().toString();
+
+        assertTrue(dao.insert("test", "push", deliveryId, null, ADMIN_ID, "a/b/master", Collections.singletonMap("x", 1)));
+        // redelivery of the same event is ignored
+        assertFalse(dao.insert("test", "push", deliveryId, null, ADMIN_ID, "a/b/master", Collections.singletonMap("x", 1)));
+
+        List<QueuedEvent> first = dao.poll(100, Duration.ofMinutes(10));
+        QueuedEvent e = first.stream()
+                .filter(i -> i.deliveryId().equals(deliveryId))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("event not found"));
+        assertEquals("a/b/master", e.coalesceKey());
+        assertEquals(1, e.data().get("x"));
+
+        // events in processing are not returned again until the timeout
+        List<QueuedEvent> second = dao.poll(100, Duration.ofMinutes(10));
+        assertFalse(second.stream().anyMatch(i -> i.deliveryId().equals(deliveryId)));
+
+        dao.delete(first.stream().map(QueuedEvent::eventId).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testRetry() {
+        String deliveryId = UUID.randomUUID().toString();
+        assertTrue(dao.insert("test", "push", deliveryId, null, ADMIN_ID, null, Collections.emptyMap()));
+
+        QueuedEvent e = poll(deliveryId);
+        assertNotNull(e);
+        assertEquals(1, e.attempts());
+
+        // failed events are returned again once the delay is over
+        dao.retry(e.eventId(), Duration.ZERO);
+        e = poll(deliveryId);
+        assertNotNull(e);
+        assertEquals(2, e.attempts());
+
+        // ...but not before that
+        dao.retry(e.eventId(), Duration.ofHours(1));
+        assertNull(poll(deliveryId));
+
+        dao.delete(Collections.singletonList(e.eventId()));
+    }
+
+    @Test
+    public void testStartedTriggersAreKeptForRetries() {
+        String deliveryId = UUID.randomUUID().toString();
+        assertTrue(dao.insert("test", "push", deliveryId, null, ADMIN_ID, null, Collections.emptyMap()));
+
+        QueuedEvent e = poll(deliveryId);
+        assertNotNull(e);
+        assertTrue(e.startedTriggers().isEmpty());
+
+        UUID triggerId = UUID.randomUUID();
+        dao.addStartedTrigger(e.eventId(), triggerId, UUID.randomUUID());
+        // recording the same trigger again is a no-op
+        dao.addStartedTrigger(e.eventId(), triggerId, UUID.randomUUID());
+
+        dao.retry(e.eventId(), Duration.ZERO);
+        e = poll(deliveryId);
+        assertNotNull(e);
+        assertEquals(Collections.singleton(triggerId), e.startedTriggers());
+
+        dao.delete(Collections.singletonList(e.eventId()));
+    }
+
+    private QueuedEvent poll(String deliveryId) {
+        return dao.poll(100, Duration.ofMinutes(10)).stream()
+                .filter(i -> i.deliveryId().equals(deliveryId))
+                .findFirst()
+                .orElse(null);
+    }
+}
@@ -0,0 +1,76 @@
+package com.walmartlabs.concord.server.org.jsonstore;
+
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class DeferredOutputStreamTest {
+
+    @Test
+    public void testCommit() throws Exception {
+        TrackingOutputStream target = new TrackingOutputStream();
+
+        try (DeferredOutputStream out = new DeferredOutputStream(target)) {
+            out.write("[1,".getBytes());
+            out.flush();
+            assertEquals(0, target.size());
+
+            out.commit();
+            assertEquals("[1,", target.toString());
+
+            out.write("2]".getBytes());
+            assertEquals("[1,2]", target.toString());
+        }
+
+        assertTrue(target.closed);
+    }
+
+    @Test
+    public void testCloseWithoutCommit() throws Exception {
+        TrackingOutputStream target = new TrackingOutputStream();
+
+        // e.g. the query failed before the first page was fetched
+        DeferredOutputStream out = new DeferredOutputStream(target);
+        out.write("[1,".getBytes());
+        out.close();
+
+        assertFalse(out.isCommitted());
+        assertEquals(0, target.size());
+        assertFalse(target.closed);
+    }
+
+    private static final class TrackingOutputStream extends ByteArrayOutputStream {
+
+        private boolean closed;
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            super.close();
+        }
+    }
+}
@@ -20,18 +20,23 @@ package com.walmartlabs.concord.server.org.jsonstore;
  * =====
  */
 
+import com.codahale.metrics.MetricRegistry;
 import com.walmartlabs.concord.server.AbstractDaoTest;
 import com.walmartlabs.concord.server.ConcordObjectMapper;
 import com.walmartlabs.concord.server.TestObjectMapper;
+import com.walmartlabs.concord.server.cfg.JsonStoreQueryConfiguration;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
 import static com.walmartlabs.concord.server.org.jsonstore.SqlParserTest.parseQueries;
+import static junit.framework.TestCase.assertEquals;
 import static junit.framework.TestCase.assertNotNull;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
@@ -45,7 +50,7 @@ public class JsonStorageQueryExecDaoTest extends AbstractDaoTest {
         List<String> queries = parseQueries("queries.txt");
 
         JsonStoreQueryDao qd = mock(JsonStoreQueryDao.class);
-        JsonStoreQueryExecDao dao = new JsonStoreQueryExecDao(getConfiguration(), new ConcordObjectMapper(TestObjectMapper.INSTANCE), qd);
+        JsonStoreQueryExecDao dao = createDao(qd);
 
         UUID storageId = UUID.randomUUID();
         for(String sql : queries) {
@@ -65,6 +70,20 @@ public class JsonStorageQueryExecDaoTest extends AbstractDaoTest {
 
             List<Object> result = dao.exec(storageId, queryName, params);
             assertNotNull(result);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            dao.stream(qd.get(storageId, queryName), params, out);
+            assertEquals(result, TestObjectMapper.INSTANCE.readValue(out.toByteArray(), List.class));
         }
     }
+
+    private JsonStoreQueryExecDao createDao(JsonStoreQueryDao qd) {
+        JsonStoreQueryConfiguration cfg = mock(JsonStoreQueryConfiguration.class);
+        when(cfg.getSqlCacheSize()).thenReturn(10L);
+        when(cfg.getFetchSize()).thenReturn(2);
+        when(cfg.getResultCacheTtl()).thenReturn(Duration.ofMinutes(1));
+
+        JsonStoreQueryResultCache resultCache = new JsonStoreQueryResultCache(cfg, new MetricRegistry());
+        return new JsonStoreQueryExecDao(getConfiguration(), new ConcordObjectMapper(TestObjectMapper.INSTANCE), qd, resultCache, cfg);
+    }
 }
@@ -0,0 +1,106 @@
+package com.walmartlabs.concord.server.org.jsonstore;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.server.cfg.JsonStoreQueryConfiguration;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class JsonStoreQueryResultCacheTest {
+
+    @Test
+    public void testInvalidation() {
+        JsonStoreQueryResultCache cache = createCache(10);
+
+        UUID storeA = UUID.randomUUID();
+        UUID storeB = UUID.randomUUID();
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(storeA, "select 1", null, () -> load(loads, 1));
+        cache.get(storeA, "select 1", null, () -> load(loads, 1));
+        cache.get(storeB, "select 1", null, () -> load(loads, 1));
+        assertEquals(2, loads.get());
+
+        // different params -> different entries
+        cache.get(storeA, "select 1", "{\"k\":\"v\"}", () -> load(loads, 1));
+        assertEquals(3, loads.get());
+
+        cache.invalidate(storeA);
+
+        cache.get(storeA, "select 1", null, () -> load(loads, 1));
+        cache.get(storeB, "select 1", null, () -> load(loads, 1));
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    public void testConcurrentModification() {
+        JsonStoreQueryResultCache cache = createCache(10);
+
+        UUID storeId = UUID.randomUUID();
+        AtomicInteger loads = new AtomicInteger();
+
+        // the store is modified while the query is running, the result must not be cached
+        cache.get(storeId, "select 1", null, () -> {
+            cache.invalidate(storeId);
+            return load(loads, 1);
+        });
+
+        cache.get(storeId, "select 1", null, () -> load(loads, 1));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testMaxRows() {
+        JsonStoreQueryResultCache cache = createCache(2);
+
+        UUID storeId = UUID.randomUUID();
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(storeId, "select 1", null, () -> load(loads, 3));
+        cache.get(storeId, "select 1", null, () -> load(loads, 3));
+        assertEquals(2, loads.get());
+    }
+
+    private static List<Object> load(AtomicInteger loads, int rows) {
+        loads.incrementAndGet();
+        return new ArrayList<>(Collections.nCopies(rows, "row"));
+    }
+
+    private static JsonStoreQueryResultCache createCache(int maxRows) {
+        JsonStoreQueryConfiguration cfg = mock(JsonStoreQueryConfiguration.class);
+        when(cfg.isResultCacheEnabled()).thenReturn(true);
+        when(cfg.getResultCacheMaxSize()).thenReturn(100L);
+        when(cfg.getResultCacheMaxRows()).thenReturn(maxRows);
+        when(cfg.getResultCacheTtl()).thenReturn(Duration.ofMinutes(1));
+        return new JsonStoreQueryResultCache(cfg, new MetricRegistry());
+    }
+}
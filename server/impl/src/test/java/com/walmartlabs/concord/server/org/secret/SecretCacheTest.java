@@ -0,0 +1,124 @@
+package com.walmartlabs.concord.server.org.secret;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.server.cfg.SecretStoreConfiguration;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SecretCacheTest {
+
+    @Test
+    public void testScopes() {
+        SecretCache cache = createCache(100);
+
+        UUID processA = UUID.randomUUID();
+        UUID processB = UUID.randomUUID();
+        UUID secretId = UUID.randomUUID();
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(processA, secretId, null, () -> load(loads));
+        cache.get(processA, secretId, null, () -> load(loads));
+        assertEquals(1, loads.get());
+
+        // different processes and passwords -> different entries
+        cache.get(processB, secretId, null, () -> load(loads));
+        cache.get(processA, secretId, "pwd", () -> load(loads));
+        assertEquals(3, loads.get());
+
+        // no scope -> no caching
+        cache.get(null, secretId, null, () -> load(loads));
+        cache.get(null, secretId, null, () -> load(loads));
+        assertEquals(5, loads.get());
+    }
+
+    @Test
+    public void testInvalidation() {
+        SecretCache cache = createCache(100);
+
+        UUID processId = UUID.randomUUID();
+        UUID secretA = UUID.randomUUID();
+        UUID secretB = UUID.randomUUID();
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(processId, secretA, null, () -> load(loads));
+        cache.get(processId, secretB, null, () -> load(loads));
+        assertEquals(2, loads.get());
+
+        cache.invalidate(secretA);
+
+        cache.get(processId, secretA, null, () -> load(loads));
+        cache.get(processId, secretB, null, () -> load(loads));
+        assertEquals(3, loads.get());
+
+        // the secret is modified while it is being decrypted, the value must not be cached
+        cache.get(processId, secretA, "pwd", () -> {
+            cache.invalidate(secretA);
+            return load(loads);
+        });
+        cache.get(processId, secretA, "pwd", () -> load(loads));
+        assertEquals(5, loads.get());
+    }
+
+    @Test
+    public void testCopies() {
+        SecretCache cache = createCache(1);
+
+        UUID processId = UUID.randomUUID();
+        UUID secretA = UUID.randomUUID();
+        UUID secretB = UUID.randomUUID();
+
+        byte[] a = cache.get(processId, secretA, null, () -> new byte[]{1, 2, 3});
+
+        // evicts and zeroes the cached copy of "secretA"
+        cache.get(processId, secretB, null, () -> new byte[]{4, 5, 6});
+        assertArrayEquals(new byte[]{1, 2, 3}, a);
+
+        byte[] b = cache.get(processId, secretB, null, () -> new byte[0]);
+        assertArrayEquals(new byte[]{4, 5, 6}, b);
+
+        // modifying the returned value must not affect the cached one
+        b[0] = 0;
+        assertArrayEquals(new byte[]{4, 5, 6}, cache.get(processId, secretB, null, () -> new byte[0]));
+    }
+
+    private static byte[] load(AtomicInteger loads) {
+        loads.incrementAndGet();
+        return new byte[]{1, 2, 3};
+    }
+
+    private static SecretCache createCache(long maxSize) {
+        SecretStoreConfiguration cfg = mock(SecretStoreConfiguration.class);
+        when(cfg.isCacheEnabled()).thenReturn(true);
+        when(cfg.getCacheMaxSize()).thenReturn(maxSize);
+        when(cfg.getCacheTtl()).thenReturn(Duration.ofMinutes(1));
+        return new SecretCache(cfg, new MetricRegistry());
+    }
+}
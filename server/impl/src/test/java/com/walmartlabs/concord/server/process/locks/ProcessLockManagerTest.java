@@ -0,0 +1,93 @@
+package com.walmartlabs.concord.server.process.locks;
+
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.server.jooq.enums.ProcessLockScope;
+import com.walmartlabs.concord.server.process.PayloadManager;
+import com.walmartlabs.concord.server.process.ProcessEntry;
+import com.walmartlabs.concord.server.process.ProcessManager;
+import com.walmartlabs.concord.server.process.queue.ProcessQueueManager;
+import com.walmartlabs.concord.server.sdk.PartialProcessKey;
+import com.walmartlabs.concord.server.sdk.ProcessStatus;
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ProcessLockManagerTest {
+
+    private static final UUID ORG_ID = UUID.randomUUID();
+    private static final UUID PROJECT_ID = UUID.randomUUID();
+    private static final String LOCK_NAME = "test";
+
+    @Test(timeout = 30000)
+    public void testHandOffToRunningProcess() {
+        UUID owner = UUID.randomUUID();
+        UUID waiter = UUID.randomUUID();
+
+        ProcessLocksDao dao = mock(ProcessLocksDao.class);
+        when(dao.unlock(eq(owner), any(), any(), any(), any())).thenReturn(holder(waiter));
+
+        ProcessEntry running = process(waiter, ProcessStatus.RUNNING);
+
+        ProcessQueueManager queueManager = mock(ProcessQueueManager.class);
+        when(queueManager.get(any(PartialProcessKey.class))).thenReturn(running);
+
+        ProcessManager processManager = mock(ProcessManager.class);
+
+        ProcessLockManager lockManager = new ProcessLockManager(dao, queueManager, processManager, mock(PayloadManager.class), new MetricRegistry());
+        lockManager.start();
+        try {
+            lockManager.unlock(owner, ORG_ID, PROJECT_ID, ProcessLockScope.PROJECT, LOCK_NAME);
+
+            // the hand-off is checked in background
+            verify(queueManager, timeout(10000)).get(PartialProcessKey.from(waiter));
+        } finally {
+            lockManager.stop();
+        }
+
+        // the waiter is still running and picks up the lock with its next tryLock, nothing to resume
+        verify(queueManager, never()).getWait(any());
+        verifyNoInteractions(processManager);
+    }
+
+    private static ProcessEntry process(UUID instanceId, ProcessStatus status) {
+        ProcessEntry e = mock(ProcessEntry.class);
+        when(e.instanceId()).thenReturn(instanceId);
+        when(e.status()).thenReturn(status);
+        return e;
+    }
+
+    private static LockHolder holder(UUID instanceId) {
+        return LockHolder.of(LockEntry.builder()
+                .instanceId(instanceId)
+                .orgId(ORG_ID)
+                .projectId(PROJECT_ID)
+                .name(LOCK_NAME)
+                .scope(ProcessLockScope.PROJECT)
+                .build());
+    }
+}
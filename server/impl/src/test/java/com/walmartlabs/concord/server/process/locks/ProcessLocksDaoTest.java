@@ -0,0 +1,147 @@
+package com.walmartlabs.concord.server.process.locks;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.AbstractDaoTest;
+import com.walmartlabs.concord.server.ConcordObjectMapper;
+import com.walmartlabs.concord.server.Locks;
+import com.walmartlabs.concord.server.TestObjectMapper;
+import com.walmartlabs.concord.server.cfg.LockingConfiguration;
+import com.walmartlabs.concord.server.jooq.enums.ProcessLockScope;
+import com.walmartlabs.concord.server.org.OrganizationManager;
+import com.walmartlabs.concord.server.org.project.ProjectDao;
+import com.walmartlabs.concord.server.process.ProcessKind;
+import com.walmartlabs.concord.server.process.queue.ProcessQueueDao;
+import com.walmartlabs.concord.server.sdk.ProcessKey;
+import com.walmartlabs.concord.server.sdk.ProcessStatus;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.time.OffsetDateTime;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+@Ignore("requires a local DB instance")
+public class ProcessLocksDaoTest extends AbstractDaoTest {
+
+    private static final UUID ORG_ID = OrganizationManager.DEFAULT_ORG_ID;
+    private static final ProcessLockScope SCOPE = ProcessLockScope.PROJECT;
+    private static final String LOCK_NAME = "test";
+
+    private ProcessLocksDao locksDao;
+    private ProcessQueueDao queueDao;
+    private UUID projectId;
+
+    @Before
+    public void setUp() {
+        ConcordObjectMapper objectMapper = new ConcordObjectMapper(TestObjectMapper.INSTANCE);
+
+        locksDao = new ProcessLocksDao(getConfiguration(), new Locks(new LockingConfiguration(8)));
+        queueDao = new ProcessQueueDao(getConfiguration(), objectMapper);
+
+        ProjectDao projectDao = new ProjectDao(getConfiguration(), objectMapper);
+        projectId = projectDao.insert(ORG_ID, "project#" + System.currentTimeMillis(), "test", null, null, null, null, new byte[0], null, null);
+    }
+
+    @Test
+    public void testHandOffOrder() {
+        UUID a = newProcess();
+        UUID b = newProcess();
+        UUID c = newProcess();
+
+        assertHolder(a, tryLock(a));
+        assertHolder(a, tryLock(b));
+        assertHolder(a, tryLock(c));
+
+        // repeated attempts don't change the order
+        assertHolder(a, tryLock(c));
+        assertHolder(a, tryLock(b));
+
+        LockHolder next = unlock(a);
+        assertNotNull(next);
+        assertHolder(b, next);
+        assertNotNull(next.waitingSince());
+
+        // the lock was handed over, a new process is queued after the existing ones
+        UUID d = newProcess();
+        assertHolder(b, tryLock(d));
+        assertHolder(b, tryLock(b));
+
+        assertHolder(c, unlock(b));
+        assertHolder(d, unlock(c));
+        assertNull(unlock(d));
+
+        assertEquals(0, locksDao.countWaiters());
+    }
+
+    @Test
+    public void testFinishedWaiters() {
+        UUID a = newProcess();
+        UUID b = newProcess();
+        UUID c = newProcess();
+
+        assertHolder(a, tryLock(a));
+        assertHolder(a, tryLock(b));
+        assertHolder(a, tryLock(c));
+
+        tx(tx -> queueDao.updateStatus(tx, queueDao.getKey(b), ProcessStatus.CANCELLED));
+
+        // the finished process is skipped
+        assertHolder(c, unlock(a));
+        assertNull(unlock(c));
+    }
+
+    @Test
+    public void testUnlockByOtherProcess() {
+        UUID a = newProcess();
+        UUID b = newProcess();
+
+        assertHolder(a, tryLock(a));
+        assertHolder(a, tryLock(b));
+
+        // b is not the holder, but it's not waiting anymore
+        assertNull(unlock(b));
+        assertNull(unlock(a));
+        assertHolder(b, tryLock(b));
+    }
+
+    private UUID newProcess() {
+        ProcessKey key = new ProcessKey(UUID.randomUUID(), OffsetDateTime.now());
+        tx(tx -> queueDao.insert(tx, key, ProcessStatus.RUNNING, ProcessKind.DEFAULT, null, projectId, null, null, Collections.emptyMap(), null));
+        return key.getInstanceId();
+    }
+
+    private LockHolder tryLock(UUID instanceId) {
+        return locksDao.tryLock(instanceId, ORG_ID, projectId, SCOPE, LOCK_NAME);
+    }
+
+    private LockHolder unlock(UUID instanceId) {
+        return locksDao.unlock(instanceId, ORG_ID, projectId, SCOPE, LOCK_NAME);
+    }
+
+    private static void assertHolder(UUID expected, LockHolder holder) {
+        assertNotNull(holder);
+        assertEquals(expected, holder.lock().instanceId());
+    }
+}
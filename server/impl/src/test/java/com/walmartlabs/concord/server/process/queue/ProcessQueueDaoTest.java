@@ -0,0 +1,96 @@
+package com.walmartlabs.concord.server.process.queue;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.AbstractDaoTest;
+import com.walmartlabs.concord.server.ConcordObjectMapper;
+import com.walmartlabs.concord.server.TestObjectMapper;
+import com.walmartlabs.concord.server.org.OrganizationManager;
+import com.walmartlabs.concord.server.org.project.ProjectDao;
+import com.walmartlabs.concord.server.process.ProcessEntry;
+import com.walmartlabs.concord.server.process.ProcessKind;
+import com.walmartlabs.concord.server.sdk.ProcessKey;
+import com.walmartlabs.concord.server.sdk.ProcessStatus;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+@Ignore("requires a local DB instance")
+public class ProcessQueueDaoTest extends AbstractDaoTest {
+
+    private ProcessQueueDao queueDao;
+    private UUID projectId;
+
+    @Before
+    public void setUp() {
+        ConcordObjectMapper objectMapper = new ConcordObjectMapper(TestObjectMapper.INSTANCE);
+
+        queueDao = new ProcessQueueDao(getConfiguration(), objectMapper);
+
+        ProjectDao projectDao = new ProjectDao(getConfiguration(), objectMapper);
+        projectId = projectDao.insert(OrganizationManager.DEFAULT_ORG_ID, "project#" + System.currentTimeMillis(), "test", null, null, null, null, new byte[0], null, null);
+    }
+
+    @Test
+    public void testCursor() {
+        OffsetDateTime now = OffsetDateTime.now();
+
+        // two groups of processes with the same CREATED_AT values
+        List<ProcessKey> keys = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            ProcessKey key = new ProcessKey(UUID.randomUUID(), now.minusSeconds(i % 2));
+            tx(tx -> queueDao.insert(tx, key, ProcessStatus.FINISHED, ProcessKind.DEFAULT, null, projectId, null, null, Collections.emptyMap(), null));
+            keys.add(key);
+        }
+
+        // PostgreSQL compares UUIDs as unsigned bytes, same as their string representations
+        List<UUID> expected = keys.stream()
+                .sorted(Comparator.comparing(ProcessKey::getCreatedAt).thenComparing(k -> k.getInstanceId().toString()).reversed())
+                .map(ProcessKey::getInstanceId)
+                .collect(Collectors.toList());
+
+        List<UUID> actual = new ArrayList<>();
+        UUID cursor = null;
+        while (true) {
+            List<ProcessEntry> page = queueDao.list(ProcessFilter.builder()
+                    .projectId(projectId)
+                    .includeWithoutProject(false)
+                    .cursor(cursor)
+                    .limit(3)
+                    .build());
+
+            if (page.isEmpty()) {
+                break;
+            }
+
+            page.forEach(p -> actual.add(p.instanceId()));
+            cursor = page.get(page.size() - 1).instanceId();
+        }
+
+        assertEquals(expected, actual);
+    }
+}
@@ -0,0 +1,181 @@
+package com.walmartlabs.concord.server.process.queue;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.AbstractDaoTest;
+import com.walmartlabs.concord.server.ConcordObjectMapper;
+import com.walmartlabs.concord.server.TestObjectMapper;
+import com.walmartlabs.concord.server.org.OrganizationManager;
+import com.walmartlabs.concord.server.org.project.ProjectDao;
+import com.walmartlabs.concord.server.process.ProcessKind;
+import com.walmartlabs.concord.server.sdk.ProcessKey;
+import com.walmartlabs.concord.server.sdk.ProcessStatus;
+import org.jooq.Record2;
+import org.jooq.impl.SQLDataType;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static com.walmartlabs.concord.server.jooq.tables.ProcessQueue.PROCESS_QUEUE;
+import static org.jooq.impl.DSL.count;
+import static org.jooq.impl.DSL.select;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+@Ignore("requires a local DB instance")
+public class ProcessStatsDaoTest extends AbstractDaoTest {
+
+    private ProcessQueueDao queueDao;
+    private ProcessStatsDao statsDao;
+    private UUID projectId;
+
+    @Before
+    public void setUp() {
+        ConcordObjectMapper objectMapper = new ConcordObjectMapper(TestObjectMapper.INSTANCE);
+
+        queueDao = new ProcessQueueDao(getConfiguration(), objectMapper);
+        statsDao = new ProcessStatsDao(getConfiguration(), objectMapper);
+
+        ProjectDao projectDao = new ProjectDao(getConfiguration(), objectMapper);
+        projectId = projectDao.insert(OrganizationManager.DEFAULT_ORG_ID, "project#" + System.currentTimeMillis(), "test", null, null, null, null, new byte[0], null, null);
+    }
+
+    @Test
+    public void testReconcileAndFlush() {
+        List<ProcessKey> keys = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            keys.add(insert(ProcessStatus.NEW));
+        }
+
+        statsDao.reconcile();
+        assertEquals(Collections.singletonMap(ProcessStatus.NEW.name(), 3L), statsDao.countByStatus(null, projectId));
+        assertEquals(Collections.singletonMap(ProcessStatus.NEW.name(), 3L),
+                statsDao.countByStatus(Collections.singleton(OrganizationManager.DEFAULT_ORG_ID), projectId));
+
+        List<ProcessStatsChange> changes = new ArrayList<>();
+        tx(tx -> {
+            changes.addAll(queueDao.updateStatus(tx, keys.get(0), ProcessStatus.ENQUEUED));
+            statsDao.record(tx, changes);
+        });
+
+        assertEquals(1, changes.size());
+        ProcessStatsKey from = changes.get(0).from();
+        assertNotNull(from);
+        assertEquals(OrganizationManager.DEFAULT_ORG_ID, from.orgId());
+        assertEquals(projectId, from.projectId());
+        assertEquals(ProcessStatus.NEW.name(), from.status());
+        assertEquals("", from.requirementsHash());
+        assertEquals(ProcessStatus.ENQUEUED.name(), changes.get(0).to().status());
+
+        // not flushed yet
+        assertEquals(Collections.singletonMap(ProcessStatus.NEW.name(), 3L), statsDao.countByStatus(null, projectId));
+
+        statsDao.flush();
+
+        Map<String, Long> expected = new HashMap<>();
+        expected.put(ProcessStatus.NEW.name(), 2L);
+        expected.put(ProcessStatus.ENQUEUED.name(), 1L);
+        assertEquals(expected, statsDao.countByStatus(null, projectId));
+    }
+
+    @Test
+    public void testReconcileDiscardsRecordedChanges() {
+        ProcessKey key = insert(ProcessStatus.NEW);
+
+        tx(tx -> statsDao.record(tx, queueDao.updateStatus(tx, key, ProcessStatus.ENQUEUED)));
+
+        // the change is already in PROCESS_QUEUE, must not be counted twice
+        statsDao.reconcile();
+        statsDao.flush();
+
+        assertEquals(Collections.singletonMap(ProcessStatus.ENQUEUED.name(), 1L), statsDao.countByStatus(null, projectId));
+    }
+
+    @Test
+    public void testScheduledProcessesAreNotCounted() {
+        Map<String, Object> requirements = Collections.singletonMap("test", UUID.randomUUID().toString());
+
+        ProcessKey now = insert(ProcessStatus.NEW);
+        tx(tx -> queueDao.enqueue(tx, now, null, null, requirements, null, null, null, null, null, null, null));
+
+        ProcessKey later = insert(ProcessStatus.NEW);
+        tx(tx -> queueDao.enqueue(tx, later, null, OffsetDateTime.now().plusDays(1), requirements, null, null, null, null, null, null, null));
+
+        statsDao.reconcile();
+
+        assertEquals(Long.valueOf(1), statsDao.countByStatus(null, projectId).get(ProcessStatus.ENQUEUED.name()));
+
+        List<Long> counts = statsDao.countByRequirements(ProcessStatus.ENQUEUED).stream()
+                .filter(e -> requirements.equals(e.requirements()))
+                .map(ProcessRequirementsCountEntry::count)
+                .collect(Collectors.toList());
+        assertEquals(Collections.singletonList(1L), counts);
+    }
+
+    @Test
+    public void testDispatchAndRemovalAreCounted() {
+        List<ProcessKey> keys = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            keys.add(insert(ProcessStatus.NEW));
+        }
+
+        statsDao.reconcile();
+
+        tx(tx -> {
+            // NEW -> PREPARING, as in ProcessQueueManager#toPreparing
+            statsDao.record(tx, queueDao.updateStatus(tx, keys.subList(0, 2), Collections.singletonList(ProcessStatus.NEW), ProcessStatus.PREPARING));
+
+            // as in ProcessCleaner
+            statsDao.record(tx, queueDao.delete(tx, select(PROCESS_QUEUE.INSTANCE_ID)
+                    .from(PROCESS_QUEUE)
+                    .where(PROCESS_QUEUE.INSTANCE_ID.eq(keys.get(0).getInstanceId()))));
+        });
+
+        statsDao.flush();
+
+        Map<String, Long> expected = new HashMap<>();
+        expected.put(ProcessStatus.NEW.name(), 1L);
+        expected.put(ProcessStatus.PREPARING.name(), 1L);
+
+        Map<String, Long> counters = statsDao.countByStatus(null, projectId);
+        counters.values().removeIf(v -> v == 0);
+        assertEquals(expected, counters);
+        assertEquals(countQueue(), counters);
+    }
+
+    private Map<String, Long> countQueue() {
+        return getConfiguration().dsl().select(PROCESS_QUEUE.CURRENT_STATUS, count().cast(SQLDataType.BIGINT))
+                .from(PROCESS_QUEUE)
+                .where(PROCESS_QUEUE.PROJECT_ID.eq(projectId))
+                .groupBy(PROCESS_QUEUE.CURRENT_STATUS)
+                .fetchMap(Record2::value1, Record2::value2);
+    }
+
+    private ProcessKey insert(ProcessStatus status) {
+        ProcessKey key = new ProcessKey(UUID.randomUUID(), OffsetDateTime.now());
+        tx(tx -> queueDao.insert(tx, key, status, ProcessKind.DEFAULT, null, projectId, null, null, Collections.emptyMap(), null));
+        return key;
+    }
+}
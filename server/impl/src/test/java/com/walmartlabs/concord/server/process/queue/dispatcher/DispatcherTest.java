@@ -0,0 +1,197 @@
+package com.walmartlabs.concord.server.process.queue.dispatcher;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.db.AbstractDao;
+import com.walmartlabs.concord.server.Locks;
+import com.walmartlabs.concord.server.cfg.ProcessQueueConfiguration;
+import com.walmartlabs.concord.server.process.ImportsNormalizerFactory;
+import com.walmartlabs.concord.server.process.SessionTokenCreator;
+import com.walmartlabs.concord.server.process.logs.ProcessLogManager;
+import com.walmartlabs.concord.server.process.queue.ProcessQueueEntry;
+import com.walmartlabs.concord.server.process.queue.ProcessQueueManager;
+import com.walmartlabs.concord.server.queueclient.message.Message;
+import com.walmartlabs.concord.server.queueclient.message.MessageType;
+import com.walmartlabs.concord.server.queueclient.message.ProcessBatchResponse;
+import com.walmartlabs.concord.server.queueclient.message.ProcessRequest;
+import com.walmartlabs.concord.server.queueclient.message.ProcessResponse;
+import com.walmartlabs.concord.server.sdk.ProcessKey;
+import com.walmartlabs.concord.server.sdk.ProcessStatus;
+import com.walmartlabs.concord.server.websocket.WebSocketChannel;
+import com.walmartlabs.concord.server.websocket.WebSocketChannelManager;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class DispatcherTest {
+
+    private static final int BATCH_SIZE = 2;
+
+    private final List<ProcessQueueEntry> queue = new ArrayList<>();
+
+    private Dispatcher.DispatcherDao dao;
+    private WebSocketChannelManager channelManager;
+    private ProcessQueueManager queueManager;
+    private Dispatcher dispatcher;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        queue.clear();
+
+        dao = mock(Dispatcher.DispatcherDao.class);
+        when(dao.txResult(any())).thenAnswer(i -> ((AbstractDao.TxResult<?>) i.getArgument(0)).run(null));
+        when(dao.next(any(), anyInt(), anyInt())).thenAnswer(i -> {
+            int offset = i.getArgument(1);
+            int limit = i.getArgument(2);
+            return new ArrayList<>(queue.subList(Math.min(offset, queue.size()), Math.min(offset + limit, queue.size())));
+        });
+
+        channelManager = mock(WebSocketChannelManager.class);
+        when(channelManager.sendResponse(any(), any())).thenReturn(true);
+
+        ImportsNormalizerFactory importsNormalizerFactory = mock(ImportsNormalizerFactory.class);
+        when(importsNormalizerFactory.forProject(any())).thenReturn(imports -> imports);
+
+        ProcessQueueConfiguration cfg = mock(ProcessQueueConfiguration.class);
+        when(cfg.getDispatcherPollDelay()).thenReturn(Duration.ofSeconds(1));
+        when(cfg.getDispatcherBatchSize()).thenReturn(BATCH_SIZE);
+
+        queueManager = mock(ProcessQueueManager.class);
+
+        dispatcher = new Dispatcher(mock(Locks.class), dao, channelManager, mock(ProcessLogManager.class), queueManager,
+                Collections.emptySet(), importsNormalizerFactory, cfg, new MetricRegistry(), mock(SessionTokenCreator.class));
+    }
+
+    @Test
+    public void testBatchFillsFreeSlots() {
+        for (int i = 0; i < 5; i++) {
+            enqueue(null);
+        }
+
+        WebSocketChannel channel = request(new ProcessRequest(Collections.emptyMap(), 3));
+
+        assertTrue(dispatcher.performTask());
+
+        // the first two DB batches are enough to fill three slots
+        verify(dao).next(any(), eq(0), eq(BATCH_SIZE));
+        verify(dao).next(any(), eq(BATCH_SIZE), eq(BATCH_SIZE));
+        verify(dao, never()).next(any(), eq(2 * BATCH_SIZE), anyInt());
+
+        ProcessBatchResponse resp = (ProcessBatchResponse) sentResponse(channel);
+        assertEquals(ids(queue.subList(0, 3)), resp.getProcesses().stream()
+                .map(ProcessResponse::getProcessId)
+                .collect(Collectors.toList()));
+
+        for (ProcessQueueEntry e : queue.subList(0, 3)) {
+            verify(queueManager).updateStatus(any(), eq(e.key()), eq(ProcessStatus.STARTING));
+        }
+        verifyNoMoreInteractions(queueManager);
+    }
+
+    @Test
+    public void testBatchWithFewerProcessesThanSlots() {
+        enqueue(null);
+
+        WebSocketChannel channel = request(new ProcessRequest(Collections.emptyMap(), 10));
+
+        assertTrue(dispatcher.performTask());
+
+        ProcessBatchResponse resp = (ProcessBatchResponse) sentResponse(channel);
+        assertEquals(1, resp.getProcesses().size());
+        assertEquals(queue.get(0).key().getInstanceId(), resp.getProcesses().get(0).getProcessId());
+    }
+
+    @Test
+    public void testRequestWithoutSlots() {
+        enqueue(null);
+        enqueue(null);
+
+        WebSocketChannel channel = request(new ProcessRequest(Collections.emptyMap()));
+
+        assertTrue(dispatcher.performTask());
+
+        // older agents receive a single process
+        Message resp = sentResponse(channel);
+        assertTrue(resp instanceof ProcessResponse);
+        assertEquals(queue.get(0).key().getInstanceId(), ((ProcessResponse) resp).getProcessId());
+        verify(queueManager, times(1)).updateStatus(any(), any(), eq(ProcessStatus.STARTING));
+    }
+
+    @Test
+    public void testRequirementsAreMatched() {
+        enqueue(Collections.singletonMap("agent", Collections.singletonMap("flavor", "large")));
+        enqueue(null);
+
+        WebSocketChannel channel = request(new ProcessRequest(Collections.singletonMap("flavor", "small"), 2));
+
+        assertTrue(dispatcher.performTask());
+
+        ProcessBatchResponse resp = (ProcessBatchResponse) sentResponse(channel);
+        assertEquals(Collections.singletonList(queue.get(1).key().getInstanceId()), resp.getProcesses().stream()
+                .map(ProcessResponse::getProcessId)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testNoMatches() {
+        request(new ProcessRequest(Collections.emptyMap(), 3));
+
+        assertFalse(dispatcher.performTask());
+        verify(channelManager, never()).sendResponse(any(), any());
+        verifyNoInteractions(queueManager);
+    }
+
+    private void enqueue(Map<String, Object> requirements) {
+        queue.add(ProcessQueueEntry.builder()
+                .key(new ProcessKey(UUID.randomUUID(), OffsetDateTime.now()))
+                .requirements(requirements)
+                .build());
+    }
+
+    private WebSocketChannel request(ProcessRequest req) {
+        WebSocketChannel channel = new WebSocketChannel(UUID.randomUUID(), "test", null, "test");
+        when(channelManager.getRequests(MessageType.PROCESS_REQUEST)).thenReturn(Collections.singletonMap(channel, req));
+        return channel;
+    }
+
+    private Message sentResponse(WebSocketChannel channel) {
+        ArgumentCaptor<Message> captor = ArgumentCaptor.forClass(Message.class);
+        verify(channelManager).sendResponse(eq(channel.getChannelId()), captor.capture());
+        return captor.getValue();
+    }
+
+    private static List<UUID> ids(List<ProcessQueueEntry> entries) {
+        return entries.stream()
+                .map(e -> e.key().getInstanceId())
+                .collect(Collectors.toList());
+    }
+}
@@ -32,18 +32,21 @@ import com.walmartlabs.concord.server.sdk.ProcessKey;
 import com.walmartlabs.concord.server.process.logs.ProcessLogManager;
 import com.walmartlabs.concord.server.process.queue.ProcessKeyCache;
 import com.walmartlabs.concord.server.process.queue.ProcessQueueDao;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.time.OffsetDateTime;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.UUID;
+import java.util.*;
 
 import static com.walmartlabs.concord.server.process.state.ProcessStateManager.copyTo;
 import static org.junit.Assert.assertEquals;
@@ -87,6 +90,41 @@ public class ProcessStateManagerTest extends AbstractDaoTest {
         assertFileContent("456", tmpDir.resolve("file-2"));
     }
 
+    @Test
+    public void testImportZip() throws Exception {
+        ProcessKey processKey = new ProcessKey(UUID.randomUUID(), OffsetDateTime.now());
+
+        ProcessKeyCache processKeyCache = new ProcessKeyCache(new ProcessQueueDao(getConfiguration(), new ConcordObjectMapper(new ObjectMapper())));
+        ProcessConfiguration stateCfg = new ProcessConfiguration("24 hours", Collections.singletonList(Constants.Files.CONFIGURATION_FILE_NAME));
+        ProcessStateManager stateManager = new ProcessStateManager(getConfiguration(), mock(SecretStoreConfiguration.class), stateCfg, mock(PolicyManager.class), mock(ProcessLogManager.class), processKeyCache);
+
+        stateManager.replace(processKey, "_attachments/file-1", "123".getBytes());
+        stateManager.replace(processKey, "_attachments/file-2", "456".getBytes());
+
+        ByteArrayOutputStream zipData = new ByteArrayOutputStream();
+        try (ZipArchiveOutputStream zip = new ZipArchiveOutputStream(zipData)) {
+            addEntry(zip, "file-2", "456-up".getBytes());
+            addEntry(zip, "a/file-3", "789".getBytes());
+        }
+
+        try (ZipArchiveInputStream zip = new ZipArchiveInputStream(new ByteArrayInputStream(zipData.toByteArray()))) {
+            stateManager.tx(tx -> {
+                Set<String> imported = stateManager.importZip(tx, processKey, "_attachments", zip);
+                assertEquals(new HashSet<>(Arrays.asList("_attachments/file-2", "_attachments/a/file-3")), imported);
+            });
+        }
+
+        Path tmpDir = Files.createTempDirectory("testExport");
+        assertTrue(stateManager.export(processKey, copyTo(tmpDir)));
+        assertFileContent("123", tmpDir.resolve("_attachments/file-1"));
+        assertFileContent("456-up", tmpDir.resolve("_attachments/file-2"));
+        assertFileContent("789", tmpDir.resolve("_attachments/a/file-3"));
+
+        Map<String, String> checksums = stateManager.checksums(processKey, "_attachments");
+        assertEquals(3, checksums.size());
+        assertEquals("202cb962ac59075b964b07152d234b70", checksums.get("file-1"));
+    }
+
     @Ignore
     @Test
     public void testLargeImport() throws Exception {
@@ -120,6 +158,12 @@ public class ProcessStateManagerTest extends AbstractDaoTest {
         assertEquals(expected, str);
     }
 
+    private static void addEntry(ZipArchiveOutputStream zip, String name, byte[] ab) throws IOException {
+        zip.putArchiveEntry(new ZipArchiveEntry(name));
+        zip.write(ab);
+        zip.closeArchiveEntry();
+    }
+
     private static void writeTempFile(Path p, byte[] ab) throws IOException {
         try (OutputStream out = Files.newOutputStream(p, StandardOpenOption.CREATE)) {
             out.write(ab);
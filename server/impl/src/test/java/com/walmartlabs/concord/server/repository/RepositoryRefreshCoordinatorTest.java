@@ -0,0 +1,105 @@
+package com.walmartlabs.concord.server.repository;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.server.cfg.RepositoryConfiguration;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RepositoryRefreshCoordinatorTest {
+
+    @Test
+    public void testCoalescing() throws Exception {
+        RepositoryConfiguration cfg = mock(RepositoryConfiguration.class);
+        when(cfg.getLockTimeout()).thenReturn(Duration.ofMinutes(1));
+        when(cfg.getRefreshDebounce()).thenReturn(Duration.ZERO);
+
+        MetricRegistry metricRegistry = new MetricRegistry();
+        RepositoryRefreshCoordinator coordinator = new RepositoryRefreshCoordinator(cfg, metricRegistry);
+
+        UUID repoId = UUID.randomUUID();
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+
+        RepositoryRefreshCoordinator.Refresh refresh = () -> {
+            if (runs.incrementAndGet() == 1) {
+                firstStarted.countDown();
+                releaseFirst.await();
+            }
+            return true;
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        try {
+            Future<?> first = executor.submit(() -> {
+                coordinator.refresh(repoId, refresh);
+                return null;
+            });
+            firstStarted.await();
+
+            // these requests arrive while the first refresh is running
+            List<Future<?>> others = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                others.add(executor.submit(() -> {
+                    coordinator.refresh(repoId, refresh);
+                    return null;
+                }));
+            }
+
+            // wait until all requests are queued
+            while (coordinator.getQueueLength(repoId) < others.size()) {
+                Thread.sleep(10);
+            }
+
+            releaseFirst.countDown();
+            first.get();
+            for (Future<?> f : others) {
+                f.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // the first refresh and a single follow-up refresh for all other requests
+        assertEquals(2, runs.get());
+        assertEquals(3, metricRegistry.counter("repository-refresh-coalesced").getCount());
+
+        // nothing is waiting anymore, the slot is removed
+        assertEquals(0, coordinator.getSlotCount());
+
+        // the next request is not treated as already refreshed
+        coordinator.refresh(repoId, refresh);
+        assertEquals(3, runs.get());
+        assertEquals(0, coordinator.getSlotCount());
+    }
+}
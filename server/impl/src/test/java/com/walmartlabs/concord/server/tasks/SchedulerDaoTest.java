@@ -19,8 +19,10 @@ package com.walmartlabs.concord.server.tasks;
  * =====
  */
 
+import com.google.common.collect.ImmutableMap;
 import com.walmartlabs.concord.server.AbstractDaoTest;
 import com.walmartlabs.concord.server.metrics.FailedTaskError;
+import com.walmartlabs.concord.server.sdk.ScheduledTask;
 import com.walmartlabs.concord.server.task.SchedulerDao;
 import org.junit.Before;
 import org.junit.Ignore;
@@ -29,6 +31,7 @@ import org.junit.Test;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 @Ignore("requires a local DB instance")
 public class SchedulerDaoTest extends AbstractDaoTest {
@@ -45,4 +48,32 @@ public class SchedulerDaoTest extends AbstractDaoTest {
         List<FailedTaskError> failedTaskErrors = schedulerDao.pollErrored();
         assertEquals(0, failedTaskErrors.size());
     }
+
+    @Test
+    public void testPollLimit() {
+        schedulerDao.updateTaskIntervals(ImmutableMap.of(
+                "test-a", new DummyTask(),
+                "test-b", new DummyTask()));
+
+        List<SchedulerDao.PolledTask> first = schedulerDao.poll(1);
+        assertEquals(1, first.size());
+
+        List<SchedulerDao.PolledTask> second = schedulerDao.poll(10);
+        assertFalse(second.stream().anyMatch(t -> t.getTaskId().equals(first.get(0).getTaskId())));
+
+        first.forEach(t -> schedulerDao.success(t.getTaskId()));
+        second.forEach(t -> schedulerDao.success(t.getTaskId()));
+    }
+
+    private static class DummyTask implements ScheduledTask {
+
+        @Override
+        public long getIntervalInSec() {
+            return 60;
+        }
+
+        @Override
+        public void performTask() {
+        }
+    }
 }
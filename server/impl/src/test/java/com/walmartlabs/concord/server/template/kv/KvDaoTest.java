@@ -21,23 +21,23 @@ package com.walmartlabs.concord.server.template.kv;
  */
 
 import com.walmartlabs.concord.server.AbstractDaoTest;
-import com.walmartlabs.concord.server.Locks;
-import com.walmartlabs.concord.server.cfg.LockingConfiguration;
 import com.walmartlabs.concord.server.org.project.KvDao;
+import com.walmartlabs.concord.server.org.project.KvEntry;
 import org.junit.Ignore;
 import org.junit.Test;
 
-import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicLong;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 @Ignore("requires a local DB instance")
 public class KvDaoTest extends AbstractDaoTest {
 
     @Test(timeout = 10000)
     public void test() throws Exception {
-        KvDao kvDao = new KvDao(getConfiguration(), new Locks(new LockingConfiguration(8)));
+        KvDao kvDao = new KvDao(getConfiguration());
 
         UUID projectId = UUID.randomUUID();
         String key = "key_" + System.currentTimeMillis();
@@ -67,4 +67,135 @@ public class KvDaoTest extends AbstractDaoTest {
         Long total = counter.get();
         assertEquals(total, kvDao.getLong(projectId, key));
     }
+
+    @Test(timeout = 60000)
+    public void testConcurrentInc() throws Exception {
+        KvDao kvDao = new KvDao(getConfiguration());
+
+        int iterations = 200;
+
+        // 1 thread, 8 threads on the same key, 8 threads on 8 keys
+        runInc(kvDao, 1, 1, iterations);
+        runInc(kvDao, 8, 1, iterations);
+        runInc(kvDao, 8, 8, iterations);
+    }
+
+    @Test(timeout = 60000)
+    public void testConcurrentBatchPut() throws Exception {
+        KvDao kvDao = new KvDao(getConfiguration());
+
+        UUID projectId = UUID.randomUUID();
+
+        int threads = 8;
+        int iterations = 50;
+        int keys = 20;
+
+        // every thread writes the same keys in a different order, the batches must not deadlock
+        List<Thread> workers = new ArrayList<>();
+        Queue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < threads; i++) {
+            long value = i;
+            workers.add(new Thread(() -> {
+                try {
+                    for (int j = 0; j < iterations; j++) {
+                        List<KvEntry> entries = new ArrayList<>();
+                        for (int k = 0; k < keys; k++) {
+                            entries.add(KvEntry.builder().key("shared_" + k).longValue(value).build());
+                        }
+                        entries.add(KvEntry.builder().key("own_" + value).longValue((long) j).build());
+                        Collections.shuffle(entries);
+
+                        kvDao.put(projectId, entries);
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            }));
+        }
+
+        workers.forEach(Thread::start);
+        for (Thread w : workers) {
+            w.join();
+        }
+
+        assertTrue("errors: " + errors, errors.isEmpty());
+
+        // each batch is applied as a whole, the shared keys contain the values of the last batch
+        List<String> shared = new ArrayList<>();
+        for (int k = 0; k < keys; k++) {
+            shared.add("shared_" + k);
+        }
+        List<KvEntry> l = kvDao.get(projectId, shared);
+        assertEquals(keys, l.size());
+        for (KvEntry e : l) {
+            assertEquals(l.get(0).longValue(), e.longValue());
+        }
+
+        // no thread's writes are lost
+        for (int i = 0; i < threads; i++) {
+            assertEquals(Long.valueOf(iterations - 1), kvDao.getLong(projectId, "own_" + i));
+        }
+    }
+
+    @Test
+    public void testBatch() {
+        KvDao kvDao = new KvDao(getConfiguration());
+
+        UUID projectId = UUID.randomUUID();
+
+        kvDao.put(projectId, Arrays.asList(
+                KvEntry.builder().key("b").longValue(2L).build(),
+                KvEntry.builder().key("a").stringValue("x").build(),
+                KvEntry.builder().key("c").stringValue("y").longValue(3L).build()));
+
+        kvDao.put(projectId, Arrays.asList(
+                KvEntry.builder().key("a").stringValue("z").build()));
+
+        List<KvEntry> l = kvDao.get(projectId, Arrays.asList("a", "b", "c", "d"));
+        assertEquals(3, l.size());
+
+        assertEquals("a", l.get(0).key());
+        assertEquals("z", l.get(0).stringValue());
+        assertNull(l.get(0).longValue());
+
+        assertEquals("b", l.get(1).key());
+        assertNull(l.get(1).stringValue());
+        assertEquals(Long.valueOf(2), l.get(1).longValue());
+
+        assertEquals("c", l.get(2).key());
+        assertEquals("y", l.get(2).stringValue());
+        assertEquals(Long.valueOf(3), l.get(2).longValue());
+
+        assertEquals(4, kvDao.inc(projectId, "c"));
+        assertEquals(1, kvDao.inc(projectId, "d"));
+    }
+
+    /**
+     * Runs {@code iterations} increments in each thread and checks that
+     * no increment is lost on any of the keys.
+     */
+    private static void runInc(KvDao kvDao, int threads, int keys, int iterations) throws Exception {
+        UUID projectId = UUID.randomUUID();
+        String prefix = "key_" + System.nanoTime() + "_";
+
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            String key = prefix + (i % keys);
+            workers.add(new Thread(() -> {
+                for (int j = 0; j < iterations; j++) {
+                    kvDao.inc(projectId, key);
+                }
+            }));
+        }
+
+        workers.forEach(Thread::start);
+        for (Thread w : workers) {
+            w.join();
+        }
+
+        long expected = (long) (threads / keys) * iterations;
+        for (int i = 0; i < keys; i++) {
+            assertEquals(Long.valueOf(expected), kvDao.getLong(projectId, prefix + i));
+        }
+    }
 }
@@ -0,0 +1,131 @@
+package com.walmartlabs.concord.server.queueclient;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Keeps the last {@code size} latency samples and calculates their percentiles.
+ */
+public class LatencyStats {
+
+    private final long[] samples;
+
+    private int next;
+    private int count;
+    private long total;
+
+    public LatencyStats(int size) {
+        this.samples = new long[size];
+    }
+
+    public synchronized void record(long ms) {
+        samples[next] = ms;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+        total++;
+    }
+
+    public Snapshot snapshot() {
+        long[] values;
+        long totalCount;
+        synchronized (this) {
+            values = Arrays.copyOf(samples, count);
+            totalCount = total;
+        }
+
+        Arrays.sort(values);
+        return new Snapshot(totalCount, percentile(values, 0.5), percentile(values, 0.95), percentile(values, 0.99),
+                values.length > 0 ? values[values.length - 1] : 0);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+
+        int idx = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(idx, sorted.length - 1))];
+    }
+
+    public static class Snapshot implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long count;
+        private final long p50;
+        private final long p95;
+        private final long p99;
+        private final long max;
+
+        public Snapshot(long count, long p50, long p95, long p99, long max) {
+            this.count = count;
+            this.p50 = p50;
+            this.p95 = p95;
+            this.p99 = p99;
+            this.max = max;
+        }
+
+        /**
+         * Total number of recorded samples.
+         */
+        @JsonProperty("count")
+        public long getCount() {
+            return count;
+        }
+
+        @JsonProperty("p50")
+        public long getP50() {
+            return p50;
+        }
+
+        @JsonProperty("p95")
+        public long getP95() {
+            return p95;
+        }
+
+        @JsonProperty("p99")
+        public long getP99() {
+            return p99;
+        }
+
+        @JsonProperty("max")
+        public long getMax() {
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot{" +
+                    "count=" + count +
+                    ", p50=" + p50 +
+                    ", p95=" + p95 +
+                    ", p99=" + p99 +
+                    ", max=" + max +
+                    '}';
+        }
+    }
+}
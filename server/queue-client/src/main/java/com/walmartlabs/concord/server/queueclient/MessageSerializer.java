@@ -21,13 +21,12 @@ package com.walmartlabs.concord.server.queueclient;
  */
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.NamedType;
 import com.fasterxml.jackson.datatype.guava.GuavaModule;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.walmartlabs.concord.server.queueclient.message.Message;
 import com.walmartlabs.concord.server.queueclient.message.MessageType;
 
-import java.util.Map;
-
 public final class MessageSerializer {
 
     private static final ObjectMapper objectMapper = createObjectMapper();
@@ -35,12 +34,8 @@ public final class MessageSerializer {
     @SuppressWarnings("unchecked")
     public static <E extends Message> E deserialize(String msg) {
         try {
-            Map<String, Object> m = objectMapper.readValue(msg, Map.class);
-            String messageType = (String) m.get("messageType");
-            if (messageType == null) {
-                throw new IllegalStateException("messageType not found: " + m);
-            }
-            return (E) objectMapper.convertValue(m, MessageType.valueOf(messageType).getClazz());
+            // the concrete type is resolved using the "messageType" property, in a single pass
+            return (E) objectMapper.readValue(msg, Message.class);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -58,6 +53,9 @@ public final class MessageSerializer {
         ObjectMapper om = new ObjectMapper();
         om.registerModule(new GuavaModule());
         om.registerModule(new Jdk8Module());
+        for (MessageType t : MessageType.values()) {
+            om.registerSubtypes(new NamedType(t.getClazz(), t.name()));
+        }
         return om;
     }
 
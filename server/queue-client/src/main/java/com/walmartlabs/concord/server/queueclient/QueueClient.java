@@ -38,9 +38,7 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.ByteBuffer;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -51,18 +49,31 @@ public class QueueClient {
 
     private static final Logger log = LoggerFactory.getLogger(QueueClient.class);
 
+    private static final int LATENCY_SAMPLES = 1024;
+
     private final Set<MessageType> ignoreRequests;
-    private final List<RequestEntry> requests;
+    private final BlockingQueue<RequestEntry> requests;
+
+    private final LatencyStats sendLatency;
+    private final Map<MessageType, LatencyStats> responseLatency;
 
     private final Worker worker;
     private Thread workerThread;
+
+    // guarded by "requests", so no ignored request can be queued after the check
     private boolean onMaintenanceMode;
 
     public QueueClient(QueueClientConfiguration cfg) throws URISyntaxException {
-        this.ignoreRequests = new HashSet<>();
-        this.requests = new ArrayList<>();
+        this.ignoreRequests = EnumSet.noneOf(MessageType.class);
+        this.requests = new LinkedBlockingQueue<>();
+
+        this.sendLatency = new LatencyStats(LATENCY_SAMPLES);
+        this.responseLatency = new EnumMap<>(MessageType.class);
+        for (MessageType t : MessageType.values()) {
+            responseLatency.put(t, new LatencyStats(LATENCY_SAMPLES));
+        }
 
-        this.worker = new Worker(cfg, requests);
+        this.worker = new Worker(cfg, requests, sendLatency, responseLatency);
     }
 
     public void start() {
@@ -89,6 +100,18 @@ public class QueueClient {
                 return;
             }
             ignoreRequests.add(MessageType.PROCESS_REQUEST);
+
+            // the worker might reconnect before it drains the queue
+            List<RequestEntry> ignored = new ArrayList<>();
+            requests.removeIf(e -> {
+                if (ignoreRequests.contains(e.request.getMessageType())) {
+                    ignored.add(e);
+                    return true;
+                }
+                return false;
+            });
+            ignored.forEach(RequestEntry::cancel);
+
             worker.disconnect();
             onMaintenanceMode = true;
         }
@@ -107,6 +130,24 @@ public class QueueClient {
         return (Future<E>) f;
     }
 
+    /**
+     * Returns the latency percentiles (in ms) of the recent requests:
+     * "send" is the time between a {@link #request(Message)} call and the moment
+     * the message is sent to the server, the rest are the times between sending
+     * a request and receiving its response, per request type.
+     */
+    public Map<String, LatencyStats.Snapshot> getLatencyStats() {
+        Map<String, LatencyStats.Snapshot> result = new LinkedHashMap<>();
+        result.put("send", sendLatency.snapshot());
+        responseLatency.forEach((k, v) -> {
+            LatencyStats.Snapshot s = v.snapshot();
+            if (s.getCount() > 0) {
+                result.put(k.name().toLowerCase(), s);
+            }
+        });
+        return result;
+    }
+
     private static final class Worker implements Runnable, WebSocketListener, WebSocketPingPongListener {
 
         private enum State {
@@ -115,8 +156,11 @@ public class QueueClient {
             DISCONNECTING
         }
 
-        private static final long PROCESS_REQUEST_DELAY = 1000;
-        private static final long RECONNECT_DELAY = 10000;
+        /**
+         * How long the worker waits for new requests before checking
+         * the connection's state. Doesn't delay the requests themselves.
+         */
+        private static final long POLL_TIMEOUT = 1000;
 
         private final AtomicLong requestIdGenerator = new AtomicLong();
 
@@ -125,18 +169,27 @@ public class QueueClient {
         private final String apiToken;
         private final URI[] destUris;
         private final Map<Long, RequestEntry> awaitResponses;
-        private final List<RequestEntry> requests;
+        private final BlockingQueue<RequestEntry> requests;
         private final long pingInterval;
         private final long maxNoActivityPeriod;
         private final long connectTimeout;
+        private final long reconnectBaseDelay;
+        private final long reconnectMaxDelay;
+        private final LatencyStats sendLatency;
+        private final Map<MessageType, LatencyStats> responseLatency;
 
         private WebSocketClient client;
-        private long lastRequestTimestamp;
-        private long lastResponseTimestamp;
+        private volatile long lastRequestTimestamp;
+        private volatile long lastResponseTimestamp;
+        private int reconnectAttempt;
 
         private final AtomicReference<State> state;
 
-        public Worker(QueueClientConfiguration cfg, List<RequestEntry> requests) throws URISyntaxException {
+        public Worker(QueueClientConfiguration cfg,
+                      BlockingQueue<RequestEntry> requests,
+                      LatencyStats sendLatency,
+                      Map<MessageType, LatencyStats> responseLatency) throws URISyntaxException {
+
             this.agentId = cfg.getAgentId();
             this.userAgent = cfg.getUserAgent();
             this.apiToken = cfg.getApiKey();
@@ -147,6 +200,10 @@ public class QueueClient {
             this.pingInterval = cfg.getPingInterval();
             this.maxNoActivityPeriod = cfg.getMaxNoActivityPeriod();
             this.connectTimeout = cfg.getConnectTimeout();
+            this.reconnectBaseDelay = cfg.getReconnectBaseDelay();
+            this.reconnectMaxDelay = cfg.getReconnectMaxDelay();
+            this.sendLatency = sendLatency;
+            this.responseLatency = responseLatency;
 
             this.state = new AtomicReference<>(State.CONNECTING);
         }
@@ -163,23 +220,25 @@ public class QueueClient {
                             state.set(State.CONNECTED);
                             lastRequestTimestamp = System.currentTimeMillis();
                             lastResponseTimestamp = lastRequestTimestamp;
+                            reconnectAttempt = 0;
                             log.info("connect ['{}'] -> done", destUris[destUriIndex]);
                             break;
                         }
                         case CONNECTED: {
                             processRequests(session);
                             processPing(session);
-                            sleep(PROCESS_REQUEST_DELAY);
                             break;
                         }
                         case DISCONNECTING: {
                             close(session);
                             session = null;
                             state.set(State.CONNECTING);
-                            sleep(RECONNECT_DELAY);
+                            sleep(nextReconnectDelay());
                             break;
                         }
                     }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
                 } catch (Exception e) {
                     log.error("mainLoop -> error", e);
                     state.set(State.DISCONNECTING);
@@ -227,6 +286,8 @@ public class QueueClient {
                 log.error("onWebSocketText ['{}'] -> request not found", message);
                 return;
             }
+
+            responseLatency.get(request.request.getMessageType()).record(request.sinceSent());
             request.onResponse(response);
             log.debug("onWebSocketText ['{}'] -> done", message);
         }
@@ -267,7 +328,6 @@ public class QueueClient {
                 return false;
             }
 
-            message.setCorrelationId(requestIdGenerator.incrementAndGet());
             try {
                 session.getRemote().sendString(MessageSerializer.serialize(message));
 
@@ -281,20 +341,34 @@ public class QueueClient {
             }
         }
 
-        private void processRequests(Session session) {
-            RequestEntry e = nextRequest();
-            if (e == null) {
-                return;
+        /**
+         * Sends the next request as soon as it's available.
+         */
+        private void processRequests(Session session) throws InterruptedException {
+            RequestEntry e = requests.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+            while (e != null && state.get() == State.CONNECTED) {
+                // register before sending, the response can arrive before send() returns
+                e.request.setCorrelationId(requestIdGenerator.incrementAndGet());
+                e.onSend();
+                awaitResponses.put(e.getCorrelationId(), e);
+
+                boolean sent = send(session, e.request);
+                if (!sent) {
+                    awaitResponses.remove(e.getCorrelationId());
+                    e.cancel();
+                    state.set(State.DISCONNECTING);
+                    return;
+                }
+
+                sendLatency.record(e.sinceCreated());
+
+                e = requests.poll();
             }
 
-            boolean sent = send(session, e.request);
-            if (!sent) {
+            if (e != null) {
+                // disconnecting, the rest of the queue is cancelled in close()
                 e.cancel();
-                state.set(State.DISCONNECTING);
-                return;
             }
-
-            awaitResponses.put(e.getCorrelationId(), e);
         }
 
         private void processPing(Session session) throws IOException {
@@ -321,51 +395,42 @@ public class QueueClient {
             }
 
             try {
-                this.client.stop();
-                this.client.destroy();
+                if (this.client != null) {
+                    this.client.stop();
+                    this.client.destroy();
+                }
             } catch (InterruptedException e) {
                 // ignore, we're stopping anyway
             } catch (Exception e) {
                 log.warn("stop -> error: {}", e.getMessage());
             }
 
-            synchronized (this.requests) {
-                this.requests.forEach(RequestEntry::cancel);
-                this.requests.clear();
+            List<RequestEntry> pending = new ArrayList<>();
+            this.requests.drainTo(pending);
+            pending.forEach(RequestEntry::cancel);
 
-                this.awaitResponses.values().forEach(RequestEntry::cancel);
-                this.awaitResponses.clear();
-            }
+            this.awaitResponses.values().forEach(RequestEntry::cancel);
+            this.awaitResponses.clear();
 
             log.info("close -> done");
         }
 
-        private RequestEntry nextRequest() {
-            synchronized (requests) {
-                Iterator<RequestEntry> it = requests.iterator();
-                while (it.hasNext()) {
-                    RequestEntry request = it.next();
-                    if (!alreadySent(request.request.getMessageType())) {
-                        it.remove();
-                        return request;
-                    }
-                }
+        /**
+         * Exponential backoff with a random jitter, so the agents don't reconnect
+         * all at once after a server restart.
+         */
+        private long nextReconnectDelay() {
+            long max = reconnectBaseDelay << Math.min(reconnectAttempt, 20);
+            if (max <= 0 || max > reconnectMaxDelay) {
+                max = reconnectMaxDelay;
             }
+            reconnectAttempt++;
 
-            return null;
-        }
-
-        private boolean alreadySent(MessageType requestType) {
-            return awaitResponses.values().stream()
-                    .anyMatch(ar -> ar.request.getMessageType() == requestType);
+            return max / 2 + ThreadLocalRandom.current().nextLong(max / 2 + 1);
         }
 
-        private void sleep(long ms) {
-            try {
-                Thread.sleep(ms);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
+        private static void sleep(long ms) throws InterruptedException {
+            Thread.sleep(ms);
         }
 
         private static URI[] toURIs(String[] as) throws URISyntaxException {
@@ -381,10 +446,18 @@ public class QueueClient {
 
         private final Message request;
         private final SettableFuture<Message> future;
+        private final long createdAt;
+
+        private volatile long sentAt;
 
         public RequestEntry(Message request, SettableFuture<Message> future) {
             this.request = request;
             this.future = future;
+            this.createdAt = System.nanoTime();
+        }
+
+        public void onSend() {
+            this.sentAt = System.nanoTime();
         }
 
         public void onResponse(Message response) {
@@ -398,6 +471,14 @@ public class QueueClient {
         public Long getCorrelationId() {
             return request.getCorrelationId();
         }
+
+        public long sinceCreated() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - createdAt);
+        }
+
+        public long sinceSent() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sentAt);
+        }
     }
 
     private static WebSocketClient createWebSocketClient(long connectTimeout) {
@@ -31,6 +31,8 @@ public class QueueClientConfiguration implements Serializable {
     private final long connectTimeout;
     private final long pingInterval;
     private final long maxNoActivityPeriod;
+    private final long reconnectBaseDelay;
+    private final long reconnectMaxDelay;
 
     private QueueClientConfiguration(Builder b) {
         this.addresses = b.addresses;
@@ -40,6 +42,8 @@ public class QueueClientConfiguration implements Serializable {
         this.connectTimeout = b.connectTimeout;
         this.pingInterval = b.pingInterval;
         this.maxNoActivityPeriod = b.maxNoActivityPeriod;
+        this.reconnectBaseDelay = b.reconnectBaseDelay;
+        this.reconnectMaxDelay = b.reconnectMaxDelay;
     }
 
     public String[] getAddresses() {
@@ -70,6 +74,14 @@ public class QueueClientConfiguration implements Serializable {
         return maxNoActivityPeriod;
     }
 
+    public long getReconnectBaseDelay() {
+        return reconnectBaseDelay;
+    }
+
+    public long getReconnectMaxDelay() {
+        return reconnectMaxDelay;
+    }
+
     public static class Builder {
 
         private final String[] addresses;
@@ -80,6 +92,8 @@ public class QueueClientConfiguration implements Serializable {
         private long connectTimeout = 30000;
         private long pingInterval = 10000;
         private long maxNoActivityPeriod = 30000;
+        private long reconnectBaseDelay = 500;
+        private long reconnectMaxDelay = 30000;
 
         public Builder(String[] addresses) {
             this.addresses = addresses;
@@ -115,6 +129,20 @@ public class QueueClientConfiguration implements Serializable {
             return this;
         }
 
+        /**
+         * The initial delay between reconnection attempts. Doubled (with a random jitter)
+         * after each failed attempt up to {@link #reconnectMaxDelay(long)}.
+         */
+        public Builder reconnectBaseDelay(long reconnectBaseDelay) {
+            this.reconnectBaseDelay = reconnectBaseDelay;
+            return this;
+        }
+
+        public Builder reconnectMaxDelay(long reconnectMaxDelay) {
+            this.reconnectMaxDelay = reconnectMaxDelay;
+            return this;
+        }
+
         public QueueClientConfiguration build() {
             return new QueueClientConfiguration(this);
         }
@@ -28,23 +28,41 @@ import java.util.Map;
 public class ProcessRequest extends Message {
 
     private final Map<String, Object> capabilities;
+    private final Integer slots;
+
+    public ProcessRequest(Map<String, Object> capabilities) {
+        this(capabilities, null);
+    }
 
     @JsonCreator
     public ProcessRequest(
-            @JsonProperty("capabilities") Map<String, Object> capabilities) {
+            @JsonProperty("capabilities") Map<String, Object> capabilities,
+            @JsonProperty("slots") Integer slots) {
         super(MessageType.PROCESS_REQUEST);
         this.capabilities = capabilities;
+        this.slots = slots;
     }
 
     public Map<String, Object> getCapabilities() {
         return capabilities;
     }
 
+    /**
+     * Number of processes the agent can accept at once.
+     * If specified, the server responds with a {@link ProcessBatchResponse}
+     * containing up to {@code slots} processes. Otherwise a single
+     * {@link ProcessResponse} is returned.
+     */
+    public Integer getSlots() {
+        return slots;
+    }
+
     @Override
     public String toString() {
         return "ProcessRequest{" +
                 "correlationId='" + getCorrelationId() + "', " +
-                "capabilities='" + capabilities + "'" +
+                "capabilities='" + capabilities + "', " +
+                "slots=" + slots +
                 '}';
     }
 }
@@ -26,11 +26,14 @@ import com.walmartlabs.concord.imports.Imports;
 import com.walmartlabs.concord.server.queueclient.message.*;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.UUID;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 public class MessageSerializerTest {
 
@@ -79,6 +82,55 @@ public class MessageSerializerTest {
         assertEquals(r.getCorrelationId(), rDeserialized.getCorrelationId());
     }
 
+    @Test
+    public void testProcessRequestSlots() {
+        ProcessRequest r = new ProcessRequest(Collections.singletonMap("k", "v"), 5);
+        r.setCorrelationId(123);
+
+        // ---
+        ProcessRequest rDeserialized = MessageSerializer.deserialize(MessageSerializer.serialize(r));
+        assertEquals(Integer.valueOf(5), rDeserialized.getSlots());
+
+        // requests of older agents
+        ProcessRequest old = MessageSerializer.deserialize("{\"messageType\":\"PROCESS_REQUEST\", \"correlationId\":123}");
+        assertNull(old.getSlots());
+    }
+
+    @Test
+    public void testProcessBatchResponse() {
+        ProcessResponse p1 = new ProcessResponse(123, "token-1", UUID.randomUUID(), null, null, null, null, null, null);
+        ProcessResponse p2 = new ProcessResponse(123, "token-2", UUID.randomUUID(), null, null, null, null, null, null);
+        ProcessBatchResponse r = new ProcessBatchResponse(123, Arrays.asList(p1, p2));
+
+        // ---
+        ProcessBatchResponse rDeserialized = MessageSerializer.deserialize(MessageSerializer.serialize(r));
+        assertEquals(MessageType.PROCESS_BATCH_RESPONSE, rDeserialized.getMessageType());
+        assertEquals(r.getCorrelationId(), rDeserialized.getCorrelationId());
+        assertEquals(2, rDeserialized.getProcesses().size());
+        assertEquals(p1.getProcessId(), rDeserialized.getProcesses().get(0).getProcessId());
+        assertEquals(p2.getSessionToken(), rDeserialized.getProcesses().get(1).getSessionToken());
+    }
+
+    @Test
+    public void testHeartbeat() {
+        HeartbeatRequest r = new HeartbeatRequest(Arrays.asList(UUID.randomUUID(), UUID.randomUUID()));
+        r.setCorrelationId(123);
+
+        // ---
+        HeartbeatRequest rDeserialized = MessageSerializer.deserialize(MessageSerializer.serialize(r));
+        assertEquals(MessageType.HEARTBEAT_REQUEST, rDeserialized.getMessageType());
+        assertEquals(new ArrayList<>(r.getInstanceIds()), new ArrayList<>(rDeserialized.getInstanceIds()));
+        assertEquals(r.getCorrelationId(), rDeserialized.getCorrelationId());
+
+        HeartbeatResponse resp = new HeartbeatResponse(123, Collections.singletonList(UUID.randomUUID()));
+
+        // ---
+        HeartbeatResponse respDeserialized = MessageSerializer.deserialize(MessageSerializer.serialize(resp));
+        assertEquals(MessageType.HEARTBEAT_RESPONSE, respDeserialized.getMessageType());
+        assertEquals(new ArrayList<>(resp.getUnknownInstanceIds()), new ArrayList<>(respDeserialized.getUnknownInstanceIds()));
+        assertEquals(resp.getCorrelationId(), respDeserialized.getCorrelationId());
+    }
+
     @Test
     public void testUnknownProperties() {
         String str = "{\"sessionToken\":\"123123\", \"correlationId\":123, \"processId\":\"b26a60c6-b54e-4f4d-bf0a-abafb908bf76\", \"messageType\":\"PROCESS_RESPONSE\"}";
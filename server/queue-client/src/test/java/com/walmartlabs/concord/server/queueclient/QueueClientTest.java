@@ -0,0 +1,231 @@
+package com.walmartlabs.concord.server.queueclient;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.queueclient.message.HeartbeatRequest;
+import com.walmartlabs.concord.server.queueclient.message.HeartbeatResponse;
+import com.walmartlabs.concord.server.queueclient.message.Message;
+import com.walmartlabs.concord.server.queueclient.message.ProcessBatchResponse;
+import com.walmartlabs.concord.server.queueclient.message.ProcessRequest;
+import com.walmartlabs.concord.server.queueclient.message.ProcessResponse;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.websocket.api.WebSocketAdapter;
+import org.eclipse.jetty.websocket.servlet.WebSocketServlet;
+import org.eclipse.jetty.websocket.servlet.WebSocketServletFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs {@link QueueClient} against a local stand-in for the server's
+ * websocket endpoint and process dispatcher.
+ */
+public class QueueClientTest {
+
+    private static final long DISPATCH_INTERVAL = 200;
+
+    private final Queue<UUID> processQueue = new ConcurrentLinkedQueue<>();
+    private final Map<ProcessRequest, StandInSocket> pendingRequests = new ConcurrentHashMap<>();
+    private final AtomicInteger processRequestCount = new AtomicInteger();
+    private final Queue<Long> heartbeats = new ConcurrentLinkedQueue<>();
+
+    private Server server;
+    private ScheduledExecutorService dispatcher;
+    private QueueClient queueClient;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new Server(0);
+
+        ServletContextHandler ctx = new ServletContextHandler();
+        ctx.addServlet(new ServletHolder(new WebSocketServlet() {
+            @Override
+            public void configure(WebSocketServletFactory factory) {
+                factory.setCreator((req, resp) -> new StandInSocket());
+            }
+        }), "/websocket");
+        server.setHandler(ctx);
+        server.start();
+
+        dispatcher = Executors.newSingleThreadScheduledExecutor();
+        dispatcher.scheduleWithFixedDelay(this::dispatch, DISPATCH_INTERVAL, DISPATCH_INTERVAL, TimeUnit.MILLISECONDS);
+
+        int port = ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+        queueClient = new QueueClient(new QueueClientConfiguration.Builder(new String[]{"ws://localhost:" + port + "/websocket"})
+                .agentId("test")
+                .apiKey("test")
+                .userAgent("test")
+                .build());
+        queueClient.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        queueClient.stop();
+        dispatcher.shutdownNow();
+        server.stop();
+    }
+
+    @Test(timeout = 30000)
+    public void testBurstAcquisition() throws Exception {
+        int slots = 20;
+        for (int i = 0; i < slots; i++) {
+            processQueue.add(UUID.randomUUID());
+        }
+
+        Set<UUID> acquired = new HashSet<>();
+        while (acquired.size() < slots) {
+            Future<Message> f = queueClient.request(new ProcessRequest(Collections.emptyMap(), slots - acquired.size()));
+
+            Message resp = f.get();
+            if (resp == null) {
+                // not connected yet
+                continue;
+            }
+
+            for (ProcessResponse p : ((ProcessBatchResponse) resp).getProcesses()) {
+                acquired.add(p.getProcessId());
+            }
+        }
+
+        // all free slots are filled in a single dispatch cycle
+        assertEquals(1, processRequestCount.get());
+        assertEquals(slots, acquired.size());
+    }
+
+    @Test(timeout = 30000)
+    public void testPipelinedRequests() throws Exception {
+        // wait for the connection
+        while (queueClient.request(new HeartbeatRequest(Collections.emptyList())).get() == null) {
+            Thread.sleep(100);
+        }
+        heartbeats.clear();
+
+        int requests = 50;
+
+        // submit all requests without waiting for the responses
+        List<HeartbeatRequest> sent = new ArrayList<>(requests);
+        List<Future<Message>> responses = new ArrayList<>(requests);
+        for (int i = 0; i < requests; i++) {
+            HeartbeatRequest req = new HeartbeatRequest(Collections.emptyList());
+            sent.add(req);
+            responses.add(queueClient.request(req));
+        }
+
+        for (int i = 0; i < requests; i++) {
+            Message resp = responses.get(i).get();
+            assertTrue(resp instanceof HeartbeatResponse);
+            // each future receives the response to its own request
+            assertEquals(sent.get(i).getCorrelationId(), resp.getCorrelationId());
+        }
+
+        // the server received every request once, in the submission order
+        List<Long> expected = new ArrayList<>(requests);
+        sent.forEach(r -> expected.add(r.getCorrelationId()));
+        assertEquals(expected, new ArrayList<>(heartbeats));
+
+        Map<String, LatencyStats.Snapshot> stats = queueClient.getLatencyStats();
+        assertEquals(requests + 1, stats.get("heartbeat_request").getCount());
+    }
+
+    @Test(timeout = 30000)
+    public void testMaintenanceMode() throws Exception {
+        awaitConnection();
+
+        queueClient.maintenanceMode();
+
+        // process requests are not sent anymore...
+        assertNull(queueClient.request(new ProcessRequest(Collections.emptyMap(), 1)).get());
+
+        // ...while the rest of the requests are sent after reconnecting
+        awaitConnection();
+        assertEquals(0, processRequestCount.get());
+    }
+
+    private void awaitConnection() throws Exception {
+        while (queueClient.request(new HeartbeatRequest(Collections.emptyList())).get() == null) {
+            Thread.sleep(100);
+        }
+    }
+
+    /**
+     * Simplified version of the server's Dispatcher (see DispatcherTest in concord-server):
+     * periodically responds to the pending requests, each request receives
+     * up to {@link ProcessRequest#getSlots()} processes.
+     */
+    private void dispatch() {
+        Iterator<Map.Entry<ProcessRequest, StandInSocket>> it = pendingRequests.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<ProcessRequest, StandInSocket> e = it.next();
+
+            ProcessRequest req = e.getKey();
+            int slots = req.getSlots() != null ? req.getSlots() : 1;
+
+            List<ProcessResponse> processes = new ArrayList<>();
+            UUID instanceId;
+            while (processes.size() < slots && (instanceId = processQueue.poll()) != null) {
+                processes.add(new ProcessResponse(req.getCorrelationId(), "token", instanceId, null, null, null, null, null, null));
+            }
+
+            if (processes.isEmpty()) {
+                continue;
+            }
+
+            it.remove();
+
+            Message resp = req.getSlots() != null ? new ProcessBatchResponse(req.getCorrelationId(), processes) : processes.get(0);
+            e.getValue().send(resp);
+        }
+    }
+
+    private class StandInSocket extends WebSocketAdapter {
+
+        @Override
+        public void onWebSocketText(String message) {
+            Message m = MessageSerializer.deserialize(message);
+            if (m instanceof ProcessRequest) {
+                processRequestCount.incrementAndGet();
+                pendingRequests.put((ProcessRequest) m, this);
+            } else if (m instanceof HeartbeatRequest) {
+                heartbeats.add(m.getCorrelationId());
+                send(new HeartbeatResponse(m.getCorrelationId(), Collections.emptyList()));
+            }
+        }
+
+        private void send(Message m) {
+            try {
+                getRemote().sendString(MessageSerializer.serialize(m));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}